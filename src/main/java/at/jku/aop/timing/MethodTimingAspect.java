@@ -0,0 +1,95 @@
+package at.jku.aop.timing;
+
+import at.jku.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aspect timing a sample of the calls to the repositories, services and Web REST endpoints.
+ * <p>
+ * Each sampled call is recorded in a per-method {@link Timer} with client-side percentiles, and the arguments of the
+ * calls slower than the slow-call threshold are logged. A call left out of the sample is only forwarded, so the aspect
+ * can stay on in production. The counts of the timers are those of the sample, not of all the calls.
+ */
+@Aspect
+public class MethodTimingAspect {
+
+    static final String METER_NAME = "method.execution";
+
+    private final Logger log = LoggerFactory.getLogger(MethodTimingAspect.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final double sampleRate;
+
+    private final long slowThresholdNanos;
+
+    private final double[] percentiles;
+
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    public MethodTimingAspect(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.MethodTiming properties = applicationProperties.getMethodTiming();
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = properties.getSampleRate();
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+        this.percentiles = properties.getPercentiles().stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Advice that times a sample of the calls.
+     *
+     * @param joinPoint join point for advice.
+     * @return result.
+     * @throws Throwable whatever the method throws.
+     */
+    @Around("at.jku.aop.logging.LoggingAspect.applicationPackagePointcut() && at.jku.aop.logging.LoggingAspect.springBeanPointcut()")
+    public Object timeAround(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return joinPoint.proceed();
+        }
+        long started = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            timers.computeIfAbsent(method, this::timer).record(elapsed, TimeUnit.NANOSECONDS);
+            if (elapsed > slowThresholdNanos) {
+                LoggerFactory
+                    .getLogger(method.getDeclaringClass())
+                    .warn(
+                        "Slow call: {}() took {} ms with argument[s] = {}",
+                        method.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(elapsed),
+                        Arrays.toString(joinPoint.getArgs())
+                    );
+            }
+        }
+    }
+
+    private Timer timer(Method method) {
+        log.debug("Timing calls to {}.{}()", method.getDeclaringClass().getSimpleName(), method.getName());
+        return Timer
+            .builder(METER_NAME)
+            .description("Duration of a sample of the calls to a method")
+            .tag("class", method.getDeclaringClass().getSimpleName())
+            .tag("method", method.getName())
+            .publishPercentiles(percentiles)
+            .distributionStatisticExpiry(Duration.ofMinutes(2))
+            .register(meterRegistry);
+    }
+}
@@ -1,5 +1,9 @@
 package at.jku.config;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -10,7 +14,1160 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
+    private final BidBook bidBook = new BidBook();
+
+    private final OfferBatch offerBatch = new OfferBatch();
+
+    private final Cache cache = new Cache();
+
+    private final AuctionEvents auctionEvents = new AuctionEvents();
+
+    private final ReadReplica readReplica = new ReadReplica();
+
+    private final UserDetailsCache userDetailsCache = new UserDetailsCache();
+
+    private final PasswordHashing passwordHashing = new PasswordHashing();
+
+    private final MailOutbox mailOutbox = new MailOutbox();
+
+    private final MethodTiming methodTiming = new MethodTiming();
+
+    private final UserPurge userPurge = new UserPurge();
+
+    private final AuctionLifecycle auctionLifecycle = new AuctionLifecycle();
+
+    private final ProxyBidding proxyBidding = new ProxyBidding();
+
+    private final RateLimit rateLimit = new RateLimit();
+
+    private final Idempotency idempotency = new Idempotency();
+
+    private final Outbox outbox = new Outbox();
+
+    private final BidJournal bidJournal = new BidJournal();
+
+    private final CacheInvalidation cacheInvalidation = new CacheInvalidation();
+
+    private final Cluster cluster = new Cluster();
+
+    private final VerifiedTokens verifiedTokens = new VerifiedTokens();
+
     // jhipster-needle-application-properties-property
+
+    public BidBook getBidBook() {
+        return bidBook;
+    }
+
+    public OfferBatch getOfferBatch() {
+        return offerBatch;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public AuctionEvents getAuctionEvents() {
+        return auctionEvents;
+    }
+
+    public ReadReplica getReadReplica() {
+        return readReplica;
+    }
+
+    public UserDetailsCache getUserDetailsCache() {
+        return userDetailsCache;
+    }
+
+    public PasswordHashing getPasswordHashing() {
+        return passwordHashing;
+    }
+
+    public MailOutbox getMailOutbox() {
+        return mailOutbox;
+    }
+
+    public MethodTiming getMethodTiming() {
+        return methodTiming;
+    }
+
+    public UserPurge getUserPurge() {
+        return userPurge;
+    }
+
+    public AuctionLifecycle getAuctionLifecycle() {
+        return auctionLifecycle;
+    }
+
+    public ProxyBidding getProxyBidding() {
+        return proxyBidding;
+    }
+
+    public RateLimit getRateLimit() {
+        return rateLimit;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public Outbox getOutbox() {
+        return outbox;
+    }
+
+    public BidJournal getBidJournal() {
+        return bidJournal;
+    }
+
+    public CacheInvalidation getCacheInvalidation() {
+        return cacheInvalidation;
+    }
+
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    public VerifiedTokens getVerifiedTokens() {
+        return verifiedTokens;
+    }
+
     // jhipster-needle-application-properties-property-getter
+
+    public static class BidBook {
+
+        /**
+         * Number of locks the auctions are striped over, rounded up to a power of two.
+         */
+        private int lockStripes = 256;
+
+        public int getLockStripes() {
+            return lockStripes;
+        }
+
+        public void setLockStripes(int lockStripes) {
+            if (lockStripes < 1) {
+                throw new IllegalArgumentException("application.bid-book.lock-stripes must be at least 1, was " + lockStripes);
+            }
+            this.lockStripes = lockStripes;
+        }
+    }
+
+    public static class OfferBatch {
+
+        /**
+         * Number of offers persisted per transaction, best kept a multiple of {@code hibernate.jdbc.batch_size}.
+         */
+        private int chunkSize = 500;
+
+        /**
+         * Maximum number of offers accepted in one request, the following ones are rejected.
+         */
+        private int maxSize = 10000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class Cache {
+
+        /**
+         * Settings of the cache regions, keyed by region alias. Regions without settings fall back to {@code jhipster.cache.ehcache}.
+         */
+        private final Map<String, Region> regions = new HashMap<>();
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public static class Region {
+
+            /**
+             * Maximum number of entries kept on heap, the least valuable ones are evicted beyond it.
+             */
+            private Long maxEntries;
+
+            /**
+             * Seconds an entry lives after it was written.
+             */
+            private Long timeToLiveSeconds;
+
+            /**
+             * Seconds an entry lives after it was last read, takes precedence over the time to live.
+             */
+            private Long timeToIdleSeconds;
+
+            public Long getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(Long maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public Long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public Long getTimeToIdleSeconds() {
+                return timeToIdleSeconds;
+            }
+
+            public void setTimeToIdleSeconds(Long timeToIdleSeconds) {
+                this.timeToIdleSeconds = timeToIdleSeconds;
+            }
+        }
+    }
+
+    public static class AuctionEvents {
+
+        /**
+         * Number of events buffered per subscriber, a subscriber falling further behind is disconnected.
+         */
+        private int bufferSize = 256;
+
+        /**
+         * Interval of the comments sent to idle subscribers, keeping proxies from closing the connection.
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+        /**
+         * Lifetime of a subscription, after which the client reconnects.
+         */
+        private Duration timeout = Duration.ofMinutes(30);
+
+        /**
+         * Number of threads sending the events, blocked while a client reads slowly.
+         */
+        private int senderPoolSize = 8;
+
+        /**
+         * Number of subscribers waiting for a sender thread, a subscriber beyond it is disconnected.
+         */
+        private int senderQueueCapacity = 4096;
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public Duration getHeartbeatInterval() {
+            return heartbeatInterval;
+        }
+
+        public void setHeartbeatInterval(Duration heartbeatInterval) {
+            this.heartbeatInterval = heartbeatInterval;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getSenderPoolSize() {
+            return senderPoolSize;
+        }
+
+        public void setSenderPoolSize(int senderPoolSize) {
+            this.senderPoolSize = senderPoolSize;
+        }
+
+        public int getSenderQueueCapacity() {
+            return senderQueueCapacity;
+        }
+
+        public void setSenderQueueCapacity(int senderQueueCapacity) {
+            this.senderQueueCapacity = senderQueueCapacity;
+        }
+    }
+
+    public static class ReadReplica {
+
+        /**
+         * Whether read-only transactions are routed to the replica, the primary serves everything otherwise.
+         */
+        private boolean enabled = false;
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * Replication lag beyond which read-only transactions go to the primary until the replica catches up.
+         */
+        private Duration maxLag = Duration.ofSeconds(5);
+
+        /**
+         * Interval at which the replication lag is measured.
+         */
+        private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+        /**
+         * Settings of the replica connection pool, with the same keys as {@code spring.datasource.hikari}.
+         */
+        private final Map<String, Object> hikari = new HashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public Duration getMaxLag() {
+            return maxLag;
+        }
+
+        public void setMaxLag(Duration maxLag) {
+            this.maxLag = maxLag;
+        }
+
+        public Duration getLagCheckInterval() {
+            return lagCheckInterval;
+        }
+
+        public void setLagCheckInterval(Duration lagCheckInterval) {
+            this.lagCheckInterval = lagCheckInterval;
+        }
+
+        public Map<String, Object> getHikari() {
+            return hikari;
+        }
+    }
+
+    public static class UserDetailsCache {
+
+        /**
+         * Whether the users authenticating are looked up in the cache before the database.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of logins and emails kept, the least recently used ones are dropped beyond it.
+         */
+        private long maxEntries = 10000;
+
+        /**
+         * Time a user found in the database is kept, bounding how long a change made outside of the application goes unnoticed.
+         */
+        private Duration timeToLive = Duration.ofMinutes(10);
+
+        /**
+         * Time a login or email not found in the database is remembered as such.
+         */
+        private Duration negativeTimeToLive = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public Duration getNegativeTimeToLive() {
+            return negativeTimeToLive;
+        }
+
+        public void setNegativeTimeToLive(Duration negativeTimeToLive) {
+            this.negativeTimeToLive = negativeTimeToLive;
+        }
+    }
+
+    public static class PasswordHashing {
+
+        /**
+         * BCrypt cost, the passwords hashed with another one are hashed again at the next login.
+         */
+        private int cost = 10;
+
+        /**
+         * Number of passwords hashed at the same time.
+         */
+        private int poolSize = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        /**
+         * Number of passwords waiting to be hashed, the following ones are turned away with a 503.
+         */
+        private int queueCapacity = 64;
+
+        /**
+         * Delay after which clients turned away are told to retry.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        public int getCost() {
+            return cost;
+        }
+
+        public void setCost(int cost) {
+            this.cost = cost;
+        }
+
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(int poolSize) {
+            this.poolSize = poolSize;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(Duration retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+    }
+
+    public static class MailOutbox {
+
+        /**
+         * Number of mails sent over one SMTP connection.
+         */
+        private int batchSize = 50;
+
+        /**
+         * Interval at which the outbox is checked for mails that are due.
+         */
+        private Duration pollInterval = Duration.ofSeconds(5);
+
+        /**
+         * Number of failed attempts after which a mail is given up on.
+         */
+        private int maxAttempts = 8;
+
+        /**
+         * Delay before the first retry, doubled after every further failure.
+         */
+        private Duration initialBackoff = Duration.ofSeconds(30);
+
+        /**
+         * Longest delay between two attempts.
+         */
+        private Duration maxBackoff = Duration.ofHours(1);
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+    }
+
+    public static class MethodTiming {
+
+        /**
+         * Whether a sample of the calls to the repositories, services and Web REST endpoints is timed.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Share of the calls that are timed, from 0 to 1.
+         */
+        private double sampleRate = 0.01;
+
+        /**
+         * Duration above which a timed call is logged with its arguments.
+         */
+        private Duration slowThreshold = Duration.ofMillis(500);
+
+        /**
+         * Percentiles published by the timer of each method.
+         */
+        private List<Double> percentiles = List.of(0.5, 0.95, 0.99);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public Duration getSlowThreshold() {
+            return slowThreshold;
+        }
+
+        public void setSlowThreshold(Duration slowThreshold) {
+            this.slowThreshold = slowThreshold;
+        }
+
+        public List<Double> getPercentiles() {
+            return percentiles;
+        }
+
+        public void setPercentiles(List<Double> percentiles) {
+            this.percentiles = percentiles;
+        }
+    }
+
+    public static class UserPurge {
+
+        /**
+         * Number of not activated users deleted in one transaction.
+         */
+        private int chunkSize = 500;
+
+        /**
+         * Pause between two chunks, leaving room to the other transactions.
+         */
+        private Duration pause = Duration.ofMillis(100);
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public Duration getPause() {
+            return pause;
+        }
+
+        public void setPause(Duration pause) {
+            this.pause = pause;
+        }
+    }
+
+    public static class AuctionLifecycle {
+
+        /**
+         * Resolution of the timer wheel closing the auctions, a close fires at most one tick after the end date.
+         */
+        private Duration tickDuration = Duration.ofMillis(10);
+
+        /**
+         * Number of closed auctions recorded in the database with one statement.
+         */
+        private int closeBatchSize = 500;
+
+        public Duration getTickDuration() {
+            return tickDuration;
+        }
+
+        public void setTickDuration(Duration tickDuration) {
+            this.tickDuration = tickDuration;
+        }
+
+        public int getCloseBatchSize() {
+            return closeBatchSize;
+        }
+
+        public void setCloseBatchSize(int closeBatchSize) {
+            this.closeBatchSize = closeBatchSize;
+        }
+    }
+
+    public static class ProxyBidding {
+
+        /**
+         * Amount a proxy bid raises the price above the bid it beats.
+         */
+        private double increment = 1;
+
+        public double getIncrement() {
+            return increment;
+        }
+
+        public void setIncrement(double increment) {
+            this.increment = increment;
+        }
+    }
+
+    public static class RateLimit {
+
+        /**
+         * Maximum number of token buckets kept, the full ones are evicted beyond it.
+         */
+        private int maxBuckets = 100_000;
+
+        /**
+         * Interval between two evictions of the full token buckets.
+         */
+        private Duration evictionInterval = Duration.ofMinutes(1);
+
+        /**
+         * Limits of the rate-limited endpoints, keyed by endpoint name. Endpoints without limits are not limited.
+         */
+        private final Map<String, Endpoint> endpoints = new HashMap<>();
+
+        public int getMaxBuckets() {
+            return maxBuckets;
+        }
+
+        public void setMaxBuckets(int maxBuckets) {
+            this.maxBuckets = maxBuckets;
+        }
+
+        public Duration getEvictionInterval() {
+            return evictionInterval;
+        }
+
+        public void setEvictionInterval(Duration evictionInterval) {
+            this.evictionInterval = evictionInterval;
+        }
+
+        public Map<String, Endpoint> getEndpoints() {
+            return endpoints;
+        }
+
+        public static class Endpoint {
+
+            /**
+             * Limit of the calls of each user.
+             */
+            private Bandwidth perUser;
+
+            /**
+             * Limit of the calls targeting each auction, whoever the user.
+             */
+            private Bandwidth perAuction;
+
+            public Bandwidth getPerUser() {
+                return perUser;
+            }
+
+            public void setPerUser(Bandwidth perUser) {
+                this.perUser = perUser;
+            }
+
+            public Bandwidth getPerAuction() {
+                return perAuction;
+            }
+
+            public void setPerAuction(Bandwidth perAuction) {
+                this.perAuction = perAuction;
+            }
+        }
+
+        public static class Bandwidth {
+
+            /**
+             * Number of calls allowed in a burst.
+             */
+            private long capacity;
+
+            /**
+             * Time it takes to refill the whole capacity, one call at a time.
+             */
+            private Duration period = Duration.ofSeconds(1);
+
+            public long getCapacity() {
+                return capacity;
+            }
+
+            public void setCapacity(long capacity) {
+                this.capacity = capacity;
+            }
+
+            public Duration getPeriod() {
+                return period;
+            }
+
+            public void setPeriod(Duration period) {
+                this.period = period;
+            }
+        }
+    }
+
+    public static class Idempotency {
+
+        /**
+         * Time a response is replayed to the requests repeating its idempotency key, past which the key can be used again.
+         */
+        private Duration timeToLive = Duration.ofHours(24);
+
+        /**
+         * Maximum number of responses kept in memory, the least recently used ones are read from the database again.
+         */
+        private long maxEntries = 10000;
+
+        /**
+         * Time a request waits for the one in flight with the same idempotency key before it is turned away.
+         */
+        private Duration inFlightTimeout = Duration.ofSeconds(30);
+
+        /**
+         * Interval between two deletions of the responses past their time to live.
+         */
+        private Duration cleanupInterval = Duration.ofMinutes(10);
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+        public long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getInFlightTimeout() {
+            return inFlightTimeout;
+        }
+
+        public void setInFlightTimeout(Duration inFlightTimeout) {
+            this.inFlightTimeout = inFlightTimeout;
+        }
+
+        public Duration getCleanupInterval() {
+            return cleanupInterval;
+        }
+
+        public void setCleanupInterval(Duration cleanupInterval) {
+            this.cleanupInterval = cleanupInterval;
+        }
+    }
+
+    public static class Outbox {
+
+        /**
+         * Number of events relayed in one transaction.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Interval at which the outbox is checked for events to relay.
+         */
+        private Duration pollInterval = Duration.ofSeconds(1);
+
+        /**
+         * File the events are appended to as newline-delimited JSON, none if empty.
+         */
+        private String fileSink;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+
+        public String getFileSink() {
+            return fileSink;
+        }
+
+        public void setFileSink(String fileSink) {
+            this.fileSink = fileSink;
+        }
+    }
+
+    public static class BidJournal {
+
+        /**
+         * Whether new bids are acknowledged once appended to the journal, and written to the database behind.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory holding the journal segments, replayed at startup.
+         */
+        private String directory = "journal";
+
+        /**
+         * Size in bytes of a journal segment, preallocated and memory-mapped.
+         */
+        private int segmentSize = 64 * 1024 * 1024;
+
+        /**
+         * Maximum number of bids written to the database in one transaction.
+         */
+        private int flushBatchSize = 1000;
+
+        /**
+         * Time the writer waits for bids before looking for a segment to delete, and between retries of a failed batch.
+         */
+        private Duration flushInterval = Duration.ofMillis(200);
+
+        /**
+         * Time the shutdown waits for the journal to be written to the database, the rest is replayed at the next startup.
+         */
+        private Duration drainTimeout = Duration.ofSeconds(30);
+
+        /**
+         * Number of blocks of offer ids fetched from the database sequence ahead of the bids.
+         */
+        private int idBlocks = 4;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public int getFlushBatchSize() {
+            return flushBatchSize;
+        }
+
+        public void setFlushBatchSize(int flushBatchSize) {
+            this.flushBatchSize = flushBatchSize;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public Duration getDrainTimeout() {
+            return drainTimeout;
+        }
+
+        public void setDrainTimeout(Duration drainTimeout) {
+            this.drainTimeout = drainTimeout;
+        }
+
+        public int getIdBlocks() {
+            return idBlocks;
+        }
+
+        public void setIdBlocks(int idBlocks) {
+            this.idBlocks = idBlocks;
+        }
+    }
+
+    public static class CacheInvalidation {
+
+        /**
+         * Whether the changes to cached entities are sent to the other instances over PostgreSQL {@code LISTEN/NOTIFY}.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Notification channel shared by the instances, a lowercase SQL identifier.
+         */
+        private String channel = "cache_invalidation";
+
+        /**
+         * Time the listening connection waits for notifications before checking it should stop.
+         */
+        private Duration pollTimeout = Duration.ofMillis(500);
+
+        /**
+         * Time between two attempts to open the listening connection again.
+         */
+        private Duration reconnectDelay = Duration.ofSeconds(5);
+
+        /**
+         * Maximum number of changes waiting to be sent, beyond which the other instances are told to drop all their caches.
+         */
+        private int maxPending = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public void setChannel(String channel) {
+            this.channel = channel;
+        }
+
+        public Duration getPollTimeout() {
+            return pollTimeout;
+        }
+
+        public void setPollTimeout(Duration pollTimeout) {
+            this.pollTimeout = pollTimeout;
+        }
+
+        public Duration getReconnectDelay() {
+            return reconnectDelay;
+        }
+
+        public void setReconnectDelay(Duration reconnectDelay) {
+            this.reconnectDelay = reconnectDelay;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+    }
+
+    public static class Cluster {
+
+        /**
+         * Whether the auctions are shared between the instances, the offer writes for an auction going to its owner.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Base URL the other instances reach this one at, such as {@code http://10.0.0.12:8080}, unique per instance.
+         */
+        private String url;
+
+        /**
+         * Secret shared by the instances, signing the offer writes they forward to each other.
+         */
+        private String secret;
+
+        /**
+         * Time between two heartbeats of this instance.
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(5);
+
+        /**
+         * Time after its last heartbeat an instance is left out of the cluster.
+         */
+        private Duration memberTimeout = Duration.ofSeconds(20);
+
+        /**
+         * Points of each instance on the hash ring, more spread the auctions more evenly.
+         */
+        private int virtualNodes = 160;
+
+        /**
+         * Whether the offer writes for an auction owned by another instance are forwarded to it, rather than answered
+         * with a {@code 307 (Temporary Redirect)} to it.
+         */
+        private boolean forward = true;
+
+        /**
+         * Time a forwarded offer write waits for the response of the owner.
+         */
+        private Duration forwardTimeout = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getSecret() {
+            return secret;
+        }
+
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public Duration getHeartbeatInterval() {
+            return heartbeatInterval;
+        }
+
+        public void setHeartbeatInterval(Duration heartbeatInterval) {
+            this.heartbeatInterval = heartbeatInterval;
+        }
+
+        public Duration getMemberTimeout() {
+            return memberTimeout;
+        }
+
+        public void setMemberTimeout(Duration memberTimeout) {
+            this.memberTimeout = memberTimeout;
+        }
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+
+        public boolean isForward() {
+            return forward;
+        }
+
+        public void setForward(boolean forward) {
+            this.forward = forward;
+        }
+
+        public Duration getForwardTimeout() {
+            return forwardTimeout;
+        }
+
+        public void setForwardTimeout(Duration forwardTimeout) {
+            this.forwardTimeout = forwardTimeout;
+        }
+    }
     // jhipster-needle-application-properties-property-class
+
+    public static class VerifiedTokens {
+
+        /**
+         * Maximum number of verified JWT tokens kept, the least recently used ones are dropped beyond it.
+         */
+        private long maxEntries = 10000;
+
+        public long getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(long maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
 }
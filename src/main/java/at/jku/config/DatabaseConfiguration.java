@@ -1,14 +1,27 @@
 package at.jku.config;
 
+import com.zaxxer.hikari.HikariDataSource;
 import java.sql.SQLException;
+import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import tech.jhipster.config.JHipsterConstants;
 import tech.jhipster.config.h2.H2ConfigurationHelper;
@@ -54,4 +67,73 @@ public class DatabaseConfiguration {
         }
         return String.valueOf(port);
     }
+
+    /**
+     * Data sources used when a read replica is configured: the primary pool from {@code spring.datasource}, the replica
+     * pool from {@code application.read-replica}, and the routing between them handed to JPA.
+     */
+    @Configuration
+    @ConditionalOnProperty(prefix = "application.read-replica", name = "enabled", havingValue = "true")
+    public static class ReadReplicaConfiguration {
+
+        private final Logger log = LoggerFactory.getLogger(ReadReplicaConfiguration.class);
+
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+            return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        @Bean
+        @ConfigurationProperties("application.read-replica.hikari")
+        public HikariDataSource replicaDataSource(ApplicationProperties applicationProperties) {
+            ApplicationProperties.ReadReplica readReplica = applicationProperties.getReadReplica();
+            log.info("Routing read-only transactions to the read replica at {}", readReplica.getUrl());
+            return DataSourceBuilder
+                .create()
+                .type(HikariDataSource.class)
+                .url(readReplica.getUrl())
+                .username(readReplica.getUsername())
+                .password(readReplica.getPassword())
+                .build();
+        }
+
+        @Bean
+        public ReplicaRoutingDataSource replicaRoutingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            ApplicationProperties applicationProperties
+        ) {
+            return new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, applicationProperties.getReadReplica().getMaxLag());
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+            return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+        }
+
+        /**
+         * The Hibernate adapter Spring Boot would configure, with the {@link ReplicaRoutingJpaDialect}.
+         */
+        @Bean
+        public JpaVendorAdapter jpaVendorAdapter(JpaProperties jpaProperties, ReplicaRoutingDataSource replicaRoutingDataSource) {
+            HibernateJpaDialect jpaDialect = new ReplicaRoutingJpaDialect(replicaRoutingDataSource);
+            HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter() {
+                @Override
+                public HibernateJpaDialect getJpaDialect() {
+                    return jpaDialect;
+                }
+            };
+            adapter.setShowSql(jpaProperties.isShowSql());
+            if (jpaProperties.getDatabase() != null) {
+                adapter.setDatabase(jpaProperties.getDatabase());
+            }
+            if (jpaProperties.getDatabasePlatform() != null) {
+                adapter.setDatabasePlatform(jpaProperties.getDatabasePlatform());
+            }
+            adapter.setGenerateDdl(jpaProperties.isGenerateDdl());
+            return adapter;
+        }
+    }
 }
@@ -1,6 +1,9 @@
 package at.jku.config;
 
 import at.jku.aop.logging.LoggingAspect;
+import at.jku.aop.timing.MethodTimingAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
 import tech.jhipster.config.JHipsterConstants;
@@ -14,4 +17,10 @@ public class LoggingAspectConfiguration {
     public LoggingAspect loggingAspect(Environment env) {
         return new LoggingAspect(env);
     }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.method-timing", name = "enabled", havingValue = "true")
+    public MethodTimingAspect methodTimingAspect(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        return new MethodTimingAspect(applicationProperties, meterRegistry);
+    }
 }
@@ -0,0 +1,131 @@
+package at.jku.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link DataSource} sending the work of read-only transactions to a read replica, and everything else to the primary.
+ * <p>
+ * The route is decided when a connection is taken, so this data source must be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager asks for its
+ * connection before the read-only flag of the transaction is published. While the replica lags behind the primary by
+ * more than the allowed lag, or cannot be reached, read-only transactions fall back to the primary.
+ * <p>
+ * The JPA transactions have their route decided when they begin, by {@link ReplicaRoutingJpaDialect}, which keeps the
+ * rows read from the replica out of the second-level cache: a transaction begun while the replica lags stays on the
+ * primary, and one begun on the replica only moves to the primary if the replica falls behind before it takes its
+ * connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Seconds the replica lags behind the primary, zero when it has replayed everything it received.
+     */
+    static final String REPLICATION_LAG_QUERY =
+        "select case when not pg_is_in_recovery() or pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0 " +
+        "else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+
+    enum Route {
+        PRIMARY,
+        REPLICA,
+    }
+
+    private final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource replica;
+
+    private final Duration maxLag;
+
+    private volatile boolean replicaAvailable = true;
+
+    /**
+     * The routes of the JPA transactions of the thread, the innermost first.
+     */
+    private final ThreadLocal<Deque<Route>> transactionRoutes = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration maxLag) {
+        this.replica = replica;
+        this.maxLag = maxLag;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Route transactionRoute = transactionRoutes.get().peekFirst();
+        boolean readOnly = transactionRoute == null
+            ? TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+            : transactionRoute == Route.REPLICA;
+        return replicaAvailable && readOnly ? Route.REPLICA : Route.PRIMARY;
+    }
+
+    /**
+     * Decide the route of a transaction beginning on this thread, which holds until {@link #endTransaction}.
+     *
+     * @param readOnly whether the transaction is read-only.
+     * @return the route of the transaction.
+     */
+    Route beginTransaction(boolean readOnly) {
+        Route route = replicaAvailable && readOnly ? Route.REPLICA : Route.PRIMARY;
+        transactionRoutes.get().addFirst(route);
+        return route;
+    }
+
+    /**
+     * Forget the route of the innermost transaction of this thread.
+     */
+    void endTransaction() {
+        Deque<Route> routes = transactionRoutes.get();
+        routes.pollFirst();
+        if (routes.isEmpty()) {
+            transactionRoutes.remove();
+        }
+    }
+
+    /**
+     * Measure the replication lag and route read-only transactions to the primary while it exceeds the allowed lag.
+     */
+    @Scheduled(
+        initialDelayString = "${application.read-replica.lag-check-interval:PT5S}",
+        fixedDelayString = "${application.read-replica.lag-check-interval:PT5S}"
+    )
+    public void checkReplicationLag() {
+        boolean available;
+        try (Connection connection = replica.getConnection(); Statement statement = connection.createStatement()) {
+            double lagSeconds;
+            try (ResultSet resultSet = statement.executeQuery(REPLICATION_LAG_QUERY)) {
+                resultSet.next();
+                lagSeconds = resultSet.getDouble(1);
+            }
+            available = lagSeconds * 1000 <= maxLag.toMillis();
+            if (!available && replicaAvailable) {
+                log.warn("Read replica lags {} seconds behind the primary, routing reads to the primary", lagSeconds);
+            }
+        } catch (SQLException e) {
+            available = false;
+            if (replicaAvailable) {
+                log.warn("Read replica cannot be reached, routing reads to the primary: {}", e.getMessage());
+            }
+        }
+        if (available && !replicaAvailable) {
+            log.info("Read replica caught up, routing reads to it again");
+        }
+        replicaAvailable = available;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+}
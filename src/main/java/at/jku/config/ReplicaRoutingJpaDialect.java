@@ -0,0 +1,77 @@
+package at.jku.config;
+
+import java.sql.SQLException;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+/**
+ * {@link HibernateJpaDialect} deciding the route of each transaction on the {@link ReplicaRoutingDataSource} when it
+ * begins. The sessions of the transactions routed to the replica only read the second-level cache, with
+ * {@link CacheMode#GET}, so the rows of a replica lagging behind the primary are never cached for the transactions
+ * going to the primary.
+ */
+class ReplicaRoutingJpaDialect extends HibernateJpaDialect {
+
+    private final ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    ReplicaRoutingJpaDialect(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        this.replicaRoutingDataSource = replicaRoutingDataSource;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+        throws PersistenceException, SQLException, TransactionException {
+        ReplicaRoutingDataSource.Route route = replicaRoutingDataSource.beginTransaction(definition.isReadOnly());
+        Object transactionData;
+        try {
+            transactionData = super.beginTransaction(entityManager, definition);
+        } catch (SQLException | RuntimeException e) {
+            replicaRoutingDataSource.endTransaction();
+            throw e;
+        }
+        Session session = getSession(entityManager);
+        CacheMode previousCacheMode = session.getCacheMode();
+        if (route == ReplicaRoutingDataSource.Route.REPLICA) {
+            session.setCacheMode(CacheMode.GET);
+        }
+        return new RoutedTransactionData(transactionData, session, previousCacheMode);
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (!(transactionData instanceof RoutedTransactionData)) {
+            super.cleanupTransaction(transactionData);
+            return;
+        }
+        RoutedTransactionData routed = (RoutedTransactionData) transactionData;
+        try {
+            // the session outlives the transaction when it was opened before it
+            if (routed.session.isOpen()) {
+                routed.session.setCacheMode(routed.previousCacheMode);
+            }
+            super.cleanupTransaction(routed.delegate);
+        } finally {
+            replicaRoutingDataSource.endTransaction();
+        }
+    }
+
+    private static final class RoutedTransactionData {
+
+        private final Object delegate;
+
+        private final Session session;
+
+        private final CacheMode previousCacheMode;
+
+        private RoutedTransactionData(Object delegate, Session session, CacheMode previousCacheMode) {
+            this.delegate = delegate;
+            this.session = session;
+            this.previousCacheMode = previousCacheMode;
+        }
+    }
+}
@@ -1,16 +1,23 @@
 package at.jku.domain;
 
+import at.jku.domain.enumeration.AuctionStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 import javax.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * A Auction.
  */
 @Entity
 @Table(name = "auction")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @SuppressWarnings("common-java:DuplicatedBlocks")
 public class Auction implements Serializable {
 
@@ -25,10 +32,33 @@ public class Auction implements Serializable {
     @Column(name = "auction_description")
     private String auctionDescription;
 
+    /**
+     * When the auction stops taking bids, never if {@code null}.
+     */
+    @Column(name = "end_date")
+    private Instant endDate;
+
+    /**
+     * Driven by the end date, never written by clients.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 10, nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private AuctionStatus status = AuctionStatus.OPEN;
+
     @OneToMany(mappedBy = "offerName")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JsonIgnoreProperties(value = { "offerName" }, allowSetters = true)
     private Set<Offer> auctionNames = new HashSet<>();
 
+    /**
+     * Incremented on every update, exposed as the {@code ETag} of the auction.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private Long version;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -57,6 +87,32 @@ public class Auction implements Serializable {
         this.auctionDescription = auctionDescription;
     }
 
+    public Instant getEndDate() {
+        return this.endDate;
+    }
+
+    public Auction endDate(Instant endDate) {
+        this.setEndDate(endDate);
+        return this;
+    }
+
+    public void setEndDate(Instant endDate) {
+        this.endDate = endDate;
+    }
+
+    public AuctionStatus getStatus() {
+        return this.status;
+    }
+
+    public Auction status(AuctionStatus status) {
+        this.setStatus(status);
+        return this;
+    }
+
+    public void setStatus(AuctionStatus status) {
+        this.status = status;
+    }
+
     public Set<Offer> getAuctionNames() {
         return this.auctionNames;
     }
@@ -88,6 +144,14 @@ public class Auction implements Serializable {
         return this;
     }
 
+    public Long getVersion() {
+        return this.version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -113,6 +177,8 @@ public class Auction implements Serializable {
         return "Auction{" +
             "id=" + getId() +
             ", auctionDescription='" + getAuctionDescription() + "'" +
+            ", endDate='" + getEndDate() + "'" +
+            ", status='" + getStatus() + "'" +
             "}";
     }
 }
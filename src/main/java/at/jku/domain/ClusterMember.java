@@ -0,0 +1,77 @@
+package at.jku.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+
+/**
+ * An instance of the application taking part in the cluster, known by the URL the other instances reach it at. Its
+ * heartbeat is renewed while it runs, and a member whose heartbeat lapsed is left out of the cluster.
+ */
+@Entity
+@Table(name = "cluster_member")
+public class ClusterMember implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "url", length = 255, nullable = false, updatable = false)
+    private String url;
+
+    @Column(name = "joined_date", nullable = false, updatable = false)
+    private Instant joinedDate;
+
+    @Column(name = "heartbeat_date", nullable = false)
+    private Instant heartbeatDate;
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public Instant getJoinedDate() {
+        return joinedDate;
+    }
+
+    public void setJoinedDate(Instant joinedDate) {
+        this.joinedDate = joinedDate;
+    }
+
+    public Instant getHeartbeatDate() {
+        return heartbeatDate;
+    }
+
+    public void setHeartbeatDate(Instant heartbeatDate) {
+        this.heartbeatDate = heartbeatDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClusterMember)) {
+            return false;
+        }
+        return url != null && url.equals(((ClusterMember) o).url);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ClusterMember{" +
+            "url='" + getUrl() + "'" +
+            ", joinedDate='" + getJoinedDate() + "'" +
+            ", heartbeatDate='" + getHeartbeatDate() + "'" +
+            "}";
+    }
+}
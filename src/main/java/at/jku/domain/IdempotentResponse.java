@@ -0,0 +1,139 @@
+package at.jku.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+import org.hibernate.annotations.Type;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * The response to the first request with an idempotency key, replayed to the requests repeating it. The key is stored
+ * hashed along with the user and the endpoint it was sent to, and the request as a hash of its body.
+ * <p>
+ * The key is reserved before its request is handled, with status {@code 0} and no response, which is filled in once
+ * the request took effect. New until loaded, so that reserving a key another request reserved meanwhile fails on the
+ * primary key instead of overwriting its reservation.
+ */
+@Entity
+@Table(name = "idempotent_response")
+public class IdempotentResponse implements Persistable<String>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "id", length = 44, nullable = false, updatable = false)
+    private String id;
+
+    @Column(name = "request_hash", length = 44, nullable = false, updatable = false)
+    private String requestHash;
+
+    @Column(name = "status", nullable = false)
+    private int status;
+
+    /**
+     * The headers of the response, as a JSON object of arrays.
+     */
+    @Column(name = "headers", length = 2000)
+    private String headers;
+
+    /**
+     * The body of the response, as JSON.
+     */
+    @Lob
+    @Type(type = "org.hibernate.type.TextType")
+    @Column(name = "body")
+    private String body;
+
+    @Column(name = "created_date", nullable = false, updatable = false)
+    private Instant createdDate;
+
+    @Transient
+    private boolean loaded;
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(String headers) {
+        this.headers = headers;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Instant createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !loaded;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markLoaded() {
+        this.loaded = true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdempotentResponse)) {
+            return false;
+        }
+        return id != null && id.equals(((IdempotentResponse) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "IdempotentResponse{" +
+            "id='" + getId() + "'" +
+            ", status=" + getStatus() +
+            ", createdDate='" + getCreatedDate() + "'" +
+            "}";
+    }
+}
@@ -1,14 +1,19 @@
 package at.jku.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.io.Serializable;
 import javax.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * A Offer.
  */
 @Entity
 @Table(name = "offer")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @SuppressWarnings("common-java:DuplicatedBlocks")
 public class Offer implements Serializable {
 
@@ -23,10 +28,25 @@ public class Offer implements Serializable {
     @Column(name = "offer_value")
     private Double offerValue;
 
+    /**
+     * Login of the user who placed the offer, set by the server.
+     */
+    @Column(name = "bidder", length = 50)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String bidder;
+
     @ManyToOne
     @JsonIgnoreProperties(value = { "auctionNames" }, allowSetters = true)
     private Auction offerName;
 
+    /**
+     * Incremented on every update, exposed as the {@code ETag} of the offer.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private Long version;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -55,6 +75,19 @@ public class Offer implements Serializable {
         this.offerValue = offerValue;
     }
 
+    public String getBidder() {
+        return this.bidder;
+    }
+
+    public Offer bidder(String bidder) {
+        this.setBidder(bidder);
+        return this;
+    }
+
+    public void setBidder(String bidder) {
+        this.bidder = bidder;
+    }
+
     public Auction getOfferName() {
         return this.offerName;
     }
@@ -68,6 +101,14 @@ public class Offer implements Serializable {
         return this;
     }
 
+    public Long getVersion() {
+        return this.version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -93,6 +134,7 @@ public class Offer implements Serializable {
         return "Offer{" +
             "id=" + getId() +
             ", offerValue=" + getOfferValue() +
+            ", bidder='" + getBidder() + "'" +
             "}";
     }
 }
@@ -0,0 +1,80 @@
+package at.jku.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+
+/**
+ * How far a relay got through the outbox. Its row is locked while the relay publishes a batch, so that a single
+ * instance relays at a time.
+ */
+@Entity
+@Table(name = "outbox_offset")
+public class OutboxOffset implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "relay", length = 50, nullable = false, updatable = false)
+    private String relay;
+
+    /**
+     * The id of the last event relayed, {@code 0} if none was.
+     */
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId;
+
+    @Column(name = "updated_date")
+    private Instant updatedDate;
+
+    public String getRelay() {
+        return relay;
+    }
+
+    public void setRelay(String relay) {
+        this.relay = relay;
+    }
+
+    public Long getLastEventId() {
+        return lastEventId;
+    }
+
+    public void setLastEventId(Long lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    public Instant getUpdatedDate() {
+        return updatedDate;
+    }
+
+    public void setUpdatedDate(Instant updatedDate) {
+        this.updatedDate = updatedDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OutboxOffset)) {
+            return false;
+        }
+        return relay != null && relay.equals(((OutboxOffset) o).relay);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "OutboxOffset{" +
+            "relay='" + getRelay() + "'" +
+            ", lastEventId=" + getLastEventId() +
+            ", updatedDate='" + getUpdatedDate() + "'" +
+            "}";
+    }
+}
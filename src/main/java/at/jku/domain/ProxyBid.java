@@ -0,0 +1,106 @@
+package at.jku.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+import javax.persistence.*;
+
+/**
+ * The highest amount a bidder is ready to pay for an {@link Auction}, on whose behalf the system bids the minimum
+ * increment whenever the bidder is outbid. A bidder holds at most one proxy bid per auction, raised in place.
+ */
+@Entity
+@Table(name = "proxy_bid", uniqueConstraints = @UniqueConstraint(columnNames = { "auction_id", "bidder" }))
+public class ProxyBid implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @SequenceGenerator(name = "sequenceGenerator")
+    @Column(name = "id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "auction_id", nullable = false, updatable = false)
+    private Auction auction;
+
+    @Column(name = "bidder", length = 50, nullable = false, updatable = false)
+    private String bidder;
+
+    @Column(name = "max_amount", nullable = false)
+    private Double maxAmount;
+
+    /**
+     * When the maximum was last set, the earlier of two equal maximums wins.
+     */
+    @Column(name = "placed_date", nullable = false)
+    private Instant placedDate;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Auction getAuction() {
+        return auction;
+    }
+
+    public void setAuction(Auction auction) {
+        this.auction = auction;
+    }
+
+    public String getBidder() {
+        return bidder;
+    }
+
+    public void setBidder(String bidder) {
+        this.bidder = bidder;
+    }
+
+    public Double getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(Double maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    public Instant getPlacedDate() {
+        return placedDate;
+    }
+
+    public void setPlacedDate(Instant placedDate) {
+        this.placedDate = placedDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProxyBid)) {
+            return false;
+        }
+        return id != null && id.equals(((ProxyBid) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProxyBid{" +
+            "id=" + getId() +
+            ", bidder='" + getBidder() + "'" +
+            ", maxAmount=" + getMaxAmount() +
+            ", placedDate='" + getPlacedDate() + "'" +
+            "}";
+    }
+}
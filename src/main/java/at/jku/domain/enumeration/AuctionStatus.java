@@ -0,0 +1,19 @@
+package at.jku.domain.enumeration;
+
+/**
+ * The AuctionStatus enumeration.
+ */
+public enum AuctionStatus {
+    /**
+     * Taking bids until its end date, if it has one.
+     */
+    OPEN,
+    /**
+     * Past its end date and no longer taking bids, waiting to be recorded as closed.
+     */
+    CLOSING,
+    /**
+     * Closed for good.
+     */
+    CLOSED,
+}
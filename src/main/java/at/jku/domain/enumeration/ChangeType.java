@@ -0,0 +1,19 @@
+package at.jku.domain.enumeration;
+
+/**
+ * The ChangeType enumeration.
+ */
+public enum ChangeType {
+    /**
+     * The entity was created.
+     */
+    CREATED,
+    /**
+     * The entity was modified.
+     */
+    UPDATED,
+    /**
+     * The entity was deleted.
+     */
+    DELETED,
+}
@@ -0,0 +1,15 @@
+package at.jku.domain.enumeration;
+
+/**
+ * The OutboundMailStatus enumeration.
+ */
+public enum OutboundMailStatus {
+    /**
+     * Waiting to be sent, possibly after failed attempts.
+     */
+    PENDING,
+    /**
+     * Given up on after too many failed attempts.
+     */
+    DEAD,
+}
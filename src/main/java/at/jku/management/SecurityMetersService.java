@@ -1,7 +1,10 @@
 package at.jku.management;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -13,16 +16,66 @@ public class SecurityMetersService {
     public static final String INVALID_TOKENS_METER_BASE_UNIT = "errors";
     public static final String INVALID_TOKENS_METER_CAUSE_DIMENSION = "cause";
 
+    public static final String TOKEN_CACHE_METER_NAME = "security.authentication.token-cache";
+    public static final String TOKEN_CACHE_METER_DESCRIPTION = "Indicates how often a presented token was already verified.";
+    public static final String TOKEN_CACHE_METER_RESULT_DIMENSION = "result";
+    public static final String TOKEN_CACHE_HIT_RATIO_METER_NAME = "security.authentication.token-cache.hit-ratio";
+    public static final String USER_DETAILS_CACHE_METER_NAME = "security.authentication.user-details-cache";
+    public static final String USER_DETAILS_CACHE_METER_DESCRIPTION = "Indicates how often a user authenticating was found in the cache.";
+    public static final String PASSWORD_HASHING_QUEUE_WAIT_METER_NAME = "security.password-hashing.queue-wait";
+    public static final String PASSWORD_HASHING_QUEUE_WAIT_METER_DESCRIPTION = "Indicates the time passwords waited for a hashing thread.";
+    public static final String PASSWORD_HASHING_METER_NAME = "security.password-hashing.hash";
+    public static final String PASSWORD_HASHING_METER_DESCRIPTION = "Indicates the time spent hashing or checking passwords.";
+    public static final String PASSWORD_HASHING_REJECTED_METER_NAME = "security.password-hashing.rejected";
+    public static final String PASSWORD_HASHING_REJECTED_METER_DESCRIPTION =
+        "Indicates how many passwords were turned away because too many were waiting to be hashed.";
+    public static final String TOKEN_PARSE_METER_NAME = "security.authentication.token-parse";
+    public static final String TOKEN_PARSE_METER_DESCRIPTION = "Indicates the time spent parsing and verifying the tokens presented by the clients.";
+    public static final String RATE_LIMIT_REJECTED_METER_NAME = "security.rate-limit.rejected";
+    public static final String RATE_LIMIT_REJECTED_METER_DESCRIPTION =
+        "Indicates how many calls were turned away because they exceeded a rate limit.";
+    public static final String RATE_LIMIT_ENDPOINT_DIMENSION = "endpoint";
+    public static final String RATE_LIMIT_SCOPE_DIMENSION = "scope";
+
+    private final MeterRegistry registry;
+
     private final Counter tokenInvalidSignatureCounter;
     private final Counter tokenExpiredCounter;
     private final Counter tokenUnsupportedCounter;
     private final Counter tokenMalformedCounter;
+    private final Counter tokenCacheHitCounter;
+    private final Counter tokenCacheMissCounter;
+    private final Timer tokenParseTimer;
+    private final Counter userDetailsCacheHitCounter;
+    private final Counter userDetailsCacheMissCounter;
+    private final Timer passwordHashingQueueWaitTimer;
+    private final Timer passwordHashingTimer;
+    private final Counter passwordHashingRejectedCounter;
 
     public SecurityMetersService(MeterRegistry registry) {
+        this.registry = registry;
+
         this.tokenInvalidSignatureCounter = invalidTokensCounterForCauseBuilder("invalid-signature").register(registry);
         this.tokenExpiredCounter = invalidTokensCounterForCauseBuilder("expired").register(registry);
         this.tokenUnsupportedCounter = invalidTokensCounterForCauseBuilder("unsupported").register(registry);
         this.tokenMalformedCounter = invalidTokensCounterForCauseBuilder("malformed").register(registry);
+
+        this.tokenCacheHitCounter = tokenCacheCounterForResultBuilder("hit").register(registry);
+        this.tokenCacheMissCounter = tokenCacheCounterForResultBuilder("miss").register(registry);
+        Gauge
+            .builder(TOKEN_CACHE_HIT_RATIO_METER_NAME, this, SecurityMetersService::tokenCacheHitRatio)
+            .description(TOKEN_CACHE_METER_DESCRIPTION)
+            .register(registry);
+        this.tokenParseTimer = Timer.builder(TOKEN_PARSE_METER_NAME).description(TOKEN_PARSE_METER_DESCRIPTION).register(registry);
+
+        this.userDetailsCacheHitCounter = userDetailsCacheCounterForResultBuilder("hit").register(registry);
+        this.userDetailsCacheMissCounter = userDetailsCacheCounterForResultBuilder("miss").register(registry);
+
+        this.passwordHashingQueueWaitTimer =
+            Timer.builder(PASSWORD_HASHING_QUEUE_WAIT_METER_NAME).description(PASSWORD_HASHING_QUEUE_WAIT_METER_DESCRIPTION).register(registry);
+        this.passwordHashingTimer = Timer.builder(PASSWORD_HASHING_METER_NAME).description(PASSWORD_HASHING_METER_DESCRIPTION).register(registry);
+        this.passwordHashingRejectedCounter =
+            Counter.builder(PASSWORD_HASHING_REJECTED_METER_NAME).description(PASSWORD_HASHING_REJECTED_METER_DESCRIPTION).register(registry);
     }
 
     private Counter.Builder invalidTokensCounterForCauseBuilder(String cause) {
@@ -33,6 +86,22 @@ public class SecurityMetersService {
             .tag(INVALID_TOKENS_METER_CAUSE_DIMENSION, cause);
     }
 
+    private Counter.Builder tokenCacheCounterForResultBuilder(String result) {
+        return Counter.builder(TOKEN_CACHE_METER_NAME).description(TOKEN_CACHE_METER_DESCRIPTION).tag(TOKEN_CACHE_METER_RESULT_DIMENSION, result);
+    }
+
+    private Counter.Builder userDetailsCacheCounterForResultBuilder(String result) {
+        return Counter
+            .builder(USER_DETAILS_CACHE_METER_NAME)
+            .description(USER_DETAILS_CACHE_METER_DESCRIPTION)
+            .tag(TOKEN_CACHE_METER_RESULT_DIMENSION, result);
+    }
+
+    private double tokenCacheHitRatio() {
+        double lookups = tokenCacheHitCounter.count() + tokenCacheMissCounter.count();
+        return lookups == 0 ? 0 : tokenCacheHitCounter.count() / lookups;
+    }
+
     public void trackTokenInvalidSignature() {
         this.tokenInvalidSignatureCounter.increment();
     }
@@ -48,4 +117,46 @@ public class SecurityMetersService {
     public void trackTokenMalformed() {
         this.tokenMalformedCounter.increment();
     }
+
+    public void trackTokenCacheHit() {
+        this.tokenCacheHitCounter.increment();
+    }
+
+    public void trackTokenCacheMiss() {
+        this.tokenCacheMissCounter.increment();
+    }
+
+    public void trackTokenParse(long nanos) {
+        this.tokenParseTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void trackUserDetailsCacheHit() {
+        this.userDetailsCacheHitCounter.increment();
+    }
+
+    public void trackUserDetailsCacheMiss() {
+        this.userDetailsCacheMissCounter.increment();
+    }
+
+    public void trackPasswordHashingQueueWait(long nanos) {
+        this.passwordHashingQueueWaitTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void trackPasswordHashing(long nanos) {
+        this.passwordHashingTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void trackPasswordHashingRejected() {
+        this.passwordHashingRejectedCounter.increment();
+    }
+
+    public void trackRateLimitRejected(String endpoint, String scope) {
+        Counter
+            .builder(RATE_LIMIT_REJECTED_METER_NAME)
+            .description(RATE_LIMIT_REJECTED_METER_DESCRIPTION)
+            .tag(RATE_LIMIT_ENDPOINT_DIMENSION, endpoint)
+            .tag(RATE_LIMIT_SCOPE_DIMENSION, scope)
+            .register(registry)
+            .increment();
+    }
 }
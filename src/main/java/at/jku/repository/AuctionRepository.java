@@ -1,7 +1,17 @@
 package at.jku.repository;
 
 import at.jku.domain.Auction;
+import at.jku.domain.enumeration.AuctionStatus;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +19,61 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface AuctionRepository extends JpaRepository<Auction, Long> {}
+public interface AuctionRepository extends JpaRepository<Auction, Long> {
+    Slice<Auction> findAllByIdGreaterThan(Long id, Pageable pageable);
+
+    Slice<Auction> findAllByIdLessThan(Long id, Pageable pageable);
+
+    @Query("select a.id from Auction a where a.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select a.auctionDescription from Auction a where a.id = :id")
+    Optional<String> findAuctionDescriptionById(@Param("id") Long id);
+
+    /**
+     * Streams every auction in id order through a forward-only cursor, without loading the entities.
+     * Must be consumed inside a transaction.
+     */
+    @Query("select a.id as id, a.auctionDescription as auctionDescription from Auction a order by a.id")
+    @QueryHints(
+        { @QueryHint(name = "org.hibernate.fetchSize", value = "1000"), @QueryHint(name = "org.hibernate.readOnly", value = "true") }
+    )
+    Stream<Summary> streamAllByOrderById();
+
+    /**
+     * Streams the auctions that are closed or have an end date through a forward-only cursor, without loading the
+     * entities. Must be consumed inside a transaction.
+     */
+    @Query("select a.id as id, a.endDate as endDate, a.status as status from Auction a where a.endDate is not null or a.status <> :open")
+    @QueryHints(
+        { @QueryHint(name = "org.hibernate.fetchSize", value = "1000"), @QueryHint(name = "org.hibernate.readOnly", value = "true") }
+    )
+    Stream<Lifecycle> streamAllWithLifecycle(@Param("open") AuctionStatus open);
+
+    /**
+     * Set the status of auctions with a single statement, skipping those that already have it.
+     */
+    @Modifying
+    @Query("update Auction a set a.status = :status, a.version = a.version + 1 where a.id in :ids and a.status <> :status")
+    int updateStatusByIdIn(@Param("ids") Collection<Long> ids, @Param("status") AuctionStatus status);
+
+    /**
+     * Projection of an {@link Auction} onto its lifecycle.
+     */
+    interface Lifecycle {
+        Long getId();
+
+        Instant getEndDate();
+
+        AuctionStatus getStatus();
+    }
+
+    /**
+     * Projection of an {@link Auction} onto its columns, without its offers.
+     */
+    interface Summary {
+        Long getId();
+
+        String getAuctionDescription();
+    }
+}
@@ -0,0 +1,21 @@
+package at.jku.repository;
+
+import at.jku.domain.ClusterMember;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the {@link ClusterMember} entity.
+ */
+@Repository
+public interface ClusterMemberRepository extends JpaRepository<ClusterMember, String> {
+    @Query("select m.url from ClusterMember m where m.heartbeatDate > :since")
+    List<String> findAllUrlsByHeartbeatDateAfter(@Param("since") Instant since);
+
+    @Modifying
+    @Query("delete from ClusterMember m where m.heartbeatDate < :before")
+    int deleteByHeartbeatDateBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,27 @@
+package at.jku.repository;
+
+import at.jku.domain.IdempotentResponse;
+import java.time.Instant;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the {@link IdempotentResponse} entity.
+ */
+@Repository
+public interface IdempotentResponseRepository extends JpaRepository<IdempotentResponse, String> {
+    /**
+     * Delete the responses stored before an instant, with a single statement.
+     */
+    @Modifying
+    @Query("delete from IdempotentResponse r where r.createdDate < :before")
+    int deleteByCreatedDateBefore(@Param("before") Instant before);
+
+    /**
+     * Delete a response if it was stored before an instant, so that its key can be stored again.
+     */
+    @Modifying
+    @Query("delete from IdempotentResponse r where r.id = :id and r.createdDate < :before")
+    int deleteByIdAndCreatedDateBefore(@Param("id") String id, @Param("before") Instant before);
+}
@@ -1,7 +1,15 @@
 package at.jku.repository;
 
 import at.jku.domain.Offer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -9,4 +17,78 @@ import org.springframework.stereotype.Repository;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface OfferRepository extends JpaRepository<Offer, Long> {}
+public interface OfferRepository extends JpaRepository<Offer, Long> {
+    // the auction of every offer is fetched in the same statement, so a page of offers costs one select
+    @Query("select o from Offer o left join fetch o.offerName where o.id > :id")
+    Slice<Offer> findAllByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+    @Query("select o from Offer o left join fetch o.offerName where o.id < :id")
+    Slice<Offer> findAllByIdLessThan(@Param("id") Long id, Pageable pageable);
+
+    @Query("select o from Offer o left join fetch o.offerName where o.offerValue is not null")
+    Slice<Offer> findAllByOfferValueIsNotNull(Pageable pageable);
+
+    @Query(
+        "select o from Offer o left join fetch o.offerName " +
+        "where o.offerValue > :offerValue or (o.offerValue = :offerValue and o.id > :id)"
+    )
+    Slice<Offer> findAllAfterOfferValue(@Param("offerValue") Double offerValue, @Param("id") Long id, Pageable pageable);
+
+    @Query(
+        "select o from Offer o left join fetch o.offerName " +
+        "where o.offerValue < :offerValue or (o.offerValue = :offerValue and o.id < :id)"
+    )
+    Slice<Offer> findAllBeforeOfferValue(@Param("offerValue") Double offerValue, @Param("id") Long id, Pageable pageable);
+
+    @Query("select o.offerName.id from Offer o where o.id = :id")
+    Optional<Long> findAuctionIdById(@Param("id") Long id);
+
+    @Query("select o.id from Offer o where o.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Streams the auction, id, value and bidder of every bid placed on an auction, without loading the entities.
+     * Must be consumed inside a transaction.
+     */
+    @Query(
+        "select o.offerName.id as auctionId, o.id as id, o.offerValue as offerValue, o.bidder as bidder from Offer o " +
+        "where o.offerName is not null and o.offerValue is not null"
+    )
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    Stream<Bid> streamAllBids();
+
+    /**
+     * Lists the auction, id, value and bidder of every bid placed on one auction, without loading the entities.
+     */
+    @Query(
+        "select o.offerName.id as auctionId, o.id as id, o.offerValue as offerValue, o.bidder as bidder from Offer o " +
+        "where o.offerName.id = :auctionId and o.offerValue is not null"
+    )
+    List<Bid> findAllBidsByAuctionId(@Param("auctionId") Long auctionId);
+
+    /**
+     * Streams every offer in id order through a forward-only cursor, without loading the entities.
+     * Must be consumed inside a transaction.
+     */
+    @Query("select a.id as auctionId, o.id as id, o.offerValue as offerValue from Offer o left join o.offerName a order by o.id")
+    @QueryHints(
+        { @QueryHint(name = "org.hibernate.fetchSize", value = "1000"), @QueryHint(name = "org.hibernate.readOnly", value = "true") }
+    )
+    Stream<Bid> streamAllByOrderById();
+
+    /**
+     * Projection of an {@link Offer} onto its columns, with the id of its auction.
+     */
+    interface Bid {
+        Long getAuctionId();
+
+        Long getId();
+
+        Double getOfferValue();
+
+        /**
+         * @return the login of the bidder, {@code null} when the query does not select it.
+         */
+        String getBidder();
+    }
+}
@@ -0,0 +1,29 @@
+package at.jku.repository;
+
+import at.jku.domain.OutboundMail;
+import at.jku.domain.enumeration.OutboundMailStatus;
+import java.time.Instant;
+import java.util.List;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the {@link OutboundMail} entity.
+ */
+@Repository
+public interface OutboundMailRepository extends JpaRepository<OutboundMail, Long> {
+    /**
+     * Lock the pending mails that are due, skipping the ones another instance is already sending.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    // -2 is org.hibernate.LockOptions.SKIP_LOCKED
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select m from OutboundMail m where m.status = :status and m.nextAttemptAt <= :now order by m.nextAttemptAt")
+    List<OutboundMail> findAllDue(@Param("status") OutboundMailStatus status, @Param("now") Instant now, Pageable pageable);
+
+    long countByStatus(OutboundMailStatus status);
+}
@@ -0,0 +1,24 @@
+package at.jku.repository;
+
+import at.jku.domain.OutboxOffset;
+import java.util.Optional;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the {@link OutboxOffset} entity.
+ */
+@Repository
+public interface OutboxOffsetRepository extends JpaRepository<OutboxOffset, String> {
+    /**
+     * Lock the offset of a relay, unless another instance holds it.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    // -2 is org.hibernate.LockOptions.SKIP_LOCKED
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("select o from OutboxOffset o where o.relay = :relay")
+    Optional<OutboxOffset> findForRelay(@Param("relay") String relay);
+}
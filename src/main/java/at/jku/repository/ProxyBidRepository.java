@@ -0,0 +1,42 @@
+package at.jku.repository;
+
+import at.jku.domain.ProxyBid;
+import at.jku.domain.enumeration.AuctionStatus;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data JPA repository for the {@link ProxyBid} entity.
+ */
+@Repository
+public interface ProxyBidRepository extends JpaRepository<ProxyBid, Long> {
+    Optional<ProxyBid> findOneByAuctionIdAndBidder(Long auctionId, String bidder);
+
+    /**
+     * Streams the proxy bids on the auctions with a status in the order they were placed, without loading the entities.
+     * Must be consumed inside a transaction.
+     */
+    @Query(
+        "select p.auction.id as auctionId, p.bidder as bidder, p.maxAmount as maxAmount from ProxyBid p " +
+        "where p.auction.status = :status order by p.placedDate, p.id"
+    )
+    @QueryHints(
+        { @QueryHint(name = "org.hibernate.fetchSize", value = "1000"), @QueryHint(name = "org.hibernate.readOnly", value = "true") }
+    )
+    Stream<Proxy> streamAllByAuctionStatus(@Param("status") AuctionStatus status);
+
+    /**
+     * Projection of a {@link ProxyBid} onto its columns, with the id of its auction.
+     */
+    interface Proxy {
+        Long getAuctionId();
+
+        String getBidder();
+
+        Double getMaxAmount();
+    }
+}
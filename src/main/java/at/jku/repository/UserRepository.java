@@ -7,13 +7,15 @@ import java.util.Optional;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * Spring Data JPA repository for the {@link User} entity.
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryWithBulkDelete {
     Optional<User> findOneByActivationKey(String activationKey);
     List<User> findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant dateTime);
     Optional<User> findOneByResetKey(String resetKey);
@@ -27,4 +29,24 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findOneWithAuthoritiesByEmailIgnoreCase(String email);
 
     Page<User> findAllByIdNotNullAndActivatedIsTrue(Pageable pageable);
+
+    /**
+     * Oldest not activated users with an activation key created before a date, without loading the entities.
+     */
+    @Query(
+        "select u.id as id, u.login as login, u.email as email from User u " +
+        "where u.activated = false and u.activationKey is not null and u.createdDate < :dateTime order by u.createdDate"
+    )
+    List<Summary> findNotActivatedCreatedBefore(@Param("dateTime") Instant dateTime, Pageable pageable);
+
+    /**
+     * Projection of a {@link User} onto what identifies it.
+     */
+    interface Summary {
+        Long getId();
+
+        String getLogin();
+
+        String getEmail();
+    }
 }
@@ -0,0 +1,16 @@
+package at.jku.repository;
+
+import java.util.Collection;
+
+/**
+ * Bulk deletes of {@link at.jku.domain.User}s, mixed into the {@link UserRepository}.
+ */
+public interface UserRepositoryWithBulkDelete {
+    /**
+     * Delete users and their authorities with two set-based statements, without loading them.
+     *
+     * @param ids the ids of the users.
+     * @return the number of users deleted.
+     */
+    int deleteAllWithAuthoritiesByIdIn(Collection<Long> ids);
+}
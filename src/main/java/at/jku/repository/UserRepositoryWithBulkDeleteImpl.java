@@ -0,0 +1,24 @@
+package at.jku.repository;
+
+import java.util.Collection;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+
+public class UserRepositoryWithBulkDeleteImpl implements UserRepositoryWithBulkDelete {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int deleteAllWithAuthoritiesByIdIn(Collection<Long> ids) {
+        // the join table is declared as the only table touched, or Hibernate would clear every second-level cache region
+        entityManager
+            .createNativeQuery("delete from jhi_user_authority where user_id in (:ids)")
+            .setParameter("ids", ids)
+            .unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace("jhi_user_authority")
+            .executeUpdate();
+        return entityManager.createQuery("delete from User u where u.id in :ids").setParameter("ids", ids).executeUpdate();
+    }
+}
@@ -0,0 +1,141 @@
+package at.jku.security;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.management.SecurityMetersService;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * BCrypt {@link PasswordEncoder} running every hash on a small dedicated pool of threads.
+ * <p>
+ * Hashing a password is deliberately expensive, so a burst of logins or registrations could otherwise take every core
+ * away from the rest of the application. At most {@code pool-size} passwords are hashed at the same time and at most
+ * {@code queue-capacity} wait for their turn; beyond that a {@link PasswordHashingBusyException} is thrown at once.
+ * <p>
+ * Passwords hashed with another cost than the configured one are reported as needing an upgrade, so they are hashed
+ * again with the configured cost at the next successful login.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+    private final Logger log = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private final PasswordEncoder delegate;
+
+    private final int cost;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Duration retryAfter;
+
+    private final SecurityMetersService securityMetersService;
+
+    public BoundedPasswordEncoder(ApplicationProperties.PasswordHashing properties, SecurityMetersService securityMetersService) {
+        this(
+            new BCryptPasswordEncoder(properties.getCost()),
+            properties.getCost(),
+            properties.getPoolSize(),
+            properties.getQueueCapacity(),
+            properties.getRetryAfter(),
+            securityMetersService
+        );
+    }
+
+    BoundedPasswordEncoder(
+        PasswordEncoder delegate,
+        int cost,
+        int poolSize,
+        int queueCapacity,
+        Duration retryAfter,
+        SecurityMetersService securityMetersService
+    ) {
+        this.delegate = delegate;
+        this.cost = cost;
+        this.retryAfter = retryAfter;
+        this.securityMetersService = securityMetersService;
+        this.executor =
+            new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy()
+            );
+        log.debug("Hashing passwords with a BCrypt cost of {} on {} threads", cost, poolSize);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hash(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != cost;
+    }
+
+    int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T hash(Callable<T> hashing) {
+        long submitted = System.nanoTime();
+        Future<T> result;
+        try {
+            result =
+                executor.submit(() -> {
+                    long started = System.nanoTime();
+                    securityMetersService.trackPasswordHashingQueueWait(started - submitted);
+                    try {
+                        return hashing.call();
+                    } finally {
+                        securityMetersService.trackPasswordHashing(System.nanoTime() - started);
+                    }
+                });
+        } catch (RejectedExecutionException e) {
+            securityMetersService.trackPasswordHashingRejected();
+            throw new PasswordHashingBusyException(retryAfter);
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a password hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package at.jku.security;
+
+import java.time.Duration;
+
+/**
+ * This exception is thrown when too many passwords are waiting to be hashed to accept one more.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public PasswordHashingBusyException(Duration retryAfter) {
+        super("Too many passwords are being hashed, retry later");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
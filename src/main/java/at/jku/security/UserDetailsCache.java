@@ -0,0 +1,236 @@
+package at.jku.security;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.Authority;
+import at.jku.domain.User;
+import at.jku.management.SecurityMetersService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.ehcache.UserManagedCache;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.builders.UserManagedCacheBuilder;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Cache of the users authenticating, keyed by their lowercased login and by their lowercased email.
+ * <p>
+ * Logins and emails not found in the database are remembered for a shorter time, so repeated attempts with unknown
+ * credentials do not all reach the database. Every change to a user's login, email, password, authorities or activation
+ * must {@link #evict(User) evict} it.
+ */
+@Component
+public class UserDetailsCache {
+
+    static final CachedUser NOT_FOUND = new CachedUser(null, null, null, List.of(), false);
+
+    private static final String LOGIN_KEY_PREFIX = "login:";
+
+    private static final String EMAIL_KEY_PREFIX = "email:";
+
+    private final SecurityMetersService securityMetersService;
+
+    private final UserManagedCache<String, CachedUser> users;
+
+    /**
+     * Number of evictions so far, a user read before an eviction may be stale and is not cached.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserDetailsCache(ApplicationProperties applicationProperties, SecurityMetersService securityMetersService) {
+        this.securityMetersService = securityMetersService;
+        ApplicationProperties.UserDetailsCache properties = applicationProperties.getUserDetailsCache();
+        this.users =
+            properties.isEnabled()
+                ? UserManagedCacheBuilder
+                    .newUserManagedCacheBuilder(String.class, CachedUser.class)
+                    .withResourcePools(ResourcePoolsBuilder.heap(properties.getMaxEntries()))
+                    .withExpiry(new CachedUserExpiry(properties.getTimeToLive(), properties.getNegativeTimeToLive()))
+                    .build(true)
+                : null;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (users != null) {
+            users.close();
+        }
+    }
+
+    /**
+     * Get a user by login, loading it on a miss.
+     *
+     * @param lowercaseLogin the lowercased login of the user.
+     * @param loader the database lookup of the user.
+     * @return the user, or {@link #NOT_FOUND}.
+     */
+    CachedUser getByLogin(String lowercaseLogin, Supplier<Optional<User>> loader) {
+        return get(LOGIN_KEY_PREFIX + lowercaseLogin, loader);
+    }
+
+    /**
+     * Get a user by email, loading it on a miss.
+     *
+     * @param email the email of the user, in any case.
+     * @param loader the database lookup of the user.
+     * @return the user, or {@link #NOT_FOUND}.
+     */
+    CachedUser getByEmail(String email, Supplier<Optional<User>> loader) {
+        return get(emailKey(email), loader);
+    }
+
+    /**
+     * Drop a user from the cache, once now and once more after the current transaction completes, so that a concurrent
+     * lookup cannot cache the user as it was before the transaction.
+     *
+     * @param user the user, as it is now.
+     */
+    public void evict(User user) {
+        evict(user.getLogin(), user.getEmail());
+    }
+
+    /**
+     * Drop a user from the cache, like {@link #evict(User)}.
+     *
+     * @param login the login of the user.
+     * @param email the email of the user, or {@code null}.
+     */
+    public void evict(String login, String email) {
+        if (users == null) {
+            return;
+        }
+        String loginKey = LOGIN_KEY_PREFIX + login;
+        String emailKey = email == null ? null : emailKey(email);
+        evictKeys(loginKey, emailKey);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        evictKeys(loginKey, emailKey);
+                    }
+                }
+            );
+        }
+    }
+
+    /**
+     * Drop every user from the cache, when a change to some user is known by its id only.
+     */
+    public void clear() {
+        if (users == null) {
+            return;
+        }
+        evictions.incrementAndGet();
+        users.clear();
+    }
+
+    private CachedUser get(String key, Supplier<Optional<User>> loader) {
+        if (users == null) {
+            return loader.get().map(CachedUser::of).orElse(NOT_FOUND);
+        }
+        CachedUser cached = users.get(key);
+        if (cached != null) {
+            securityMetersService.trackUserDetailsCacheHit();
+            return cached;
+        }
+        securityMetersService.trackUserDetailsCacheMiss();
+        long evictionsBefore = evictions.get();
+        CachedUser loaded = loader.get().map(CachedUser::of).orElse(NOT_FOUND);
+        if (evictions.get() == evictionsBefore) {
+            if (loaded == NOT_FOUND) {
+                users.put(key, NOT_FOUND);
+            } else {
+                users.put(LOGIN_KEY_PREFIX + loaded.login, loaded);
+                if (loaded.email != null) {
+                    users.put(emailKey(loaded.email), loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private void evictKeys(String loginKey, String emailKey) {
+        evictions.incrementAndGet();
+        users.remove(loginKey);
+        if (emailKey != null) {
+            users.remove(emailKey);
+        }
+    }
+
+    private static String emailKey(String email) {
+        return EMAIL_KEY_PREFIX + email.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * What authentication needs of a user. The Spring Security {@code User} itself cannot be cached, as its password
+     * is erased once the authentication succeeds.
+     */
+    static final class CachedUser {
+
+        final String login;
+
+        final String email;
+
+        final String password;
+
+        final List<GrantedAuthority> authorities;
+
+        final boolean activated;
+
+        private CachedUser(String login, String email, String password, List<GrantedAuthority> authorities, boolean activated) {
+            this.login = login;
+            this.email = email;
+            this.password = password;
+            this.authorities = authorities;
+            this.activated = activated;
+        }
+
+        static CachedUser of(User user) {
+            List<GrantedAuthority> authorities = user
+                .getAuthorities()
+                .stream()
+                .map(Authority::getName)
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableList());
+            return new CachedUser(user.getLogin(), user.getEmail(), user.getPassword(), authorities, user.isActivated());
+        }
+    }
+
+    private static final class CachedUserExpiry implements ExpiryPolicy<String, CachedUser> {
+
+        private final Duration timeToLive;
+
+        private final Duration negativeTimeToLive;
+
+        private CachedUserExpiry(Duration timeToLive, Duration negativeTimeToLive) {
+            this.timeToLive = timeToLive;
+            this.negativeTimeToLive = negativeTimeToLive;
+        }
+
+        @Override
+        public Duration getExpiryForCreation(String key, CachedUser user) {
+            return user == NOT_FOUND ? negativeTimeToLive : timeToLive;
+        }
+
+        @Override
+        public Duration getExpiryForAccess(String key, Supplier<? extends CachedUser> user) {
+            return null;
+        }
+
+        @Override
+        public Duration getExpiryForUpdate(String key, Supplier<? extends CachedUser> previous, CachedUser user) {
+            return getExpiryForCreation(key, user);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package at.jku.security.jwt;
 
+import at.jku.config.ApplicationProperties;
 import at.jku.management.SecurityMetersService;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
@@ -7,8 +8,18 @@ import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.ehcache.UserManagedCache;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.builders.UserManagedCacheBuilder;
+import org.ehcache.expiry.ExpiryPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,6 +31,13 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
 import tech.jhipster.config.JHipsterProperties;
 
+/**
+ * Issues and verifies the JWT tokens.
+ * <p>
+ * Verified tokens are kept, keyed by their SHA-256 hash, together with the subject and authorities they grant and until
+ * they expire, so a client presenting the same token again is authenticated without parsing it nor checking its
+ * signature. Each request is given an authentication of its own, as the ones of Spring Security are mutable.
+ */
 @Component
 public class TokenProvider {
 
@@ -39,7 +57,15 @@ public class TokenProvider {
 
     private final SecurityMetersService securityMetersService;
 
-    public TokenProvider(JHipsterProperties jHipsterProperties, SecurityMetersService securityMetersService) {
+    private final UserManagedCache<String, VerifiedToken> verifiedTokens;
+
+    private final Map<String, List<GrantedAuthority>> authorityLists = new ConcurrentHashMap<>();
+
+    public TokenProvider(
+        JHipsterProperties jHipsterProperties,
+        ApplicationProperties applicationProperties,
+        SecurityMetersService securityMetersService
+    ) {
         byte[] keyBytes;
         String secret = jHipsterProperties.getSecurity().getAuthentication().getJwt().getBase64Secret();
         if (!ObjectUtils.isEmpty(secret)) {
@@ -60,6 +86,17 @@ public class TokenProvider {
             1000 * jHipsterProperties.getSecurity().getAuthentication().getJwt().getTokenValidityInSecondsForRememberMe();
 
         this.securityMetersService = securityMetersService;
+        this.verifiedTokens =
+            UserManagedCacheBuilder
+                .newUserManagedCacheBuilder(String.class, VerifiedToken.class)
+                .withResourcePools(ResourcePoolsBuilder.heap(applicationProperties.getVerifiedTokens().getMaxEntries()))
+                .withExpiry(new VerifiedTokenExpiry())
+                .build(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        verifiedTokens.close();
     }
 
     public String createToken(Authentication authentication, boolean rememberMe) {
@@ -82,25 +119,44 @@ public class TokenProvider {
             .compact();
     }
 
-    public Authentication getAuthentication(String token) {
-        Claims claims = jwtParser.parseClaimsJws(token).getBody();
-
-        Collection<? extends GrantedAuthority> authorities = Arrays
-            .stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-            .filter(auth -> !auth.trim().isEmpty())
-            .map(SimpleGrantedAuthority::new)
-            .collect(Collectors.toList());
-
-        User principal = new User(claims.getSubject(), "", authorities);
+    /**
+     * Authenticate the bearer of a token.
+     *
+     * @param token the token presented by the client.
+     * @return the authentication granted by the token, or empty if the token is invalid or expired.
+     */
+    public Optional<Authentication> authenticate(String token) {
+        String tokenHash = hash(token);
+        VerifiedToken verified = verifiedTokens.get(tokenHash);
+        if (verified != null && verified.expiresAt > System.currentTimeMillis()) {
+            securityMetersService.trackTokenCacheHit();
+            return Optional.of(authentication(verified.subject, verified.authorities, token));
+        }
+        securityMetersService.trackTokenCacheMiss();
+        Claims claims = parse(token);
+        if (claims == null) {
+            return Optional.empty();
+        }
 
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+        List<GrantedAuthority> authorities = authorityLists.computeIfAbsent(
+            Objects.toString(claims.get(AUTHORITIES_KEY), ""),
+            TokenProvider::parseAuthorities
+        );
+        // every token issued here expires, one that does not would never leave the cache
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(tokenHash, new VerifiedToken(claims.getSubject(), authorities, claims.getExpiration().getTime()));
+        }
+        return Optional.of(authentication(claims.getSubject(), authorities, token));
     }
 
     public boolean validateToken(String authToken) {
-        try {
-            jwtParser.parseClaimsJws(authToken);
+        return authenticate(authToken).isPresent();
+    }
 
-            return true;
+    private Claims parse(String token) {
+        long start = System.nanoTime();
+        try {
+            return jwtParser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException e) {
             this.securityMetersService.trackTokenExpired();
 
@@ -119,8 +175,71 @@ public class TokenProvider {
             log.trace(INVALID_JWT_TOKEN, e);
         } catch (IllegalArgumentException e) { // TODO: should we let it bubble (no catch), to avoid defensive programming and follow the fail-fast principle?
             log.error("Token validation error {}", e.getMessage());
+        } finally {
+            this.securityMetersService.trackTokenParse(System.nanoTime() - start);
         }
 
-        return false;
+        return null;
+    }
+
+    private static Authentication authentication(String subject, List<GrantedAuthority> authorities, String token) {
+        User principal = new User(subject, "", authorities);
+        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    }
+
+    private static List<GrantedAuthority> parseAuthorities(String authorities) {
+        return Arrays
+            .stream(authorities.split(","))
+            .filter(auth -> !auth.trim().isEmpty())
+            .map(SimpleGrantedAuthority::new)
+            .collect(Collectors.toUnmodifiableList());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class VerifiedToken {
+
+        private final String subject;
+
+        /**
+         * Unmodifiable, and shared by the tokens granting the same authorities.
+         */
+        private final List<GrantedAuthority> authorities;
+
+        private final long expiresAt;
+
+        private VerifiedToken(String subject, List<GrantedAuthority> authorities, long expiresAt) {
+            this.subject = subject;
+            this.authorities = authorities;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Keeps each verified token exactly as long as it is valid.
+     */
+    private static final class VerifiedTokenExpiry implements ExpiryPolicy<String, VerifiedToken> {
+
+        @Override
+        public Duration getExpiryForCreation(String tokenHash, VerifiedToken verified) {
+            return Duration.ofMillis(Math.max(0, verified.expiresAt - System.currentTimeMillis()));
+        }
+
+        @Override
+        public Duration getExpiryForAccess(String tokenHash, Supplier<? extends VerifiedToken> verified) {
+            return null;
+        }
+
+        @Override
+        public Duration getExpiryForUpdate(String tokenHash, Supplier<? extends VerifiedToken> previous, VerifiedToken verified) {
+            return getExpiryForCreation(tokenHash, verified);
+        }
     }
 }
@@ -0,0 +1,22 @@
+package at.jku.security.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * This exception is thrown when a call exceeds the rate limit of its endpoint.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(String endpoint, Duration retryAfter) {
+        super("Too many calls to " + endpoint + ", retry later");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
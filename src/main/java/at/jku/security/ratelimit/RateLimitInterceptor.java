@@ -0,0 +1,30 @@
+package at.jku.security.ratelimit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Limits the calls of each user to the endpoints annotated with {@link RateLimited}, before the request body is even
+ * read. A call beyond the limit raises a {@link RateLimitExceededException}.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimiter rateLimiter;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            RateLimited rateLimited = ((HandlerMethod) handler).getMethodAnnotation(RateLimited.class);
+            if (rateLimited != null) {
+                rateLimiter.checkUser(rateLimited.value());
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package at.jku.security.ratelimit;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a REST endpoint whose calls are limited per user by the {@link RateLimitInterceptor}, with the limits of
+ * {@code application.rate-limit.endpoints.<value>}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+    /**
+     * @return the name of the endpoint, shared by the endpoints drawing on the same limits.
+     */
+    String value();
+}
@@ -0,0 +1,196 @@
+package at.jku.security.ratelimit;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.management.SecurityMetersService;
+import at.jku.security.SecurityUtils;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the calls to the endpoints of {@code application.rate-limit.endpoints}, with one {@link TokenBucket} per
+ * endpoint and user, and one per endpoint and auction.
+ * <p>
+ * Buckets are created on first use and evicted once full again, every {@code eviction-interval} and whenever there
+ * are more than {@code max-buckets} of them, so memory follows the callers active within one refill period. A call
+ * beyond the limit raises a {@link RateLimitExceededException} telling when to retry, and is counted by the
+ * {@link SecurityMetersService}.
+ */
+@Component
+public class RateLimiter {
+
+    static final String USER_SCOPE = "user";
+
+    static final String AUCTION_SCOPE = "auction";
+
+    private final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+
+    private final Map<String, Limit> userLimits = new HashMap<>();
+
+    private final Map<String, Limit> auctionLimits = new HashMap<>();
+
+    private final SecurityMetersService securityMetersService;
+
+    private final LongSupplier nanoClock;
+
+    private final int maxBuckets;
+
+    private final AtomicInteger bucketCount = new AtomicInteger();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    @Autowired
+    public RateLimiter(ApplicationProperties applicationProperties, SecurityMetersService securityMetersService) {
+        this(applicationProperties.getRateLimit(), securityMetersService, System::nanoTime);
+    }
+
+    RateLimiter(ApplicationProperties.RateLimit properties, SecurityMetersService securityMetersService, LongSupplier nanoClock) {
+        this.securityMetersService = securityMetersService;
+        this.nanoClock = nanoClock;
+        this.maxBuckets = properties.getMaxBuckets();
+        properties
+            .getEndpoints()
+            .forEach((endpoint, limits) -> {
+                addLimit(userLimits, endpoint, USER_SCOPE, limits.getPerUser());
+                addLimit(auctionLimits, endpoint, AUCTION_SCOPE, limits.getPerAuction());
+            });
+    }
+
+    /**
+     * Take a token from the bucket of the current user for an endpoint. Anonymous calls are not limited.
+     *
+     * @param endpoint the name of the endpoint.
+     * @throws RateLimitExceededException if the user called the endpoint too often.
+     */
+    public void checkUser(String endpoint) {
+        Limit limit = userLimits.get(endpoint);
+        if (limit == null) {
+            return;
+        }
+        Optional<String> login = SecurityUtils.getCurrentUserLogin();
+        if (login.isPresent()) {
+            check(limit, login.get());
+        }
+    }
+
+    /**
+     * Take a token from the bucket of an auction for an endpoint.
+     *
+     * @param endpoint the name of the endpoint.
+     * @param auctionId the id of the auction the call targets.
+     * @throws RateLimitExceededException if the endpoint was called too often for the auction.
+     */
+    public void checkAuction(String endpoint, long auctionId) {
+        Limit limit = auctionLimits.get(endpoint);
+        if (limit != null) {
+            check(limit, auctionId);
+        }
+    }
+
+    /**
+     * Evict the buckets that are full again.
+     */
+    @Scheduled(fixedDelayString = "${application.rate-limit.eviction-interval:PT1M}")
+    public void evict() {
+        evictFull(nanoClock.getAsLong());
+    }
+
+    int bucketCount() {
+        return bucketCount.get();
+    }
+
+    private void check(Limit limit, Object key) {
+        long now = nanoClock.getAsLong();
+        TokenBucket bucket = limit.buckets.get(key);
+        if (bucket == null) {
+            bucket = newBucket(limit, key, now);
+        }
+        long waitNanos = bucket.tryTake(now, limit.intervalNanos, limit.capacityNanos);
+        if (waitNanos > 0) {
+            securityMetersService.trackRateLimitRejected(limit.endpoint, limit.scope);
+            throw new RateLimitExceededException(limit.endpoint, Duration.ofNanos(waitNanos));
+        }
+    }
+
+    private TokenBucket newBucket(Limit limit, Object key, long now) {
+        if (bucketCount.get() >= maxBuckets) {
+            evictFull(now);
+        }
+        return limit.buckets.computeIfAbsent(
+            key,
+            k -> {
+                bucketCount.incrementAndGet();
+                return new TokenBucket();
+            }
+        );
+    }
+
+    private void evictFull(long now) {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int evicted = evictFull(userLimits, now) + evictFull(auctionLimits, now);
+            log.debug("Evicted {} full rate limit buckets, {} left", evicted, bucketCount.get());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private int evictFull(Map<String, Limit> limits, long now) {
+        int evicted = 0;
+        for (Limit limit : limits.values()) {
+            // a call racing the eviction of its bucket may take a token that is forgotten, letting one more call through
+            for (Iterator<TokenBucket> buckets = limit.buckets.values().iterator(); buckets.hasNext();) {
+                if (buckets.next().isFull(now)) {
+                    buckets.remove();
+                    bucketCount.decrementAndGet();
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    private static void addLimit(
+        Map<String, Limit> limits,
+        String endpoint,
+        String scope,
+        ApplicationProperties.RateLimit.Bandwidth bandwidth
+    ) {
+        if (bandwidth != null && bandwidth.getCapacity() > 0) {
+            limits.put(endpoint, new Limit(endpoint, scope, bandwidth));
+        }
+    }
+
+    private static final class Limit {
+
+        private final String endpoint;
+
+        private final String scope;
+
+        private final long intervalNanos;
+
+        private final long capacityNanos;
+
+        private final Map<Object, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        private Limit(String endpoint, String scope, ApplicationProperties.RateLimit.Bandwidth bandwidth) {
+            this.endpoint = endpoint;
+            this.scope = scope;
+            this.intervalNanos = Math.max(1, bandwidth.getPeriod().toNanos() / bandwidth.getCapacity());
+            this.capacityNanos = intervalNanos * bandwidth.getCapacity();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package at.jku.security.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, refilled continuously at one token per interval up to its capacity.
+ * <p>
+ * The whole state is a single {@code long}: the time at which the bucket will be full again. Taking a token moves that
+ * time one interval forward, and is refused when it would move it further than the capacity ahead of now, so a token is
+ * taken with one compare-and-set and a bucket found full holds nothing worth keeping.
+ */
+final class TokenBucket {
+
+    private final AtomicLong fullAtNanos = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Take a token.
+     *
+     * @param nowNanos the current time, on the monotonic clock.
+     * @param intervalNanos the time to refill one token.
+     * @param capacityNanos the time to refill the whole capacity.
+     * @return {@code 0} if a token was taken, otherwise the time until the next token, in nanoseconds.
+     */
+    long tryTake(long nowNanos, long intervalNanos, long capacityNanos) {
+        while (true) {
+            long fullAt = fullAtNanos.get();
+            long next = Math.max(fullAt, nowNanos) + intervalNanos;
+            long wait = next - nowNanos - capacityNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAtNanos.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @param nowNanos the current time, on the monotonic clock.
+     * @return whether the bucket is full, in which case dropping it changes nothing.
+     */
+    boolean isFull(long nowNanos) {
+        return fullAtNanos.get() <= nowNanos;
+    }
+}
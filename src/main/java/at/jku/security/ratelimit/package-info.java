@@ -0,0 +1,4 @@
+/**
+ * Rate limiting of the calls to the endpoints, per user and per auction.
+ */
+package at.jku.security.ratelimit;
@@ -0,0 +1,145 @@
+package at.jku.service;
+
+import at.jku.repository.AuctionRepository;
+import at.jku.repository.OfferRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service for exporting whole tables as newline-delimited JSON.
+ * <p>
+ * Rows are read through a forward-only database cursor as flat projections, so no entity ever enters the
+ * persistence context, and each row is written to the output as soon as it is read. Memory use does not
+ * depend on the number of rows exported.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExportService {
+
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    private final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    private final OfferRepository offerRepository;
+
+    private final AuctionRepository auctionRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public ExportService(OfferRepository offerRepository, AuctionRepository auctionRepository, ObjectMapper objectMapper) {
+        this.offerRepository = offerRepository;
+        this.auctionRepository = auctionRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write every offer as one JSON object per line.
+     *
+     * @param out the stream to write to, left open.
+     * @return the number of offers written.
+     * @throws IOException if the stream cannot be written.
+     */
+    public long exportOffers(OutputStream out) throws IOException {
+        log.debug("Exporting all Offers");
+        try (
+            Stream<OfferRepository.Bid> offers = offerRepository.streamAllByOrderById();
+            JsonGenerator generator = createGenerator(out)
+        ) {
+            long count = write(
+                offers,
+                generator,
+                offer -> {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", offer.getId());
+                    writeNullableNumberField(generator, "offerValue", offer.getOfferValue());
+                    writeNullableNumberField(generator, "auctionId", offer.getAuctionId());
+                    generator.writeEndObject();
+                }
+            );
+            log.debug("Exported {} Offers", count);
+            return count;
+        }
+    }
+
+    /**
+     * Write every auction as one JSON object per line.
+     *
+     * @param out the stream to write to, left open.
+     * @return the number of auctions written.
+     * @throws IOException if the stream cannot be written.
+     */
+    public long exportAuctions(OutputStream out) throws IOException {
+        log.debug("Exporting all Auctions");
+        try (
+            Stream<AuctionRepository.Summary> auctions = auctionRepository.streamAllByOrderById();
+            JsonGenerator generator = createGenerator(out)
+        ) {
+            long count = write(
+                auctions,
+                generator,
+                auction -> {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", auction.getId());
+                    generator.writeStringField("auctionDescription", auction.getAuctionDescription());
+                    generator.writeEndObject();
+                }
+            );
+            log.debug("Exported {} Auctions", count);
+            return count;
+        }
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+        // pretty printing would split a row over several lines
+        generator.setPrettyPrinter(null);
+        return generator;
+    }
+
+    private <T> long write(Stream<T> rows, JsonGenerator generator, RowWriter<T> rowWriter) throws IOException {
+        long[] count = { 0 };
+        try {
+            rows.forEach(row -> {
+                try {
+                    rowWriter.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (count[0] > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+        return count[0];
+    }
+
+    private static void writeNullableNumberField(JsonGenerator generator, String name, Number value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(name);
+        } else if (value instanceof Long) {
+            generator.writeNumberField(name, value.longValue());
+        } else {
+            generator.writeNumberField(name, value.doubleValue());
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter<T> {
+        void write(T row) throws IOException;
+    }
+}
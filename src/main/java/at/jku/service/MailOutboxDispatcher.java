@@ -0,0 +1,195 @@
+package at.jku.service;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.OutboundMail;
+import at.jku.domain.enumeration.OutboundMailStatus;
+import at.jku.repository.OutboundMailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tech.jhipster.config.JHipsterProperties;
+
+/**
+ * Sends the mails waiting in the outbox.
+ * <p>
+ * Due mails are locked and sent in batches, every batch over a single SMTP connection and in its own transaction.
+ * A mail that fails is retried with an exponential backoff, and after {@code max-attempts} failures it is kept as
+ * {@link OutboundMailStatus#DEAD} for someone to look at.
+ */
+@Service
+public class MailOutboxDispatcher {
+
+    public static final String PENDING_METER_NAME = "mail.outbox.pending";
+
+    public static final String LATENCY_METER_NAME = "mail.outbox.latency";
+
+    public static final String SEND_METER_NAME = "mail.outbox.send";
+
+    public static final String FAILURES_METER_NAME = "mail.outbox.failures";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(MailOutboxDispatcher.class);
+
+    private final OutboundMailRepository outboundMailRepository;
+
+    private final JavaMailSender javaMailSender;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties.MailOutbox properties;
+
+    private final String from;
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final Timer latencyTimer;
+
+    private final Timer sendTimer;
+
+    private final Counter retriedCounter;
+
+    private final Counter deadCounter;
+
+    public MailOutboxDispatcher(
+        OutboundMailRepository outboundMailRepository,
+        JavaMailSender javaMailSender,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties,
+        JHipsterProperties jHipsterProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.outboundMailRepository = outboundMailRepository;
+        this.javaMailSender = javaMailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = applicationProperties.getMailOutbox();
+        this.from = jHipsterProperties.getMail().getFrom();
+        Gauge.builder(PENDING_METER_NAME, pending, AtomicLong::get).description("Mails waiting to be sent").register(meterRegistry);
+        this.latencyTimer =
+            Timer.builder(LATENCY_METER_NAME).description("Time from a mail being queued to it being sent").register(meterRegistry);
+        this.sendTimer = Timer.builder(SEND_METER_NAME).description("Time spent sending a batch of mails").register(meterRegistry);
+        this.retriedCounter = Counter.builder(FAILURES_METER_NAME).tag("outcome", "retried").register(meterRegistry);
+        this.deadCounter = Counter.builder(FAILURES_METER_NAME).tag("outcome", "dead").register(meterRegistry);
+    }
+
+    /**
+     * Send every mail that is due, batch after batch.
+     */
+    @Scheduled(
+        initialDelayString = "${application.mail-outbox.poll-interval:PT5S}",
+        fixedDelayString = "${application.mail-outbox.poll-interval:PT5S}"
+    )
+    public void dispatch() {
+        int batchSize = properties.getBatchSize();
+        Integer dispatched;
+        do {
+            dispatched = transactionTemplate.execute(status -> dispatchBatch(batchSize));
+        } while (dispatched != null && dispatched == batchSize);
+        pending.set(outboundMailRepository.countByStatus(OutboundMailStatus.PENDING));
+    }
+
+    private int dispatchBatch(int batchSize) {
+        Instant now = Instant.now();
+        List<OutboundMail> mails = outboundMailRepository.findAllDue(OutboundMailStatus.PENDING, now, PageRequest.of(0, batchSize));
+        if (mails.isEmpty()) {
+            return 0;
+        }
+
+        Map<MimeMessage, OutboundMail> messages = new LinkedHashMap<>();
+        for (OutboundMail mail : mails) {
+            try {
+                messages.put(toMimeMessage(mail), mail);
+            } catch (MessagingException e) {
+                fail(mail, e, now);
+            }
+        }
+
+        if (messages.isEmpty()) {
+            return mails.size();
+        }
+        Map<Object, Exception> failures = Collections.emptyMap();
+        long started = System.nanoTime();
+        try {
+            javaMailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages().isEmpty() ? allFailed(messages, e) : e.getFailedMessages();
+        } catch (MailException e) {
+            failures = allFailed(messages, e);
+        } finally {
+            sendTimer.record(Duration.ofNanos(System.nanoTime() - started));
+        }
+
+        int sent = 0;
+        for (Map.Entry<MimeMessage, OutboundMail> entry : messages.entrySet()) {
+            OutboundMail mail = entry.getValue();
+            Exception failure = failures.get(entry.getKey());
+            if (failure != null) {
+                fail(mail, failure, now);
+            } else {
+                latencyTimer.record(Duration.between(mail.getCreatedDate(), Instant.now()));
+                outboundMailRepository.delete(mail);
+                sent++;
+            }
+        }
+        log.debug("Sent {} of {} mails", sent, mails.size());
+        return mails.size();
+    }
+
+    private static Map<Object, Exception> allFailed(Map<MimeMessage, OutboundMail> messages, Exception e) {
+        Map<Object, Exception> failures = new LinkedHashMap<>();
+        messages.keySet().forEach(message -> failures.put(message, e));
+        return failures;
+    }
+
+    private MimeMessage toMimeMessage(OutboundMail mail) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, mail.isMultipart(), StandardCharsets.UTF_8.name());
+        message.setTo(mail.getRecipient());
+        message.setFrom(from);
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getContent(), mail.isHtml());
+        return mimeMessage;
+    }
+
+    private void fail(OutboundMail mail, Exception e, Instant now) {
+        int attempts = mail.getAttempts() + 1;
+        mail.setAttempts(attempts);
+        mail.setLastError(StringUtils.abbreviate(e.getMessage(), MAX_ERROR_LENGTH));
+        if (attempts >= properties.getMaxAttempts()) {
+            mail.setStatus(OutboundMailStatus.DEAD);
+            deadCounter.increment();
+            log.error("Email could not be sent to '{}' after {} attempts, giving up", mail.getRecipient(), attempts, e);
+            return;
+        }
+        Duration backoff = properties.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (backoff.compareTo(properties.getMaxBackoff()) > 0) {
+            backoff = properties.getMaxBackoff();
+        }
+        mail.setNextAttemptAt(now.plus(backoff));
+        retriedCounter.increment();
+        log.warn("Email could not be sent to '{}', retrying in {}", mail.getRecipient(), backoff, e);
+    }
+}
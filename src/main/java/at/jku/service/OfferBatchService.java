@@ -0,0 +1,219 @@
+package at.jku.service;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.Auction;
+import at.jku.domain.Offer;
+import at.jku.domain.enumeration.ChangeType;
+import at.jku.repository.AuctionRepository;
+import at.jku.repository.OfferRepository;
+import at.jku.security.SecurityUtils;
+import at.jku.service.bid.AuctionClosedException;
+import at.jku.service.bid.BidBook;
+import at.jku.service.bid.BidTooLowException;
+import at.jku.service.bid.ProxyBidding;
+import at.jku.service.dto.OfferBatchResultDTO;
+import at.jku.service.outbox.Outbox;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for ingesting large batches of offers.
+ * <p>
+ * The JSON array is read one element at a time, and the offers are persisted in chunks, each in its own
+ * transaction. A whole chunk is flushed at commit, so the inserts go out in JDBC batches of
+ * {@code hibernate.jdbc.batch_size}. If a chunk fails to commit, its offers are retried one by one so that only
+ * the faulty ones are reported as rejected. The offers are placed by the current user, and the proxy bids on their
+ * auctions answer them as they are placed.
+ */
+@Service
+public class OfferBatchService {
+
+    private final Logger log = LoggerFactory.getLogger(OfferBatchService.class);
+
+    private final OfferRepository offerRepository;
+
+    private final AuctionRepository auctionRepository;
+
+    private final BidBook bidBook;
+
+    private final ProxyBidding proxyBidding;
+
+    private final Outbox outbox;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ApplicationProperties applicationProperties;
+
+    public OfferBatchService(
+        OfferRepository offerRepository,
+        AuctionRepository auctionRepository,
+        BidBook bidBook,
+        ProxyBidding proxyBidding,
+        Outbox outbox,
+        ObjectMapper objectMapper,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
+    ) {
+        this.offerRepository = offerRepository;
+        this.auctionRepository = auctionRepository;
+        this.bidBook = bidBook;
+        this.proxyBidding = proxyBidding;
+        this.outbox = outbox;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.applicationProperties = applicationProperties;
+    }
+
+    /**
+     * Read a JSON array of offers and persist the valid ones.
+     *
+     * @param in the JSON array.
+     * @return the outcome of every offer, in the order they were read.
+     * @throws IOException if the input is not a well-formed JSON array.
+     */
+    public List<OfferBatchResultDTO> ingest(InputStream in) throws IOException {
+        int chunkSize = applicationProperties.getOfferBatch().getChunkSize();
+        int maxSize = applicationProperties.getOfferBatch().getMaxSize();
+        List<OfferBatchResultDTO> results = new ArrayList<>();
+        List<PendingOffer> chunk = new ArrayList<>(chunkSize);
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw MismatchedInputException.from(parser, Offer[].class, "Expected a JSON array of offers");
+            }
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (index >= maxSize) {
+                    parser.skipChildren();
+                    results.add(OfferBatchResultDTO.rejected(index++, "batchtoolarge", "The batch exceeds " + maxSize + " offers"));
+                    continue;
+                }
+                // a syntax error aborts the whole batch, a mapping error only rejects its offer
+                JsonNode node = parser.readValueAsTree();
+                Offer offer;
+                try {
+                    offer = objectMapper.treeToValue(node, Offer.class);
+                } catch (JsonProcessingException e) {
+                    results.add(OfferBatchResultDTO.rejected(index++, "offerinvalid", e.getOriginalMessage()));
+                    continue;
+                }
+                if (offer == null) {
+                    results.add(OfferBatchResultDTO.rejected(index++, "offerinvalid", "An offer cannot be null"));
+                    continue;
+                }
+                if (offer.getId() != null) {
+                    results.add(OfferBatchResultDTO.rejected(index++, "idexists", "A new offer cannot already have an ID"));
+                    continue;
+                }
+                results.add(null);
+                chunk.add(new PendingOffer(index++, offer));
+                if (chunk.size() == chunkSize) {
+                    persistChunk(chunk, results);
+                    chunk.clear();
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            persistChunk(chunk, results);
+        }
+        log.debug("Ingested a batch of {} offers", results.size());
+        return results;
+    }
+
+    private void persistChunk(List<PendingOffer> chunk, List<OfferBatchResultDTO> results) {
+        List<OfferBatchResultDTO> outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> persistAll(chunk));
+        } catch (RuntimeException e) {
+            log.warn("Batch chunk of {} offers failed, retrying them one by one: {}", chunk.size(), e.getMessage());
+            outcomes = new ArrayList<>(chunk.size());
+            for (PendingOffer pending : chunk) {
+                outcomes.addAll(persistAlone(pending));
+            }
+        }
+        outcomes.forEach(outcome -> results.set(outcome.getIndex(), outcome));
+    }
+
+    private List<OfferBatchResultDTO> persistAlone(PendingOffer pending) {
+        try {
+            return transactionTemplate.execute(status -> persistAll(List.of(pending)));
+        } catch (RuntimeException e) {
+            // the cause may hold SQL and constraint names, only the log gets it
+            log.warn("Offer {} of a batch could not be persisted", pending.index, e);
+            return List.of(OfferBatchResultDTO.rejected(pending.index, "persistfailed", "The offer could not be persisted"));
+        }
+    }
+
+    private List<OfferBatchResultDTO> persistAll(List<PendingOffer> chunk) {
+        Set<Long> auctionIds = chunk
+            .stream()
+            .map(pending -> pending.offer.getOfferName())
+            .filter(auction -> auction != null && auction.getId() != null)
+            .map(Auction::getId)
+            .collect(Collectors.toSet());
+        Set<Long> existingAuctionIds = auctionIds.isEmpty()
+            ? Collections.emptySet()
+            : new HashSet<>(auctionRepository.findExistingIds(auctionIds));
+
+        String bidder = SecurityUtils.getCurrentUserLogin().orElse(null);
+        List<OfferBatchResultDTO> outcomes = new ArrayList<>(chunk.size());
+        for (PendingOffer pending : chunk) {
+            Offer offer = pending.offer;
+            // the id and version assigned by a rolled back attempt must not be reused
+            offer.setId(null);
+            offer.setVersion(null);
+            offer.setBidder(bidder);
+            if (offer.getOfferName() != null && !existingAuctionIds.contains(offer.getOfferName().getId())) {
+                outcomes.add(OfferBatchResultDTO.rejected(pending.index, "auctionnotfound", "The auction of the offer does not exist"));
+                continue;
+            }
+            if (offer.getOfferName() != null) {
+                // the auction sent carries no version, Hibernate would take it for a new one
+                offer.setOfferName(auctionRepository.getReferenceById(offer.getOfferName().getId()));
+            }
+            try {
+                Offer result = bidBook.placeBid(offer, offerRepository::save);
+                outcomes.add(OfferBatchResultDTO.created(pending.index, result.getId()));
+                outbox.offerChanged(ChangeType.CREATED, result);
+                if (offer.getOfferName() != null) {
+                    outbox.offersCreated(proxyBidding.respond(offer.getOfferName().getId()));
+                }
+            } catch (BidTooLowException e) {
+                outcomes.add(OfferBatchResultDTO.rejected(pending.index, "bidtoolow", e.getMessage()));
+            } catch (AuctionClosedException e) {
+                outcomes.add(OfferBatchResultDTO.rejected(pending.index, "auctionclosed", e.getMessage()));
+            }
+        }
+        return outcomes;
+    }
+
+    private static final class PendingOffer {
+
+        private final int index;
+
+        private final Offer offer;
+
+        private PendingOffer(int index, Offer offer) {
+            this.index = index;
+            this.offer = offer;
+        }
+    }
+}
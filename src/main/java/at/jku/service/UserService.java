@@ -1,5 +1,6 @@
 package at.jku.service;
 
+import at.jku.config.ApplicationProperties;
 import at.jku.config.Constants;
 import at.jku.domain.Authority;
 import at.jku.domain.User;
@@ -7,20 +8,32 @@ import at.jku.repository.AuthorityRepository;
 import at.jku.repository.UserRepository;
 import at.jku.security.AuthoritiesConstants;
 import at.jku.security.SecurityUtils;
+import at.jku.security.UserDetailsCache;
 import at.jku.service.dto.AdminUserDTO;
 import at.jku.service.dto.UserDTO;
+import at.jku.service.invalidation.CacheInvalidationPublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import tech.jhipster.security.RandomUtil;
 
 /**
@@ -38,10 +51,42 @@ public class UserService {
 
     private final AuthorityRepository authorityRepository;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, AuthorityRepository authorityRepository) {
+    private final UserDetailsCache userDetailsCache;
+
+    private final ApplicationProperties applicationProperties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+
+    private final Counter purgedCounter;
+
+    private final Timer purgeChunkTimer;
+
+    public UserService(
+        UserRepository userRepository,
+        PasswordEncoder passwordEncoder,
+        AuthorityRepository authorityRepository,
+        UserDetailsCache userDetailsCache,
+        ApplicationProperties applicationProperties,
+        PlatformTransactionManager transactionManager,
+        MeterRegistry meterRegistry,
+        ObjectProvider<CacheInvalidationPublisher> cacheInvalidationPublisher
+    ) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.applicationProperties = applicationProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheInvalidationPublisher = cacheInvalidationPublisher.getIfAvailable();
+        this.purgedCounter =
+            Counter
+                .builder("user.purge.deleted")
+                .description("Number of not activated users deleted by the nightly purge")
+                .register(meterRegistry);
+        this.purgeChunkTimer =
+            Timer.builder("user.purge.chunk").description("Duration of the transaction deleting a chunk of users").register(meterRegistry);
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -52,6 +97,7 @@ public class UserService {
                 // activate given user for the registration key.
                 user.setActivated(true);
                 user.setActivationKey(null);
+                userDetailsCache.evict(user);
                 log.debug("Activated user: {}", user);
                 return user;
             });
@@ -66,6 +112,7 @@ public class UserService {
                 user.setPassword(passwordEncoder.encode(newPassword));
                 user.setResetKey(null);
                 user.setResetDate(null);
+                userDetailsCache.evict(user);
                 return user;
             });
     }
@@ -118,6 +165,7 @@ public class UserService {
         authorityRepository.findById(AuthoritiesConstants.USER).ifPresent(authorities::add);
         newUser.setAuthorities(authorities);
         userRepository.save(newUser);
+        userDetailsCache.evict(newUser);
         log.debug("Created Information for User: {}", newUser);
         return newUser;
     }
@@ -128,6 +176,7 @@ public class UserService {
         }
         userRepository.delete(existingUser);
         userRepository.flush();
+        userDetailsCache.evict(existingUser);
         return true;
     }
 
@@ -161,6 +210,7 @@ public class UserService {
             user.setAuthorities(authorities);
         }
         userRepository.save(user);
+        userDetailsCache.evict(user);
         log.debug("Created Information for User: {}", user);
         return user;
     }
@@ -177,6 +227,8 @@ public class UserService {
             .filter(Optional::isPresent)
             .map(Optional::get)
             .map(user -> {
+                // the login and the email may change, so the user is evicted under both the old and the new ones
+                userDetailsCache.evict(user);
                 user.setLogin(userDTO.getLogin().toLowerCase());
                 user.setFirstName(userDTO.getFirstName());
                 user.setLastName(userDTO.getLastName());
@@ -195,6 +247,7 @@ public class UserService {
                     .filter(Optional::isPresent)
                     .map(Optional::get)
                     .forEach(managedAuthorities::add);
+                userDetailsCache.evict(user);
                 log.debug("Changed Information for User: {}", user);
                 return user;
             })
@@ -206,6 +259,7 @@ public class UserService {
             .findOneByLogin(login)
             .ifPresent(user -> {
                 userRepository.delete(user);
+                userDetailsCache.evict(user);
                 log.debug("Deleted User: {}", user);
             });
     }
@@ -224,6 +278,7 @@ public class UserService {
             .getCurrentUserLogin()
             .flatMap(userRepository::findOneByLogin)
             .ifPresent(user -> {
+                userDetailsCache.evict(user);
                 user.setFirstName(firstName);
                 user.setLastName(lastName);
                 if (email != null) {
@@ -231,6 +286,7 @@ public class UserService {
                 }
                 user.setLangKey(langKey);
                 user.setImageUrl(imageUrl);
+                userDetailsCache.evict(user);
                 log.debug("Changed Information for User: {}", user);
             });
     }
@@ -247,6 +303,7 @@ public class UserService {
                 }
                 String encryptedPassword = passwordEncoder.encode(newPassword);
                 user.setPassword(encryptedPassword);
+                userDetailsCache.evict(user);
                 log.debug("Changed password for User: {}", user);
             });
     }
@@ -274,16 +331,49 @@ public class UserService {
     /**
      * Not activated users should be automatically deleted after 3 days.
      * <p>
-     * This is scheduled to get fired everyday, at 01:00 (am).
+     * This is scheduled to get fired everyday, at 01:00 (am). The users are deleted in chunks, each with its
+     * authorities in one transaction of two bulk deletes, pausing between the chunks.
      */
     @Scheduled(cron = "0 0 1 * * ?")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeNotActivatedUsers() {
-        userRepository
-            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant.now().minus(3, ChronoUnit.DAYS))
-            .forEach(user -> {
-                log.debug("Deleting not activated user {}", user.getLogin());
-                userRepository.delete(user);
-            });
+        ApplicationProperties.UserPurge properties = applicationProperties.getUserPurge();
+        Instant createdBefore = Instant.now().minus(3, ChronoUnit.DAYS);
+        int total = 0;
+        int deleted;
+        do {
+            long started = System.nanoTime();
+            deleted = transactionTemplate.execute(status -> removeNotActivatedUsers(createdBefore, properties.getChunkSize()));
+            purgeChunkTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            purgedCounter.increment(deleted);
+            total += deleted;
+            log.debug("Deleted {} not activated users so far", total);
+        } while (deleted == properties.getChunkSize() && pause(properties.getPause()));
+        log.info("Deleted {} not activated users", total);
+    }
+
+    private int removeNotActivatedUsers(Instant createdBefore, int chunkSize) {
+        List<UserRepository.Summary> users = userRepository.findNotActivatedCreatedBefore(createdBefore, PageRequest.of(0, chunkSize));
+        if (users.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = users.stream().map(UserRepository.Summary::getId).collect(Collectors.toList());
+        userRepository.deleteAllWithAuthoritiesByIdIn(ids);
+        users.forEach(user -> userDetailsCache.evict(user.getLogin(), user.getEmail()));
+        if (cacheInvalidationPublisher != null) {
+            cacheInvalidationPublisher.bulkChanged(User.class, ids);
+        }
+        return users.size();
+    }
+
+    private static boolean pause(Duration pause) {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     /**
@@ -0,0 +1,307 @@
+package at.jku.service.auction;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.Auction;
+import at.jku.domain.enumeration.AuctionStatus;
+import at.jku.repository.AuctionRepository;
+import at.jku.service.bid.BidBook;
+import at.jku.service.bid.ProxyBidding;
+import at.jku.service.invalidation.CacheInvalidationPublisher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Closes the {@link at.jku.domain.Auction}s at their end date.
+ * <p>
+ * A single thread owns a {@link TimerWheel} ticking every {@code application.auction-lifecycle.tick-duration}. Closes
+ * are handed to it through a queue, so scheduling one costs a queue offer and a wheel slot. The wheel runs on the
+ * monotonic clock while end dates are wall clock times: a close firing before its end date, because the wall clock was
+ * set back, is scheduled again for the rest, and a jump of the wall clock reschedules every pending close.
+ * <p>
+ * A close first stops the {@link BidBook} from taking bids on the auction, which is then {@link AuctionStatus#CLOSING},
+ * and drops the proxy bids on it. The auctions closed meanwhile are recorded as {@link AuctionStatus#CLOSED} in batches,
+ * away from the ticking thread. The pending closes are rebuilt from the database once the application is ready, the
+ * auctions that ended while it was down are closed right away.
+ */
+@Service
+public class AuctionLifecycle {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private static final long CLOCK_JUMP_TOLERANCE_MILLIS = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(AuctionLifecycle.class);
+
+    private final AuctionRepository auctionRepository;
+
+    private final BidBook bidBook;
+
+    private final ProxyBidding proxyBidding;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CacheInvalidationPublisher cacheInvalidationPublisher;
+
+    private final long tickNanos;
+
+    private final int closeBatchSize;
+
+    private final long startNanos = System.nanoTime();
+
+    private final Queue<Command> commands = new ConcurrentLinkedQueue<>();
+
+    private final BlockingQueue<Long> closed = new LinkedBlockingQueue<>();
+
+    private final Timer closeLatencyTimer;
+
+    private final ScheduledExecutorService ticker;
+
+    private final ScheduledExecutorService recorder;
+
+    // owned by the ticking thread
+
+    private final TimerWheel wheel;
+
+    private final Map<Long, Close> pending = new HashMap<>();
+
+    private long clockOffsetMillis;
+
+    public AuctionLifecycle(
+        AuctionRepository auctionRepository,
+        BidBook bidBook,
+        ProxyBidding proxyBidding,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry,
+        ObjectProvider<CacheInvalidationPublisher> cacheInvalidationPublisher
+    ) {
+        this.auctionRepository = auctionRepository;
+        this.bidBook = bidBook;
+        this.proxyBidding = proxyBidding;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheInvalidationPublisher = cacheInvalidationPublisher.getIfAvailable();
+        ApplicationProperties.AuctionLifecycle properties = applicationProperties.getAuctionLifecycle();
+        this.tickNanos = properties.getTickDuration().toNanos();
+        this.closeBatchSize = properties.getCloseBatchSize();
+        this.wheel = new TimerWheel(currentTick());
+        this.clockOffsetMillis = clockOffsetMillis();
+        this.closeLatencyTimer =
+            Timer
+                .builder("auction.close.latency")
+                .description("Delay between the end date of an auction and the moment it stops taking bids")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge
+            .builder("auction.close.pending", wheel, TimerWheel::size)
+            .description("Number of auctions waiting for their end date")
+            .register(meterRegistry);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("auction-lifecycle-"));
+        this.recorder = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("auction-close-recorder-"));
+        ticker.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        recorder.scheduleWithFixedDelay(this::recordClosed, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ticker.shutdownNow();
+        recorder.shutdownNow();
+    }
+
+    /**
+     * Restore the pending closes, and the closed auctions, from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        AtomicLong count = new AtomicLong();
+        try (Stream<AuctionRepository.Lifecycle> auctions = auctionRepository.streamAllWithLifecycle(AuctionStatus.OPEN)) {
+            auctions.forEach(auction -> {
+                if (auction.getStatus() == AuctionStatus.CLOSED) {
+                    bidBook.markClosed(auction.getId());
+                } else {
+                    enqueue(auction.getId(), auction.getEndDate());
+                    count.incrementAndGet();
+                }
+            });
+        }
+        log.info("Auction lifecycle rebuilt with {} auctions to close", count.get());
+    }
+
+    /**
+     * Close an auction at its end date, in place of any close scheduled for it before. Within a transaction, the close
+     * is only scheduled once the transaction commits.
+     *
+     * @param auctionId the id of the auction.
+     * @param endDate the end date of the auction, {@code null} if it never ends.
+     */
+    public void schedule(long auctionId, Instant endDate) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(auctionId, endDate);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(auctionId, endDate);
+                }
+            }
+        );
+    }
+
+    /**
+     * Drop the close of an auction, if any.
+     *
+     * @param auctionId the id of the auction.
+     */
+    public void cancel(long auctionId) {
+        schedule(auctionId, null);
+    }
+
+    private void enqueue(long auctionId, Instant endDate) {
+        bidBook.setEndDate(auctionId, endDate);
+        commands.add(new Command(auctionId, endDate == null ? NEVER : endDate.toEpochMilli()));
+    }
+
+    private void tick() {
+        try {
+            long offset = clockOffsetMillis();
+            if (Math.abs(offset - clockOffsetMillis) > CLOCK_JUMP_TOLERANCE_MILLIS) {
+                log.warn("Wall clock jumped by {} ms, rescheduling {} auction closes", offset - clockOffsetMillis, pending.size());
+                clockOffsetMillis = offset;
+                for (Close close : new ArrayList<>(pending.values())) {
+                    place(close.key, close.endEpochMilli);
+                }
+            }
+            for (Command command = commands.poll(); command != null; command = commands.poll()) {
+                place(command.auctionId, command.endEpochMilli);
+            }
+            wheel.advance(currentTick(), this::expire);
+        } catch (RuntimeException e) {
+            // an exception would cancel the ticking for good
+            log.error("Auction lifecycle tick failed", e);
+        }
+    }
+
+    private void place(long auctionId, long endEpochMilli) {
+        Close previous = pending.remove(auctionId);
+        if (previous != null) {
+            wheel.cancel(previous);
+        }
+        if (endEpochMilli == NEVER) {
+            return;
+        }
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, endEpochMilli - System.currentTimeMillis()));
+        // rounded up, a close never fires ahead of its end date
+        long delayTicks = delayNanos / tickNanos + (delayNanos % tickNanos == 0 ? 0 : 1);
+        Close close = new Close(auctionId, currentTick() + delayTicks, endEpochMilli);
+        if (wheel.schedule(close)) {
+            pending.put(auctionId, close);
+        } else {
+            close(close);
+        }
+    }
+
+    private void expire(TimerWheel.Timeout timeout) {
+        Close close = (Close) timeout;
+        if (pending.get(close.key) != close) {
+            return;
+        }
+        pending.remove(close.key);
+        if (System.currentTimeMillis() < close.endEpochMilli) {
+            // the wall clock was set back since the close was scheduled
+            place(close.key, close.endEpochMilli);
+            return;
+        }
+        close(close);
+    }
+
+    private void close(Close close) {
+        if (bidBook.close(close.key)) {
+            proxyBidding.evict(close.key);
+            closeLatencyTimer.record(Math.max(0, System.currentTimeMillis() - close.endEpochMilli), TimeUnit.MILLISECONDS);
+            closed.add(close.key);
+        }
+    }
+
+    private void recordClosed() {
+        List<Long> batch = new ArrayList<>(closeBatchSize);
+        try {
+            while (closed.drainTo(batch, closeBatchSize) > 0) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    auctionRepository.updateStatusByIdIn(batch, AuctionStatus.CLOSED);
+                    if (cacheInvalidationPublisher != null) {
+                        cacheInvalidationPublisher.bulkChanged(Auction.class, batch);
+                    }
+                });
+                batch.forEach(bidBook::markClosed);
+                log.debug("Recorded {} closed auctions", batch.size());
+                batch.clear();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not record {} closed auctions, retrying: {}", batch.size(), e.getMessage());
+            closed.addAll(batch);
+        }
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private long clockOffsetMillis() {
+        return System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private static final class Command {
+
+        private final long auctionId;
+
+        private final long endEpochMilli;
+
+        private Command(long auctionId, long endEpochMilli) {
+            this.auctionId = auctionId;
+            this.endEpochMilli = endEpochMilli;
+        }
+    }
+
+    private static final class Close extends TimerWheel.Timeout {
+
+        private final long endEpochMilli;
+
+        private Close(long auctionId, long deadlineTick, long endEpochMilli) {
+            super(auctionId, deadlineTick);
+            this.endEpochMilli = endEpochMilli;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package at.jku.service.auction;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel counting time in ticks.
+ * <p>
+ * Four wheels of 256 slots each cover 2<sup>8</sup>, 2<sup>16</sup>, 2<sup>24</sup> and 2<sup>32</sup> ticks. A timeout is
+ * put in the slot of the finest wheel that spans its deadline, so scheduling and cancelling cost {@code O(1)}. Whenever
+ * a coarser wheel's slot comes up, its timeouts cascade down to finer wheels, and the finest wheel fires them at their
+ * exact tick. Deadlines beyond the coarsest wheel are parked in its farthest slot and placed again when it comes up.
+ * <p>
+ * The wheel is not thread-safe, it must be scheduled and advanced from a single thread.
+ */
+final class TimerWheel {
+
+    private static final int WHEEL_BITS = 8;
+
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final int LEVELS = 4;
+
+    private static final long SPAN = 1L << (WHEEL_BITS * LEVELS);
+
+    private final Timeout[][] slots = new Timeout[LEVELS][WHEEL_SIZE];
+
+    private long currentTick;
+
+    private int size;
+
+    TimerWheel(long currentTick) {
+        this.currentTick = currentTick;
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Schedule a timeout.
+     *
+     * @param timeout the timeout, not scheduled yet.
+     * @return {@code false} if its deadline is already reached, in which case it is not scheduled.
+     */
+    boolean schedule(Timeout timeout) {
+        if (!place(timeout)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Cancel a timeout, if it is still scheduled.
+     *
+     * @param timeout the timeout.
+     */
+    void cancel(Timeout timeout) {
+        if (timeout.level >= 0) {
+            unlink(timeout);
+            size--;
+        }
+    }
+
+    /**
+     * Move the wheel forward tick by tick, firing the timeouts that are due on the way.
+     *
+     * @param tick the tick to move to.
+     * @param expired receives the timeouts as they come due.
+     */
+    void advance(long tick, Consumer<Timeout> expired) {
+        while (currentTick < tick) {
+            currentTick++;
+            int top = 0;
+            while (top + 1 < LEVELS && (currentTick & ((1L << (WHEEL_BITS * (top + 1))) - 1)) == 0) {
+                top++;
+            }
+            for (int level = top; level >= 1; level--) {
+                Timeout timeout = detach(level, (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    if (!place(timeout)) {
+                        size--;
+                        expired.accept(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+            Timeout timeout = detach(0, (int) (currentTick & WHEEL_MASK));
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                size--;
+                expired.accept(timeout);
+                timeout = next;
+            }
+        }
+    }
+
+    private boolean place(Timeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        if (delta <= 0) {
+            return false;
+        }
+        long tick = timeout.deadlineTick;
+        if (delta >= SPAN) {
+            delta = SPAN - 1;
+            tick = currentTick + delta;
+        }
+        int level = 0;
+        while (delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        Timeout head = slots[level][slot];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        slots[level][slot] = timeout;
+        return true;
+    }
+
+    private Timeout detach(int level, int slot) {
+        Timeout head = slots[level][slot];
+        slots[level][slot] = null;
+        for (Timeout timeout = head; timeout != null; timeout = timeout.next) {
+            timeout.level = -1;
+        }
+        return head;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.level = -1;
+    }
+
+    /**
+     * A timeout, linked into the slot it waits in.
+     */
+    static class Timeout {
+
+        final long key;
+
+        final long deadlineTick;
+
+        private int level = -1;
+
+        private int slot;
+
+        private Timeout prev;
+
+        private Timeout next;
+
+        Timeout(long key, long deadlineTick) {
+            this.key = key;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package at.jku.service.bid;
+
+import at.jku.domain.enumeration.AuctionStatus;
+import java.util.Arrays;
+
+/**
+ * The bids placed on a single auction, kept as a binary max-heap over primitive arrays, with the window in which the
+ * auction takes bids.
+ * <p>
+ * Values, offer ids and bidders are stored side by side in {@code double[]}, {@code long[]} and {@code String[]}
+ * arrays, so a bid costs 16 bytes and a reference to the login of its bidder, and no boxing. Insertion and removal of
+ * the highest bid are {@code O(log n)}, removal of an arbitrary offer is {@code O(n)} for the lookup.
+ * <p>
+ * Mutations must be guarded by the owning {@link BidBook} stripe lock; the highest bid is published through
+ * volatile fields so it can be read without locking.
+ */
+final class AuctionBids {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private double[] values = new double[INITIAL_CAPACITY];
+
+    private long[] offerIds = new long[INITIAL_CAPACITY];
+
+    private String[] bidders = new String[INITIAL_CAPACITY];
+
+    private int size;
+
+    private volatile double highestValue = Double.NaN;
+
+    private volatile long highestOfferId = -1L;
+
+    private volatile String highestBidder;
+
+    private long endEpochMilli = Long.MAX_VALUE;
+
+    private AuctionStatus status = AuctionStatus.OPEN;
+
+    /**
+     * @return the highest bid value, or {@link Double#NaN} if there is no bid.
+     */
+    double highestValue() {
+        return highestValue;
+    }
+
+    /**
+     * @return the id of the offer holding the highest bid, or {@code -1} if there is no bid.
+     */
+    long highestOfferId() {
+        return highestOfferId;
+    }
+
+    /**
+     * @return the login of the bidder holding the highest bid, or {@code null} if there is no bid or it is unknown.
+     */
+    String highestBidder() {
+        return highestBidder;
+    }
+
+    /**
+     * @param nowEpochMilli the current time.
+     * @return whether a bid placed now is taken.
+     */
+    boolean acceptsBids(long nowEpochMilli) {
+        return status == AuctionStatus.OPEN && nowEpochMilli < endEpochMilli;
+    }
+
+    AuctionStatus status() {
+        return status;
+    }
+
+    void setStatus(AuctionStatus status) {
+        this.status = status;
+    }
+
+    void setEndEpochMilli(long endEpochMilli) {
+        this.endEpochMilli = endEpochMilli;
+    }
+
+    /**
+     * @return whether the entry holds nothing the book must remember, neither bids nor a bidding window.
+     */
+    boolean isDisposable() {
+        return size == 0 && status == AuctionStatus.OPEN && endEpochMilli == Long.MAX_VALUE;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(long offerId, double value) {
+        add(offerId, value, null);
+    }
+
+    void add(long offerId, double value, String bidder) {
+        if (size == values.length) {
+            int newCapacity = values.length << 1;
+            values = Arrays.copyOf(values, newCapacity);
+            offerIds = Arrays.copyOf(offerIds, newCapacity);
+            bidders = Arrays.copyOf(bidders, newCapacity);
+        }
+        values[size] = value;
+        offerIds[size] = offerId;
+        bidders[size] = bidder;
+        siftUp(size++);
+        publishHighest();
+    }
+
+    boolean remove(long offerId) {
+        int index = indexOf(offerId);
+        if (index < 0) {
+            return false;
+        }
+        int last = --size;
+        if (index != last) {
+            values[index] = values[last];
+            offerIds[index] = offerIds[last];
+            bidders[index] = bidders[last];
+            siftDown(index);
+            siftUp(index);
+        }
+        bidders[last] = null;
+        publishHighest();
+        return true;
+    }
+
+    /**
+     * Drops every bid, keeping the bidding window.
+     */
+    void clear() {
+        Arrays.fill(bidders, 0, size, null);
+        size = 0;
+        publishHighest();
+    }
+
+    /**
+     * Copies the {@code limit} highest bid values in descending order.
+     */
+    double[] topValues(int limit) {
+        double[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        int count = Math.min(limit, size);
+        double[] top = new double[count];
+        for (int i = 0; i < count; i++) {
+            top[i] = sorted[size - 1 - i];
+        }
+        return top;
+    }
+
+    private int indexOf(long offerId) {
+        for (int i = 0; i < size; i++) {
+            if (offerIds[i] == offerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void siftUp(int index) {
+        double value = values[index];
+        long offerId = offerIds[index];
+        String bidder = bidders[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (values[parent] >= value) {
+                break;
+            }
+            values[index] = values[parent];
+            offerIds[index] = offerIds[parent];
+            bidders[index] = bidders[parent];
+            index = parent;
+        }
+        values[index] = value;
+        offerIds[index] = offerId;
+        bidders[index] = bidder;
+    }
+
+    private void siftDown(int index) {
+        double value = values[index];
+        long offerId = offerIds[index];
+        String bidder = bidders[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            int right = child + 1;
+            if (right < size && values[right] > values[child]) {
+                child = right;
+            }
+            if (value >= values[child]) {
+                break;
+            }
+            values[index] = values[child];
+            offerIds[index] = offerIds[child];
+            bidders[index] = bidders[child];
+            index = child;
+        }
+        values[index] = value;
+        offerIds[index] = offerId;
+        bidders[index] = bidder;
+    }
+
+    private void publishHighest() {
+        if (size == 0) {
+            highestOfferId = -1L;
+            highestBidder = null;
+            highestValue = Double.NaN;
+        } else {
+            highestOfferId = offerIds[0];
+            highestBidder = bidders[0];
+            highestValue = values[0];
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package at.jku.service.bid;
+
+public class AuctionClosedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public AuctionClosedException(long auctionId) {
+        super("Auction " + auctionId + " is closed");
+    }
+}
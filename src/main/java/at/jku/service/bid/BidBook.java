@@ -0,0 +1,523 @@
+package at.jku.service.bid;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.Offer;
+import at.jku.domain.enumeration.AuctionStatus;
+import at.jku.repository.OfferRepository;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * In-memory book of the bids placed on every {@link at.jku.domain.Auction}, keyed by auction id.
+ * <p>
+ * Each auction owns an {@link AuctionBids} heap. Writers lock one of a fixed number of stripes chosen from the
+ * auction id, so bids on different auctions almost never contend, while the current price of an auction is read
+ * without any lock. The book is rebuilt from the {@link OfferRepository} once the application is ready.
+ * <p>
+ * The book also knows when each auction stops taking bids, so that no bid is taken once the end date of its auction
+ * has passed or once the auction is closed, whatever the delay of the close itself.
+ * <p>
+ * Every bid entering the book is announced as a {@link BidPlacedEvent}. Callers needing several steps on an auction
+ * to be atomic, such as the {@link ProxyBidding} resolving a bid war, run them {@link #inAuctionLock holding its lock}.
+ */
+@Service
+public class BidBook {
+
+    private final Logger log = LoggerFactory.getLogger(BidBook.class);
+
+    private final OfferRepository offerRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<Long, AuctionBids> auctions = new ConcurrentHashMap<>();
+
+    private final ReentrantLock[] stripes;
+
+    private final int stripeMask;
+
+    public BidBook(OfferRepository offerRepository, ApplicationEventPublisher eventPublisher, ApplicationProperties applicationProperties) {
+        this.offerRepository = offerRepository;
+        this.eventPublisher = eventPublisher;
+        int lockStripes = applicationProperties.getBidBook().getLockStripes();
+        int stripeCount = lockStripes <= 1 ? 1 : Integer.highestOneBit(lockStripes - 1) << 1;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Rebuild the book from the database, before the auction lifecycle restores the bidding windows.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        auctions.clear();
+        AtomicLong count = new AtomicLong();
+        try (Stream<OfferRepository.Bid> bids = offerRepository.streamAllBids()) {
+            bids.forEach(bid -> {
+                add(bid.getAuctionId(), bid.getId(), bid.getOfferValue(), bid.getBidder());
+                count.incrementAndGet();
+            });
+        }
+        log.info("Bid book rebuilt with {} bids on {} auctions", count.get(), auctions.size());
+    }
+
+    /**
+     * Replace the bids of an auction with the ones in the database, for an auction whose bids were placed through
+     * another instance until now. Bids placed meanwhile on this instance wait for the reload.
+     *
+     * @param auctionId the id of the auction.
+     */
+    @Transactional(readOnly = true)
+    public void reload(long auctionId) {
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            List<OfferRepository.Bid> bids = offerRepository.findAllBidsByAuctionId(auctionId);
+            AuctionBids reloaded = auctions.computeIfAbsent(auctionId, id -> new AuctionBids());
+            reloaded.clear();
+            bids.forEach(bid -> reloaded.add(bid.getId(), bid.getOfferValue(), bid.getBidder()));
+            if (reloaded.isDisposable()) {
+                auctions.remove(auctionId);
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Bid book reloaded the bids of auction {}", auctionId);
+    }
+
+    /**
+     * Get the current highest bid of an auction.
+     *
+     * @param auctionId the id of the auction.
+     * @return the highest bid, or empty if nobody has bid yet.
+     */
+    public OptionalDouble getHighestBid(long auctionId) {
+        AuctionBids bids = auctions.get(auctionId);
+        if (bids == null) {
+            return OptionalDouble.empty();
+        }
+        double highest = bids.highestValue();
+        return Double.isNaN(highest) ? OptionalDouble.empty() : OptionalDouble.of(highest);
+    }
+
+    /**
+     * Get the bidder holding the current highest bid of an auction.
+     *
+     * @param auctionId the id of the auction.
+     * @return the login of the bidder, or {@code null} if nobody has bid yet or the highest offer has no bidder.
+     */
+    public String getHighestBidder(long auctionId) {
+        AuctionBids bids = auctions.get(auctionId);
+        return bids == null ? null : bids.highestBidder();
+    }
+
+    /**
+     * Check whether a bid placed on an auction now would be taken, whatever its value.
+     *
+     * @param auctionId the id of the auction.
+     * @return {@code false} if the end date of the auction has passed or the auction is closed.
+     */
+    public boolean acceptsBids(long auctionId) {
+        AuctionBids bids = auctions.get(auctionId);
+        return bids == null || bids.acceptsBids(System.currentTimeMillis());
+    }
+
+    /**
+     * Run an action holding the lock of an auction, so that no bid on the auction interleaves with it. The lock is
+     * reentrant, the action may place bids on the auction.
+     *
+     * @param auctionId the id of the auction.
+     * @param action the action.
+     * @param <T> the type of the outcome of the action.
+     * @return the outcome of the action.
+     */
+    public <T> T inAuctionLock(long auctionId, Supplier<T> action) {
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Validate a new offer against the book and persist it while holding the auction's stripe lock.
+     * <p>
+     * Offers without an auction or without a value are not bids and are persisted as is. If the surrounding
+     * transaction rolls back, the bid is taken out of the book again.
+     *
+     * @param offer the offer to place.
+     * @param persister the function saving the offer and returning it with its id assigned.
+     * @return the persisted offer.
+     * @throws BidTooLowException if the offer does not beat the current highest bid.
+     * @throws AuctionClosedException if the auction no longer takes bids.
+     */
+    public Offer placeBid(Offer offer, UnaryOperator<Offer> persister) {
+        if (offer.getOfferName() == null || offer.getOfferName().getId() == null || offer.getOfferValue() == null) {
+            return persister.apply(offer);
+        }
+        return placeBid(offer, persister, true);
+    }
+
+    /**
+     * Validate a new bid against the book and hand it, while holding the auction's stripe lock, to a persister whose
+     * write does not roll back with the surrounding transaction, such as the bid journal. The bid stays in the book
+     * whatever the outcome of the transaction.
+     *
+     * @param offer the offer to place, with an auction and a value.
+     * @param persister the function recording the offer and returning it with its id assigned.
+     * @return the recorded offer.
+     * @throws BidTooLowException if the offer does not beat the current highest bid.
+     * @throws AuctionClosedException if the auction no longer takes bids.
+     */
+    public Offer placeBidWithoutRollback(Offer offer, UnaryOperator<Offer> persister) {
+        return placeBid(offer, persister, false);
+    }
+
+    /**
+     * Validate successive offers on one auction against the book and persist them together while holding the auction's
+     * stripe lock. Each offer must beat the one before it, the first must beat the current highest bid, and none is
+     * persisted unless all are valid. If the surrounding transaction rolls back, the bids are taken out of the book again.
+     *
+     * @param auctionId the id of the auction the offers are placed on.
+     * @param offers the offers to place, in increasing order of value.
+     * @param persister the function saving the offers at once and returning them with their ids assigned, in order.
+     * @return the persisted offers.
+     * @throws BidTooLowException if an offer does not beat the one before it.
+     * @throws AuctionClosedException if the auction no longer takes bids.
+     */
+    public List<Offer> placeBids(long auctionId, List<Offer> offers, UnaryOperator<List<Offer>> persister) {
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            AuctionBids bids = auctions.get(auctionId);
+            if (bids != null && !bids.acceptsBids(System.currentTimeMillis())) {
+                throw new AuctionClosedException(auctionId);
+            }
+            double previous = bids == null || bids.isEmpty() ? Double.NEGATIVE_INFINITY : bids.highestValue();
+            for (Offer offer : offers) {
+                if (offer.getOfferValue() <= previous) {
+                    throw new BidTooLowException(previous);
+                }
+                previous = offer.getOfferValue();
+            }
+            List<Offer> results = persister.apply(offers);
+            for (Offer result : results) {
+                addLocked(auctionId, result.getId(), result.getOfferValue(), result.getBidder());
+                removeOnRollback(auctionId, result.getId());
+                eventPublisher.publishEvent(new BidPlacedEvent(auctionId, result.getId(), result.getOfferValue()));
+            }
+            return results;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Validate the update of an existing offer against the book and persist it while holding the stripe locks of the
+     * auctions it leaves and joins, then move it in the book.
+     * <p>
+     * An updated bid must beat the highest bid of its auction, its own included, unless it keeps both its auction and
+     * its value: a bid can be raised, but neither lowered nor rewritten under the others. The offers of an auction that
+     * no longer takes bids can neither be changed nor moved onto it. If the surrounding transaction rolls back, the
+     * offer is put back in the book as it was.
+     *
+     * @param offerId the id of the offer.
+     * @param previousAuctionId the auction the offer was placed on before the update, may be {@code null}.
+     * @param previousValue the value of the offer before the update, may be {@code null}.
+     * @param offer the updated offer.
+     * @param persister the function writing the update and returning the offer.
+     * @return the updated offer.
+     * @throws BidTooLowException if the offer does not beat the current highest bid of its auction.
+     * @throws AuctionClosedException if the auction the offer leaves or joins no longer takes bids.
+     */
+    public Offer update(long offerId, Long previousAuctionId, Double previousValue, Offer offer, UnaryOperator<Offer> persister) {
+        Long auctionId = offer.getOfferName() != null ? offer.getOfferName().getId() : null;
+        Double value = offer.getOfferValue();
+        boolean bid = auctionId != null && value != null;
+        List<ReentrantLock> locks = stripesFor(previousAuctionId, auctionId);
+        locks.forEach(ReentrantLock::lock);
+        try {
+            long now = System.currentTimeMillis();
+            checkAcceptsBids(previousAuctionId, now);
+            checkAcceptsBids(auctionId, now);
+            boolean unchanged = Objects.equals(previousAuctionId, auctionId) && Objects.equals(previousValue, value);
+            AuctionBids bids = bid ? auctions.get(auctionId) : null;
+            if (bids != null && !unchanged && !bids.isEmpty() && value <= bids.highestValue()) {
+                throw new BidTooLowException(bids.highestValue());
+            }
+            Offer result = persister.apply(offer);
+            boolean wasInBook = previousAuctionId != null && removeLocked(previousAuctionId, offerId);
+            if (bid) {
+                addLocked(auctionId, offerId, value, result.getBidder());
+            }
+            restoreOnRollback(offerId, wasInBook ? previousAuctionId : null, previousValue, bid ? auctionId : null, result.getBidder());
+            if (bid) {
+                eventPublisher.publishEvent(new BidPlacedEvent(auctionId, offerId, value));
+            }
+            return result;
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
+
+    /**
+     * Take an offer out of the book.
+     *
+     * @param auctionId the id of the auction the offer was placed on.
+     * @param offerId the id of the offer.
+     */
+    public void remove(long auctionId, long offerId) {
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            removeLocked(auctionId, offerId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Set when an auction stops taking bids.
+     *
+     * @param auctionId the id of the auction.
+     * @param endDate the end date of the auction, {@code null} if it never ends.
+     */
+    public void setEndDate(long auctionId, Instant endDate) {
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            AuctionBids bids = auctions.computeIfAbsent(auctionId, id -> new AuctionBids());
+            bids.setEndEpochMilli(endDate == null ? Long.MAX_VALUE : endDate.toEpochMilli());
+            if (bids.isDisposable()) {
+                auctions.remove(auctionId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop taking bids on an auction, which becomes {@link AuctionStatus#CLOSING}.
+     *
+     * @param auctionId the id of the auction.
+     * @return {@code true} if the auction was open.
+     */
+    public boolean close(long auctionId) {
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            AuctionBids bids = auctions.computeIfAbsent(auctionId, id -> new AuctionBids());
+            if (bids.status() != AuctionStatus.OPEN) {
+                return false;
+            }
+            bids.setStatus(AuctionStatus.CLOSING);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record that the close of an auction is persisted, the auction becomes {@link AuctionStatus#CLOSED}.
+     *
+     * @param auctionId the id of the auction.
+     */
+    public void markClosed(long auctionId) {
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            auctions.computeIfAbsent(auctionId, id -> new AuctionBids()).setStatus(AuctionStatus.CLOSED);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the status of an auction as the book sees it, ahead of the database while the auction is closing.
+     *
+     * @param auctionId the id of the auction.
+     * @return the status of the auction.
+     */
+    public AuctionStatus getStatus(long auctionId) {
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            AuctionBids bids = auctions.get(auctionId);
+            return bids == null ? AuctionStatus.OPEN : bids.status();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop all the bids of an auction.
+     *
+     * @param auctionId the id of the auction.
+     */
+    public void evict(long auctionId) {
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            auctions.remove(auctionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Offer placeBid(Offer offer, UnaryOperator<Offer> persister, boolean rollsBack) {
+        long auctionId = offer.getOfferName().getId();
+        double value = offer.getOfferValue();
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            AuctionBids bids = auctions.get(auctionId);
+            if (bids != null && !bids.acceptsBids(System.currentTimeMillis())) {
+                throw new AuctionClosedException(auctionId);
+            }
+            if (bids != null && !bids.isEmpty() && value <= bids.highestValue()) {
+                throw new BidTooLowException(bids.highestValue());
+            }
+            Offer result = persister.apply(offer);
+            addLocked(auctionId, result.getId(), value, result.getBidder());
+            if (rollsBack) {
+                removeOnRollback(auctionId, result.getId());
+            }
+            eventPublisher.publishEvent(new BidPlacedEvent(auctionId, result.getId(), value));
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(long auctionId, long offerId, double value, String bidder) {
+        ReentrantLock lock = stripeFor(auctionId);
+        lock.lock();
+        try {
+            addLocked(auctionId, offerId, value, bidder);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void addLocked(long auctionId, long offerId, double value, String bidder) {
+        auctions.computeIfAbsent(auctionId, id -> new AuctionBids()).add(offerId, value, bidder);
+    }
+
+    private boolean removeLocked(long auctionId, long offerId) {
+        AuctionBids bids = auctions.get(auctionId);
+        if (bids == null || !bids.remove(offerId)) {
+            return false;
+        }
+        if (bids.isDisposable()) {
+            auctions.remove(auctionId);
+        }
+        return true;
+    }
+
+    private void checkAcceptsBids(Long auctionId, long nowEpochMilli) {
+        AuctionBids bids = auctionId == null ? null : auctions.get(auctionId);
+        if (bids != null && !bids.acceptsBids(nowEpochMilli)) {
+            throw new AuctionClosedException(auctionId);
+        }
+    }
+
+    private void restoreOnRollback(long offerId, Long previousAuctionId, Double previousValue, Long auctionId, String bidder) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        return;
+                    }
+                    List<ReentrantLock> locks = stripesFor(previousAuctionId, auctionId);
+                    locks.forEach(ReentrantLock::lock);
+                    try {
+                        if (auctionId != null) {
+                            removeLocked(auctionId, offerId);
+                        }
+                        if (previousAuctionId != null) {
+                            addLocked(previousAuctionId, offerId, previousValue, bidder);
+                        }
+                    } finally {
+                        for (int i = locks.size() - 1; i >= 0; i--) {
+                            locks.get(i).unlock();
+                        }
+                    }
+                }
+            }
+        );
+    }
+
+    private void removeOnRollback(long auctionId, long offerId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        remove(auctionId, offerId);
+                    }
+                }
+            }
+        );
+    }
+
+    private ReentrantLock stripeFor(long auctionId) {
+        return stripes[stripeIndex(auctionId)];
+    }
+
+    /**
+     * @return the stripe locks of up to two auctions, each once and in stripe order, so that two threads taking the
+     * locks of the same auctions cannot deadlock.
+     */
+    private List<ReentrantLock> stripesFor(Long first, Long second) {
+        int firstIndex = first == null ? -1 : stripeIndex(first);
+        int secondIndex = second == null ? -1 : stripeIndex(second);
+        List<ReentrantLock> locks = new ArrayList<>(2);
+        for (int index : new int[] { Math.min(firstIndex, secondIndex), Math.max(firstIndex, secondIndex) }) {
+            if (index >= 0 && (locks.isEmpty() || locks.get(0) != stripes[index])) {
+                locks.add(stripes[index]);
+            }
+        }
+        return locks;
+    }
+
+    private int stripeIndex(long auctionId) {
+        int hash = Long.hashCode(auctionId);
+        return (hash ^ (hash >>> 16)) & stripeMask;
+    }
+}
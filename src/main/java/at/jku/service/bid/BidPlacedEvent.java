@@ -0,0 +1,42 @@
+package at.jku.service.bid;
+
+/**
+ * Published by the {@link BidBook} whenever an offer becomes a bid on an auction, either because it was placed or
+ * because it was updated. Listeners that must only see committed bids listen in the after-commit phase.
+ */
+public final class BidPlacedEvent {
+
+    private final long auctionId;
+
+    private final long offerId;
+
+    private final double offerValue;
+
+    public BidPlacedEvent(long auctionId, long offerId, double offerValue) {
+        this.auctionId = auctionId;
+        this.offerId = offerId;
+        this.offerValue = offerValue;
+    }
+
+    public long getAuctionId() {
+        return auctionId;
+    }
+
+    public long getOfferId() {
+        return offerId;
+    }
+
+    public double getOfferValue() {
+        return offerValue;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BidPlacedEvent{" +
+            "auctionId=" + auctionId +
+            ", offerId=" + offerId +
+            ", offerValue=" + offerValue +
+            "}";
+    }
+}
@@ -0,0 +1,14 @@
+package at.jku.service.bid;
+
+public class BidTooLowException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BidTooLowException(double highestBid) {
+        super("Bid must be higher than the current highest bid of " + highestBid);
+    }
+
+    public BidTooLowException(String message) {
+        super(message);
+    }
+}
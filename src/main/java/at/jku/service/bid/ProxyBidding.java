@@ -0,0 +1,239 @@
+package at.jku.service.bid;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.Auction;
+import at.jku.domain.Offer;
+import at.jku.domain.ProxyBid;
+import at.jku.domain.enumeration.AuctionStatus;
+import at.jku.repository.AuctionRepository;
+import at.jku.repository.OfferRepository;
+import at.jku.repository.ProxyBidRepository;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bids on behalf of the bidders up to the maximum of their {@link ProxyBid}, eBay style.
+ * <p>
+ * The proxy bids of every open auction are kept in memory as {@link ProxyBids}. Whenever a proxy bid is placed or
+ * raised, and whenever somebody bids on an auction with proxy bids, the whole bid war between the proxies is resolved
+ * in one step under the {@link BidBook} lock of the auction, and only the offers it ends with are persisted, in one
+ * batch. The proxy bids are rebuilt from the {@link ProxyBidRepository} once the application is ready.
+ */
+@Service
+public class ProxyBidding {
+
+    private final Logger log = LoggerFactory.getLogger(ProxyBidding.class);
+
+    private final ProxyBidRepository proxyBidRepository;
+
+    private final OfferRepository offerRepository;
+
+    private final AuctionRepository auctionRepository;
+
+    private final BidBook bidBook;
+
+    private final double increment;
+
+    private final Map<Long, ProxyBids> auctions = new ConcurrentHashMap<>();
+
+    public ProxyBidding(
+        ProxyBidRepository proxyBidRepository,
+        OfferRepository offerRepository,
+        AuctionRepository auctionRepository,
+        BidBook bidBook,
+        ApplicationProperties applicationProperties
+    ) {
+        this.proxyBidRepository = proxyBidRepository;
+        this.offerRepository = offerRepository;
+        this.auctionRepository = auctionRepository;
+        this.bidBook = bidBook;
+        this.increment = applicationProperties.getProxyBidding().getIncrement();
+    }
+
+    /**
+     * Restore the proxy bids of the open auctions from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        auctions.clear();
+        AtomicLong count = new AtomicLong();
+        try (Stream<ProxyBidRepository.Proxy> proxies = proxyBidRepository.streamAllByAuctionStatus(AuctionStatus.OPEN)) {
+            proxies.forEach(proxy -> {
+                auctions
+                    .computeIfAbsent(proxy.getAuctionId(), id -> new ProxyBids())
+                    .put(new ProxyBids.Proxy(proxy.getBidder(), proxy.getMaxAmount()));
+                count.incrementAndGet();
+            });
+        }
+        log.info("Proxy bidding rebuilt with {} proxy bids on {} auctions", count.get(), auctions.size());
+    }
+
+    /**
+     * Set the maximum a bidder is ready to pay for an auction, and let the proxies bid. A bidder can raise its maximum
+     * but not lower it. If the surrounding transaction rolls back, the maximum the bidder had is restored.
+     *
+     * @param auctionId the id of an existing auction.
+     * @param bidder the login of the bidder.
+     * @param maxAmount the maximum.
+     * @return the offers the proxies placed, in increasing order of value, empty if the highest bid stands.
+     * @throws BidTooLowException if the maximum does not beat the current highest bid or the maximum the bidder had.
+     * @throws AuctionClosedException if the auction no longer takes bids.
+     */
+    public List<Offer> placeProxyBid(long auctionId, String bidder, double maxAmount) {
+        return bidBook.inAuctionLock(
+            auctionId,
+            () -> {
+                if (!bidBook.acceptsBids(auctionId)) {
+                    throw new AuctionClosedException(auctionId);
+                }
+                ProxyBids current = auctions.get(auctionId);
+                ProxyBids.Proxy previous = current == null ? null : current.get(bidder);
+                if (previous != null && maxAmount <= previous.maxAmount) {
+                    throw new BidTooLowException("Maximum must be higher than the current maximum of " + previous.maxAmount);
+                }
+                OptionalDouble highestBid = bidBook.getHighestBid(auctionId);
+                if (highestBid.isPresent() && maxAmount <= highestBid.getAsDouble()) {
+                    throw new BidTooLowException(highestBid.getAsDouble());
+                }
+                ProxyBid proxyBid = proxyBidRepository
+                    .findOneByAuctionIdAndBidder(auctionId, bidder)
+                    .orElseGet(() -> newProxyBid(auctionId, bidder));
+                proxyBid.setMaxAmount(maxAmount);
+                proxyBid.setPlacedDate(Instant.now());
+                proxyBidRepository.save(proxyBid);
+                ProxyBids proxies = auctions.computeIfAbsent(auctionId, id -> new ProxyBids());
+                proxies.put(new ProxyBids.Proxy(bidder, maxAmount));
+                restoreOnRollback(auctionId, bidder, previous);
+                return resolve(auctionId, proxies);
+            }
+        );
+    }
+
+    /**
+     * Let the proxies of an auction answer the bids placed on it.
+     *
+     * @param auctionId the id of the auction.
+     * @return the offers the proxies placed, in increasing order of value, empty if the highest bid stands.
+     */
+    public List<Offer> respond(long auctionId) {
+        if (!auctions.containsKey(auctionId)) {
+            return List.of();
+        }
+        return bidBook.inAuctionLock(
+            auctionId,
+            () -> {
+                ProxyBids proxies = auctions.get(auctionId);
+                if (proxies == null) {
+                    return List.of();
+                }
+                try {
+                    return resolve(auctionId, proxies);
+                } catch (AuctionClosedException e) {
+                    // the auction ended since the bid the proxies answer
+                    return List.of();
+                }
+            }
+        );
+    }
+
+    /**
+     * Get the maximum a bidder set for an auction.
+     *
+     * @param auctionId the id of the auction.
+     * @param bidder the login of the bidder.
+     * @return the maximum, or empty if the bidder has no proxy bid on the auction.
+     */
+    public OptionalDouble getMaxAmount(long auctionId, String bidder) {
+        return bidBook.inAuctionLock(
+            auctionId,
+            () -> {
+                ProxyBids proxies = auctions.get(auctionId);
+                ProxyBids.Proxy proxy = proxies == null ? null : proxies.get(bidder);
+                return proxy == null ? OptionalDouble.empty() : OptionalDouble.of(proxy.maxAmount);
+            }
+        );
+    }
+
+    /**
+     * Drop the proxy bids of an auction, once it is closed or deleted.
+     *
+     * @param auctionId the id of the auction.
+     */
+    public void evict(long auctionId) {
+        auctions.remove(auctionId);
+    }
+
+    private List<Offer> resolve(long auctionId, ProxyBids proxies) {
+        double highestValue = bidBook.getHighestBid(auctionId).orElse(Double.NaN);
+        List<ProxyBids.Bid> bids = proxies.resolve(highestValue, bidBook.getHighestBidder(auctionId), increment);
+        if (bids.isEmpty()) {
+            return List.of();
+        }
+        Auction auction = auctionRepository.getReferenceById(auctionId);
+        List<Offer> offers = new ArrayList<>(bids.size());
+        for (ProxyBids.Bid bid : bids) {
+            offers.add(new Offer().offerValue(bid.value).bidder(bid.bidder).offerName(auction));
+        }
+        log.debug("Proxy bids on auction {} end with {} offers", auctionId, offers.size());
+        return bidBook.placeBids(auctionId, offers, offerRepository::saveAll);
+    }
+
+    private ProxyBid newProxyBid(long auctionId, String bidder) {
+        ProxyBid proxyBid = new ProxyBid();
+        proxyBid.setAuction(auctionRepository.getReferenceById(auctionId));
+        proxyBid.setBidder(bidder);
+        return proxyBid;
+    }
+
+    private void restoreOnRollback(long auctionId, String bidder, ProxyBids.Proxy previous) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restore(auctionId, bidder, previous);
+                    }
+                }
+            }
+        );
+    }
+
+    private void restore(long auctionId, String bidder, ProxyBids.Proxy previous) {
+        bidBook.inAuctionLock(
+            auctionId,
+            () -> {
+                ProxyBids proxies = auctions.get(auctionId);
+                if (proxies == null) {
+                    return null;
+                }
+                if (previous == null) {
+                    proxies.remove(bidder);
+                } else {
+                    proxies.put(previous);
+                }
+                if (proxies.isEmpty()) {
+                    auctions.remove(auctionId);
+                }
+                return null;
+            }
+        );
+    }
+}
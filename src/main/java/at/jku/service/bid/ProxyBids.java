@@ -0,0 +1,130 @@
+package at.jku.service.bid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The proxy bids placed on a single auction, highest maximum first, and of two equal maximums the one placed first.
+ * <p>
+ * A bid war between proxies is resolved in one step instead of trading increments bid after bid: every proxy but the
+ * leading one ends up bidding its maximum, and the leading one only has to beat the best of them, or the current
+ * highest bid, by one increment. So a war of any length comes down to at most two bids, the maximum of the runner-up
+ * and the price of the leader.
+ * <p>
+ * Must be guarded by the {@link BidBook} stripe lock of the auction.
+ */
+final class ProxyBids {
+
+    private final List<Proxy> proxies = new ArrayList<>(2);
+
+    /**
+     * Put the proxy of a bidder in place of the one it had, behind the proxies with the same maximum.
+     *
+     * @return the proxy the bidder had, or {@code null}.
+     */
+    Proxy put(Proxy proxy) {
+        Proxy previous = remove(proxy.bidder);
+        int index = 0;
+        while (index < proxies.size() && proxies.get(index).maxAmount >= proxy.maxAmount) {
+            index++;
+        }
+        proxies.add(index, proxy);
+        return previous;
+    }
+
+    /**
+     * @return the proxy the bidder had, or {@code null}.
+     */
+    Proxy remove(String bidder) {
+        for (int i = 0; i < proxies.size(); i++) {
+            if (proxies.get(i).bidder.equals(bidder)) {
+                return proxies.remove(i);
+            }
+        }
+        return null;
+    }
+
+    Proxy get(String bidder) {
+        for (Proxy proxy : proxies) {
+            if (proxy.bidder.equals(bidder)) {
+                return proxy;
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return proxies.size();
+    }
+
+    boolean isEmpty() {
+        return proxies.isEmpty();
+    }
+
+    /**
+     * Resolve the bid war between the proxies and the current highest bid.
+     *
+     * @param highestValue the current highest bid, {@link Double#NaN} if there is none.
+     * @param leader the bidder of the current highest bid, {@code null} if unknown.
+     * @param increment the amount a proxy bids above the bid it beats.
+     * @return the bids to place, in increasing order of value, empty if the current highest bid stands.
+     */
+    List<Bid> resolve(double highestValue, String leader, double increment) {
+        if (proxies.isEmpty()) {
+            return List.of();
+        }
+        boolean noBid = Double.isNaN(highestValue);
+        Proxy first = proxies.get(0);
+        if (!noBid && first.maxAmount <= highestValue) {
+            return List.of();
+        }
+        Proxy runnerUp = proxies.size() > 1 && (noBid || proxies.get(1).maxAmount > highestValue) ? proxies.get(1) : null;
+        double toBeat;
+        if (runnerUp != null) {
+            toBeat = runnerUp.maxAmount;
+        } else if (noBid) {
+            toBeat = 0;
+        } else if (first.bidder.equals(leader)) {
+            // nobody left to outbid
+            return List.of();
+        } else {
+            toBeat = highestValue;
+        }
+        double price = Math.min(first.maxAmount, toBeat + increment);
+        if (runnerUp == null || runnerUp.maxAmount == price) {
+            // on a tie the earlier proxy wins alone
+            return List.of(new Bid(first.bidder, price));
+        }
+        return List.of(new Bid(runnerUp.bidder, runnerUp.maxAmount), new Bid(first.bidder, price));
+    }
+
+    /**
+     * The maximum a bidder lets the system bid up to.
+     */
+    static final class Proxy {
+
+        final String bidder;
+
+        final double maxAmount;
+
+        Proxy(String bidder, double maxAmount) {
+            this.bidder = bidder;
+            this.maxAmount = maxAmount;
+        }
+    }
+
+    /**
+     * A bid a proxy places.
+     */
+    static final class Bid {
+
+        final String bidder;
+
+        final double value;
+
+        Bid(String bidder, double value) {
+            this.bidder = bidder;
+            this.value = value;
+        }
+    }
+}
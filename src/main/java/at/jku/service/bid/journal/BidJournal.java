@@ -0,0 +1,613 @@
+package at.jku.service.bid.journal;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.Offer;
+import at.jku.domain.enumeration.ChangeType;
+import at.jku.repository.AuctionRepository;
+import at.jku.repository.OfferRepository;
+import at.jku.service.bid.AuctionClosedException;
+import at.jku.service.bid.BidBook;
+import at.jku.service.bid.BidTooLowException;
+import at.jku.service.outbox.Outbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Acknowledges new bids once they are on disk, and writes them to the offer table behind, when
+ * {@code application.bid-journal.enabled} is set.
+ * <p>
+ * A bid accepted by the {@link BidBook} is given an offer id, from blocks of the database sequence fetched ahead, and
+ * appended to a memory-mapped {@link JournalSegment} under the lock of its auction, so the journal holds the bids of an
+ * auction in the order the book took them. The caller then waits for a single thread forcing the journal to disk:
+ * whatever was appended while it forced is forced by its next round, so the bids arriving together share one
+ * {@code fsync}. A full segment is rolled over to a new one.
+ * <p>
+ * A second thread writes the bids to the offer table, in journal order, with a JDBC batch per transaction of up to
+ * {@code flush-batch-size} bids, which grows with the load since the bids arriving during a write make the next batch.
+ * The {@link Outbox} records their creation in the same transaction. A segment is deleted once all its bids are
+ * written. A batch failing to commit is retried until it does, the segments piling up meanwhile.
+ * <p>
+ * At startup the segments left over are written to the database before the {@link BidBook} is rebuilt from it,
+ * skipping the bids written before a crash and dropping the ones whose auction was deleted. At shutdown, once the web
+ * server stopped, the journal is drained to the database within {@code drain-timeout}.
+ * <p>
+ * Until it is written, a journaled offer is in the book and pushed to the auction watchers, but neither found by the
+ * reads of the database nor updated or deleted through them, and its creation comes after the one of the proxy bids
+ * answering it in the outbox.
+ */
+@Service
+@ConditionalOnProperty(prefix = "application.bid-journal", name = "enabled", havingValue = "true")
+public class BidJournal implements SmartLifecycle {
+
+    /**
+     * Increment of the {@code sequence_generator} sequence, and allocation size of the {@code sequenceGenerator} of the
+     * entities: each value the sequence returns is the highest of a block of ids only its caller hands out.
+     */
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final String SEQUENCE_NAME = "sequence_generator";
+
+    private static final String INSERT_OFFER =
+        "insert into offer (id, offer_value, bidder, offer_name_id, version) values (?, ?, ?, ?, 0)";
+
+    private final Logger log = LoggerFactory.getLogger(BidJournal.class);
+
+    private final BidBook bidBook;
+
+    private final OfferRepository offerRepository;
+
+    private final AuctionRepository auctionRepository;
+
+    private final Outbox outbox;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String nextIdBlockSql;
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final int flushBatchSize;
+
+    private final Duration flushInterval;
+
+    private final Duration drainTimeout;
+
+    private final int idBlockCount;
+
+    private final BlockingQueue<Long> idBlocks = new LinkedBlockingQueue<>();
+
+    private final BlockingQueue<JournaledBid> pending = new LinkedBlockingQueue<>();
+
+    private final Deque<JournalSegment> closed = new ConcurrentLinkedDeque<>();
+
+    private final Timer syncTimer;
+
+    private final Counter writtenCounter;
+
+    private final ExecutorService syncer;
+
+    private final ExecutorService writer;
+
+    // guarded by the append lock
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private final List<JournalSegment> rolled = new ArrayList<>();
+
+    private volatile JournalSegment current;
+
+    private long nextId;
+
+    private long lastId = -1;
+
+    private volatile long appended;
+
+    private volatile boolean running;
+
+    // guarded by the sync lock
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    private final Condition syncRequested = syncLock.newCondition();
+
+    private final Condition synced = syncLock.newCondition();
+
+    private volatile long syncedCount;
+
+    private volatile Throwable failure;
+
+    // guarded by the write lock
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Condition written = writeLock.newCondition();
+
+    /**
+     * Bids appended and then written to the database, or dropped, which the writer takes in the order they were appended.
+     */
+    private long writtenCount;
+
+    public BidJournal(
+        BidBook bidBook,
+        OfferRepository offerRepository,
+        AuctionRepository auctionRepository,
+        Outbox outbox,
+        PlatformTransactionManager transactionManager,
+        DataSource dataSource,
+        EntityManagerFactory entityManagerFactory,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.bidBook = bidBook;
+        this.offerRepository = offerRepository;
+        this.auctionRepository = auctionRepository;
+        this.outbox = outbox;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.nextIdBlockSql =
+            entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect()
+                .getSequenceNextValString(SEQUENCE_NAME);
+        ApplicationProperties.BidJournal properties = applicationProperties.getBidJournal();
+        this.directory = Path.of(properties.getDirectory());
+        this.segmentSize = properties.getSegmentSize();
+        this.flushBatchSize = properties.getFlushBatchSize();
+        this.flushInterval = properties.getFlushInterval();
+        this.drainTimeout = properties.getDrainTimeout();
+        this.idBlockCount = properties.getIdBlocks();
+        this.syncTimer =
+            Timer
+                .builder("bid.journal.sync")
+                .description("Time spent forcing the bid journal to disk")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.writtenCounter =
+            Counter.builder("bid.journal.written").description("Journaled bids written to the database").register(meterRegistry);
+        Gauge
+            .builder("bid.journal.pending", pending, Collection::size)
+            .description("Journaled bids not written to the database yet")
+            .register(meterRegistry);
+        this.syncer = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("bid-journal-sync-"));
+        this.writer = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("bid-journal-writer-"));
+    }
+
+    /**
+     * Write the segments left over to the database, then open a new segment.
+     */
+    @Override
+    public void start() {
+        try {
+            Files.createDirectories(directory);
+            long nextIndex = replay();
+            current = JournalSegment.create(directory, nextIndex, segmentSize);
+            syncDirectory();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the bid journal in " + directory, e);
+        }
+        running = true;
+        syncer.execute(this::syncLoop);
+        writer.execute(this::writeLoop);
+        log.info("Bid journal started in {}", directory.toAbsolutePath());
+    }
+
+    /**
+     * Stop taking bids, and wait for the journal to be written to the database.
+     */
+    @Override
+    public void stop() {
+        appendLock.lock();
+        try {
+            running = false;
+        } finally {
+            appendLock.unlock();
+        }
+        requestSync();
+        syncer.shutdown();
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Bid journal not drained within {}, {} bids left to replay at the next startup", drainTimeout, pending.size());
+                writer.shutdownNow();
+            }
+            syncer.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before the web server, stopped after it.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Check whether an offer can be placed through the journal: the journal is running and the offer is a bid on an
+     * existing auction. Other offers are saved to the database as usual, where an unknown auction is refused.
+     *
+     * @param offer the new offer.
+     * @return whether {@link #placeBid} takes the offer.
+     */
+    public boolean accepts(Offer offer) {
+        return (
+            running &&
+            failure == null &&
+            offer.getOfferName() != null &&
+            offer.getOfferName().getId() != null &&
+            offer.getOfferValue() != null &&
+            auctionRepository.findById(offer.getOfferName().getId()).isPresent()
+        );
+    }
+
+    /**
+     * Validate a new bid against the {@link BidBook} and append it to the journal, returning once it is on disk.
+     *
+     * @param offer the offer to place, which {@link #accepts} takes.
+     * @return the offer, with its id and initial version.
+     * @throws BidTooLowException if the offer does not beat the current highest bid.
+     * @throws AuctionClosedException if the auction no longer takes bids.
+     * @throws IllegalStateException if the journal is stopped or cannot be written.
+     */
+    public Offer placeBid(Offer offer) {
+        AtomicLong sequence = new AtomicLong();
+        Offer result = bidBook.placeBidWithoutRollback(
+            offer,
+            bid -> {
+                sequence.set(append(bid));
+                return bid;
+            }
+        );
+        awaitSynced(sequence.get());
+        return result;
+    }
+
+    /**
+     * Wait for the bids appended so far to be written to the database, so that the {@link BidBook} can be reloaded
+     * from it without missing any.
+     *
+     * @throws IllegalStateException if they are not written within {@code drain-timeout}.
+     */
+    public void awaitWritten() {
+        long target = appended;
+        long remaining = drainTimeout.toNanos();
+        writeLock.lock();
+        try {
+            while (writtenCount < target) {
+                if (remaining <= 0) {
+                    throw new IllegalStateException(
+                        "The bid journal was not written to the database within " + drainTimeout + ", " + pending.size() + " bids left"
+                    );
+                }
+                remaining = written.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing the bid journal to the database", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private long append(Offer offer) {
+        appendLock.lock();
+        try {
+            if (!running || failure != null) {
+                throw new IllegalStateException("The bid journal is not running", failure);
+            }
+            long offerId = nextId();
+            long auctionId = offer.getOfferName().getId();
+            if (!current.append(offerId, auctionId, offer.getOfferValue(), offer.getBidder())) {
+                roll();
+                if (!current.append(offerId, auctionId, offer.getOfferValue(), offer.getBidder())) {
+                    throw new IllegalStateException("A bid does not fit in a journal segment of " + segmentSize + " bytes");
+                }
+            }
+            offer.setId(offerId);
+            offer.setVersion(0L);
+            pending.add(new JournaledBid(offerId, auctionId, offer.getOfferValue(), offer.getBidder(), current.getIndex()));
+            return ++appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private long nextId() {
+        if (nextId > lastId) {
+            Long block = idBlocks.poll();
+            lastId = block == null ? fetchIdBlock() : block;
+            nextId = lastId - ID_BLOCK_SIZE + 1;
+        }
+        return nextId++;
+    }
+
+    private long fetchIdBlock() {
+        Long block = transactionTemplate.execute(status -> jdbcTemplate.queryForObject(nextIdBlockSql, Long.class));
+        if (block == null) {
+            throw new IllegalStateException("The sequence " + SEQUENCE_NAME + " returned no value");
+        }
+        return block;
+    }
+
+    private void roll() {
+        JournalSegment full = current;
+        try {
+            current = JournalSegment.create(directory, full.getIndex() + 1, segmentSize);
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException("Cannot roll the bid journal over", e);
+        }
+        syncDirectory();
+        rolled.add(full);
+        closed.add(full);
+        log.debug("Bid journal rolled over to {}", current);
+    }
+
+    private void syncDirectory() {
+        // makes the new segment file itself survive a crash, which not every platform supports
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Cannot force the bid journal directory to disk: {}", e.getMessage());
+        }
+    }
+
+    private void requestSync() {
+        syncLock.lock();
+        try {
+            syncRequested.signal();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void awaitSynced(long sequence) {
+        syncLock.lock();
+        try {
+            while (syncedCount < sequence) {
+                if (failure != null) {
+                    throw new IllegalStateException("The bid journal cannot be forced to disk", failure);
+                }
+                syncRequested.signal();
+                synced.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while forcing the bid journal to disk", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void syncLoop() {
+        try {
+            while (true) {
+                syncLock.lock();
+                try {
+                    while (syncedCount == appended) {
+                        if (!running) {
+                            return;
+                        }
+                        syncRequested.await();
+                    }
+                } finally {
+                    syncLock.unlock();
+                }
+                sync();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // forcing reports I/O errors unchecked, or as an undeclared IOException
+            log.error("Cannot force the bid journal to disk, new bids go to the database", e);
+            syncLock.lock();
+            try {
+                failure = e;
+                synced.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+
+    private void sync() {
+        long target;
+        JournalSegment segment;
+        List<JournalSegment> full;
+        appendLock.lock();
+        try {
+            target = appended;
+            segment = current;
+            full = new ArrayList<>(rolled);
+            rolled.clear();
+        } finally {
+            appendLock.unlock();
+        }
+        long started = System.nanoTime();
+        full.forEach(JournalSegment::force);
+        segment.force();
+        syncTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        syncLock.lock();
+        try {
+            syncedCount = target;
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        List<JournaledBid> batch = new ArrayList<>(flushBatchSize);
+        while (true) {
+            try {
+                if (batch.isEmpty()) {
+                    long currentIndex = current.getIndex();
+                    JournaledBid first = pending.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        if (!running && pending.isEmpty()) {
+                            // no bid is appended once stopped, the journal is drained
+                            deleteSegmentsBefore(Long.MAX_VALUE);
+                            current.delete();
+                            return;
+                        }
+                        // the bids of the segments closed before the wait were all taken, hence written
+                        deleteSegmentsBefore(currentIndex);
+                        fetchIdBlocks();
+                        continue;
+                    }
+                    batch.add(first);
+                    pending.drainTo(batch, flushBatchSize - 1);
+                }
+                write(batch);
+                writtenCounter.increment(batch.size());
+                writeLock.lock();
+                try {
+                    writtenCount += batch.size();
+                    written.signalAll();
+                } finally {
+                    writeLock.unlock();
+                }
+                deleteSegmentsBefore(batch.get(batch.size() - 1).getSegment());
+                batch.clear();
+                fetchIdBlocks();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Writing the bid journal to the database failed, retrying {} bids: {}", batch.size(), e.getMessage());
+                try {
+                    Thread.sleep(flushInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void fetchIdBlocks() {
+        while (running && idBlocks.size() < idBlockCount) {
+            idBlocks.add(fetchIdBlock());
+        }
+    }
+
+    private void deleteSegmentsBefore(long index) throws IOException {
+        for (JournalSegment segment = closed.peekFirst(); segment != null && segment.getIndex() < index; segment = closed.peekFirst()) {
+            segment.delete();
+            closed.removeFirst();
+        }
+    }
+
+    private long replay() throws IOException {
+        long nextIndex = 0;
+        int count = 0;
+        for (Path path : JournalSegment.list(directory)) {
+            JournalSegment segment = JournalSegment.open(path);
+            List<JournaledBid> bids = segment.read();
+            for (int from = 0; from < bids.size(); from += flushBatchSize) {
+                write(bids.subList(from, Math.min(bids.size(), from + flushBatchSize)));
+            }
+            segment.delete();
+            count += bids.size();
+            nextIndex = segment.getIndex() + 1;
+        }
+        if (count > 0) {
+            log.info("Replayed {} bids from the bid journal", count);
+        }
+        return nextIndex;
+    }
+
+    private void write(List<JournaledBid> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Long> auctionIds = batch.stream().map(JournaledBid::getAuctionId).collect(Collectors.toSet());
+            Set<Long> existingAuctionIds = new HashSet<>(auctionRepository.findExistingIds(auctionIds));
+            List<Long> offerIds = batch.stream().map(JournaledBid::getOfferId).collect(Collectors.toList());
+            Set<Long> writtenOfferIds = new HashSet<>(offerRepository.findExistingIds(offerIds));
+            List<JournaledBid> rows = new ArrayList<>(batch.size());
+            for (JournaledBid bid : batch) {
+                if (writtenOfferIds.contains(bid.getOfferId())) {
+                    // written before a crash left its segment behind
+                    continue;
+                }
+                if (!existingAuctionIds.contains(bid.getAuctionId())) {
+                    log.warn("Dropping {}, its auction was deleted", bid);
+                    continue;
+                }
+                rows.add(bid);
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate(
+                INSERT_OFFER,
+                rows,
+                rows.size(),
+                (statement, bid) -> {
+                    statement.setLong(1, bid.getOfferId());
+                    statement.setDouble(2, bid.getOfferValue());
+                    statement.setObject(3, bid.getBidder(), Types.VARCHAR);
+                    statement.setLong(4, bid.getAuctionId());
+                }
+            );
+            for (JournaledBid bid : rows) {
+                Offer offer = new Offer()
+                    .id(bid.getOfferId())
+                    .offerValue(bid.getOfferValue())
+                    .bidder(bid.getBidder())
+                    .offerName(auctionRepository.getReferenceById(bid.getAuctionId()));
+                offer.setVersion(0L);
+                outbox.offerChanged(ChangeType.CREATED, offer);
+            }
+        });
+    }
+}
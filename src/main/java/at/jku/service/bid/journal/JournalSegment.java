@@ -0,0 +1,200 @@
+package at.jku.service.bid.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * A file of the {@link BidJournal}, sized up front and memory-mapped, holding bids one after the other.
+ * <p>
+ * A record is the length and the CRC32C of its payload, on four bytes each, then the payload: the offer id, the auction
+ * id and the value on eight bytes each, the length of the login of the bidder on two bytes, {@code -1} without bidder,
+ * and the login in UTF-8. The length is written last, so that the zeros of the free space end the records, and a record
+ * torn by a crash fails its checksum.
+ * <p>
+ * Appends must be serialized by the caller, forcing may run concurrently with them.
+ */
+final class JournalSegment {
+
+    private static final String PREFIX = "bids-";
+
+    private static final String SUFFIX = ".journal";
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int FIXED_PAYLOAD_SIZE = 26;
+
+    private final long index;
+
+    private final Path path;
+
+    private final MappedByteBuffer buffer;
+
+    private int position;
+
+    private JournalSegment(long index, Path path, MappedByteBuffer buffer) {
+        this.index = index;
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Create an empty segment.
+     *
+     * @param directory the directory of the journal.
+     * @param index the index of the segment, higher than the ones of the segments before it.
+     * @param size the size of the segment in bytes.
+     * @return the segment.
+     * @throws IOException if the file cannot be created.
+     */
+    static JournalSegment create(Path directory, long index, int size) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, index, SUFFIX));
+        try (
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+        ) {
+            // the mapping stays valid once the channel is closed
+            return new JournalSegment(index, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /**
+     * Open an existing segment to read its records.
+     *
+     * @param path the file of the segment.
+     * @return the segment.
+     * @throws IOException if the file cannot be read.
+     */
+    static JournalSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new JournalSegment(indexOf(path), path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * List the segments of a journal.
+     *
+     * @param directory the directory of the journal.
+     * @return the files of the segments, in the order of their indexes.
+     * @throws IOException if the directory cannot be listed.
+     */
+    static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(file -> {
+                    String name = file.getFileName().toString();
+                    return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                })
+                .sorted(Comparator.comparingLong(JournalSegment::indexOf))
+                .collect(Collectors.toList());
+        }
+    }
+
+    private static long indexOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    long getIndex() {
+        return index;
+    }
+
+    /**
+     * Append a bid after the records of the segment.
+     *
+     * @return {@code false} if the segment has no room left for the bid.
+     */
+    boolean append(long offerId, long auctionId, double offerValue, String bidder) {
+        byte[] login = bidder == null ? null : bidder.getBytes(StandardCharsets.UTF_8);
+        int length = FIXED_PAYLOAD_SIZE + (login == null ? 0 : login.length);
+        int start = position + HEADER_SIZE;
+        if (start + length > buffer.capacity()) {
+            return false;
+        }
+        buffer.position(start);
+        buffer.putLong(offerId).putLong(auctionId).putDouble(offerValue);
+        if (login == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) login.length).put(login);
+        }
+        buffer.putInt(position + 4, checksum(buffer, start, length));
+        buffer.putInt(position, length);
+        position = start + length;
+        return true;
+    }
+
+    /**
+     * Write the records appended so far to the storage device.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * Read the records of the segment, up to the free space or the first torn record.
+     *
+     * @return the bids of the segment, in the order they were appended.
+     */
+    List<JournaledBid> read() {
+        List<JournaledBid> bids = new ArrayList<>();
+        ByteBuffer in = buffer.duplicate();
+        int at = 0;
+        while (at + HEADER_SIZE + FIXED_PAYLOAD_SIZE <= in.capacity()) {
+            int length = in.getInt(at);
+            int start = at + HEADER_SIZE;
+            if (length < FIXED_PAYLOAD_SIZE || start + length > in.capacity() || in.getInt(at + 4) != checksum(in, start, length)) {
+                break;
+            }
+            in.position(start);
+            long offerId = in.getLong();
+            long auctionId = in.getLong();
+            double offerValue = in.getDouble();
+            short loginLength = in.getShort();
+            if (FIXED_PAYLOAD_SIZE + Math.max(0, loginLength) != length) {
+                break;
+            }
+            String bidder = null;
+            if (loginLength >= 0) {
+                byte[] login = new byte[loginLength];
+                in.get(login);
+                bidder = new String(login, StandardCharsets.UTF_8);
+            }
+            bids.add(new JournaledBid(offerId, auctionId, offerValue, bidder, index));
+            at = start + length;
+        }
+        return bids;
+    }
+
+    /**
+     * Delete the file of the segment, once its bids are in the database.
+     *
+     * @throws IOException if the file cannot be deleted.
+     */
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private static int checksum(ByteBuffer buffer, int start, int length) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(start + length).position(start);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return "JournalSegment{path=" + path + ", position=" + position + "}";
+    }
+}
@@ -0,0 +1,60 @@
+package at.jku.service.bid.journal;
+
+/**
+ * A bid recorded in the {@link BidJournal}, with the offer id it was given.
+ */
+final class JournaledBid {
+
+    private final long offerId;
+
+    private final long auctionId;
+
+    private final double offerValue;
+
+    private final String bidder;
+
+    /**
+     * Index of the {@link JournalSegment} holding the bid.
+     */
+    private final long segment;
+
+    JournaledBid(long offerId, long auctionId, double offerValue, String bidder, long segment) {
+        this.offerId = offerId;
+        this.auctionId = auctionId;
+        this.offerValue = offerValue;
+        this.bidder = bidder;
+        this.segment = segment;
+    }
+
+    long getOfferId() {
+        return offerId;
+    }
+
+    long getAuctionId() {
+        return auctionId;
+    }
+
+    double getOfferValue() {
+        return offerValue;
+    }
+
+    String getBidder() {
+        return bidder;
+    }
+
+    long getSegment() {
+        return segment;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "JournaledBid{" +
+            "offerId=" + offerId +
+            ", auctionId=" + auctionId +
+            ", offerValue=" + offerValue +
+            ", bidder='" + bidder + "'" +
+            ", segment=" + segment +
+            "}";
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Journal acknowledging new bids once on disk, and writing them to the offer table behind.
+ */
+package at.jku.service.bid.journal;
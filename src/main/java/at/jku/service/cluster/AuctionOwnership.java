@@ -0,0 +1,249 @@
+package at.jku.service.cluster;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.ClusterMember;
+import at.jku.repository.ClusterMemberRepository;
+import at.jku.service.bid.BidBook;
+import at.jku.service.bid.journal.BidJournal;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Shares the auctions between the instances of the cluster, when {@code application.cluster.enabled} is set, so that
+ * the bids on an auction are all placed through the {@link BidBook} of one instance.
+ * <p>
+ * Each instance renews its {@link ClusterMember} heartbeat every {@code heartbeat-interval}, and reads the members
+ * whose heartbeat is younger than {@code member-timeout}, dropping the older ones. The owner of an auction is its
+ * member on the {@link HashRing} of these, so a change of members moves only the auctions of the members joining or
+ * leaving. An instance stopping leaves at once; one failing is left out once its heartbeat lapses. The clocks of the
+ * instances must agree well within {@code member-timeout}.
+ * <p>
+ * The bid book of each instance is only kept up to date by the bids placed through it. An auction taken over from
+ * another member has its bids reloaded from the database before the first write this instance handles for it. With
+ * the {@link BidJournal}, some of them may not be in the database yet: the reload first waits for the journal of this
+ * instance to be written, and has the member that owned the auction {@link #handOver hand it over}, refreshing its
+ * members and writing its own journal. A member stopping writes its journal before it leaves; the bids in the journal
+ * of one failing are only written once it restarts. The members see a change at their next heartbeat, so for up to
+ * one {@code heartbeat-interval} two of them may take writes for the same auction.
+ */
+@Service
+@ConditionalOnProperty(prefix = "application.cluster", name = "enabled", havingValue = "true")
+public class AuctionOwnership {
+
+    private final Logger log = LoggerFactory.getLogger(AuctionOwnership.class);
+
+    private final ClusterMemberRepository clusterMemberRepository;
+
+    private final BidBook bidBook;
+
+    private final BidJournal bidJournal;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final String url;
+
+    private final Duration memberTimeout;
+
+    private final int virtualNodes;
+
+    private volatile HashRing ring;
+
+    /**
+     * The auctions owned by this instance whose bids are in the book, with the ring under which they were last owned.
+     */
+    private final Map<Long, HashRing> reloaded = new ConcurrentHashMap<>();
+
+    public AuctionOwnership(
+        ClusterMemberRepository clusterMemberRepository,
+        BidBook bidBook,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry,
+        ObjectProvider<BidJournal> bidJournal
+    ) {
+        ApplicationProperties.Cluster properties = applicationProperties.getCluster();
+        if (properties.getUrl() == null || properties.getUrl().isBlank()) {
+            throw new IllegalStateException("application.cluster.url must be set when application.cluster.enabled is");
+        }
+        this.clusterMemberRepository = clusterMemberRepository;
+        this.bidBook = bidBook;
+        this.bidJournal = bidJournal.getIfAvailable();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.url = properties.getUrl().replaceAll("/+$", "");
+        this.memberTimeout = properties.getMemberTimeout();
+        this.virtualNodes = properties.getVirtualNodes();
+        // alone until the first heartbeat
+        this.ring = HashRing.of(Set.of(url), virtualNodes);
+        Gauge
+            .builder("cluster.members", this, ownership -> ownership.ring.getMembers().size())
+            .description("Instances of the cluster seen by this one")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Renew the heartbeat of this instance and follow the changes of members.
+     */
+    @Scheduled(fixedDelayString = "${application.cluster.heartbeat-interval:PT5S}")
+    public synchronized void heartbeat() {
+        List<String> members;
+        try {
+            members = transactionTemplate.execute(status -> renewHeartbeat());
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Cluster heartbeat failed, keeping the members {}: {}", ring.getMembers(), e.getMessage());
+            return;
+        }
+        HashRing previous = ring;
+        if (members == null || previous.getMembers().equals(Set.copyOf(members))) {
+            return;
+        }
+        HashRing next = HashRing.of(members, virtualNodes);
+        // the auctions still owned keep their bids, the others are reloaded if they come back
+        reloaded.replaceAll(
+            (auctionId, loadedUnder) -> loadedUnder == previous && url.equals(next.ownerOf(auctionId)) ? next : loadedUnder
+        );
+        ring = next;
+        reloaded.values().removeIf(loadedUnder -> loadedUnder != next);
+        log.info("Cluster members changed from {} to {}", previous.getMembers(), next.getMembers());
+    }
+
+    /**
+     * Leave the cluster, handing the auctions of this instance over to the others at their next heartbeat.
+     */
+    @PreDestroy
+    public void leave() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> clusterMemberRepository.deleteById(url));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Could not leave the cluster, the others will once the heartbeat lapses: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Find where the writes for an auction go. When it is this instance, the bids of the auction are made current in
+     * the {@link BidBook} first.
+     *
+     * @param auctionId the id of the auction.
+     * @param handOver called with the URL of the member owning the auction without this instance, before its bids
+     * are reloaded, to have it {@link #handOver hand the auction over}.
+     * @return the URL of the member owning the auction, or empty if it is this instance.
+     * @throws IllegalStateException if the bids of the auction cannot be made current.
+     */
+    public Optional<String> ownerOf(long auctionId, Consumer<String> handOver) {
+        HashRing current = ring;
+        String owner = current.ownerOf(auctionId);
+        if (!url.equals(owner)) {
+            return Optional.of(owner);
+        }
+        makeCurrent(auctionId, current, handOver);
+        return Optional.empty();
+    }
+
+    /**
+     * Make the bids of an auction current in the {@link BidBook}, for a write forwarded by a member that sees this
+     * instance as its owner before this instance does.
+     *
+     * @param auctionId the id of the auction.
+     * @param handOver called with the URL of the member this instance sees as the owner, before the bids of the
+     * auction are reloaded, to have it {@link #handOver hand the auction over}.
+     * @throws IllegalStateException if the bids of the auction cannot be made current.
+     */
+    public void takeOver(long auctionId, Consumer<String> handOver) {
+        HashRing current = ring;
+        String owner = current.ownerOf(auctionId);
+        if (url.equals(owner)) {
+            ownerOf(auctionId, handOver);
+        } else {
+            reload(auctionId, owner, handOver);
+        }
+    }
+
+    /**
+     * Hand the auctions taken over by another member to it: refresh the members, so that the writes for them are sent
+     * to it from now on, and write the journal of this instance to the database, with the bids placed on them so far.
+     *
+     * @throws IllegalStateException if the journal is not written within its {@code drain-timeout}.
+     */
+    public void handOver() {
+        heartbeat();
+        if (bidJournal != null) {
+            bidJournal.awaitWritten();
+        }
+    }
+
+    /**
+     * @param url the URL of an instance.
+     * @return whether the instance is among the members this one currently sees.
+     */
+    public boolean isMember(String url) {
+        return ring.getMembers().contains(url);
+    }
+
+    /**
+     * @return the URL of this instance.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    private void makeCurrent(long auctionId, HashRing current, Consumer<String> handOver) {
+        // concurrent writes for the auction wait for a single reload
+        reloaded.compute(
+            auctionId,
+            (id, loadedUnder) -> {
+                if (loadedUnder != current) {
+                    // on a consistent hash ring, the auctions of this instance are those of that member without it
+                    Set<String> others = new HashSet<>(current.getMembers());
+                    others.remove(url);
+                    reload(id, HashRing.of(others, virtualNodes).ownerOf(id), handOver);
+                }
+                return current;
+            }
+        );
+    }
+
+    private void reload(long auctionId, String previousOwner, Consumer<String> handOver) {
+        if (bidJournal != null) {
+            bidJournal.awaitWritten();
+        }
+        if (previousOwner != null && !url.equals(previousOwner)) {
+            handOver.accept(previousOwner);
+        }
+        bidBook.reload(auctionId);
+    }
+
+    private List<String> renewHeartbeat() {
+        Instant now = Instant.now();
+        ClusterMember self = clusterMemberRepository
+            .findById(url)
+            .orElseGet(() -> {
+                ClusterMember member = new ClusterMember();
+                member.setUrl(url);
+                member.setJoinedDate(now);
+                return member;
+            });
+        self.setHeartbeatDate(now);
+        clusterMemberRepository.save(self);
+        clusterMemberRepository.deleteByHeartbeatDateBefore(now.minus(memberTimeout));
+        return clusterMemberRepository.findAllUrlsByHeartbeatDateAfter(now.minus(memberTimeout));
+    }
+}
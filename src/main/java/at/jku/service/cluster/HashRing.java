@@ -0,0 +1,116 @@
+package at.jku.service.cluster;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Consistent hash ring mapping auctions to the members of the cluster.
+ * <p>
+ * Each member is placed at {@code virtualNodes} points of a ring of 64-bit positions, hashed from its URL, and owns the
+ * auctions hashed between the point before and each of its points. A member joining takes over only the auctions
+ * falling right before its own points, about one share, and a member leaving hands its auctions over to the points
+ * following its own, leaving every other auction with its owner. The positions depend on the URLs alone, so every
+ * instance seeing the same members computes the same owners.
+ */
+final class HashRing {
+
+    private final Set<String> members;
+
+    private final long[] points;
+
+    private final String[] owners;
+
+    private HashRing(Set<String> members, long[] points, String[] owners) {
+        this.members = members;
+        this.points = points;
+        this.owners = owners;
+    }
+
+    /**
+     * @param members the URLs of the members.
+     * @param virtualNodes the number of points of each member.
+     * @return the ring of these members.
+     */
+    static HashRing of(Collection<String> members, int virtualNodes) {
+        Set<String> sorted = new TreeSet<>(members);
+        Point[] placed = new Point[sorted.size() * virtualNodes];
+        int count = 0;
+        MessageDigest digest = md5();
+        for (String member : sorted) {
+            for (int i = 0; i < virtualNodes; i++) {
+                byte[] hash = digest.digest((member + '#' + i).getBytes(StandardCharsets.UTF_8));
+                placed[count++] = new Point(ByteBuffer.wrap(hash).getLong(), member);
+            }
+        }
+        // ties, as unlikely as they are, are broken the same way on every instance
+        Arrays.sort(placed, (a, b) -> a.position != b.position ? Long.compare(a.position, b.position) : a.member.compareTo(b.member));
+        long[] points = new long[count];
+        String[] owners = new String[count];
+        for (int i = 0; i < count; i++) {
+            points[i] = placed[i].position;
+            owners[i] = placed[i].member;
+        }
+        return new HashRing(Set.copyOf(sorted), points, owners);
+    }
+
+    /**
+     * @return the URLs of the members.
+     */
+    Set<String> getMembers() {
+        return members;
+    }
+
+    /**
+     * @param auctionId the id of the auction.
+     * @return the URL of the member owning the auction, or {@code null} if the ring has no member.
+     */
+    String ownerOf(long auctionId) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, mix(auctionId));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * Spreads the ids, which are consecutive, over the whole ring (the finalizer of MurmurHash3).
+     */
+    private static long mix(long id) {
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Point {
+
+        private final long position;
+
+        private final String member;
+
+        private Point(long position, String member) {
+            this.position = position;
+            this.member = member;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Sharing of the auctions between the instances of the application.
+ */
+package at.jku.service.cluster;
@@ -0,0 +1,85 @@
+package at.jku.service.dto;
+
+import at.jku.domain.enumeration.AuctionStatus;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A DTO for the {@link at.jku.domain.Auction} entity.
+ */
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class AuctionDTO implements Serializable {
+
+    private Long id;
+
+    private String auctionDescription;
+
+    private Instant endDate;
+
+    private AuctionStatus status;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getAuctionDescription() {
+        return auctionDescription;
+    }
+
+    public void setAuctionDescription(String auctionDescription) {
+        this.auctionDescription = auctionDescription;
+    }
+
+    public Instant getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(Instant endDate) {
+        this.endDate = endDate;
+    }
+
+    public AuctionStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AuctionStatus status) {
+        this.status = status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AuctionDTO)) {
+            return false;
+        }
+
+        AuctionDTO auctionDTO = (AuctionDTO) o;
+        if (this.id == null) {
+            return false;
+        }
+        return Objects.equals(this.id, auctionDTO.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.id);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "AuctionDTO{" +
+            "id=" + getId() +
+            ", auctionDescription='" + getAuctionDescription() + "'" +
+            ", endDate='" + getEndDate() + "'" +
+            ", status='" + getStatus() + "'" +
+            "}";
+    }
+}
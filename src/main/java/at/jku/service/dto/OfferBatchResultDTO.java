@@ -0,0 +1,92 @@
+package at.jku.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO representing the outcome of one offer of a batch, in the order the offers were sent.
+ */
+public class OfferBatchResultDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int index;
+
+    private Long id;
+
+    private boolean created;
+
+    private String errorKey;
+
+    private String message;
+
+    public OfferBatchResultDTO() {
+        // Empty constructor needed for Jackson.
+    }
+
+    public static OfferBatchResultDTO created(int index, Long id) {
+        OfferBatchResultDTO result = new OfferBatchResultDTO();
+        result.setIndex(index);
+        result.setId(id);
+        result.setCreated(true);
+        return result;
+    }
+
+    public static OfferBatchResultDTO rejected(int index, String errorKey, String message) {
+        OfferBatchResultDTO result = new OfferBatchResultDTO();
+        result.setIndex(index);
+        result.setErrorKey(errorKey);
+        result.setMessage(message);
+        return result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public boolean isCreated() {
+        return created;
+    }
+
+    public void setCreated(boolean created) {
+        this.created = created;
+    }
+
+    public String getErrorKey() {
+        return errorKey;
+    }
+
+    public void setErrorKey(String errorKey) {
+        this.errorKey = errorKey;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "OfferBatchResultDTO{" +
+            "index=" + index +
+            ", id=" + id +
+            ", created=" + created +
+            ", errorKey='" + errorKey + '\'' +
+            "}";
+    }
+}
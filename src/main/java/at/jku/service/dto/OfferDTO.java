@@ -0,0 +1,83 @@
+package at.jku.service.dto;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A DTO for the {@link at.jku.domain.Offer} entity.
+ */
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class OfferDTO implements Serializable {
+
+    private Long id;
+
+    private Double offerValue;
+
+    private String bidder;
+
+    private AuctionDTO offerName;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Double getOfferValue() {
+        return offerValue;
+    }
+
+    public void setOfferValue(Double offerValue) {
+        this.offerValue = offerValue;
+    }
+
+    public String getBidder() {
+        return bidder;
+    }
+
+    public void setBidder(String bidder) {
+        this.bidder = bidder;
+    }
+
+    public AuctionDTO getOfferName() {
+        return offerName;
+    }
+
+    public void setOfferName(AuctionDTO offerName) {
+        this.offerName = offerName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OfferDTO)) {
+            return false;
+        }
+
+        OfferDTO offerDTO = (OfferDTO) o;
+        if (this.id == null) {
+            return false;
+        }
+        return Objects.equals(this.id, offerDTO.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.id);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "OfferDTO{" +
+            "id=" + getId() +
+            ", offerValue=" + getOfferValue() +
+            ", bidder='" + getBidder() + "'" +
+            ", offerName=" + getOfferName() +
+            "}";
+    }
+}
@@ -0,0 +1,52 @@
+package at.jku.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for the {@link at.jku.domain.ProxyBid} of the current user on an auction, with where the auction stands
+ * once the proxies have bid.
+ */
+public class ProxyBidDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Double maxAmount;
+
+    private Double highestBid;
+
+    private boolean leading;
+
+    public Double getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(Double maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    public Double getHighestBid() {
+        return highestBid;
+    }
+
+    public void setHighestBid(Double highestBid) {
+        this.highestBid = highestBid;
+    }
+
+    public boolean isLeading() {
+        return leading;
+    }
+
+    public void setLeading(boolean leading) {
+        this.leading = leading;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProxyBidDTO{" +
+            "maxAmount=" + getMaxAmount() +
+            ", highestBid=" + getHighestBid() +
+            ", leading=" + isLeading() +
+            "}";
+    }
+}
@@ -0,0 +1,165 @@
+package at.jku.service.invalidation;
+
+import at.jku.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts from the {@link LocalCaches} the entities the other instances changed.
+ * <p>
+ * A connection of its own, outside the pool, listens on the channel: a pooled one would be handed to other code and
+ * stop listening. Notifications sent while it is not listening are lost, so once it listens again after a failure it
+ * drops all the local caches. The notifications of this instance are ignored.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.cache-invalidation", name = "enabled", havingValue = "true")
+@ConditionalOnClass(name = PgNotifications.CONNECTION_CLASS)
+public class CacheInvalidationListener {
+
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final Logger log = LoggerFactory.getLogger(CacheInvalidationListener.class);
+
+    private final LocalCaches localCaches;
+
+    private final String nodeId;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    private final String channel;
+
+    private final Duration pollTimeout;
+
+    private final Duration reconnectDelay;
+
+    private final Counter receivedCounter;
+
+    private final Counter flushCounter;
+
+    private final ExecutorService listener;
+
+    private volatile boolean running = true;
+
+    public CacheInvalidationListener(
+        LocalCaches localCaches,
+        CacheInvalidationPublisher publisher,
+        DataSourceProperties dataSourceProperties,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.CacheInvalidation properties = applicationProperties.getCacheInvalidation();
+        if (!CHANNEL.matcher(properties.getChannel()).matches()) {
+            throw new IllegalArgumentException("Invalid cache invalidation channel: " + properties.getChannel());
+        }
+        this.localCaches = localCaches;
+        this.nodeId = publisher.getNodeId();
+        this.dataSourceProperties = dataSourceProperties;
+        this.channel = properties.getChannel();
+        this.pollTimeout = properties.getPollTimeout();
+        this.reconnectDelay = properties.getReconnectDelay();
+        this.receivedCounter =
+            Counter
+                .builder("cache.invalidation.received")
+                .description("Cache invalidations received from the other instances")
+                .register(meterRegistry);
+        this.flushCounter =
+            Counter
+                .builder("cache.invalidation.flushes")
+                .description("Local caches dropped entirely, on request or after missing invalidations")
+                .register(meterRegistry);
+        this.listener = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("cache-invalidation-listener-"));
+        listener.execute(this::listenLoop);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        listener.shutdown();
+        try {
+            if (!listener.awaitTermination(pollTimeout.toMillis() * 2, TimeUnit.MILLISECONDS)) {
+                listener.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void listenLoop() {
+        boolean missed = false;
+        while (running) {
+            try (Connection connection = connect()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                if (missed) {
+                    log.info("Listening for cache invalidations again, dropping all the local caches");
+                    evictAll();
+                }
+                missed = true;
+                while (running) {
+                    for (String payload : PgNotifications.poll(connection, (int) pollTimeout.toMillis())) {
+                        received(payload);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                missed = true;
+                if (running) {
+                    log.warn("Lost the cache invalidation listener, retrying in {}: {}", reconnectDelay, e.toString());
+                    try {
+                        Thread.sleep(reconnectDelay.toMillis());
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(
+            dataSourceProperties.determineUrl(),
+            dataSourceProperties.determineUsername(),
+            dataSourceProperties.determinePassword()
+        );
+        connection.setAutoCommit(true);
+        return connection;
+    }
+
+    private void received(String payload) {
+        InvalidationMessage message = InvalidationMessage.parse(payload);
+        if (nodeId.equals(message.getNodeId())) {
+            return;
+        }
+        if (message.isFlushAll()) {
+            evictAll();
+            return;
+        }
+        receivedCounter.increment(message.getKeys().size());
+        for (String key : message.getKeys()) {
+            localCaches.evict(key);
+        }
+    }
+
+    private void evictAll() {
+        flushCounter.increment();
+        localCaches.evictAll();
+    }
+}
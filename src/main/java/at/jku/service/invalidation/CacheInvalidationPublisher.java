@@ -0,0 +1,324 @@
+package at.jku.service.invalidation;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Sends the changes to cached entities to the other instances, once their transaction committed.
+ * <p>
+ * Hibernate calls it after the commit for every update and deletion of a cached entity, and for every insertion of a
+ * {@link User}, as the {@code UserDetailsCache} remembers the logins not found. An entity inserted, updated or deleted
+ * also changes the cached collections it is an element of, such as the offers of an auction, which are mapped by its
+ * own references: the owners it references, before and after the change, are sent along. The keys of the changes are
+ * queued, and a single thread sends all those queued meanwhile with one {@code pg_notify} per
+ * {@link InvalidationMessage#MAX_PAYLOAD_BYTES} of keys. Beyond {@code max-pending} queued keys, or after a failure to
+ * send, the next notification asks the other instances to drop all their caches instead.
+ * <p>
+ * Bulk updates and deletions in HQL bypass these events: the code running them sends their changes through
+ * {@link #bulkChanged}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.cache-invalidation", name = "enabled", havingValue = "true")
+@ConditionalOnClass(name = PgNotifications.CONNECTION_CLASS)
+public class CacheInvalidationPublisher
+    implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final String NOTIFY = "select pg_notify(?, ?)";
+
+    private final Logger log = LoggerFactory.getLogger(CacheInvalidationPublisher.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final String channel;
+
+    private final Duration pollTimeout;
+
+    private final Duration reconnectDelay;
+
+    private final MetamodelImplementor metamodel;
+
+    /**
+     * The references of each entity, by name, to the owners of the cached collections it is an element of.
+     */
+    private final Map<String, List<OwnerReference>> ownerReferences;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BlockingQueue<String> pending;
+
+    private final AtomicBoolean overflowed = new AtomicBoolean();
+
+    private final Counter sentCounter;
+
+    private final ExecutorService sender;
+
+    private volatile boolean running = true;
+
+    public CacheInvalidationPublisher(
+        EntityManagerFactory entityManagerFactory,
+        PlatformTransactionManager transactionManager,
+        DataSource dataSource,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.CacheInvalidation properties = applicationProperties.getCacheInvalidation();
+        this.channel = properties.getChannel();
+        this.pollTimeout = properties.getPollTimeout();
+        this.reconnectDelay = properties.getReconnectDelay();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.pending = new LinkedBlockingQueue<>(properties.getMaxPending());
+        this.sentCounter =
+            Counter
+                .builder("cache.invalidation.sent")
+                .description("Cache invalidations sent to the other instances")
+                .register(meterRegistry);
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.metamodel = sessionFactory.getMetamodel();
+        this.ownerReferences = ownerReferences(metamodel);
+        EventListenerRegistry listeners = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        listeners.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        listeners.appendListeners(EventType.POST_COMMIT_DELETE, this);
+        this.sender = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("cache-invalidation-sender-"));
+        sender.execute(this::sendLoop);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        running = false;
+        sender.shutdown();
+        try {
+            if (!sender.awaitTermination(pollTimeout.toMillis() * 2, TimeUnit.MILLISECONDS)) {
+                sender.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the id of this instance in the notifications, which its listener ignores.
+     */
+    String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Send the changes of a bulk update or deletion in HQL once the current transaction commits, or at once outside
+     * of a transaction.
+     *
+     * @param entityClass the class of the changed entities.
+     * @param ids the ids of the changed entities.
+     */
+    public void bulkChanged(Class<?> entityClass, Collection<?> ids) {
+        EntityPersister persister = metamodel.entityPersister(entityClass);
+        List<?> changedIds = List.copyOf(ids);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            changedIds.forEach(id -> changed(persister, id));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changedIds.forEach(id -> changed(persister, id));
+                }
+            }
+        );
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (User.class.isAssignableFrom(event.getPersister().getMappedClass())) {
+            changed(event.getPersister(), event.getId());
+        }
+        ownersChanged(event.getPersister(), event.getState(), event.getSession());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        changed(event.getPersister(), event.getId());
+        ownersChanged(event.getPersister(), event.getState(), event.getSession());
+        // unknown when the entity was updated without being loaded first
+        if (event.getOldState() != null) {
+            ownersChanged(event.getPersister(), event.getOldState(), event.getSession());
+        }
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        changed(event.getPersister(), event.getId());
+        ownersChanged(event.getPersister(), event.getDeletedState(), event.getSession());
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.canWriteToCache() || ownerReferences.containsKey(persister.getEntityName());
+    }
+
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private void changed(EntityPersister persister, Object id) {
+        if (!pending.offer(InvalidationMessage.key(LocalCaches.nameOf(persister), id))) {
+            overflowed.set(true);
+        }
+    }
+
+    /**
+     * Send the owners an entity references, whose cached collections it is an element of: evicting an owner evicts
+     * its collections.
+     */
+    private void ownersChanged(EntityPersister persister, Object[] state, SharedSessionContractImplementor session) {
+        if (state == null) {
+            return;
+        }
+        for (OwnerReference reference : ownerReferences.getOrDefault(persister.getEntityName(), List.of())) {
+            Object owner = state[reference.propertyIndex];
+            if (owner instanceof HibernateProxy) {
+                changed(reference.owner, ((HibernateProxy) owner).getHibernateLazyInitializer().getIdentifier());
+            } else if (owner != null) {
+                changed(reference.owner, reference.owner.getIdentifier(owner, session));
+            }
+        }
+    }
+
+    private static Map<String, List<OwnerReference>> ownerReferences(MetamodelImplementor metamodel) {
+        Map<String, List<OwnerReference>> references = new HashMap<>();
+        for (CollectionPersister collection : metamodel.collectionPersisters().values()) {
+            // the collections an entity is an element of through a reference of its own
+            if (!collection.hasCache() || !collection.isInverse() || !collection.getElementType().isEntityType()) {
+                continue;
+            }
+            EntityPersister owner = collection.getOwnerEntityPersister();
+            EntityPersister element = metamodel.entityPersister(((EntityType) collection.getElementType()).getAssociatedEntityName());
+            Type[] types = element.getPropertyTypes();
+            for (int i = 0; i < types.length; i++) {
+                if (types[i].isEntityType() && owner.getEntityName().equals(((EntityType) types[i]).getAssociatedEntityName())) {
+                    references.computeIfAbsent(element.getEntityName(), name -> new ArrayList<>()).add(new OwnerReference(i, owner));
+                }
+            }
+        }
+        return references;
+    }
+
+    private void sendLoop() {
+        while (running) {
+            try {
+                String first = pending.poll(pollTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null && !overflowed.get()) {
+                    continue;
+                }
+                Set<String> keys = new LinkedHashSet<>();
+                if (first != null) {
+                    keys.add(first);
+                }
+                pending.drainTo(keys);
+                if (overflowed.getAndSet(false)) {
+                    keys = Set.of(InvalidationMessage.FLUSH_ALL);
+                }
+                send(keys);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Cannot send cache invalidations, the other instances will drop all their caches: {}", e.toString());
+                overflowed.set(true);
+                sleep(reconnectDelay);
+            }
+        }
+    }
+
+    private void send(Collection<String> keys) {
+        List<String> payloads = InvalidationMessage.encode(nodeId, keys);
+        // notifications are delivered at commit, the payloads of one round together
+        transactionTemplate.executeWithoutResult(status -> {
+            for (String payload : payloads) {
+                jdbcTemplate.queryForList(NOTIFY, channel, payload);
+            }
+        });
+        sentCounter.increment(keys.size());
+    }
+
+    private void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class OwnerReference {
+
+        private final int propertyIndex;
+
+        private final EntityPersister owner;
+
+        private OwnerReference(int propertyIndex, EntityPersister owner) {
+            this.propertyIndex = propertyIndex;
+            this.owner = owner;
+        }
+    }
+}
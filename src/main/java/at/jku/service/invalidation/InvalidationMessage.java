@@ -0,0 +1,82 @@
+package at.jku.service.invalidation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Payload of a cache invalidation notification: the id of the instance sending it, then the keys of the changed
+ * entities, each the name of its entity and its id separated by a colon, all separated by spaces. The key {@code *}
+ * asks to drop every cache.
+ */
+final class InvalidationMessage {
+
+    static final String FLUSH_ALL = "*";
+
+    /**
+     * PostgreSQL refuses payloads of 8000 bytes or more.
+     */
+    static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private static final char SEPARATOR = ' ';
+
+    private final String nodeId;
+
+    private final List<String> keys;
+
+    private InvalidationMessage(String nodeId, List<String> keys) {
+        this.nodeId = nodeId;
+        this.keys = keys;
+    }
+
+    static String key(String entityName, Object id) {
+        return entityName + ':' + id;
+    }
+
+    /**
+     * Split keys into as few payloads as PostgreSQL takes.
+     *
+     * @param nodeId the id of the sending instance.
+     * @param keys the keys of the changed entities.
+     * @return the payloads.
+     */
+    static List<String> encode(String nodeId, Collection<String> keys) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(nodeId);
+        int bytes = nodeId.length();
+        for (String key : keys) {
+            int keyBytes = key.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (bytes + keyBytes > MAX_PAYLOAD_BYTES && bytes > nodeId.length()) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+                payload.append(nodeId);
+                bytes = nodeId.length();
+            }
+            payload.append(SEPARATOR).append(key);
+            bytes += keyBytes;
+        }
+        if (bytes > nodeId.length()) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    static InvalidationMessage parse(String payload) {
+        String[] parts = payload.split(String.valueOf(SEPARATOR));
+        return new InvalidationMessage(parts[0], Arrays.asList(parts).subList(1, parts.length));
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    List<String> getKeys() {
+        return keys;
+    }
+
+    boolean isFlushAll() {
+        return keys.contains(FLUSH_ALL);
+    }
+}
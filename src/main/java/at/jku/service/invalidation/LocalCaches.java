@@ -0,0 +1,129 @@
+package at.jku.service.invalidation;
+
+import at.jku.domain.User;
+import at.jku.security.UserDetailsCache;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * The caches of this instance holding entities: the Hibernate second-level cache, and the {@link UserDetailsCache}.
+ * <p>
+ * An entity is evicted from the second-level cache with the collections it owns. A changed user drops the whole
+ * {@link UserDetailsCache}, which is keyed by login and email while only the id of the user is known.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.cache-invalidation", name = "enabled", havingValue = "true")
+public class LocalCaches {
+
+    private final Logger log = LoggerFactory.getLogger(LocalCaches.class);
+
+    private final Cache cache;
+
+    private final UserDetailsCache userDetailsCache;
+
+    private final Map<String, CachedEntity> entities = new HashMap<>();
+
+    public LocalCaches(EntityManagerFactory entityManagerFactory, UserDetailsCache userDetailsCache) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.cache = sessionFactory.getCache();
+        this.userDetailsCache = userDetailsCache;
+        MetamodelImplementor metamodel = sessionFactory.getMetamodel();
+        for (EntityPersister persister : metamodel.entityPersisters().values()) {
+            List<String> collectionRoles = new ArrayList<>();
+            for (CollectionPersister collection : metamodel.collectionPersisters().values()) {
+                if (collection.hasCache() && collection.getOwnerEntityPersister() == persister) {
+                    collectionRoles.add(collection.getRole());
+                }
+            }
+            entities.put(nameOf(persister), new CachedEntity(persister, collectionRoles));
+        }
+    }
+
+    /**
+     * @return the name of an entity in the keys of the invalidations.
+     */
+    static String nameOf(EntityPersister persister) {
+        return persister.getMappedClass().getSimpleName();
+    }
+
+    /**
+     * Evict a changed entity.
+     *
+     * @param key the key of the entity, as made by {@link InvalidationMessage#key}.
+     */
+    public void evict(String key) {
+        int colon = key.indexOf(':');
+        CachedEntity entity = colon < 0 ? null : entities.get(key.substring(0, colon));
+        if (entity == null) {
+            log.debug("Ignoring the invalidation of unknown entity {}", key);
+            return;
+        }
+        Serializable id = entity.parseId(key.substring(colon + 1));
+        if (id == null) {
+            cache.evictEntityData(entity.name);
+            entity.collectionRoles.forEach(cache::evictCollectionData);
+        } else {
+            cache.evictEntityData(entity.name, id);
+            entity.collectionRoles.forEach(role -> cache.evictCollectionData(role, id));
+        }
+        if (entity.userEntity) {
+            userDetailsCache.clear();
+        }
+    }
+
+    /**
+     * Evict everything, when changes may have been missed.
+     */
+    public void evictAll() {
+        cache.evictAllRegions();
+        userDetailsCache.clear();
+    }
+
+    private static final class CachedEntity {
+
+        private final String name;
+
+        private final Class<?> idType;
+
+        private final boolean userEntity;
+
+        private final List<String> collectionRoles;
+
+        private CachedEntity(EntityPersister persister, List<String> collectionRoles) {
+            this.name = persister.getEntityName();
+            this.idType = persister.getIdentifierType().getReturnedClass();
+            this.userEntity = User.class.isAssignableFrom(persister.getMappedClass());
+            this.collectionRoles = collectionRoles;
+        }
+
+        /**
+         * @return the id, or {@code null} if it is not of a type known here and the whole region must go.
+         */
+        private Serializable parseId(String id) {
+            try {
+                if (idType == Long.class) {
+                    return Long.valueOf(id);
+                }
+                if (idType == Integer.class) {
+                    return Integer.valueOf(id);
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            return idType == String.class ? id : null;
+        }
+    }
+}
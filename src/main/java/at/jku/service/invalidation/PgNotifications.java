@@ -0,0 +1,67 @@
+package at.jku.service.invalidation;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the notifications of a connection of the PostgreSQL driver. The driver is only on the classpath of the
+ * {@code prod} profile, so its {@code PGConnection} is reached by reflection.
+ */
+final class PgNotifications {
+
+    static final String CONNECTION_CLASS = "org.postgresql.PGConnection";
+
+    private static final Method GET_NOTIFICATIONS;
+
+    private static final Method GET_PARAMETER;
+
+    static {
+        try {
+            ClassLoader classLoader = PgNotifications.class.getClassLoader();
+            GET_NOTIFICATIONS = Class.forName(CONNECTION_CLASS, true, classLoader).getMethod("getNotifications", int.class);
+            GET_PARAMETER = Class.forName("org.postgresql.PGNotification", true, classLoader).getMethod("getParameter");
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private PgNotifications() {}
+
+    /**
+     * Wait for the notifications of a connection that is listening.
+     *
+     * @param connection the connection, of the PostgreSQL driver.
+     * @param timeoutMillis the time to wait for a first notification, {@code 0} to wait forever.
+     * @return the payloads of the notifications received, none if the time ran out.
+     * @throws SQLException if the connection fails.
+     */
+    static List<String> poll(Connection connection, int timeoutMillis) throws SQLException {
+        Object notifications;
+        try {
+            notifications = GET_NOTIFICATIONS.invoke(connection.unwrap(GET_NOTIFICATIONS.getDeclaringClass()), timeoutMillis);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        List<String> payloads = new ArrayList<>();
+        if (notifications != null) {
+            for (int i = 0; i < Array.getLength(notifications); i++) {
+                try {
+                    payloads.add((String) GET_PARAMETER.invoke(Array.get(notifications, i)));
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return payloads;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Invalidation of the caches of the other instances over PostgreSQL {@code LISTEN/NOTIFY}.
+ */
+package at.jku.service.invalidation;
@@ -0,0 +1,18 @@
+package at.jku.service.mapper;
+
+import at.jku.domain.Auction;
+import at.jku.service.dto.AuctionDTO;
+import org.mapstruct.*;
+
+/**
+ * Mapper for the entity {@link Auction} and its DTO {@link AuctionDTO}.
+ */
+@Mapper(componentModel = "spring")
+public interface AuctionMapper extends EntityMapper<AuctionDTO, Auction> {
+    @Override
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "auctionNames", ignore = true)
+    @Mapping(target = "removeAuctionName", ignore = true)
+    @Mapping(target = "status", ignore = true)
+    Auction toEntity(AuctionDTO auctionDTO);
+}
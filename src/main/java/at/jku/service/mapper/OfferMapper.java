@@ -0,0 +1,17 @@
+package at.jku.service.mapper;
+
+import at.jku.domain.Offer;
+import at.jku.service.dto.OfferDTO;
+import org.mapstruct.*;
+
+/**
+ * Mapper for the entity {@link Offer} and its DTO {@link OfferDTO}.
+ * <p>
+ * The auction of the offer is mapped too, so it must have been fetched along with the offer.
+ */
+@Mapper(componentModel = "spring", uses = AuctionMapper.class)
+public interface OfferMapper extends EntityMapper<OfferDTO, Offer> {
+    @Override
+    @Mapping(target = "version", ignore = true)
+    Offer toEntity(OfferDTO offerDTO);
+}
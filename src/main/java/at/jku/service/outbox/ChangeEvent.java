@@ -0,0 +1,75 @@
+package at.jku.service.outbox;
+
+import at.jku.domain.enumeration.ChangeType;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import java.time.Instant;
+
+/**
+ * A change to an entity, relayed from the outbox once the transaction making it committed. Published in-process as an
+ * application event after the sinks took it.
+ */
+public final class ChangeEvent {
+
+    private final long id;
+
+    private final String entityName;
+
+    private final long entityId;
+
+    private final ChangeType type;
+
+    private final String payload;
+
+    private final Instant createdDate;
+
+    public ChangeEvent(long id, String entityName, long entityId, ChangeType type, String payload, Instant createdDate) {
+        this.id = id;
+        this.entityName = entityName;
+        this.entityId = entityId;
+        this.type = type;
+        this.payload = payload;
+        this.createdDate = createdDate;
+    }
+
+    /**
+     * @return the position of the event in the outbox, increasing in the order the changes were appended.
+     */
+    public long getId() {
+        return id;
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+    public long getEntityId() {
+        return entityId;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    /**
+     * @return the JSON object describing the change, or {@code null}.
+     */
+    @JsonRawValue
+    public String getPayload() {
+        return payload;
+    }
+
+    public Instant getCreatedDate() {
+        return createdDate;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+            "id=" + id +
+            ", entityName='" + entityName + "'" +
+            ", entityId=" + entityId +
+            ", type='" + type + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,54 @@
+package at.jku.service.outbox;
+
+import at.jku.config.ApplicationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends the changes relayed from the outbox to {@code application.outbox.file-sink}, one JSON object per line.
+ * Meant for development and tests, in place of a message broker.
+ */
+@Component
+@ConditionalOnProperty("application.outbox.file-sink")
+public class FileOutboxSink implements OutboxSink {
+
+    private static final byte NEWLINE = '\n';
+
+    private final Path path;
+
+    private final ObjectMapper objectMapper;
+
+    public FileOutboxSink(ApplicationProperties applicationProperties, ObjectMapper objectMapper) {
+        this.path = Path.of(applicationProperties.getOutbox().getFileSink());
+        this.objectMapper = objectMapper;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void publish(List<ChangeEvent> events) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (
+            OutputStream out = new BufferedOutputStream(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+            )
+        ) {
+            for (ChangeEvent event : events) {
+                out.write(objectMapper.writeValueAsBytes(event));
+                out.write(NEWLINE);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package at.jku.service.outbox;
+
+import at.jku.domain.Auction;
+import at.jku.domain.Offer;
+import at.jku.domain.OutboxEvent;
+import at.jku.domain.enumeration.ChangeType;
+import at.jku.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Appends the changes to auctions and offers to the outbox, in the transaction making them, for the {@link OutboxRelay}
+ * to publish once committed.
+ * <p>
+ * The payload of an event is the state of the entity after the change, without its relationships but the id of the
+ * auction of an offer, so that listeners can apply the change without reading the entity again.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class Outbox {
+
+    public static final String AUCTION = "auction";
+
+    public static final String OFFER = "offer";
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final ObjectMapper objectMapper;
+
+    public Outbox(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Append the creation or the update of an auction.
+     *
+     * @param type {@link ChangeType#CREATED} or {@link ChangeType#UPDATED}.
+     * @param auction the auction, as it is after the change.
+     */
+    public void auctionChanged(ChangeType type, Auction auction) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("auctionDescription", auction.getAuctionDescription());
+        payload.put("endDate", auction.getEndDate());
+        payload.put("status", auction.getStatus());
+        payload.put("version", auction.getVersion());
+        append(AUCTION, auction.getId(), type, payload);
+    }
+
+    /**
+     * Append the deletion of an auction.
+     *
+     * @param auctionId the id of the auction.
+     */
+    public void auctionDeleted(long auctionId) {
+        append(AUCTION, auctionId, ChangeType.DELETED, null);
+    }
+
+    /**
+     * Append the creation or the update of an offer.
+     *
+     * @param type {@link ChangeType#CREATED} or {@link ChangeType#UPDATED}.
+     * @param offer the offer, as it is after the change.
+     */
+    public void offerChanged(ChangeType type, Offer offer) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("auctionId", auctionId(offer));
+        payload.put("offerValue", offer.getOfferValue());
+        payload.put("bidder", offer.getBidder());
+        payload.put("version", offer.getVersion());
+        append(OFFER, offer.getId(), type, payload);
+    }
+
+    /**
+     * Append the creation of offers, in their order.
+     *
+     * @param offers the offers created.
+     */
+    public void offersCreated(List<Offer> offers) {
+        for (Offer offer : offers) {
+            offerChanged(ChangeType.CREATED, offer);
+        }
+    }
+
+    /**
+     * Append the deletion of an offer.
+     *
+     * @param offer the offer, as it was before the deletion.
+     */
+    public void offerDeleted(Offer offer) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("auctionId", auctionId(offer));
+        append(OFFER, offer.getId(), ChangeType.DELETED, payload);
+    }
+
+    private void append(String entityName, long entityId, ChangeType type, Map<String, Object> payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEntityName(entityName);
+        event.setEntityId(entityId);
+        event.setType(type);
+        event.setPayload(payload == null ? null : toJson(payload));
+        event.setCreatedDate(Instant.now());
+        outboxEventRepository.save(event);
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot write the payload of an outbox event as JSON", e);
+        }
+    }
+
+    private static Long auctionId(Offer offer) {
+        return offer.getOfferName() == null ? null : offer.getOfferName().getId();
+    }
+}
@@ -0,0 +1,160 @@
+package at.jku.service.outbox;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.OutboxEvent;
+import at.jku.domain.OutboxOffset;
+import at.jku.repository.OutboxEventRepository;
+import at.jku.repository.OutboxOffsetRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Publishes the changes appended to the {@link Outbox}, in order and in batches.
+ * <p>
+ * Every batch is handed to all the {@link OutboxSink}s, then deleted from the outbox and recorded in the
+ * {@link OutboxOffset} of the relay, in a transaction holding the lock on that offset, so that a single instance relays
+ * at a time. Once committed, its events are published in-process as {@link ChangeEvent}s. A batch a sink fails on is
+ * rolled back and relayed again at the next poll, so the sinks see every change at least once.
+ * <p>
+ * Published events are deleted rather than skipped by offset: ids come from a pooled sequence, and a transaction
+ * holding a lower id can commit after one holding a higher id, which a scan past the offset would miss. Changes
+ * committed concurrently may hence be relayed in either order, the changes of a single transaction always in order.
+ */
+@Service
+public class OutboxRelay {
+
+    public static final String RELAY_NAME = "default";
+
+    public static final String RELAYED_METER_NAME = "outbox.relayed";
+
+    public static final String RELAY_METER_NAME = "outbox.relay";
+
+    private final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final OutboxOffsetRepository outboxOffsetRepository;
+
+    private final List<OutboxSink> sinks;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    private final Counter relayedCounter;
+
+    private final Timer relayTimer;
+
+    public OutboxRelay(
+        OutboxEventRepository outboxEventRepository,
+        OutboxOffsetRepository outboxOffsetRepository,
+        ObjectProvider<OutboxSink> sinks,
+        ApplicationEventPublisher eventPublisher,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxOffsetRepository = outboxOffsetRepository;
+        this.sinks = sinks.orderedStream().collect(Collectors.toList());
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = applicationProperties.getOutbox().getBatchSize();
+        this.relayedCounter = Counter.builder(RELAYED_METER_NAME).description("Changes relayed from the outbox").register(meterRegistry);
+        this.relayTimer = Timer.builder(RELAY_METER_NAME).description("Time spent relaying a batch of changes").register(meterRegistry);
+    }
+
+    /**
+     * Relay every change in the outbox, batch after batch.
+     */
+    @Scheduled(
+        initialDelayString = "${application.outbox.poll-interval:PT1S}",
+        fixedDelayString = "${application.outbox.poll-interval:PT1S}"
+    )
+    public void relay() {
+        List<ChangeEvent> batch;
+        do {
+            long started = System.nanoTime();
+            try {
+                batch = transactionTemplate.execute(status -> relayBatch());
+            } catch (UncheckedIOException e) {
+                log.warn("Relaying the outbox failed, retrying at the next poll: {}", e.getMessage());
+                return;
+            }
+            relayTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            if (batch == null) {
+                return;
+            }
+            relayedCounter.increment(batch.size());
+            batch.forEach(this::publishInProcess);
+        } while (batch.size() == batchSize);
+    }
+
+    /**
+     * @return the batch relayed, empty if there was none, or {@code null} if another instance is relaying.
+     */
+    private List<ChangeEvent> relayBatch() {
+        Optional<OutboxOffset> offset = outboxOffsetRepository.findForRelay(RELAY_NAME);
+        if (offset.isEmpty()) {
+            return null;
+        }
+        List<OutboxEvent> events = outboxEventRepository.findOldest(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return List.of();
+        }
+        List<ChangeEvent> batch = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            batch.add(
+                new ChangeEvent(
+                    event.getId(),
+                    event.getEntityName(),
+                    event.getEntityId(),
+                    event.getType(),
+                    event.getPayload(),
+                    event.getCreatedDate()
+                )
+            );
+        }
+        for (OutboxSink sink : sinks) {
+            try {
+                sink.publish(batch);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        outboxEventRepository.deleteAllInBatch(events);
+        offset.get().setLastEventId(batch.get(batch.size() - 1).getId());
+        offset.get().setUpdatedDate(Instant.now());
+        log.debug("Relayed {} changes from the outbox, up to {}", batch.size(), offset.get().getLastEventId());
+        return batch;
+    }
+
+    private void publishInProcess(ChangeEvent event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (RuntimeException e) {
+            // the sinks took the event already, a failing listener must not hold back the others
+            log.warn("A listener failed on {}: {}", event, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package at.jku.service.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A destination of the changes relayed from the outbox, such as a message broker. Every bean implementing it receives
+ * every batch, in order.
+ * <p>
+ * A batch is relayed again when a sink fails on it, so a sink must tolerate receiving events it already took, telling
+ * them by their {@link ChangeEvent#getId() id}.
+ */
+public interface OutboxSink {
+    /**
+     * Take a batch of changes.
+     *
+     * @param events the changes, in the order they were appended to the outbox.
+     * @throws IOException if the changes could not be taken, to be relayed again later.
+     */
+    void publish(List<ChangeEvent> events) throws IOException;
+}
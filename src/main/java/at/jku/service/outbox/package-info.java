@@ -0,0 +1,4 @@
+/**
+ * Transactional outbox of the changes to auctions and offers, and its relay.
+ */
+package at.jku.service.outbox;
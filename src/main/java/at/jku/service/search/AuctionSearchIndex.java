@@ -0,0 +1,314 @@
+package at.jku.service.search;
+
+import at.jku.repository.AuctionRepository;
+import at.jku.service.dto.AuctionDTO;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory inverted index over the description of every {@link at.jku.domain.Auction}.
+ * <p>
+ * Descriptions are split into lower-cased, accent-free words, and every word maps to the {@link PostingList} of the
+ * auctions containing it. Matches are ranked with Okapi BM25, so rare words and short descriptions weigh more.
+ * The descriptions are kept too, so that a search is answered without touching the database.
+ * <p>
+ * The index is rebuilt from the {@link AuctionRepository} once the application is ready, and kept current by the
+ * write path of the auctions. Changes apply immediately. If their transaction does not commit, and no later change
+ * replaced them in the meantime, the committed description of the auction is read back into the index.
+ */
+@Service
+public class AuctionSearchIndex {
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Comparator<Map.Entry<Long, Double>> RANKING = Map.Entry
+        .<Long, Double>comparingByValue()
+        .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed());
+
+    private final Logger log = LoggerFactory.getLogger(AuctionSearchIndex.class);
+
+    private final AuctionRepository auctionRepository;
+
+    private final TransactionTemplate committedReads;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    private final Map<Long, Document> documents = new HashMap<>();
+
+    /**
+     * Revision of the last change made to an auction by a transaction that has not completed yet.
+     */
+    private final Map<Long, Long> pendingRevisions = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long totalLength;
+
+    private long revision;
+
+    public AuctionSearchIndex(AuctionRepository auctionRepository, PlatformTransactionManager transactionManager) {
+        this.auctionRepository = auctionRepository;
+        // the rolled back transaction is still bound while its completion is handled, and a read-only one could
+        // be routed to a replica that has not caught up yet
+        this.committedReads = new TransactionTemplate(transactionManager);
+        committedReads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Rebuild the index from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try (Stream<AuctionRepository.Summary> auctions = auctionRepository.streamAllByOrderById()) {
+            postings.clear();
+            documents.clear();
+            pendingRevisions.clear();
+            totalLength = 0;
+            auctions.forEach(auction -> put(auction.getId(), auction.getAuctionDescription()));
+            log.info("Search index rebuilt with {} auctions and {} words", documents.size(), postings.size());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Index the description of an auction, replacing its previous one.
+     *
+     * @param auctionId the id of the auction.
+     * @param description the description of the auction, may be {@code null}.
+     */
+    public void index(long auctionId, String description) {
+        write(auctionId, description);
+    }
+
+    /**
+     * Take an auction out of the index.
+     *
+     * @param auctionId the id of the auction.
+     */
+    public void remove(long auctionId) {
+        write(auctionId, null);
+    }
+
+    /**
+     * Search the auctions whose description contains any word of the query, the best matches first.
+     *
+     * @param query the words to search.
+     * @param pageable the page of the matches, its sort is ignored.
+     * @return the page of matching auctions, with the total number of matches.
+     */
+    public Page<AuctionDTO> search(String query, Pageable pageable) {
+        Map<String, Integer> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            Map<Long, Double> scores = score(terms.keySet());
+            long limit = pageable.getOffset() + pageable.getPageSize();
+            PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(RANKING);
+            for (Map.Entry<Long, Double> score : scores.entrySet()) {
+                best.add(score);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            List<AuctionDTO> ranked = new ArrayList<>(best.size());
+            while (best.size() > pageable.getOffset()) {
+                Long auctionId = best.poll().getKey();
+                AuctionDTO auctionDTO = new AuctionDTO();
+                auctionDTO.setId(auctionId);
+                auctionDTO.setAuctionDescription(documents.get(auctionId).description);
+                ranked.add(auctionDTO);
+            }
+            Collections.reverse(ranked);
+            return new PageImpl<>(ranked, pageable, scores.size());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private Map<Long, Double> score(Iterable<String> terms) {
+        Map<Long, Double> scores = new HashMap<>();
+        int documentCount = documents.size();
+        double averageLength = documentCount == 0 ? 0 : (double) totalLength / documentCount;
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (documentCount - list.size() + 0.5) / (list.size() + 0.5));
+            for (int i = 0; i < list.size(); i++) {
+                long auctionId = list.auctionIdAt(i);
+                int frequency = list.frequencyAt(i);
+                double lengthRatio = documents.get(auctionId).length / averageLength;
+                double score = idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * lengthRatio));
+                scores.merge(auctionId, score, Double::sum);
+            }
+        }
+        return scores;
+    }
+
+    private void write(long auctionId, String description) {
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        long written;
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            put(auctionId, description);
+            written = ++revision;
+            if (inTransaction) {
+                pendingRevisions.put(auctionId, written);
+            } else {
+                pendingRevisions.remove(auctionId);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        complete(auctionId, written, status == STATUS_COMMITTED);
+                    }
+                }
+            );
+        }
+    }
+
+    /**
+     * Complete a change made by a transaction. A rolled back change still in the index is replaced by the committed
+     * description of the auction, any later change is left to the completion of its own transaction.
+     */
+    private void complete(long auctionId, long written, boolean committed) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (!isPending(auctionId, written)) {
+                return;
+            }
+            if (committed) {
+                pendingRevisions.remove(auctionId);
+                return;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        String description = committedReads.execute(status -> auctionRepository.findAuctionDescriptionById(auctionId).orElse(null));
+        writeLock.lock();
+        try {
+            // a change made while the committed description was read wins over it
+            if (isPending(auctionId, written)) {
+                pendingRevisions.remove(auctionId);
+                put(auctionId, description);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean isPending(long auctionId, long written) {
+        Long pending = pendingRevisions.get(auctionId);
+        return pending != null && pending == written;
+    }
+
+    /**
+     * Replace the description of an auction, the write lock must be held.
+     */
+    private void put(long auctionId, String description) {
+        Document previous = documents.remove(auctionId);
+        if (previous != null) {
+            // only the description is kept, so its words are found again by splitting it
+            for (String term : tokenize(previous.description).keySet()) {
+                PostingList list = postings.get(term);
+                if (list != null && list.remove(auctionId) && list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            totalLength -= previous.length;
+        }
+        Map<String, Integer> frequencies = tokenize(description);
+        if (!frequencies.isEmpty()) {
+            int length = 0;
+            for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+                postings.computeIfAbsent(frequency.getKey(), term -> new PostingList()).put(auctionId, frequency.getValue());
+                length += frequency.getValue();
+            }
+            documents.put(auctionId, new Document(description, length));
+            totalLength += length;
+        }
+    }
+
+    /**
+     * Split a text into words, lower-cased and without accents.
+     *
+     * @param text the text, may be {@code null}.
+     * @return the number of occurrences of every word, in order of first occurrence.
+     */
+    static Map<String, Integer> tokenize(String text) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        if (text == null) {
+            return frequencies;
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        for (String term : SEPARATORS.split(folded)) {
+            if (!term.isEmpty()) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+        }
+        return frequencies;
+    }
+
+    private static final class Document {
+
+        private final String description;
+
+        /**
+         * Number of words of the description.
+         */
+        private final int length;
+
+        private Document(String description, int length) {
+            this.description = description;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package at.jku.service.search;
+
+import java.util.Arrays;
+
+/**
+ * The auctions containing a single term, with the number of occurrences of the term in each of them.
+ * <p>
+ * Auction ids and frequencies are stored side by side in {@code long[]} and {@code int[]} arrays sorted by id, so a
+ * posting costs 12 bytes and no boxing. New auctions have increasing ids and are appended in {@code O(1)}; lookups
+ * are binary searches, and insertion or removal elsewhere shifts the tail of the arrays.
+ * <p>
+ * Mutations must be guarded by the write lock of the owning {@link AuctionSearchIndex}.
+ */
+final class PostingList {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] auctionIds = new long[INITIAL_CAPACITY];
+
+    private int[] frequencies = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long auctionIdAt(int index) {
+        return auctionIds[index];
+    }
+
+    int frequencyAt(int index) {
+        return frequencies[index];
+    }
+
+    /**
+     * Add an auction to the list, or replace its frequency if it is already listed.
+     */
+    void put(long auctionId, int frequency) {
+        if (size == 0 || auctionIds[size - 1] < auctionId) {
+            ensureCapacity();
+            auctionIds[size] = auctionId;
+            frequencies[size] = frequency;
+            size++;
+            return;
+        }
+        int index = Arrays.binarySearch(auctionIds, 0, size, auctionId);
+        if (index >= 0) {
+            frequencies[index] = frequency;
+            return;
+        }
+        int insertion = -index - 1;
+        ensureCapacity();
+        System.arraycopy(auctionIds, insertion, auctionIds, insertion + 1, size - insertion);
+        System.arraycopy(frequencies, insertion, frequencies, insertion + 1, size - insertion);
+        auctionIds[insertion] = auctionId;
+        frequencies[insertion] = frequency;
+        size++;
+    }
+
+    /**
+     * Remove an auction from the list.
+     *
+     * @return {@code true} if the auction was listed.
+     */
+    boolean remove(long auctionId) {
+        int index = Arrays.binarySearch(auctionIds, 0, size, auctionId);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(auctionIds, index + 1, auctionIds, index, size - index - 1);
+        System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    private void ensureCapacity() {
+        if (size == auctionIds.length) {
+            int capacity = auctionIds.length << 1;
+            auctionIds = Arrays.copyOf(auctionIds, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+        }
+    }
+}
@@ -0,0 +1,661 @@
+package at.jku.web.cluster;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.repository.OfferRepository;
+import at.jku.service.cluster.AuctionOwnership;
+import at.jku.service.dto.OfferBatchResultDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import tech.jhipster.web.util.HeaderUtil;
+
+/**
+ * Sends the writes on the bids of an auction to the instance owning it, as {@link AuctionOwnership} decides, when
+ * {@code application.cluster.enabled} is set.
+ * <p>
+ * The creation of an offer goes by the auction in its body, the update and deletion of one by the auction it is
+ * placed on, and the update and deletion of an auction, or of a proxy bid on it, by the auction in the path. A write
+ * for an auction owned by another instance is forwarded to it, with the same method, path, headers and body, and its
+ * response is copied back; or, without {@code application.cluster.forward}, it is answered with a
+ * {@code 307 (Temporary Redirect)} to the owner, also named in an {@value #OWNER_HEADER} header. An owner that cannot
+ * be reached is answered with a {@code 503 (Service Unavailable)}, to be retried once the members notice it is gone;
+ * so is a write for an auction this instance cannot take over yet.
+ * <p>
+ * A batch of offers is split by the owner of their auctions: the offers of this instance go to the controller, the
+ * others are forwarded to their owners as smaller batches, and the outcomes are merged back in the order they were
+ * sent. The offers of an owner that cannot be reached are rejected as {@code ownerunavailable}. A batch owned by a
+ * single other instance is sent or redirected to it whole.
+ * <p>
+ * A forwarded write is marked with an {@value #FORWARDED_HEADER} header and always handled by the instance receiving
+ * it, so two instances disagreeing on the owner for a moment do not send it back and forth. The header is only taken
+ * from a current member of the cluster, signing the write with the {@code application.cluster.secret} shared by the
+ * members in an {@value #SIGNATURE_HEADER} header, as {@link ForwardSignature} describes, and is removed from any
+ * other request before it reaches the controllers. The signed {@code POST} on {@value #HAND_OVER_PATH} a member sends
+ * before taking auctions over from this instance is answered here, once {@link AuctionOwnership#handOver} returns.
+ * <p>
+ * The filter runs after Spring Security, so requests without valid credentials are refused before being forwarded.
+ * The creation of an auction, whose id is not known yet, is handled where it arrives.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.cluster", name = "enabled", havingValue = "true")
+public class AuctionRoutingFilter extends OncePerRequestFilter {
+
+    public static final String FORWARDED_HEADER = "X-Auction-Forwarded-By";
+
+    public static final String FORWARDED_AT_HEADER = "X-Auction-Forwarded-At";
+
+    public static final String SIGNATURE_HEADER = "X-Auction-Forwarded-Signature";
+
+    public static final String OWNER_HEADER = "X-Auction-Owner";
+
+    public static final String HAND_OVER_PATH = "/api/cluster/hand-over";
+
+    private static final String OFFERS_PATH = "/api/offers";
+
+    private static final String BATCH_PATH = "/api/offers/batch";
+
+    private static final Pattern OFFER_PATH = Pattern.compile("/api/offers/(\\d+)");
+
+    private static final Pattern AUCTION_PATH = Pattern.compile("/api/auctions/(\\d+)");
+
+    private static final Pattern PROXY_BID_PATH = Pattern.compile("/api/auctions/(\\d+)/proxy-bid");
+
+    /**
+     * Headers of a single connection, or set by the HTTP client itself.
+     */
+    private static final Set<String> UNFORWARDED_HEADERS = caseInsensitive(
+        "connection",
+        "content-length",
+        "date",
+        "expect",
+        "from",
+        "host",
+        "http2-settings",
+        "keep-alive",
+        "proxy-authenticate",
+        "proxy-authorization",
+        "te",
+        "trailer",
+        "transfer-encoding",
+        "upgrade",
+        "via",
+        "warning"
+    );
+
+    private static final Set<String> FORWARDED_HEADERS = caseInsensitive(FORWARDED_HEADER, FORWARDED_AT_HEADER, SIGNATURE_HEADER);
+
+    private static final TypeReference<List<OfferBatchResultDTO>> BATCH_RESULTS = new TypeReference<>() {};
+
+    private final Logger log = LoggerFactory.getLogger(AuctionRoutingFilter.class);
+
+    @Value("${jhipster.clientApp.name}")
+    private String applicationName;
+
+    private final AuctionOwnership auctionOwnership;
+
+    private final OfferRepository offerRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final HttpClient httpClient;
+
+    private final boolean forward;
+
+    private final Duration forwardTimeout;
+
+    private final Duration memberTimeout;
+
+    private final int maxBatchSize;
+
+    private final ForwardSignature signature;
+
+    private final Timer forwardTimer;
+
+    public AuctionRoutingFilter(
+        AuctionOwnership auctionOwnership,
+        OfferRepository offerRepository,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.Cluster properties = applicationProperties.getCluster();
+        if (properties.getSecret() == null || properties.getSecret().isBlank()) {
+            throw new IllegalStateException("application.cluster.secret must be set when application.cluster.enabled is");
+        }
+        this.auctionOwnership = auctionOwnership;
+        this.offerRepository = offerRepository;
+        this.objectMapper = objectMapper;
+        this.forward = properties.isForward();
+        this.forwardTimeout = properties.getForwardTimeout();
+        this.memberTimeout = properties.getMemberTimeout();
+        this.maxBatchSize = applicationProperties.getOfferBatch().getMaxSize();
+        // the members agree on the time within the timeout of their heartbeats
+        this.signature = new ForwardSignature(properties.getSecret(), memberTimeout);
+        this.httpClient =
+            HttpClient
+                .newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(forwardTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.forwardTimer =
+            Timer
+                .builder("cluster.forward")
+                .description("Time spent forwarding offer writes to the owner of their auction")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return (
+            !isRouted(request) &&
+            !isHandOver(request) &&
+            Collections.list(request.getHeaderNames()).stream().noneMatch(FORWARDED_HEADERS::contains)
+        );
+    }
+
+    private static boolean isRouted(HttpServletRequest request) {
+        String path = pathOf(request);
+        String method = request.getMethod();
+        if (OFFERS_PATH.equals(path) || BATCH_PATH.equals(path)) {
+            return "POST".equals(method);
+        }
+        if (PROXY_BID_PATH.matcher(path).matches()) {
+            return "PUT".equals(method);
+        }
+        return (
+            (OFFER_PATH.matcher(path).matches() || AUCTION_PATH.matcher(path).matches()) &&
+            ("PUT".equals(method) || "PATCH".equals(method) || "DELETE".equals(method))
+        );
+    }
+
+    private static boolean isHandOver(HttpServletRequest request) {
+        return HAND_OVER_PATH.equals(pathOf(request)) && "POST".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        if (isHandOver(request)) {
+            handOver(request, response);
+            return;
+        }
+        if (!isRouted(request)) {
+            filterChain.doFilter(new WithoutForwardedHeaders(request), response);
+            return;
+        }
+        // the body is read to check the signature and find the auction, and read again by the controller
+        CachedBodyRequest routed = new CachedBodyRequest(new WithoutForwardedHeaders(request), null);
+        boolean forwarded = isForwardedByMember(request, routed.body);
+        if (BATCH_PATH.equals(pathOf(request))) {
+            routeBatch(routed, response, filterChain, forwarded);
+            return;
+        }
+        Optional<Long> auctionId = auctionIdOf(request, routed.body);
+        if (auctionId.isEmpty()) {
+            filterChain.doFilter(routed, response);
+            return;
+        }
+        Optional<String> owner;
+        try {
+            owner = ownerOf(auctionId.get(), request, forwarded);
+        } catch (IllegalStateException e) {
+            log.warn("Cannot take auction {} over: {}", auctionId.get(), e.getMessage());
+            unavailable(response, "The auction is being handed over");
+            return;
+        }
+        if (owner.isEmpty()) {
+            filterChain.doFilter(routed, response);
+        } else if (forward) {
+            forward(routed, response, owner.get());
+        } else {
+            redirect(request, response, owner.get());
+        }
+    }
+
+    /**
+     * @return the owner of the auction, or empty if it is this instance, which always handles forwarded writes.
+     */
+    private Optional<String> ownerOf(long auctionId, HttpServletRequest request, boolean forwarded) {
+        Consumer<String> handOver = member -> requestHandOver(member, request.getContextPath());
+        if (forwarded) {
+            auctionOwnership.takeOver(auctionId, handOver);
+            return Optional.empty();
+        }
+        return auctionOwnership.ownerOf(auctionId, handOver);
+    }
+
+    private Optional<Long> auctionIdOf(HttpServletRequest request, byte[] body) {
+        String path = pathOf(request);
+        Matcher offerPath = OFFER_PATH.matcher(path);
+        if (offerPath.matches()) {
+            return offerRepository.findAuctionIdById(Long.valueOf(offerPath.group(1)));
+        }
+        for (Pattern auctionPath : List.of(AUCTION_PATH, PROXY_BID_PATH)) {
+            Matcher matcher = auctionPath.matcher(path);
+            if (matcher.matches()) {
+                return Optional.of(Long.valueOf(matcher.group(1)));
+            }
+        }
+        try {
+            return auctionIdOf(objectMapper.readTree(body));
+        } catch (IOException e) {
+            // not JSON, refused by the controller
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<Long> auctionIdOf(JsonNode offer) {
+        JsonNode auctionId = offer.path("offerName").path("id");
+        return auctionId.canConvertToLong() ? Optional.of(auctionId.asLong()) : Optional.empty();
+    }
+
+    private void routeBatch(CachedBodyRequest request, HttpServletResponse response, FilterChain filterChain, boolean forwarded)
+        throws ServletException, IOException {
+        JsonNode offers;
+        try {
+            offers = objectMapper.readTree(request.body);
+        } catch (IOException e) {
+            offers = null;
+        }
+        if (offers == null || !offers.isArray()) {
+            // refused by the controller
+            filterChain.doFilter(request, response);
+            return;
+        }
+        // the indices of the offers by the owner of their auction, this instance being null
+        Map<String, List<Integer>> indicesByOwner = new LinkedHashMap<>();
+        Map<Long, Optional<String>> owners = new HashMap<>();
+        int routedSize = Math.min(offers.size(), maxBatchSize);
+        for (int index = 0; index < routedSize; index++) {
+            Optional<Long> auctionId = auctionIdOf(offers.get(index));
+            String owner = null;
+            if (auctionId.isPresent()) {
+                Optional<String> auctionOwner = owners.get(auctionId.get());
+                if (auctionOwner == null) {
+                    try {
+                        auctionOwner = ownerOf(auctionId.get(), request, forwarded);
+                    } catch (IllegalStateException e) {
+                        log.warn("Cannot take auction {} over: {}", auctionId.get(), e.getMessage());
+                        unavailable(response, "An auction of the batch is being handed over");
+                        return;
+                    }
+                    owners.put(auctionId.get(), auctionOwner);
+                }
+                owner = auctionOwner.orElse(null);
+            }
+            indicesByOwner.computeIfAbsent(owner, key -> new ArrayList<>()).add(index);
+        }
+        if (indicesByOwner.isEmpty() || indicesByOwner.keySet().equals(Collections.singleton(null))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (indicesByOwner.size() == 1 && offers.size() <= maxBatchSize) {
+            String owner = indicesByOwner.keySet().iterator().next();
+            if (forward) {
+                forward(request, response, owner);
+            } else {
+                redirect(request, response, owner);
+            }
+            return;
+        }
+
+        List<OfferBatchResultDTO> results = new ArrayList<>(Collections.nCopies(offers.size(), null));
+        List<Integer> local = indicesByOwner.remove(null);
+        if (local != null) {
+            ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+            filterChain.doFilter(request.withBody(subBatch(offers, local)), captured);
+            if (captured.getStatus() != HttpServletResponse.SC_OK) {
+                // refused as a whole, before the other owners are sent anything
+                captured.copyBodyToResponse();
+                return;
+            }
+            merge(objectMapper.readValue(captured.getContentAsByteArray(), BATCH_RESULTS), local, results);
+        }
+        Map<String, CompletableFuture<HttpResponse<byte[]>>> answers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Integer>> owned : indicesByOwner.entrySet()) {
+            long started = System.nanoTime();
+            HttpRequest subBatch = forwardedRequest(request, owned.getKey(), subBatch(offers, owned.getValue()));
+            answers.put(
+                owned.getKey(),
+                httpClient
+                    .sendAsync(subBatch, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((answer, e) -> forwardTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS))
+            );
+        }
+        for (Map.Entry<String, CompletableFuture<HttpResponse<byte[]>>> answer : answers.entrySet()) {
+            List<Integer> indices = indicesByOwner.get(answer.getKey());
+            String failure;
+            try {
+                HttpResponse<byte[]> owned = answer.getValue().join();
+                if (owned.statusCode() == HttpServletResponse.SC_OK) {
+                    merge(objectMapper.readValue(owned.body(), BATCH_RESULTS), indices, results);
+                    continue;
+                }
+                failure = "The owner of the auction answered " + owned.statusCode();
+            } catch (CompletionException e) {
+                log.warn("Cannot forward {} offers of a batch to {}: {}", indices.size(), answer.getKey(), e.getCause().toString());
+                failure = "The owner of the auction cannot be reached";
+            }
+            for (int index : indices) {
+                results.set(index, OfferBatchResultDTO.rejected(index, "ownerunavailable", failure));
+            }
+        }
+        for (int index = routedSize; index < offers.size(); index++) {
+            results.set(index, OfferBatchResultDTO.rejected(index, "batchtoolarge", "The batch exceeds " + maxBatchSize + " offers"));
+        }
+
+        long created = results.stream().filter(OfferBatchResultDTO::isCreated).count();
+        HeaderUtil
+            .createAlert(applicationName, created + " offers created out of " + results.size(), String.valueOf(created))
+            .forEach((name, values) -> response.setHeader(name, values.get(0)));
+        byte[] body = objectMapper.writeValueAsBytes(results);
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private byte[] subBatch(JsonNode offers, List<Integer> indices) throws IOException {
+        ArrayNode subBatch = objectMapper.createArrayNode();
+        indices.forEach(index -> subBatch.add(offers.get(index)));
+        return objectMapper.writeValueAsBytes(subBatch);
+    }
+
+    private static void merge(List<OfferBatchResultDTO> outcomes, List<Integer> indices, List<OfferBatchResultDTO> results) {
+        for (OfferBatchResultDTO outcome : outcomes) {
+            int index = indices.get(outcome.getIndex());
+            outcome.setIndex(index);
+            results.set(index, outcome);
+        }
+    }
+
+    private boolean isForwardedByMember(HttpServletRequest request, byte[] body) {
+        String member = request.getHeader(FORWARDED_HEADER);
+        if (member == null) {
+            return false;
+        }
+        boolean signed = signature.verify(
+            request.getHeader(SIGNATURE_HEADER),
+            member,
+            request.getHeader(FORWARDED_AT_HEADER),
+            request.getMethod(),
+            pathAndQuery(request),
+            body,
+            System.currentTimeMillis()
+        );
+        if (!signed) {
+            log.warn(
+                "Routing {} {} as a client write, its {} is not signed by a member",
+                request.getMethod(),
+                request.getRequestURI(),
+                FORWARDED_HEADER
+            );
+            return false;
+        }
+        if (!auctionOwnership.isMember(member)) {
+            log.warn("Routing {} {} as a client write, {} is not a current member", request.getMethod(), request.getRequestURI(), member);
+            return false;
+        }
+        return true;
+    }
+
+    private void handOver(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!isForwardedByMember(request, StreamUtils.copyToByteArray(request.getInputStream()))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Auctions are only handed over to members of the cluster");
+            return;
+        }
+        try {
+            auctionOwnership.handOver();
+        } catch (IllegalStateException e) {
+            log.warn("Cannot hand auctions over to {}: {}", request.getHeader(FORWARDED_HEADER), e.getMessage());
+            unavailable(response, "The bid journal is not written yet");
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    private void requestHandOver(String member, String contextPath) {
+        String path = contextPath + HAND_OVER_PATH;
+        long now = System.currentTimeMillis();
+        String url = auctionOwnership.getUrl();
+        HttpRequest handOver = HttpRequest
+            .newBuilder(URI.create(member + path))
+            .timeout(forwardTimeout)
+            .POST(HttpRequest.BodyPublishers.noBody())
+            .header(FORWARDED_HEADER, url)
+            .header(FORWARDED_AT_HEADER, Long.toString(now))
+            .header(SIGNATURE_HEADER, signature.sign(url, now, "POST", path, new byte[0]))
+            .build();
+        HttpResponse<Void> answer;
+        try {
+            answer = httpClient.send(handOver, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot reach " + member + " to hand the auction over", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while " + member + " hands the auction over", e);
+        }
+        if (answer.statusCode() != HttpServletResponse.SC_NO_CONTENT) {
+            throw new IllegalStateException(member + " answered the hand-over with " + answer.statusCode());
+        }
+    }
+
+    private void forward(CachedBodyRequest request, HttpServletResponse response, String owner) throws IOException {
+        HttpResponse<byte[]> answer;
+        long started = System.nanoTime();
+        try {
+            answer = httpClient.send(forwardedRequest(request, owner, request.body), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            log.warn("Cannot forward {} {} to {}: {}", request.getMethod(), request.getRequestURI(), owner, e.toString());
+            unavailable(response, "The owner of the auction cannot be reached");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unavailable(response, "The owner of the auction cannot be reached");
+            return;
+        } finally {
+            forwardTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        response.setStatus(answer.statusCode());
+        for (Map.Entry<String, List<String>> header : answer.headers().map().entrySet()) {
+            if (!UNFORWARDED_HEADERS.contains(header.getKey())) {
+                header.getValue().forEach(value -> response.addHeader(header.getKey(), value));
+            }
+        }
+        response.setContentLength(answer.body().length);
+        response.getOutputStream().write(answer.body());
+    }
+
+    private HttpRequest forwardedRequest(HttpServletRequest request, String owner, byte[] body) {
+        HttpRequest.Builder forwarded = HttpRequest
+            .newBuilder(URI.create(owner + pathAndQuery(request)))
+            .timeout(forwardTimeout)
+            .method(
+                request.getMethod(),
+                body.length == 0 ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body)
+            );
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!UNFORWARDED_HEADERS.contains(name)) {
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    forwarded.header(name, value);
+                }
+            }
+        }
+        long now = System.currentTimeMillis();
+        forwarded.header(FORWARDED_HEADER, auctionOwnership.getUrl());
+        forwarded.header(FORWARDED_AT_HEADER, Long.toString(now));
+        forwarded.header(
+            SIGNATURE_HEADER,
+            signature.sign(auctionOwnership.getUrl(), now, request.getMethod(), pathAndQuery(request), body)
+        );
+        return forwarded.build();
+    }
+
+    private static void redirect(HttpServletRequest request, HttpServletResponse response, String owner) {
+        response.setStatus(HttpServletResponse.SC_TEMPORARY_REDIRECT);
+        response.setHeader(HttpHeaders.LOCATION, owner + pathAndQuery(request));
+        response.setHeader(OWNER_HEADER, owner);
+    }
+
+    private void unavailable(HttpServletResponse response, String message) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, memberTimeout.toSeconds())));
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, message);
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String pathAndQuery(HttpServletRequest request) {
+        return request.getQueryString() == null ? request.getRequestURI() : request.getRequestURI() + '?' + request.getQueryString();
+    }
+
+    private static Set<String> caseInsensitive(String... names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Collections.addAll(set, names);
+        return Collections.unmodifiableSet(set);
+    }
+
+    /**
+     * A request without the headers a member marks its forwarded writes with.
+     */
+    private static final class WithoutForwardedHeaders extends HttpServletRequestWrapper {
+
+        private WithoutForwardedHeaders(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return FORWARDED_HEADERS.contains(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return FORWARDED_HEADERS.contains(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = Collections.list(super.getHeaderNames());
+            names.removeIf(FORWARDED_HEADERS::contains);
+            return Collections.enumeration(names);
+        }
+    }
+
+    /**
+     * A request whose body is read up front, or replaced, and can be read again.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        /**
+         * @param body the body replacing the one of the request, or {@code null} to read the one of the request.
+         */
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) throws IOException {
+            super(request);
+            this.body = body == null ? StreamUtils.copyToByteArray(request.getInputStream()) : body;
+        }
+
+        private CachedBodyRequest withBody(byte[] body) throws IOException {
+            return new CachedBodyRequest((HttpServletRequest) getRequest(), body);
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() == null ? StandardCharsets.UTF_8 : Charset.forName(getCharacterEncoding());
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package at.jku.web.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Signature of a write forwarded by a member of the cluster: an HMAC-SHA256, keyed with the secret the members share,
+ * of the member forwarding it, the time it did, the method, the path and query, and the body of the request. A
+ * signature is only accepted within {@code maxAge} of the time it was made, in either direction.
+ */
+final class ForwardSignature {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final byte SEPARATOR = '\n';
+
+    private final SecretKeySpec key;
+
+    private final long maxAgeMillis;
+
+    ForwardSignature(String secret, Duration maxAge) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.maxAgeMillis = maxAge.toMillis();
+    }
+
+    /**
+     * @param member the URL of the member forwarding the request.
+     * @param timestamp the time it forwards the request, in milliseconds since the epoch.
+     * @param method the method of the request.
+     * @param pathAndQuery the path of the request, with its query if any.
+     * @param body the body of the request, empty if none.
+     * @return the signature, in Base64.
+     */
+    String sign(String member, long timestamp, String method, String pathAndQuery, byte[] body) {
+        return Base64.getEncoder().encodeToString(mac(member, timestamp, method, pathAndQuery, body));
+    }
+
+    /**
+     * @param signature the signature sent with the request, {@code null} if none.
+     * @param member the URL of the member the request claims to be forwarded by.
+     * @param timestamp the time it claims to have been forwarded, {@code null} if not sent.
+     * @param method the method of the request.
+     * @param pathAndQuery the path of the request, with its query if any.
+     * @param body the body of the request, empty if none.
+     * @param now the current time, in milliseconds since the epoch.
+     * @return whether the signature was made with the shared secret for this request, recently enough.
+     */
+    boolean verify(String signature, String member, String timestamp, String method, String pathAndQuery, byte[] body, long now) {
+        if (signature == null || member == null || timestamp == null) {
+            return false;
+        }
+        long signedAt;
+        byte[] sent;
+        try {
+            signedAt = Long.parseLong(timestamp);
+            sent = Base64.getDecoder().decode(signature);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (Math.abs(now - signedAt) > maxAgeMillis) {
+            return false;
+        }
+        return MessageDigest.isEqual(sent, mac(member, signedAt, method, pathAndQuery, body));
+    }
+
+    private byte[] mac(String member, long timestamp, String method, String pathAndQuery, byte[] body) {
+        Mac mac;
+        try {
+            mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+        // the parts before the body hold no line feed, so no two requests sign the same bytes
+        for (String part : new String[] { member, Long.toString(timestamp), method, pathAndQuery }) {
+            mac.update(part.getBytes(StandardCharsets.UTF_8));
+            mac.update(SEPARATOR);
+        }
+        return mac.doFinal(body);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Routing of the offer writes to the instance owning their auction.
+ */
+package at.jku.web.cluster;
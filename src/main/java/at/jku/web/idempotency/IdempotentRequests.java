@@ -0,0 +1,468 @@
+package at.jku.web.idempotency;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.IdempotentResponse;
+import at.jku.repository.IdempotentResponseRepository;
+import at.jku.security.SecurityUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.annotation.PreDestroy;
+import org.ehcache.UserManagedCache;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.builders.UserManagedCacheBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Handles the requests carrying an {@value #IDEMPOTENCY_KEY_HEADER} header at most once per user, endpoint and key.
+ * <p>
+ * The key of the first request is reserved, as an {@link IdempotentResponse} without response, in a transaction of its
+ * own before the request is handled. The request is then handled in a transaction that also stores its response in the
+ * reservation, so the response is stored if and only if the request took effect. A handler whose effect outlives its
+ * transaction, such as a bid acknowledged by the bid journal, reports its response as soon as it takes effect, and the
+ * response is stored at once in a transaction of its own, whatever becomes of the one of the handler. The requests
+ * repeating the key get that response back, with an {@value #REPLAYED_HEADER} header, without being handled again. A
+ * request repeating a key while the first one is in flight on this instance waits for it; one in flight on another
+ * instance, or reserved by an instance that stopped before answering, is answered with {@code 409 (Conflict)} until
+ * its response is stored, or its reservation expires.
+ * <p>
+ * The responses are kept in memory, up to {@code application.idempotency.max-entries}, and in the database, both for
+ * {@code application.idempotency.time-to-live}. A key repeated with another request body is rejected with
+ * {@code 422 (Unprocessable Entity)}. Requests failing without taking effect release their key, and can be retried
+ * with it.
+ */
+@Component
+public class IdempotentRequests {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * The status of a key reserved by a request that has not stored its response yet.
+     */
+    static final int RESERVED = 0;
+
+    private static final TypeReference<Map<String, List<String>>> HEADERS_TYPE = new TypeReference<>() {};
+
+    private final Logger log = LoggerFactory.getLogger(IdempotentRequests.class);
+
+    private final IdempotentResponseRepository idempotentResponseRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate newTransactionTemplate;
+
+    private final Duration timeToLive;
+
+    private final Duration inFlightTimeout;
+
+    private final UserManagedCache<String, StoredResponse> responses;
+
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotentRequests(
+        IdempotentResponseRepository idempotentResponseRepository,
+        ObjectMapper objectMapper,
+        PlatformTransactionManager transactionManager,
+        ApplicationProperties applicationProperties
+    ) {
+        this.idempotentResponseRepository = idempotentResponseRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        ApplicationProperties.Idempotency properties = applicationProperties.getIdempotency();
+        this.timeToLive = properties.getTimeToLive();
+        this.inFlightTimeout = properties.getInFlightTimeout();
+        this.responses =
+            UserManagedCacheBuilder
+                .newUserManagedCacheBuilder(String.class, StoredResponse.class)
+                .withResourcePools(ResourcePoolsBuilder.heap(properties.getMaxEntries()))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive))
+                .build(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        responses.close();
+    }
+
+    /**
+     * Handle a request in a transaction, at most once per idempotency key.
+     * <p>
+     * A replayed response carries its body as the JSON it was first written as, whatever the type of the body.
+     *
+     * @param endpoint the name of the endpoint, keys are only repeated within an endpoint.
+     * @param idempotencyKey the value of the {@value #IDEMPOTENCY_KEY_HEADER} header, {@code null} to handle the request anyway.
+     * @param request the body of the request, to tell a key repeated with another request.
+     * @param handler the handling of the request.
+     * @return the response of the handler, or the one stored for the key.
+     * @throws URISyntaxException if the handler does.
+     * @throws ResponseStatusException with status {@code 400 (Bad Request)} if the key is blank or too long,
+     * {@code 409 (Conflict)} if the request with the same key is still in flight after {@code application.idempotency.in-flight-timeout},
+     * {@code 422 (Unprocessable Entity)} if the key was used with another request.
+     */
+    public <T> ResponseEntity<T> handle(String endpoint, String idempotencyKey, Object request, Handler<T> handler)
+        throws URISyntaxException {
+        return handle(endpoint, idempotencyKey, request, (EarlyEffectHandler<T>) tookEffect -> handler.handle());
+    }
+
+    /**
+     * Handle a request in a transaction, at most once per idempotency key, storing its response as soon as the handler
+     * reports it took effect.
+     *
+     * @param endpoint the name of the endpoint, keys are only repeated within an endpoint.
+     * @param idempotencyKey the value of the {@value #IDEMPOTENCY_KEY_HEADER} header, {@code null} to handle the request anyway.
+     * @param request the body of the request, to tell a key repeated with another request.
+     * @param handler the handling of the request.
+     * @return the response of the handler, or the one stored for the key.
+     * @throws URISyntaxException if the handler does.
+     * @throws ResponseStatusException as {@link #handle(String, String, Object, Handler)} does.
+     */
+    public <T> ResponseEntity<T> handle(String endpoint, String idempotencyKey, Object request, EarlyEffectHandler<T> handler)
+        throws URISyntaxException {
+        if (idempotencyKey == null) {
+            return inTransaction(() -> call(handler, response -> {}));
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(
+                HttpStatus.BAD_REQUEST,
+                "The " + IDEMPOTENCY_KEY_HEADER + " header must hold 1 to " + MAX_KEY_LENGTH + " characters"
+            );
+        }
+        String id = hash(SecurityUtils.getCurrentUserLogin().orElse("") + '\n' + endpoint + '\n' + idempotencyKey);
+        String requestHash = hash(toJson(request));
+        while (true) {
+            StoredResponse stored = responses.get(id);
+            if (stored != null) {
+                return replay(stored, requestHash);
+            }
+            CompletableFuture<Void> handling = new CompletableFuture<>();
+            CompletableFuture<Void> other = inFlight.putIfAbsent(id, handling);
+            if (other != null) {
+                await(other);
+                // replayed on the next turn, or handled again if the other request failed
+                continue;
+            }
+            try {
+                return handleFirst(id, requestHash, handler);
+            } finally {
+                inFlight.remove(id, handling);
+                handling.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Delete the responses past their time to live.
+     */
+    @Scheduled(fixedDelayString = "${application.idempotency.cleanup-interval:PT10M}")
+    public void cleanup() {
+        Instant before = Instant.now().minus(timeToLive);
+        Integer deleted = transactionTemplate.execute(status -> idempotentResponseRepository.deleteByCreatedDateBefore(before));
+        log.debug("Deleted {} idempotent responses past their time to live", deleted);
+    }
+
+    private <T> ResponseEntity<T> handleFirst(String id, String requestHash, EarlyEffectHandler<T> handler) throws URISyntaxException {
+        Optional<IdempotentResponse> other = reserve(id, requestHash);
+        if (other.isPresent()) {
+            return replay(other.get(), requestHash);
+        }
+        AtomicBoolean tookEffect = new AtomicBoolean();
+        AtomicReference<IdempotentResponse> saved = new AtomicReference<>();
+        ResponseEntity<T> response;
+        try {
+            response =
+                inTransaction(() -> {
+                    ResponseEntity<T> handled = call(
+                        handler,
+                        early -> {
+                            tookEffect.set(true);
+                            saved.set(storeEarly(id, early));
+                        }
+                    );
+                    if (!tookEffect.get()) {
+                        saved.set(store(id, handled));
+                    }
+                    return handled;
+                });
+        } catch (URISyntaxException | RuntimeException e) {
+            if (saved.get() != null) {
+                remember(toStoredResponse(saved.get()));
+            } else if (!tookEffect.get()) {
+                release(id);
+            }
+            throw e;
+        }
+        if (saved.get() != null) {
+            remember(toStoredResponse(saved.get()));
+        }
+        return response;
+    }
+
+    /**
+     * Reserve a key before its request is handled.
+     *
+     * @return the reservation or response of the request that used the key first, empty if it is this one.
+     */
+    private Optional<IdempotentResponse> reserve(String id, String requestHash) {
+        Instant expiredBefore = Instant.now().minus(timeToLive);
+        // read and written on the primary, where another instance reserving the key meanwhile is seen
+        Optional<IdempotentResponse> found = transactionTemplate.execute(status -> idempotentResponseRepository.findById(id));
+        if (found.isPresent() && !found.get().getCreatedDate().isBefore(expiredBefore)) {
+            return found;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (found.isPresent()) {
+                    idempotentResponseRepository.deleteByIdAndCreatedDateBefore(id, expiredBefore);
+                }
+                idempotentResponseRepository.saveAndFlush(toReservation(id, requestHash));
+            });
+            return Optional.empty();
+        } catch (DataIntegrityViolationException e) {
+            // reserved meanwhile by another instance
+            IdempotentResponse reserved = transactionTemplate
+                .execute(status -> idempotentResponseRepository.findById(id))
+                .orElseThrow(() -> e);
+            return Optional.of(reserved);
+        }
+    }
+
+    private IdempotentResponse store(String id, ResponseEntity<?> response) {
+        IdempotentResponse reservation = idempotentResponseRepository
+            .findById(id)
+            .orElseThrow(() -> new IllegalStateException("The reservation of idempotent response " + id + " is gone"));
+        reservation.setStatus(response.getStatusCodeValue());
+        reservation.setHeaders(response.getHeaders().isEmpty() ? null : toJson(response.getHeaders()));
+        reservation.setBody(response.getBody() == null ? null : toJson(response.getBody()));
+        return idempotentResponseRepository.saveAndFlush(reservation);
+    }
+
+    private IdempotentResponse storeEarly(String id, ResponseEntity<?> response) {
+        try {
+            return newTransactionTemplate.execute(status -> store(id, response));
+        } catch (DataAccessException | TransactionException e) {
+            // the request took effect anyway, so its key stays reserved rather than being handled again
+            log.warn("Cannot store the idempotent response {}, its key stays reserved until it expires: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    private void release(String id) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> idempotentResponseRepository.deleteById(id));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Cannot release the idempotency key {}, it stays reserved until it expires: {}", id, e.getMessage());
+        }
+    }
+
+    private StoredResponse remember(StoredResponse stored) {
+        responses.put(stored.id, stored);
+        return stored;
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotentResponse other, String requestHash) {
+        if (other.getStatus() == RESERVED) {
+            if (!other.getRequestHash().equals(requestHash)) {
+                throw keyReused();
+            }
+            throw inFlightConflict();
+        }
+        return replay(remember(toStoredResponse(other)), requestHash);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<T> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash.equals(requestHash)) {
+            throw keyReused();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(stored.headers);
+        headers.set(REPLAYED_HEADER, "true");
+        if (stored.body == null) {
+            return ResponseEntity.status(stored.status).headers(headers).build();
+        }
+        // written as is by the string converter, in place of the body of type T it was serialized from
+        return (ResponseEntity<T>) ResponseEntity
+            .status(stored.status)
+            .headers(headers)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(stored.body);
+    }
+
+    private void await(CompletableFuture<Void> other) {
+        try {
+            other.get(inFlightTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inFlightConflict();
+        } catch (TimeoutException | ExecutionException e) {
+            throw inFlightConflict();
+        }
+    }
+
+    private static ResponseStatusException keyReused() {
+        return new ResponseStatusException(
+            HttpStatus.UNPROCESSABLE_ENTITY,
+            "The " + IDEMPOTENCY_KEY_HEADER + " was already used with another request"
+        );
+    }
+
+    private static ResponseStatusException inFlightConflict() {
+        return new ResponseStatusException(
+            HttpStatus.CONFLICT,
+            "A request with the same " + IDEMPOTENCY_KEY_HEADER + " is still in progress"
+        );
+    }
+
+    private <T> ResponseEntity<T> inTransaction(Supplier<ResponseEntity<T>> work) throws URISyntaxException {
+        try {
+            return transactionTemplate.execute(status -> work.get());
+        } catch (UncheckedURISyntaxException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> ResponseEntity<T> call(EarlyEffectHandler<T> handler, Consumer<ResponseEntity<T>> tookEffect) {
+        try {
+            return handler.handle(tookEffect);
+        } catch (URISyntaxException e) {
+            throw new UncheckedURISyntaxException(e);
+        }
+    }
+
+    private static IdempotentResponse toReservation(String id, String requestHash) {
+        IdempotentResponse reservation = new IdempotentResponse();
+        reservation.setId(id);
+        reservation.setRequestHash(requestHash);
+        reservation.setStatus(RESERVED);
+        reservation.setCreatedDate(Instant.now());
+        return reservation;
+    }
+
+    private StoredResponse toStoredResponse(IdempotentResponse idempotentResponse) {
+        Map<String, List<String>> headers;
+        try {
+            headers =
+                idempotentResponse.getHeaders() == null ? Map.of() : objectMapper.readValue(idempotentResponse.getHeaders(), HEADERS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable headers of idempotent response " + idempotentResponse.getId(), e);
+        }
+        return new StoredResponse(
+            idempotentResponse.getId(),
+            idempotentResponse.getRequestHash(),
+            idempotentResponse.getStatus(),
+            headers,
+            idempotentResponse.getBody()
+        );
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot write " + value.getClass().getSimpleName() + " as JSON", e);
+        }
+    }
+
+    static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The handling of a request, as an endpoint would without idempotency key.
+     */
+    @FunctionalInterface
+    public interface Handler<T> {
+        ResponseEntity<T> handle() throws URISyntaxException;
+    }
+
+    /**
+     * The handling of a request taking effect before its transaction commits, which passes its response to
+     * {@code tookEffect} as soon as it does.
+     */
+    @FunctionalInterface
+    public interface EarlyEffectHandler<T> {
+        ResponseEntity<T> handle(Consumer<ResponseEntity<T>> tookEffect) throws URISyntaxException;
+    }
+
+    private static final class StoredResponse {
+
+        private final String id;
+
+        private final String requestHash;
+
+        private final int status;
+
+        private final Map<String, List<String>> headers;
+
+        private final String body;
+
+        private StoredResponse(String id, String requestHash, int status, Map<String, List<String>> headers, String body) {
+            this.id = id;
+            this.requestHash = requestHash;
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    private static final class UncheckedURISyntaxException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private UncheckedURISyntaxException(URISyntaxException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized URISyntaxException getCause() {
+            return (URISyntaxException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Idempotency keys, letting clients retry the requests that create entities.
+ */
+package at.jku.web.idempotency;
@@ -1,20 +1,63 @@
 package at.jku.web.rest;
 
 import at.jku.domain.Auction;
+import at.jku.domain.enumeration.AuctionStatus;
+import at.jku.domain.enumeration.ChangeType;
 import at.jku.repository.AuctionRepository;
+import at.jku.security.SecurityUtils;
+import at.jku.security.ratelimit.RateLimited;
+import at.jku.security.ratelimit.RateLimiter;
+import at.jku.service.ExportService;
+import at.jku.service.auction.AuctionLifecycle;
+import at.jku.service.bid.AuctionClosedException;
+import at.jku.service.bid.BidBook;
+import at.jku.service.bid.BidTooLowException;
+import at.jku.service.bid.ProxyBidding;
+import at.jku.service.dto.AuctionDTO;
+import at.jku.service.dto.ProxyBidDTO;
+import at.jku.service.mapper.AuctionMapper;
+import at.jku.service.outbox.Outbox;
+import at.jku.service.search.AuctionSearchIndex;
+import at.jku.web.idempotency.IdempotentRequests;
 import at.jku.web.rest.errors.BadRequestAlertException;
+import at.jku.web.rest.util.ETagUtil;
+import at.jku.web.rest.util.ExportStreams;
+import at.jku.web.rest.util.KeysetPaginationUtil;
+import at.jku.web.sse.AuctionEventFeed;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalDouble;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
+import tech.jhipster.web.util.PaginationUtil;
 import tech.jhipster.web.util.ResponseUtil;
 
 /**
@@ -34,43 +77,94 @@ public class AuctionResource {
 
     private final AuctionRepository auctionRepository;
 
-    public AuctionResource(AuctionRepository auctionRepository) {
+    private final BidBook bidBook;
+
+    private final ExportService exportService;
+
+    private final AuctionMapper auctionMapper;
+
+    private final AuctionEventFeed auctionEventFeed;
+
+    private final AuctionSearchIndex auctionSearchIndex;
+
+    private final AuctionLifecycle auctionLifecycle;
+
+    private final ProxyBidding proxyBidding;
+
+    private final RateLimiter rateLimiter;
+
+    private final IdempotentRequests idempotentRequests;
+
+    private final Outbox outbox;
+
+    public AuctionResource(
+        AuctionRepository auctionRepository,
+        BidBook bidBook,
+        ExportService exportService,
+        AuctionMapper auctionMapper,
+        AuctionEventFeed auctionEventFeed,
+        AuctionSearchIndex auctionSearchIndex,
+        AuctionLifecycle auctionLifecycle,
+        ProxyBidding proxyBidding,
+        RateLimiter rateLimiter,
+        IdempotentRequests idempotentRequests,
+        Outbox outbox
+    ) {
         this.auctionRepository = auctionRepository;
+        this.bidBook = bidBook;
+        this.exportService = exportService;
+        this.auctionMapper = auctionMapper;
+        this.auctionEventFeed = auctionEventFeed;
+        this.auctionSearchIndex = auctionSearchIndex;
+        this.auctionLifecycle = auctionLifecycle;
+        this.proxyBidding = proxyBidding;
+        this.rateLimiter = rateLimiter;
+        this.idempotentRequests = idempotentRequests;
+        this.outbox = outbox;
     }
 
     /**
      * {@code POST  /auctions} : Create a new auction.
+     * <p>
+     * A request repeating the {@code Idempotency-Key} of an earlier one gets its response back instead of creating the auction twice.
      *
+     * @param idempotencyKey the key identifying the request across its retries, absent if it is not retried.
      * @param auction the auction to create.
-     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new auction, or with status {@code 400 (Bad Request)} if the auction has already an ID.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)}, the {@code ETag} and with body the new auction, or with status {@code 400 (Bad Request)} if the auction has already an ID,
+     * or with status {@code 422 (Unprocessable Entity)} if the idempotency key was used with another auction.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("/auctions")
-    public ResponseEntity<Auction> createAuction(@RequestBody Auction auction) throws URISyntaxException {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<Auction> createAuction(
+        @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+        @RequestBody Auction auction
+    ) throws URISyntaxException {
         log.debug("REST request to save Auction : {}", auction);
         if (auction.getId() != null) {
             throw new BadRequestAlertException("A new auction cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        Auction result = auctionRepository.save(auction);
-        return ResponseEntity
-            .created(new URI("/api/auctions/" + result.getId()))
-            .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
-            .body(result);
+        return idempotentRequests.handle("create-auction", idempotencyKey, auction, () -> saveAuction(auction));
     }
 
     /**
      * {@code PUT  /auctions/:id} : Updates an existing auction.
      *
      * @param id the id of the auction to save.
+     * @param ifMatch the {@code ETag} of the auction the update is based on, absent for an unconditional update.
      * @param auction the auction to update.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated auction,
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, the new {@code ETag} and with body the updated auction,
      * or with status {@code 400 (Bad Request)} if the auction is not valid,
+     * or with status {@code 412 (Precondition Failed)} if the auction was modified since the {@code If-Match} version,
      * or with status {@code 500 (Internal Server Error)} if the auction couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/auctions/{id}")
-    public ResponseEntity<Auction> updateAuction(@PathVariable(value = "id", required = false) final Long id, @RequestBody Auction auction)
-        throws URISyntaxException {
+    public ResponseEntity<Auction> updateAuction(
+        @PathVariable(value = "id", required = false) final Long id,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+        @RequestBody Auction auction
+    ) throws URISyntaxException {
         log.debug("REST request to update Auction : {}, {}", id, auction);
         if (auction.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
@@ -79,13 +173,20 @@ public class AuctionResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!auctionRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
-
-        Auction result = auctionRepository.save(auction);
+        // the loaded auction is modified in place, where a merge would have selected it once more
+        Auction result = auctionRepository
+            .findById(id)
+            .orElseThrow(() -> new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
+        ETagUtil.checkIfMatch(ifMatch, ETagUtil.toETag(result.getVersion()), ENTITY_NAME);
+        result.setAuctionDescription(auction.getAuctionDescription());
+        updateEndDate(result, auction.getEndDate());
+        // flushed now so that the response carries the incremented version
+        auctionRepository.flush();
+        auctionSearchIndex.index(result.getId(), result.getAuctionDescription());
+        outbox.auctionChanged(ChangeType.UPDATED, result);
         return ResponseEntity
             .ok()
+            .eTag(ETagUtil.toETag(result.getVersion()))
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, auction.getId().toString()))
             .body(result);
     }
@@ -94,16 +195,18 @@ public class AuctionResource {
      * {@code PATCH  /auctions/:id} : Partial updates given fields of an existing auction, field will ignore if it is null
      *
      * @param id the id of the auction to save.
+     * @param ifMatch the {@code ETag} of the auction the update is based on, absent for an unconditional update.
      * @param auction the auction to update.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated auction,
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, the new {@code ETag} and with body the updated auction,
      * or with status {@code 400 (Bad Request)} if the auction is not valid,
-     * or with status {@code 404 (Not Found)} if the auction is not found,
+     * or with status {@code 412 (Precondition Failed)} if the auction was modified since the {@code If-Match} version,
      * or with status {@code 500 (Internal Server Error)} if the auction couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PatchMapping(value = "/auctions/{id}", consumes = { "application/json", "application/merge-patch+json" })
     public ResponseEntity<Auction> partialUpdateAuction(
         @PathVariable(value = "id", required = false) final Long id,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
         @RequestBody Auction auction
     ) throws URISyntaxException {
         log.debug("REST request to partial update Auction partially : {}, {}", id, auction);
@@ -114,64 +217,296 @@ public class AuctionResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!auctionRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
+        Auction result = auctionRepository
+            .findById(id)
+            .orElseThrow(() -> new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
+        ETagUtil.checkIfMatch(ifMatch, ETagUtil.toETag(result.getVersion()), ENTITY_NAME);
+        if (auction.getAuctionDescription() != null) {
+            result.setAuctionDescription(auction.getAuctionDescription());
         }
+        if (auction.getEndDate() != null) {
+            updateEndDate(result, auction.getEndDate());
+        }
+        auctionRepository.flush();
+        auctionSearchIndex.index(result.getId(), result.getAuctionDescription());
+        outbox.auctionChanged(ChangeType.UPDATED, result);
 
-        Optional<Auction> result = auctionRepository
-            .findById(auction.getId())
-            .map(existingAuction -> {
-                if (auction.getAuctionDescription() != null) {
-                    existingAuction.setAuctionDescription(auction.getAuctionDescription());
-                }
-
-                return existingAuction;
-            })
-            .map(auctionRepository::save);
+        return ResponseEntity
+            .ok()
+            .eTag(ETagUtil.toETag(result.getVersion()))
+            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, auction.getId().toString()))
+            .body(result);
+    }
 
-        return ResponseUtil.wrapOrNotFound(
-            result,
-            HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, auction.getId().toString())
+    /**
+     * {@code GET  /auctions} : get a page of the auctions, ordered by id.
+     *
+     * @param after the cursor of the last auction of the previous page, absent for the first page.
+     * @param pageable the size and the direction of the {@code id} sort of the page, the page number is ignored.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of auctions in body,
+     * or with status {@code 400 (Bad Request)} if the page is sorted on another property than {@code id}.
+     */
+    @GetMapping("/auctions")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<AuctionDTO>> getAllAuctions(
+        @RequestParam(value = KeysetPaginationUtil.AFTER_PARAM, required = false) String after,
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+    ) {
+        log.debug("REST request to get a page of Auctions after {}", after);
+        if (!pageable.getSort().stream().map(Sort.Order::getProperty).allMatch("id"::equals)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Sort.Direction direction = Optional
+            .ofNullable(pageable.getSort().getOrderFor("id"))
+            .map(Sort.Order::getDirection)
+            .orElse(Sort.Direction.ASC);
+        Pageable seek = PageRequest.of(0, pageable.getPageSize(), Sort.by(direction, "id"));
+        Slice<Auction> slice;
+        if (after == null) {
+            slice = auctionRepository.findAllByIdGreaterThan(Long.MIN_VALUE, seek);
+        } else if (direction.isAscending()) {
+            slice = auctionRepository.findAllByIdGreaterThan(KeysetPaginationUtil.decodeIdCursor(after, ENTITY_NAME), seek);
+        } else {
+            slice = auctionRepository.findAllByIdLessThan(KeysetPaginationUtil.decodeIdCursor(after, ENTITY_NAME), seek);
+        }
+        String nextCursor = slice.hasContent()
+            ? KeysetPaginationUtil.encodeCursor(slice.getContent().get(slice.getNumberOfElements() - 1).getId())
+            : null;
+        Slice<AuctionDTO> page = slice.map(auctionMapper::toDto);
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            page,
+            nextCursor
         );
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
     /**
-     * {@code GET  /auctions} : get all the auctions.
+     * {@code SEARCH  /_search/auctions?q=:query} : search the auctions whose description contains any word of the query.
+     * <p>
+     * The search is served from the in-memory index, the best matches first.
      *
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of auctions in body.
+     * @param query the words to search, case and accents are ignored.
+     * @param pageable the pagination information, the sort is ignored.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the page of matching auctions in body.
      */
-    @GetMapping("/auctions")
-    public List<Auction> getAllAuctions() {
-        log.debug("REST request to get all Auctions");
-        return auctionRepository.findAll();
+    @GetMapping("/_search/auctions")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<List<AuctionDTO>> searchAuctions(
+        @RequestParam("q") String query,
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+    ) {
+        log.debug("REST request to search for a page of Auctions for query {}", query);
+        Page<AuctionDTO> page = auctionSearchIndex.search(query, pageable);
+        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
+    }
+
+    /**
+     * {@code GET  /auctions/export} : stream all the auctions as newline-delimited JSON.
+     * <p>
+     * The export is gzip-compressed when the client sends {@code Accept-Encoding: gzip}.
+     *
+     * @param request the current request.
+     * @param response the response the auctions are written to.
+     * @throws IOException if the response cannot be written.
+     */
+    @GetMapping(value = "/auctions/export", produces = ExportService.NDJSON_MEDIA_TYPE)
+    @Transactional(readOnly = true)
+    public void exportAuctions(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export all Auctions");
+        try (OutputStream out = ExportStreams.open(request, response, ExportService.NDJSON_MEDIA_TYPE, "auctions.ndjson")) {
+            exportService.exportAuctions(out);
+        }
     }
 
     /**
      * {@code GET  /auctions/:id} : get the "id" auction.
      *
      * @param id the id of the auction to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the auction, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the {@code ETag} of the auction held by the client, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, the {@code ETag} and with body the auction,
+     * or with status {@code 304 (Not Modified)} and no body if the client holds the current version,
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/auctions/{id}")
-    public ResponseEntity<Auction> getAuction(@PathVariable Long id) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<AuctionDTO> getAuction(
+        @PathVariable Long id,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         log.debug("REST request to get Auction : {}", id);
-        Optional<Auction> auction = auctionRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(auction);
+        Auction auction = auctionRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        String eTag = ETagUtil.toETag(auction.getVersion());
+        if (ETagUtil.matchesIfNoneMatch(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(auctionMapper.toDto(auction));
+    }
+
+    /**
+     * {@code GET  /auctions/:id/highest-bid} : get the current highest bid of the "id" auction, served from the bid book.
+     *
+     * @param id the id of the auction.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the highest bid, or with status {@code 404 (Not Found)} if nobody has bid yet.
+     */
+    @GetMapping("/auctions/{id}/highest-bid")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<Double> getHighestBid(@PathVariable Long id) {
+        log.debug("REST request to get the highest bid of Auction : {}", id);
+        OptionalDouble highestBid = bidBook.getHighestBid(id);
+        return ResponseUtil.wrapOrNotFound(highestBid.isPresent() ? Optional.of(highestBid.getAsDouble()) : Optional.empty());
+    }
+
+    /**
+     * {@code GET  /auctions/:id/proxy-bid} : get the proxy bid of the current user on the "id" auction.
+     *
+     * @param id the id of the auction.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the proxy bid, or with status {@code 404 (Not Found)} if the user has none.
+     */
+    @GetMapping("/auctions/{id}/proxy-bid")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<ProxyBidDTO> getProxyBid(@PathVariable Long id) {
+        log.debug("REST request to get the proxy bid on Auction : {}", id);
+        String bidder = currentBidder();
+        OptionalDouble maxAmount = proxyBidding.getMaxAmount(id, bidder);
+        return ResponseUtil.wrapOrNotFound(maxAmount.isPresent() ? Optional.of(toProxyBidDto(id, bidder, maxAmount)) : Optional.empty());
+    }
+
+    /**
+     * {@code PUT  /auctions/:id/proxy-bid} : set the maximum the current user is ready to pay for the "id" auction, the system
+     * bidding the minimum increment on the user's behalf up to it.
+     *
+     * @param id the id of the auction.
+     * @param proxyBid the proxy bid, with its maximum.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the proxy bid with the resulting highest bid,
+     * or with status {@code 400 (Bad Request)} if the maximum is missing, does not beat the highest bid or the maximum set before,
+     * or the auction is closed,
+     * or with status {@code 404 (Not Found)} if the auction does not exist,
+     * or with status {@code 429 (Too Many Requests)} if the user or the auction exceeded the {@code put-proxy-bid} rate limit.
+     */
+    @PutMapping("/auctions/{id}/proxy-bid")
+    @RateLimited("put-proxy-bid")
+    public ResponseEntity<ProxyBidDTO> putProxyBid(@PathVariable Long id, @RequestBody ProxyBidDTO proxyBid) {
+        log.debug("REST request to set the proxy bid on Auction : {}, {}", id, proxyBid);
+        if (proxyBid.getMaxAmount() == null || !(proxyBid.getMaxAmount() > 0)) {
+            throw new BadRequestAlertException("A proxy bid needs a positive maximum", ENTITY_NAME, "maxamountinvalid");
+        }
+        if (!auctionRepository.existsById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        rateLimiter.checkAuction("put-proxy-bid", id);
+        String bidder = currentBidder();
+        try {
+            outbox.offersCreated(proxyBidding.placeProxyBid(id, bidder, proxyBid.getMaxAmount()));
+        } catch (BidTooLowException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "bidtoolow");
+        } catch (AuctionClosedException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "auctionclosed");
+        }
+        return ResponseEntity.ok().body(toProxyBidDto(id, bidder, proxyBidding.getMaxAmount(id, bidder)));
+    }
+
+    /**
+     * {@code GET  /auctions/:id/events} : subscribe to the bids placed on the "id" auction, pushed as Server-Sent Events once committed.
+     * <p>
+     * Each bid is a {@code bid} event, whose id is the id of the offer and whose data is the bid as JSON. Idle connections
+     * receive a comment every {@code application.auction-events.heartbeat-interval}.
+     *
+     * @param id the id of the auction.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the event stream in body, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping(value = "/auctions/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<SseEmitter> getAuctionEvents(@PathVariable Long id) {
+        log.debug("REST request to subscribe to the events of Auction : {}", id);
+        if (!auctionRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        // keeps reverse proxies from buffering the stream
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(auctionEventFeed.subscribe(id));
     }
 
     /**
      * {@code DELETE  /auctions/:id} : delete the "id" auction.
+     * <p>
+     * An auction that has offers is kept, its bids are the record of the auction. The database deletes the
+     * proxy bids of a deleted auction with it.
      *
      * @param id the id of the auction to delete.
-     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}.
+     * @return the {@link ResponseEntity} with status {@code 204 (NO_CONTENT)}, or with status {@code 409 (Conflict)} if the auction has offers.
      */
     @DeleteMapping("/auctions/{id}")
     public ResponseEntity<Void> deleteAuction(@PathVariable Long id) {
         log.debug("REST request to delete Auction : {}", id);
+        // the bids still waiting in the journal are not in the database yet
+        if (bidBook.getHighestBid(id).isPresent()) {
+            throw auctionHasOffers();
+        }
         auctionRepository.deleteById(id);
+        try {
+            auctionRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw auctionHasOffers();
+        }
+        outbox.auctionDeleted(id);
+        // a delete rolled back later on must leave the bids and proxy bids of the auction in place
+        TransactionSynchronizationManager.registerSynchronization(
+            new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bidBook.evict(id);
+                    proxyBidding.evict(id);
+                }
+            }
+        );
+        auctionLifecycle.cancel(id);
+        auctionSearchIndex.remove(id);
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, false, ENTITY_NAME, id.toString()))
             .build();
     }
+
+    private static ResponseStatusException auctionHasOffers() {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "An auction with offers cannot be deleted");
+    }
+
+    private String currentBidder() {
+        return SecurityUtils.getCurrentUserLogin().orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+    }
+
+    private ProxyBidDTO toProxyBidDto(long auctionId, String bidder, OptionalDouble maxAmount) {
+        ProxyBidDTO proxyBid = new ProxyBidDTO();
+        proxyBid.setMaxAmount(maxAmount.isPresent() ? maxAmount.getAsDouble() : null);
+        OptionalDouble highestBid = bidBook.getHighestBid(auctionId);
+        proxyBid.setHighestBid(highestBid.isPresent() ? highestBid.getAsDouble() : null);
+        proxyBid.setLeading(bidder.equals(bidBook.getHighestBidder(auctionId)));
+        return proxyBid;
+    }
+
+    private void updateEndDate(Auction auction, Instant endDate) {
+        if (Objects.equals(auction.getEndDate(), endDate)) {
+            return;
+        }
+        if (auction.getStatus() != AuctionStatus.OPEN || bidBook.getStatus(auction.getId()) != AuctionStatus.OPEN) {
+            throw new BadRequestAlertException("The end date of a closed auction cannot be changed", ENTITY_NAME, "auctionclosed");
+        }
+        auction.setEndDate(endDate);
+        auctionLifecycle.schedule(auction.getId(), endDate);
+    }
+
+    private ResponseEntity<Auction> saveAuction(Auction auction) throws URISyntaxException {
+        Auction result = auctionRepository.save(auction);
+        auctionSearchIndex.index(result.getId(), result.getAuctionDescription());
+        outbox.auctionChanged(ChangeType.CREATED, result);
+        if (result.getEndDate() != null) {
+            auctionLifecycle.schedule(result.getId(), result.getEndDate());
+        }
+        return ResponseEntity
+            .created(new URI("/api/auctions/" + result.getId()))
+            .eTag(ETagUtil.toETag(result.getVersion()))
+            .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
+            .body(result);
+    }
 }
@@ -1,21 +1,60 @@
 package at.jku.web.rest;
 
+import at.jku.domain.Auction;
 import at.jku.domain.Offer;
+import at.jku.domain.enumeration.ChangeType;
+import at.jku.repository.AuctionRepository;
 import at.jku.repository.OfferRepository;
+import at.jku.security.SecurityUtils;
+import at.jku.security.ratelimit.RateLimited;
+import at.jku.security.ratelimit.RateLimiter;
+import at.jku.service.ExportService;
+import at.jku.service.OfferBatchService;
+import at.jku.service.bid.AuctionClosedException;
+import at.jku.service.bid.BidBook;
+import at.jku.service.bid.BidTooLowException;
+import at.jku.service.bid.ProxyBidding;
+import at.jku.service.bid.journal.BidJournal;
+import at.jku.service.dto.OfferBatchResultDTO;
+import at.jku.service.dto.OfferDTO;
+import at.jku.service.mapper.OfferMapper;
+import at.jku.service.outbox.Outbox;
+import at.jku.web.idempotency.IdempotentRequests;
 import at.jku.web.rest.errors.BadRequestAlertException;
+import at.jku.web.rest.util.ETagUtil;
+import at.jku.web.rest.util.ExportStreams;
+import at.jku.web.rest.util.KeysetPaginationUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import tech.jhipster.web.util.HeaderUtil;
-import tech.jhipster.web.util.ResponseUtil;
 
 /**
  * REST controller for managing {@link at.jku.domain.Offer}.
@@ -29,48 +68,141 @@ public class OfferResource {
 
     private static final String ENTITY_NAME = "offer";
 
+    private static final List<String> ALLOWED_ORDERED_PROPERTIES = Collections.unmodifiableList(Arrays.asList("id", "offerValue"));
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
     private final OfferRepository offerRepository;
 
-    public OfferResource(OfferRepository offerRepository) {
+    private final AuctionRepository auctionRepository;
+
+    private final BidBook bidBook;
+
+    private final ProxyBidding proxyBidding;
+
+    private final ExportService exportService;
+
+    private final OfferBatchService offerBatchService;
+
+    private final OfferMapper offerMapper;
+
+    private final RateLimiter rateLimiter;
+
+    private final IdempotentRequests idempotentRequests;
+
+    private final Outbox outbox;
+
+    // null unless application.bid-journal.enabled is set
+    private final BidJournal bidJournal;
+
+    public OfferResource(
+        OfferRepository offerRepository,
+        AuctionRepository auctionRepository,
+        BidBook bidBook,
+        ProxyBidding proxyBidding,
+        ExportService exportService,
+        OfferBatchService offerBatchService,
+        OfferMapper offerMapper,
+        RateLimiter rateLimiter,
+        IdempotentRequests idempotentRequests,
+        Outbox outbox,
+        ObjectProvider<BidJournal> bidJournal
+    ) {
         this.offerRepository = offerRepository;
+        this.auctionRepository = auctionRepository;
+        this.bidBook = bidBook;
+        this.proxyBidding = proxyBidding;
+        this.exportService = exportService;
+        this.offerBatchService = offerBatchService;
+        this.offerMapper = offerMapper;
+        this.rateLimiter = rateLimiter;
+        this.idempotentRequests = idempotentRequests;
+        this.outbox = outbox;
+        this.bidJournal = bidJournal.getIfAvailable();
     }
 
     /**
-     * {@code POST  /offers} : Create a new offer.
+     * {@code POST  /offers} : Create a new offer, placed by the current user, which the proxy bids on its auction answer.
+     * <p>
+     * A request repeating the {@code Idempotency-Key} of an earlier one gets its response back instead of placing the offer twice.
+     * With the bid journal enabled, a bid is acknowledged once in the journal, and found by the reads once written to the database.
      *
+     * @param idempotencyKey the key identifying the request across its retries, absent if it is not retried.
      * @param offer the offer to create.
-     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new offer, or with status {@code 400 (Bad Request)} if the offer has already an ID.
+     * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new offer,
+     * or with status {@code 400 (Bad Request)} if the offer has already an ID, its auction does not exist, or it does not beat the
+     * highest bid of its auction or its auction is closed, or with status {@code 429 (Too Many Requests)} if the user or the
+     * auction exceeded the {@code create-offer} rate limit, or with status {@code 422 (Unprocessable Entity)} if the idempotency
+     * key was used with another offer.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("/offers")
-    public ResponseEntity<Offer> createOffer(@RequestBody Offer offer) throws URISyntaxException {
+    @RateLimited("create-offer")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<Offer> createOffer(
+        @RequestHeader(value = IdempotentRequests.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+        @RequestBody Offer offer
+    ) throws URISyntaxException {
         log.debug("REST request to save Offer : {}", offer);
         if (offer.getId() != null) {
             throw new BadRequestAlertException("A new offer cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        Offer result = offerRepository.save(offer);
+        checkAuctionRate("create-offer", offer);
+        return idempotentRequests.handle("create-offer", idempotencyKey, offer, tookEffect -> placeOffer(offer, tookEffect));
+    }
+
+    /**
+     * {@code POST  /offers/batch} : Create many offers at once.
+     * <p>
+     * The body is a JSON array of offers, read as a stream and persisted in chunks of {@code application.offer-batch.chunk-size}
+     * offers, each chunk in its own transaction.
+     *
+     * @param request the request holding the JSON array of offers.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the outcome of every offer, in the order they were sent,
+     * or with status {@code 400 (Bad Request)} if the body is not a JSON array,
+     * or with status {@code 429 (Too Many Requests)} if the user exceeded the {@code create-offers} rate limit.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping(value = "/offers/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimited("create-offers")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ResponseEntity<List<OfferBatchResultDTO>> createOffers(HttpServletRequest request) throws IOException {
+        log.debug("REST request to save a batch of Offers");
+        List<OfferBatchResultDTO> results;
+        try {
+            results = offerBatchService.ingest(request.getInputStream());
+        } catch (JsonProcessingException e) {
+            throw new BadRequestAlertException("Invalid batch of offers: " + e.getOriginalMessage(), ENTITY_NAME, "batchinvalid");
+        }
+        long created = results.stream().filter(OfferBatchResultDTO::isCreated).count();
         return ResponseEntity
-            .created(new URI("/api/offers/" + result.getId()))
-            .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
-            .body(result);
+            .ok()
+            .headers(HeaderUtil.createAlert(applicationName, created + " offers created out of " + results.size(), String.valueOf(created)))
+            .body(results);
     }
 
     /**
      * {@code PUT  /offers/:id} : Updates an existing offer.
      *
      * @param id the id of the offer to save.
+     * @param ifMatch the {@code ETag} of the offer the update is based on, absent for an unconditional update.
      * @param offer the offer to update.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated offer,
-     * or with status {@code 400 (Bad Request)} if the offer is not valid,
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, the new {@code ETag} and with body the updated offer,
+     * or with status {@code 400 (Bad Request)} if the offer is not valid, does not beat the highest bid of its auction
+     * or its auction is closed,
+     * or with status {@code 412 (Precondition Failed)} if the offer was modified since the {@code If-Match} version,
+     * or with status {@code 429 (Too Many Requests)} if the user or the auction exceeded the {@code update-offer} rate limit,
      * or with status {@code 500 (Internal Server Error)} if the offer couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/offers/{id}")
-    public ResponseEntity<Offer> updateOffer(@PathVariable(value = "id", required = false) final Long id, @RequestBody Offer offer)
-        throws URISyntaxException {
+    @RateLimited("update-offer")
+    public ResponseEntity<Offer> updateOffer(
+        @PathVariable(value = "id", required = false) final Long id,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+        @RequestBody Offer offer
+    ) throws URISyntaxException {
         log.debug("REST request to update Offer : {}, {}", id, offer);
         if (offer.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
@@ -79,13 +211,21 @@ public class OfferResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!offerRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
-        }
-
-        Offer result = offerRepository.save(offer);
+        // the loaded offer is modified in place, where a merge would have selected it once more
+        Offer result = offerRepository
+            .findById(id)
+            .orElseThrow(() -> new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
+        ETagUtil.checkIfMatch(ifMatch, ETagUtil.toETag(result.getVersion()), ENTITY_NAME);
+        checkAuctionRate("update-offer", offer);
+        Long previousAuctionId = result.getOfferName() != null ? result.getOfferName().getId() : null;
+        Double previousValue = result.getOfferValue();
+        result.setOfferValue(offer.getOfferValue());
+        result.setOfferName(auctionOf(offer));
+        updateBid(id, previousAuctionId, previousValue, result);
+        outbox.offerChanged(ChangeType.UPDATED, result);
         return ResponseEntity
             .ok()
+            .eTag(ETagUtil.toETag(result.getVersion()))
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, offer.getId().toString()))
             .body(result);
     }
@@ -94,16 +234,23 @@ public class OfferResource {
      * {@code PATCH  /offers/:id} : Partial updates given fields of an existing offer, field will ignore if it is null
      *
      * @param id the id of the offer to save.
+     * @param ifMatch the {@code ETag} of the offer the update is based on, absent for an unconditional update.
      * @param offer the offer to update.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated offer,
-     * or with status {@code 400 (Bad Request)} if the offer is not valid,
-     * or with status {@code 404 (Not Found)} if the offer is not found,
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, the new {@code ETag} and with body the updated offer,
+     * or with status {@code 400 (Bad Request)} if the offer is not valid, does not beat the highest bid of its auction
+     * or its auction is closed,
+     * or with status {@code 412 (Precondition Failed)} if the offer was modified since the {@code If-Match} version,
+     * or with status {@code 429 (Too Many Requests)} if the user or the auction exceeded the {@code update-offer} rate limit,
      * or with status {@code 500 (Internal Server Error)} if the offer couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PatchMapping(value = "/offers/{id}", consumes = { "application/json", "application/merge-patch+json" })
-    public ResponseEntity<Offer> partialUpdateOffer(@PathVariable(value = "id", required = false) final Long id, @RequestBody Offer offer)
-        throws URISyntaxException {
+    @RateLimited("update-offer")
+    public ResponseEntity<Offer> partialUpdateOffer(
+        @PathVariable(value = "id", required = false) final Long id,
+        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+        @RequestBody Offer offer
+    ) throws URISyntaxException {
         log.debug("REST request to partial update Offer partially : {}, {}", id, offer);
         if (offer.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
@@ -112,49 +259,140 @@ public class OfferResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        if (!offerRepository.existsById(id)) {
-            throw new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound");
+        Offer result = offerRepository
+            .findById(id)
+            .orElseThrow(() -> new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
+        ETagUtil.checkIfMatch(ifMatch, ETagUtil.toETag(result.getVersion()), ENTITY_NAME);
+        checkAuctionRate("update-offer", result);
+        Long auctionId = result.getOfferName() != null ? result.getOfferName().getId() : null;
+        Double previousValue = result.getOfferValue();
+        if (offer.getOfferValue() != null) {
+            result.setOfferValue(offer.getOfferValue());
         }
+        updateBid(id, auctionId, previousValue, result);
+        outbox.offerChanged(ChangeType.UPDATED, result);
 
-        Optional<Offer> result = offerRepository
-            .findById(offer.getId())
-            .map(existingOffer -> {
-                if (offer.getOfferValue() != null) {
-                    existingOffer.setOfferValue(offer.getOfferValue());
-                }
-
-                return existingOffer;
-            })
-            .map(offerRepository::save);
+        return ResponseEntity
+            .ok()
+            .eTag(ETagUtil.toETag(result.getVersion()))
+            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, offer.getId().toString()))
+            .body(result);
+    }
 
-        return ResponseUtil.wrapOrNotFound(
-            result,
-            HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, offer.getId().toString())
+    /**
+     * {@code GET  /offers} : get a page of the offers, ordered by id or by value.
+     * <p>
+     * When sorted on {@code offerValue}, the id breaks ties and offers without a value are not listed.
+     * The offers are read along with their auction in a single statement.
+     *
+     * @param after the cursor of the last offer of the previous page, absent for the first page.
+     * @param pageable the size and the sort of the page, the page number is ignored.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of offers in body,
+     * or with status {@code 400 (Bad Request)} if the page is sorted on another property than {@code id} or {@code offerValue}.
+     */
+    @GetMapping("/offers")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<OfferDTO>> getAllOffers(
+        @RequestParam(value = KeysetPaginationUtil.AFTER_PARAM, required = false) String after,
+        @org.springdoc.api.annotations.ParameterObject Pageable pageable
+    ) {
+        log.debug("REST request to get a page of Offers after {}", after);
+        if (!pageable.getSort().stream().map(Sort.Order::getProperty).allMatch(ALLOWED_ORDERED_PROPERTIES::contains)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Sort.Order valueOrder = pageable.getSort().getOrderFor("offerValue");
+        Slice<Offer> slice;
+        String nextCursor = null;
+        if (valueOrder != null) {
+            Sort.Direction direction = valueOrder.getDirection();
+            Pageable seek = PageRequest.of(0, pageable.getPageSize(), Sort.by(direction, "offerValue", "id"));
+            if (after == null) {
+                slice = offerRepository.findAllByOfferValueIsNotNull(seek);
+            } else {
+                String[] keys = KeysetPaginationUtil.decodeCursor(after, 2, ENTITY_NAME);
+                Double offerValue;
+                Long id;
+                try {
+                    offerValue = Double.valueOf(keys[0]);
+                    id = Long.valueOf(keys[1]);
+                } catch (NumberFormatException e) {
+                    throw new BadRequestAlertException("Invalid pagination cursor", ENTITY_NAME, "cursorinvalid");
+                }
+                slice =
+                    direction.isAscending()
+                        ? offerRepository.findAllAfterOfferValue(offerValue, id, seek)
+                        : offerRepository.findAllBeforeOfferValue(offerValue, id, seek);
+            }
+            if (slice.hasContent()) {
+                Offer last = slice.getContent().get(slice.getNumberOfElements() - 1);
+                nextCursor = KeysetPaginationUtil.encodeCursor(last.getOfferValue(), last.getId());
+            }
+        } else {
+            Sort.Direction direction = Optional
+                .ofNullable(pageable.getSort().getOrderFor("id"))
+                .map(Sort.Order::getDirection)
+                .orElse(Sort.Direction.ASC);
+            Pageable seek = PageRequest.of(0, pageable.getPageSize(), Sort.by(direction, "id"));
+            if (after == null) {
+                slice = offerRepository.findAllByIdGreaterThan(Long.MIN_VALUE, seek);
+            } else if (direction.isAscending()) {
+                slice = offerRepository.findAllByIdGreaterThan(KeysetPaginationUtil.decodeIdCursor(after, ENTITY_NAME), seek);
+            } else {
+                slice = offerRepository.findAllByIdLessThan(KeysetPaginationUtil.decodeIdCursor(after, ENTITY_NAME), seek);
+            }
+            if (slice.hasContent()) {
+                nextCursor = KeysetPaginationUtil.encodeCursor(slice.getContent().get(slice.getNumberOfElements() - 1).getId());
+            }
+        }
+        Slice<OfferDTO> page = slice.map(offerMapper::toDto);
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetPaginationHttpHeaders(
+            ServletUriComponentsBuilder.fromCurrentRequest(),
+            page,
+            nextCursor
         );
+        return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
     /**
-     * {@code GET  /offers} : get all the offers.
+     * {@code GET  /offers/export} : stream all the offers as newline-delimited JSON.
+     * <p>
+     * The export is gzip-compressed when the client sends {@code Accept-Encoding: gzip}.
      *
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of offers in body.
+     * @param request the current request.
+     * @param response the response the offers are written to.
+     * @throws IOException if the response cannot be written.
      */
-    @GetMapping("/offers")
-    public List<Offer> getAllOffers() {
-        log.debug("REST request to get all Offers");
-        return offerRepository.findAll();
+    @GetMapping(value = "/offers/export", produces = ExportService.NDJSON_MEDIA_TYPE)
+    @Transactional(readOnly = true)
+    public void exportOffers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export all Offers");
+        try (OutputStream out = ExportStreams.open(request, response, ExportService.NDJSON_MEDIA_TYPE, "offers.ndjson")) {
+            exportService.exportOffers(out);
+        }
     }
 
     /**
      * {@code GET  /offers/:id} : get the "id" offer.
      *
      * @param id the id of the offer to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the offer, or with status {@code 404 (Not Found)}.
+     * @param ifNoneMatch the {@code ETag} of the offer held by the client, if any.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, the {@code ETag} and with body the offer,
+     * or with status {@code 304 (Not Modified)} and no body if the client holds the current version,
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/offers/{id}")
-    public ResponseEntity<Offer> getOffer(@PathVariable Long id) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<OfferDTO> getOffer(
+        @PathVariable Long id,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         log.debug("REST request to get Offer : {}", id);
-        Optional<Offer> offer = offerRepository.findById(id);
-        return ResponseUtil.wrapOrNotFound(offer);
+        Offer offer = offerRepository.findById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        String eTag = ETagUtil.toETag(offer.getVersion());
+        if (ETagUtil.matchesIfNoneMatch(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(offerMapper.toDto(offer));
     }
 
     /**
@@ -166,10 +404,92 @@ public class OfferResource {
     @DeleteMapping("/offers/{id}")
     public ResponseEntity<Void> deleteOffer(@PathVariable Long id) {
         log.debug("REST request to delete Offer : {}", id);
-        offerRepository.deleteById(id);
+        offerRepository
+            .findById(id)
+            .ifPresent(offer -> {
+                offerRepository.delete(offer);
+                outbox.offerDeleted(offer);
+                if (offer.getOfferName() != null) {
+                    bidBook.remove(offer.getOfferName().getId(), id);
+                }
+            });
         return ResponseEntity
             .noContent()
             .headers(HeaderUtil.createEntityDeletionAlert(applicationName, false, ENTITY_NAME, id.toString()))
             .build();
     }
+
+    private void checkAuctionRate(String endpoint, Offer offer) {
+        if (offer.getOfferName() != null && offer.getOfferName().getId() != null) {
+            rateLimiter.checkAuction(endpoint, offer.getOfferName().getId());
+        }
+    }
+
+    private void updateBid(long id, Long previousAuctionId, Double previousValue, Offer offer) {
+        try {
+            bidBook.update(
+                id,
+                previousAuctionId,
+                previousValue,
+                offer,
+                updated -> {
+                    // flushed now, so the response carries the new version and a concurrent update fails before the bid book is touched
+                    offerRepository.flush();
+                    return updated;
+                }
+            );
+        } catch (BidTooLowException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "bidtoolow");
+        } catch (AuctionClosedException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "auctionclosed");
+        }
+    }
+
+    /**
+     * The auction an offer is sent with carries no version, so Hibernate would take it for a new one: the offer goes
+     * on the auction read by its id instead.
+     */
+    private Auction auctionOf(Offer offer) {
+        if (offer.getOfferName() == null) {
+            return null;
+        }
+        Long auctionId = offer.getOfferName().getId();
+        return Optional
+            .ofNullable(auctionId)
+            .flatMap(auctionRepository::findById)
+            .orElseThrow(() -> new BadRequestAlertException("The auction of the offer does not exist", ENTITY_NAME, "auctionnotfound"));
+    }
+
+    /**
+     * A bid placed through the journal takes effect once acknowledged, whatever becomes of the transaction of the
+     * request: its response is passed to {@code tookEffect} right away, for its idempotency key not to place it twice.
+     */
+    private ResponseEntity<Offer> placeOffer(Offer offer, Consumer<ResponseEntity<Offer>> tookEffect) throws URISyntaxException {
+        offer.setOfferName(auctionOf(offer));
+        offer.setBidder(SecurityUtils.getCurrentUserLogin().orElse(null));
+        boolean journaled = bidJournal != null && bidJournal.accepts(offer);
+        Offer result;
+        try {
+            result = journaled ? bidJournal.placeBid(offer) : bidBook.placeBid(offer, offerRepository::save);
+        } catch (BidTooLowException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "bidtoolow");
+        } catch (AuctionClosedException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "auctionclosed");
+        }
+        ResponseEntity<Offer> response = ResponseEntity
+            .created(new URI("/api/offers/" + result.getId()))
+            .eTag(ETagUtil.toETag(result.getVersion()))
+            .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
+            .body(result);
+        if (journaled) {
+            tookEffect.accept(response);
+        } else {
+            // the journal records the creation once it writes the offer to the database
+            outbox.offerChanged(ChangeType.CREATED, result);
+        }
+        if (result.getOfferName() != null && result.getOfferName().getId() != null) {
+            outbox.offersCreated(proxyBidding.respond(result.getOfferName().getId()));
+        }
+        return response;
+    }
 }
@@ -0,0 +1,73 @@
+package at.jku.web.rest.util;
+
+import at.jku.web.rest.errors.PreconditionFailedException;
+
+/**
+ * Utility class for the conditional requests of RFC 9110 based on entity tags.
+ * <p>
+ * The entity tag of an entity is its {@code @Version}, as a strong tag. Writes honour {@code If-Match}, so a client
+ * only overwrites the version it has read, and reads honour {@code If-None-Match}, so a client holding the current
+ * version gets a {@code 304 (Not Modified)} without the entity being serialized.
+ */
+public final class ETagUtil {
+
+    private static final String ANY = "*";
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETagUtil() {}
+
+    /**
+     * Build the strong entity tag of a version.
+     *
+     * @param version the version of the entity.
+     * @return the quoted entity tag.
+     */
+    public static String toETag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Tell whether an {@code If-None-Match} header lists an entity tag, with the weak comparison.
+     *
+     * @param ifNoneMatch the value of the header, may be {@code null}.
+     * @param eTag the current entity tag.
+     * @return {@code true} if the client already holds the current representation.
+     */
+    public static boolean matchesIfNoneMatch(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (ANY.equals(tag) || eTag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check the {@code If-Match} header of a write against an entity tag, with the strong comparison.
+     *
+     * @param ifMatch the value of the header, may be {@code null} in which case the write is unconditional.
+     * @param eTag the current entity tag.
+     * @param entityName the name of the entity, for the error.
+     * @throws PreconditionFailedException if the header does not list the current entity tag.
+     */
+    public static void checkIfMatch(String ifMatch, String eTag, String entityName) {
+        if (ifMatch == null) {
+            return;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (ANY.equals(tag) || eTag.equals(tag)) {
+                return;
+            }
+        }
+        throw new PreconditionFailedException("The " + entityName + " was modified since it was read", entityName);
+    }
+}
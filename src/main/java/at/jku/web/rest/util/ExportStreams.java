@@ -0,0 +1,47 @@
+package at.jku.web.rest.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Utility class for streaming a table export straight to the servlet response.
+ */
+public final class ExportStreams {
+
+    private static final String GZIP = "gzip";
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private ExportStreams() {}
+
+    /**
+     * Prepare the response for an export and open its body.
+     * <p>
+     * The body is gzip-compressed when the client accepts it. The caller must close the returned stream
+     * to finish the compression.
+     *
+     * @param request the current request.
+     * @param response the current response.
+     * @param contentType the media type of the export.
+     * @param filename the name the export is saved under by the client.
+     * @return the stream of the response body.
+     * @throws IOException if the response cannot be written.
+     */
+    public static OutputStream open(HttpServletRequest request, HttpServletResponse response, String contentType, String filename)
+        throws IOException {
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains(GZIP)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            return new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE);
+        }
+        return response.getOutputStream();
+    }
+}
@@ -0,0 +1,104 @@
+package at.jku.web.rest.util;
+
+import at.jku.web.rest.errors.BadRequestAlertException;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Base64;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset (cursor) pagination.
+ * <p>
+ * A page is requested with an opaque {@code after} token holding the sort keys of the last row of the previous page,
+ * so the database seeks directly to the next row instead of skipping an offset, and no total count is computed.
+ * The next page is advertised in a {@code Link} header, following the format of {@link tech.jhipster.web.util.PaginationUtil}.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final String AFTER_PARAM = "after";
+
+    private static final String KEY_SEPARATOR = ":";
+
+    private static final String HEADER_LINK_FORMAT = "<{0}>; rel=\"{1}\"";
+
+    private KeysetPaginationUtil() {}
+
+    /**
+     * Encode the sort keys of a row into an opaque cursor.
+     *
+     * @param keys the sort keys, most significant first.
+     * @return the cursor.
+     */
+    public static String encodeCursor(Object... keys) {
+        String raw = Stream.of(keys).map(String::valueOf).collect(Collectors.joining(KEY_SEPARATOR));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encodeCursor(Object...)}.
+     *
+     * @param cursor the cursor.
+     * @param keyCount the number of sort keys expected in the cursor.
+     * @param entityName the name of the paginated entity, used for the error alert.
+     * @return the sort keys, most significant first.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the cursor is malformed.
+     */
+    public static String[] decodeCursor(String cursor, int keyCount, String entityName) {
+        try {
+            String[] keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(KEY_SEPARATOR, -1);
+            if (keys.length == keyCount) {
+                return keys;
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through to the bad request below
+        }
+        throw new BadRequestAlertException("Invalid pagination cursor", entityName, "cursorinvalid");
+    }
+
+    /**
+     * Decode a cursor holding a single numeric id.
+     *
+     * @param cursor the cursor.
+     * @param entityName the name of the paginated entity, used for the error alert.
+     * @return the id.
+     * @throws BadRequestAlertException {@code 400 (Bad Request)} if the cursor is malformed.
+     */
+    public static long decodeIdCursor(String cursor, String entityName) {
+        try {
+            return Long.parseLong(decodeCursor(cursor, 1, entityName)[0]);
+        } catch (NumberFormatException e) {
+            throw new BadRequestAlertException("Invalid pagination cursor", entityName, "cursorinvalid");
+        }
+    }
+
+    /**
+     * Generate the pagination headers for a keyset page.
+     *
+     * @param uriBuilder the builder of the current request URI.
+     * @param slice the page of rows.
+     * @param nextCursor the cursor of the next page, only used if the slice has a next page.
+     * @param <T> the type of the rows.
+     * @return the {@link HttpHeaders} with a {@code Link} header.
+     */
+    public static <T> HttpHeaders generateKeysetPaginationHttpHeaders(UriComponentsBuilder uriBuilder, Slice<T> slice, String nextCursor) {
+        StringBuilder link = new StringBuilder();
+        if (slice.hasNext()) {
+            link
+                .append(prepareLink(uriBuilder.cloneBuilder().replaceQueryParam(AFTER_PARAM, nextCursor), "next"))
+                .append(",");
+        }
+        link.append(prepareLink(uriBuilder.cloneBuilder().replaceQueryParam(AFTER_PARAM), "first"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.LINK, link.toString());
+        return headers;
+    }
+
+    private static String prepareLink(UriComponentsBuilder uriBuilder, String relType) {
+        String uri = uriBuilder.replaceQueryParam("page").toUriString().replace(",", "%2C").replace(";", "%3B");
+        return MessageFormat.format(HEADER_LINK_FORMAT, uri, relType);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Utilities used by Spring MVC REST controllers.
+ */
+package at.jku.web.rest.util;
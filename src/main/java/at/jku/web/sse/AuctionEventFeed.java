@@ -0,0 +1,263 @@
+package at.jku.web.sse;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.service.bid.BidPlacedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Live feed of the bids placed on every auction, pushed to its subscribers as Server-Sent Events.
+ * <p>
+ * A bid is pushed once its transaction has committed. It is serialized once and appended to the bounded buffer of
+ * every subscriber of its auction, which is drained on a bounded pool of sender threads of its own, so a slow client
+ * never holds up the thread committing the bid nor the tasks of the application. A subscriber whose buffer overflows,
+ * or whose drain finds the pool and its queue full, is disconnected, its client reconnects and catches up from the
+ * current state of the auction.
+ */
+@Component
+public class AuctionEventFeed {
+
+    public static final String BID_EVENT_NAME = "bid";
+
+    public static final String SUBSCRIBERS_METER_NAME = "auction.events.subscribers";
+
+    public static final String SLOW_CONSUMERS_METER_NAME = "auction.events.slow-consumers";
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final Logger log = LoggerFactory.getLogger(AuctionEventFeed.class);
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final Executor executor;
+
+    private final Counter slowConsumerCounter;
+
+    private final int bufferSize;
+
+    private final long timeoutMillis;
+
+    @Autowired
+    public AuctionEventFeed(MeterRegistry registry, ApplicationProperties applicationProperties) {
+        this(senders(applicationProperties.getAuctionEvents()), registry, applicationProperties);
+    }
+
+    AuctionEventFeed(Executor executor, MeterRegistry registry, ApplicationProperties applicationProperties) {
+        this.executor = executor;
+        this.bufferSize = applicationProperties.getAuctionEvents().getBufferSize();
+        this.timeoutMillis = applicationProperties.getAuctionEvents().getTimeout().toMillis();
+        Gauge
+            .builder(SUBSCRIBERS_METER_NAME, subscriberCount, AtomicInteger::get)
+            .description("Number of clients subscribed to the events of an auction")
+            .baseUnit("connections")
+            .register(registry);
+        this.slowConsumerCounter =
+            Counter
+                .builder(SLOW_CONSUMERS_METER_NAME)
+                .description("Number of subscribers disconnected because they did not keep up with the events")
+                .baseUnit("connections")
+                .register(registry);
+    }
+
+    /**
+     * Subscribe to the events of an auction.
+     *
+     * @param auctionId the id of the auction.
+     * @return the emitter the events are pushed to.
+     */
+    public SseEmitter subscribe(long auctionId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(auctionId, emitter);
+        subscribers.compute(
+            auctionId,
+            (id, auctionSubscribers) -> {
+                Set<Subscriber> result = auctionSubscribers != null ? auctionSubscribers : ConcurrentHashMap.newKeySet();
+                result.add(subscriber);
+                return result;
+            }
+        );
+        subscriberCount.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        log.debug("Subscribed to the events of Auction : {}", auctionId);
+        return emitter;
+    }
+
+    /**
+     * Push a committed bid to the subscribers of its auction.
+     *
+     * @param event the bid.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBidPlaced(BidPlacedEvent event) {
+        Set<Subscriber> auctionSubscribers = subscribers.get(event.getAuctionId());
+        if (auctionSubscribers == null) {
+            return;
+        }
+        Set<DataWithMediaType> message = SseEmitter
+            .event()
+            .id(String.valueOf(event.getOfferId()))
+            .name(BID_EVENT_NAME)
+            .data(event, MediaType.APPLICATION_JSON)
+            .build();
+        auctionSubscribers.forEach(subscriber -> subscriber.enqueue(message));
+    }
+
+    /**
+     * Send a comment to every subscriber, so that idle connections are neither closed by proxies nor left open
+     * after their client went away.
+     */
+    @Scheduled(fixedDelayString = "${application.auction-events.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        subscribers.values().forEach(auctionSubscribers -> auctionSubscribers.forEach(subscriber -> subscriber.enqueue(HEARTBEAT)));
+    }
+
+    /**
+     * Get the number of open subscriptions.
+     *
+     * @return the number of subscribers over all auctions.
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(auctionSubscribers -> auctionSubscribers.forEach(subscriber -> subscriber.emitter.complete()));
+        if (executor instanceof ExecutorService) {
+            ExecutorService senders = (ExecutorService) executor;
+            senders.shutdown();
+            try {
+                if (!senders.awaitTermination(5, TimeUnit.SECONDS)) {
+                    senders.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static ExecutorService senders(ApplicationProperties.AuctionEvents properties) {
+        // each subscriber has at most one drain queued or running, the queue bounds the subscribers waiting for a sender
+        return new ThreadPoolExecutor(
+            properties.getSenderPoolSize(),
+            properties.getSenderPoolSize(),
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(properties.getSenderQueueCapacity()),
+            new CustomizableThreadFactory("auction-events-sender-")
+        );
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.computeIfPresent(
+            subscriber.auctionId,
+            (id, auctionSubscribers) -> {
+                auctionSubscribers.remove(subscriber);
+                return auctionSubscribers.isEmpty() ? null : auctionSubscribers;
+            }
+        );
+        subscriberCount.decrementAndGet();
+        log.debug("Unsubscribed from the events of Auction : {}", subscriber.auctionId);
+    }
+
+    private final class Subscriber {
+
+        private final long auctionId;
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<Set<DataWithMediaType>> buffer = new ArrayBlockingQueue<>(bufferSize);
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(long auctionId, SseEmitter emitter) {
+            this.auctionId = auctionId;
+            this.emitter = emitter;
+        }
+
+        private void enqueue(Set<DataWithMediaType> message) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(message)) {
+                disconnectSlowConsumer();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                    disconnectSlowConsumer();
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    Set<DataWithMediaType> message;
+                    while ((message = buffer.poll()) != null) {
+                        send(message);
+                    }
+                    draining.set(false);
+                    // an event enqueued after the last poll but before the flag was reset would otherwise be stranded
+                } while (!buffer.isEmpty() && draining.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                // the client went away, the container completes the emitter
+                draining.set(false);
+                buffer.clear();
+                unsubscribe(this);
+            }
+        }
+
+        private void send(Set<DataWithMediaType> message) throws IOException {
+            synchronized (emitter) {
+                for (DataWithMediaType data : message) {
+                    emitter.send(data.getData(), data.getMediaType());
+                }
+            }
+        }
+
+        private void disconnectSlowConsumer() {
+            log.debug("Disconnecting a slow subscriber of Auction : {}", auctionId);
+            slowConsumerCounter.increment();
+            buffer.clear();
+            unsubscribe(this);
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Server-Sent Events feeds.
+ */
+package at.jku.web.sse;
@@ -1,7 +1,8 @@
 import axios from 'axios';
 import { createAsyncThunk, isFulfilled, isPending, isRejected } from '@reduxjs/toolkit';
 
-import { cleanEntity } from 'app/shared/util/entity-utils';
+import { cleanEntity, getNextPageUrl } from 'app/shared/util/entity-utils';
+import { MAX_ITEMS_PER_PAGE } from 'app/shared/util/pagination.constants';
 import { IQueryParams, createEntitySlice, EntityState, serializeAxiosError } from 'app/shared/reducers/reducer.utils';
 import { IAuction, defaultValue } from 'app/shared/model/auction.model';
 
@@ -19,8 +20,17 @@ const apiUrl = 'api/auctions';
 // Actions
 
 export const getEntities = createAsyncThunk('auction/fetch_entity_list', async ({ page, size, sort }: IQueryParams) => {
-  const requestUrl = `${apiUrl}?cacheBuster=${new Date().getTime()}`;
-  return axios.get<IAuction[]>(requestUrl);
+  // the list is paginated by cursor, its pages are read to the last one
+  const requestUrl = `${apiUrl}?size=${MAX_ITEMS_PER_PAGE}&cacheBuster=${new Date().getTime()}`;
+  const firstPage = await axios.get<IAuction[]>(requestUrl);
+  let data = firstPage.data;
+  let nextPageUrl = getNextPageUrl(firstPage.headers?.link);
+  while (nextPageUrl) {
+    const nextPage = await axios.get<IAuction[]>(nextPageUrl);
+    data = data.concat(nextPage.data);
+    nextPageUrl = getNextPageUrl(nextPage.headers?.link);
+  }
+  return data === firstPage.data ? firstPage : { ...firstPage, data };
 });
 
 export const getEntity = createAsyncThunk(
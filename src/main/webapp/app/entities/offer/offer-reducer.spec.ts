@@ -193,6 +193,19 @@ describe('Entities reducer tests', () => {
       expect(store.getActions()[1]).toMatchObject(expectedActions[1]);
     });
 
+    it('dispatches FETCH_OFFER_LIST actions with every page of the list', async () => {
+      axios.get = sinon.stub();
+      const firstLink = '<http://localhost/api/offers?after=MQ>; rel="next",<http://localhost/api/offers>; rel="first"';
+      const lastLink = '<http://localhost/api/offers>; rel="first"';
+      axios.get.onFirstCall().returns(Promise.resolve({ data: [{ id: 1 }], headers: { link: firstLink } }));
+      axios.get.onSecondCall().returns(Promise.resolve({ data: [{ id: 2 }], headers: { link: lastLink } }));
+
+      await store.dispatch(getEntities({}));
+
+      expect(axios.get.secondCall.args[0]).toEqual('http://localhost/api/offers?after=MQ');
+      expect(store.getActions()[1]).toMatchObject({ type: getEntities.fulfilled.type, payload: { data: [{ id: 1 }, { id: 2 }] } });
+    });
+
     it('dispatches FETCH_OFFER actions', async () => {
       const expectedActions = [
         {
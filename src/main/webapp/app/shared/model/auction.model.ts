@@ -1,8 +1,12 @@
+import dayjs from 'dayjs';
 import { IOffer } from 'app/shared/model/offer.model';
+import { AuctionStatus } from 'app/shared/model/enumerations/auction-status.model';
 
 export interface IAuction {
   id?: number;
   auctionDescription?: string | null;
+  endDate?: dayjs.Dayjs | null;
+  status?: AuctionStatus | null;
   auctionNames?: IOffer[] | null;
 }
 
@@ -0,0 +1,7 @@
+export enum AuctionStatus {
+  OPEN = 'OPEN',
+
+  CLOSING = 'CLOSING',
+
+  CLOSED = 'CLOSED',
+}
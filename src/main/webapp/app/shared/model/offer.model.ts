@@ -3,6 +3,7 @@ import { IAuction } from 'app/shared/model/auction.model';
 export interface IOffer {
   id?: number;
   offerValue?: number | null;
+  bidder?: string | null;
   offerName?: IAuction | null;
 }
 
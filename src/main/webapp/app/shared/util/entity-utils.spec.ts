@@ -1,4 +1,4 @@
-import { cleanEntity, mapIdList } from './entity-utils';
+import { cleanEntity, getNextPageUrl, mapIdList } from './entity-utils';
 
 describe('Entity utils', () => {
   describe('cleanEntity', () => {
@@ -53,4 +53,17 @@ describe('Entity utils', () => {
       expect(mapIdList(ids)).toEqual([]);
     });
   });
+
+  describe('getNextPageUrl', () => {
+    it('should find the next page', () => {
+      const link = '<http://localhost/api/offers?size=20&after=MTA1MQ>; rel="next",<http://localhost/api/offers?size=20>; rel="first"';
+
+      expect(getNextPageUrl(link)).toEqual('http://localhost/api/offers?size=20&after=MTA1MQ');
+    });
+
+    it('should return null on the last page', () => {
+      expect(getNextPageUrl('<http://localhost/api/offers?size=20>; rel="first"')).toBeNull();
+      expect(getNextPageUrl(undefined)).toBeNull();
+    });
+  });
 });
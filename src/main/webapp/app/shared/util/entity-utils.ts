@@ -22,6 +22,17 @@ export const cleanEntity = entity => {
  */
 export const mapIdList = (idList: ReadonlyArray<any>) => idList.filter((id: any) => id !== '').map((id: any) => ({ id }));
 
+/**
+ * Find the next page of a list paginated by cursor, in the Link header of the current one.
+ *
+ * @param link The Link header of the current page.
+ * @returns The URL of the next page, or null if the current page is the last one.
+ */
+export const getNextPageUrl = (link?: string): string | null => {
+  const next = link ? /<([^>]*)>;\s*rel="next"/.exec(link) : null;
+  return next ? next[1] : null;
+};
+
 export const overridePaginationStateWithQueryParams = (paginationBaseState: IPaginationBaseState, locationSearch: string) => {
   const params = new URLSearchParams(locationSearch);
   const page = params.get('page');
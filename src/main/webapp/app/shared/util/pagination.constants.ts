@@ -1,4 +1,6 @@
 export const ITEMS_PER_PAGE = 20;
+// the spring.data.web.pageable.max-page-size of the server, for the lists read to the end
+export const MAX_ITEMS_PER_PAGE = 100;
 export const ASC = 'asc';
 export const DESC = 'desc';
 export const SORT = 'sort';
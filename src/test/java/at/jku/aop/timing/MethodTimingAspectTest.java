@@ -0,0 +1,86 @@
+package at.jku.aop.timing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import at.jku.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link MethodTimingAspect}.
+ */
+class MethodTimingAspectTest {
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    private ProceedingJoinPoint joinPoint;
+
+    @BeforeEach
+    void setup() throws Throwable {
+        applicationProperties = new ApplicationProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(String.class.getMethod("trim"));
+        joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getArgs()).thenReturn(new Object[0]);
+        when(joinPoint.proceed()).thenReturn("result");
+    }
+
+    @Test
+    void testSampledCallsAreTimedPerMethod() throws Throwable {
+        applicationProperties.getMethodTiming().setSampleRate(1);
+        MethodTimingAspect aspect = new MethodTimingAspect(applicationProperties, meterRegistry);
+
+        assertThat(aspect.timeAround(joinPoint)).isEqualTo("result");
+        assertThat(aspect.timeAround(joinPoint)).isEqualTo("result");
+
+        assertThat(meterRegistry.get(MethodTimingAspect.METER_NAME).tag("class", "String").tag("method", "trim").timer().count())
+            .isEqualTo(2);
+    }
+
+    @Test
+    void testCallsLeftOutOfTheSampleAreOnlyForwarded() throws Throwable {
+        applicationProperties.getMethodTiming().setSampleRate(0);
+        MethodTimingAspect aspect = new MethodTimingAspect(applicationProperties, meterRegistry);
+
+        assertThat(aspect.timeAround(joinPoint)).isEqualTo("result");
+
+        verify(joinPoint, never()).getSignature();
+        assertThat(meterRegistry.find(MethodTimingAspect.METER_NAME).timers()).isEmpty();
+    }
+
+    @Test
+    void testSlowCallsAreLoggedWithTheirArguments() throws Throwable {
+        applicationProperties.getMethodTiming().setSampleRate(1);
+        applicationProperties.getMethodTiming().setSlowThreshold(Duration.ZERO);
+        MethodTimingAspect aspect = new MethodTimingAspect(applicationProperties, meterRegistry);
+
+        aspect.timeAround(joinPoint);
+
+        verify(joinPoint).getArgs();
+    }
+
+    @Test
+    void testFailedCallsAreTimed() throws Throwable {
+        applicationProperties.getMethodTiming().setSampleRate(1);
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException("failure"));
+        MethodTimingAspect aspect = new MethodTimingAspect(applicationProperties, meterRegistry);
+
+        assertThatThrownBy(() -> aspect.timeAround(joinPoint)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(meterRegistry.get(MethodTimingAspect.METER_NAME).timer().count()).isEqualTo(1);
+    }
+}
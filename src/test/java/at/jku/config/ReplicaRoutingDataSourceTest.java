@@ -0,0 +1,131 @@
+package at.jku.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for the {@link ReplicaRoutingDataSource}.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+
+    private DataSource replica;
+
+    private Connection primaryConnection;
+
+    private Connection replicaConnection;
+
+    private ResultSet lag;
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setup() throws SQLException {
+        primary = mock(DataSource.class);
+        replica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        lag = mock(ResultSet.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(lag);
+        when(lag.next()).thenReturn(true);
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, replica, Duration.ofSeconds(5));
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void teardown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void testReadWriteWorkGoesToPrimary() throws SQLException {
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void testReadOnlyWorkGoesToReplica() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void testReadOnlyWorkFallsBackToPrimaryWhileReplicaLags() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(lag.getDouble(1)).thenReturn(12.5);
+
+        routingDataSource.checkReplicationLag();
+
+        assertThat(routingDataSource.isReplicaAvailable()).isFalse();
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+
+        when(lag.getDouble(1)).thenReturn(0.2);
+
+        routingDataSource.checkReplicationLag();
+
+        assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void testReadOnlyWorkFallsBackToPrimaryWhenReplicaIsDown() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        routingDataSource.checkReplicationLag();
+
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void testReadOnlyTransactionBegunWhileReplicaLagsStaysOnPrimary() throws SQLException {
+        when(lag.getDouble(1)).thenReturn(12.5);
+        routingDataSource.checkReplicationLag();
+
+        assertThat(routingDataSource.beginTransaction(true)).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+        try {
+            when(lag.getDouble(1)).thenReturn(0.2);
+            routingDataSource.checkReplicationLag();
+
+            // its session may cache what it reads
+            assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+        } finally {
+            routingDataSource.endTransaction();
+        }
+    }
+
+    @Test
+    void testTransactionsKeepTheirRoutesWhenNested() throws SQLException {
+        assertThat(routingDataSource.beginTransaction(true)).isEqualTo(ReplicaRoutingDataSource.Route.REPLICA);
+        try {
+            assertThat(routingDataSource.beginTransaction(false)).isEqualTo(ReplicaRoutingDataSource.Route.PRIMARY);
+            try {
+                assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+            } finally {
+                routingDataSource.endTransaction();
+            }
+            assertThat(routingDataSource.getConnection()).isSameAs(replicaConnection);
+        } finally {
+            routingDataSource.endTransaction();
+        }
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+    }
+}
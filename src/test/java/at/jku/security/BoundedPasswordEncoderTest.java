@@ -0,0 +1,99 @@
+package at.jku.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import at.jku.management.SecurityMetersService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Unit tests for the {@link BoundedPasswordEncoder}.
+ */
+class BoundedPasswordEncoderTest {
+
+    private MeterRegistry meterRegistry;
+
+    private SecurityMetersService securityMetersService;
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        securityMetersService = new SecurityMetersService(meterRegistry);
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 4, 1, 1, Duration.ofSeconds(1), securityMetersService);
+    }
+
+    @AfterEach
+    void teardown() {
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    void testEncodeAndMatch() {
+        String hash = passwordEncoder.encode("password");
+
+        assertThat(passwordEncoder.matches("password", hash)).isTrue();
+        assertThat(passwordEncoder.matches("other", hash)).isFalse();
+        assertThat(meterRegistry.get("security.password-hashing.hash").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("security.password-hashing.queue-wait").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void testHashWithAnotherCostNeedsUpgrade() {
+        assertThat(passwordEncoder.upgradeEncoding(passwordEncoder.encode("password"))).isFalse();
+        assertThat(passwordEncoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("password"))).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding("not-a-bcrypt-hash")).isFalse();
+    }
+
+    @Test
+    void testHashingIsTurnedAwayWhenTheQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new BCryptPasswordEncoder(4) {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.encode(rawPassword);
+            }
+        };
+        passwordEncoder.shutdown();
+        passwordEncoder = new BoundedPasswordEncoder(blocking, 4, 1, 1, Duration.ofSeconds(3), securityMetersService);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("running"));
+        started.await(10, TimeUnit.SECONDS);
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("queued"));
+        for (int i = 0; i < 1000 && passwordEncoder.getQueueSize() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        Throwable rejected = catchThrowable(() -> passwordEncoder.encode("rejected"));
+
+        assertThat(rejected).isInstanceOf(PasswordHashingBusyException.class);
+        assertThat(((PasswordHashingBusyException) rejected).getRetryAfter()).isEqualTo(Duration.ofSeconds(3));
+        assertThat(meterRegistry.get("security.password-hashing.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        String runningHash = running.get(10, TimeUnit.SECONDS);
+        String queuedHash = queued.get(10, TimeUnit.SECONDS);
+        // checked outside the bounded encoder, whose single slot may still be taken
+        PasswordEncoder plain = new BCryptPasswordEncoder(4);
+        assertThat(plain.matches("running", runningHash)).isTrue();
+        assertThat(plain.matches("queued", queuedHash)).isTrue();
+    }
+}
@@ -0,0 +1,156 @@
+package at.jku.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import at.jku.IntegrationTest;
+import at.jku.management.SecurityMetersService;
+import at.jku.repository.UserRepository;
+import at.jku.service.UserService;
+import at.jku.service.dto.AdminUserDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Integration tests for the {@link UserDetailsCache}, checking that every change made through the {@link UserService}
+ * is seen by the next authentication. The changes commit, so each test removes its user.
+ */
+@IntegrationTest
+class UserDetailsCacheIT {
+
+    private static final String LOGIN = "user-details-cache";
+
+    private static final String EMAIL = "user-details-cache@localhost";
+
+    private static final String PASSWORD = "first-password";
+
+    private static final String NEW_PASSWORD = "second-password";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    @Qualifier("userDetailsService")
+    private UserDetailsService domainUserDetailsService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void init() {
+        userService.deleteUser(LOGIN);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        SecurityContextHolder.clearContext();
+        userService.deleteUser(LOGIN);
+    }
+
+    @Test
+    void registeringAnUnknownLoginIsSeen() {
+        assertThatExceptionOfType(UsernameNotFoundException.class).isThrownBy(() -> domainUserDetailsService.loadUserByUsername(LOGIN));
+        // the unknown login is remembered now
+        assertThatExceptionOfType(UsernameNotFoundException.class).isThrownBy(() -> domainUserDetailsService.loadUserByUsername(LOGIN));
+        assertThat(hits()).isEqualTo(1D);
+
+        userService.registerUser(user(), PASSWORD);
+
+        assertThatExceptionOfType(UserNotActivatedException.class).isThrownBy(() -> domainUserDetailsService.loadUserByUsername(LOGIN));
+    }
+
+    @Test
+    void activatingAUserIsSeen() {
+        String activationKey = userService.registerUser(user(), PASSWORD).getActivationKey();
+        assertThatExceptionOfType(UserNotActivatedException.class).isThrownBy(() -> domainUserDetailsService.loadUserByUsername(LOGIN));
+        assertThatExceptionOfType(UserNotActivatedException.class).isThrownBy(() -> domainUserDetailsService.loadUserByUsername(EMAIL));
+
+        userService.activateRegistration(activationKey);
+
+        assertThat(domainUserDetailsService.loadUserByUsername(LOGIN).getUsername()).isEqualTo(LOGIN);
+        assertThat(domainUserDetailsService.loadUserByUsername(EMAIL).getUsername()).isEqualTo(LOGIN);
+    }
+
+    @Test
+    void changingThePasswordIsSeen() {
+        registerActivatedUser();
+        assertThat(passwordEncoder.matches(PASSWORD, domainUserDetailsService.loadUserByUsername(LOGIN).getPassword())).isTrue();
+        double hitsBefore = hits();
+        assertThat(passwordEncoder.matches(PASSWORD, domainUserDetailsService.loadUserByUsername(LOGIN).getPassword())).isTrue();
+        assertThat(hits()).isEqualTo(hitsBefore + 1);
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(LOGIN, PASSWORD));
+        userService.changePassword(PASSWORD, NEW_PASSWORD);
+
+        UserDetails userDetails = domainUserDetailsService.loadUserByUsername(LOGIN);
+        assertThat(passwordEncoder.matches(NEW_PASSWORD, userDetails.getPassword())).isTrue();
+    }
+
+    @Test
+    void rolledBackPasswordChangeIsNotSeen() {
+        registerActivatedUser();
+        assertThat(passwordEncoder.matches(PASSWORD, domainUserDetailsService.loadUserByUsername(LOGIN).getPassword())).isTrue();
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(LOGIN, PASSWORD));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.changePassword(PASSWORD, NEW_PASSWORD);
+            // read, and cached, before the transaction rolls back
+            assertThat(passwordEncoder.matches(NEW_PASSWORD, domainUserDetailsService.loadUserByUsername(LOGIN).getPassword())).isTrue();
+            status.setRollbackOnly();
+        });
+
+        assertThat(passwordEncoder.matches(PASSWORD, domainUserDetailsService.loadUserByUsername(LOGIN).getPassword())).isTrue();
+    }
+
+    @Test
+    void deletingAUserIsSeen() {
+        registerActivatedUser();
+        assertThat(domainUserDetailsService.loadUserByUsername(LOGIN).getUsername()).isEqualTo(LOGIN);
+        assertThat(domainUserDetailsService.loadUserByUsername(EMAIL).getUsername()).isEqualTo(LOGIN);
+
+        userService.deleteUser(LOGIN);
+
+        assertThat(userRepository.findOneByLogin(LOGIN)).isEmpty();
+        assertThatExceptionOfType(UsernameNotFoundException.class).isThrownBy(() -> domainUserDetailsService.loadUserByUsername(LOGIN));
+        assertThatExceptionOfType(UsernameNotFoundException.class).isThrownBy(() -> domainUserDetailsService.loadUserByUsername(EMAIL));
+    }
+
+    private void registerActivatedUser() {
+        userService.activateRegistration(userService.registerUser(user(), PASSWORD).getActivationKey());
+    }
+
+    private double hits() {
+        return meterRegistry.get(SecurityMetersService.USER_DETAILS_CACHE_METER_NAME).tag("result", "hit").counter().count();
+    }
+
+    private static AdminUserDTO user() {
+        AdminUserDTO user = new AdminUserDTO();
+        user.setLogin(LOGIN);
+        user.setEmail(EMAIL);
+        user.setFirstName("cache");
+        user.setLastName("doe");
+        user.setLangKey("en");
+        return user;
+    }
+}
@@ -0,0 +1,110 @@
+package at.jku.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.Authority;
+import at.jku.domain.User;
+import at.jku.management.SecurityMetersService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the {@link UserDetailsCache}.
+ */
+class UserDetailsCacheTest {
+
+    private static final String USER_DETAILS_CACHE_METER_EXPECTED_NAME = "security.authentication.user-details-cache";
+
+    private MeterRegistry meterRegistry;
+
+    private UserDetailsCache userDetailsCache;
+
+    private User user;
+
+    private AtomicInteger lookups;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        userDetailsCache = new UserDetailsCache(new ApplicationProperties(), new SecurityMetersService(meterRegistry));
+
+        Authority authority = new Authority();
+        authority.setName(AuthoritiesConstants.USER);
+        user = new User();
+        user.setLogin("cached-user");
+        user.setEmail("cached-user@localhost");
+        user.setPassword("hash");
+        user.setActivated(true);
+        user.setAuthorities(Set.of(authority));
+        lookups = new AtomicInteger();
+    }
+
+    @AfterEach
+    void teardown() {
+        userDetailsCache.destroy();
+    }
+
+    @Test
+    void testUserIsLoadedOnceAndCachedUnderLoginAndEmail() {
+        UserDetailsCache.CachedUser byLogin = userDetailsCache.getByLogin("cached-user", this::lookup);
+        UserDetailsCache.CachedUser byEmail = userDetailsCache.getByEmail("Cached-User@localhost", this::lookup);
+
+        assertThat(byEmail).isSameAs(byLogin);
+        assertThat(byLogin.password).isEqualTo("hash");
+        assertThat(byLogin.authorities).extracting("authority").containsExactly(AuthoritiesConstants.USER);
+        assertThat(lookups).hasValue(1);
+        assertThat(meterRegistry.get(USER_DETAILS_CACHE_METER_EXPECTED_NAME).tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(USER_DETAILS_CACHE_METER_EXPECTED_NAME).tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testUnknownLoginIsRemembered() {
+        assertThat(userDetailsCache.getByLogin("unknown", this::lookupNothing)).isSameAs(UserDetailsCache.NOT_FOUND);
+        assertThat(userDetailsCache.getByLogin("unknown", this::lookupNothing)).isSameAs(UserDetailsCache.NOT_FOUND);
+
+        assertThat(lookups).hasValue(1);
+    }
+
+    @Test
+    void testEvictedUserIsLoadedAgain() {
+        userDetailsCache.getByLogin("cached-user", this::lookup);
+
+        user.setPassword("new-hash");
+        userDetailsCache.evict(user);
+
+        assertThat(userDetailsCache.getByEmail("cached-user@localhost", this::lookup).password).isEqualTo("new-hash");
+        assertThat(lookups).hasValue(2);
+    }
+
+    @Test
+    void testUserReadBeforeAnEvictionIsNotCached() {
+        userDetailsCache.getByLogin(
+            "cached-user",
+            () -> {
+                Optional<User> stale = lookup();
+                userDetailsCache.evict(user);
+                return stale;
+            }
+        );
+        userDetailsCache.getByLogin("cached-user", this::lookup);
+
+        assertThat(lookups).hasValue(2);
+    }
+
+    private Optional<User> lookup() {
+        lookups.incrementAndGet();
+        return Optional.of(user);
+    }
+
+    private Optional<User> lookupNothing() {
+        lookups.incrementAndGet();
+        return Optional.empty();
+    }
+}
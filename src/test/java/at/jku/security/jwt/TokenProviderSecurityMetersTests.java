@@ -2,6 +2,7 @@ package at.jku.security.jwt;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import at.jku.config.ApplicationProperties;
 import at.jku.management.SecurityMetersService;
 import at.jku.security.AuthoritiesConstants;
 import io.jsonwebtoken.Jwts;
@@ -15,6 +16,7 @@ import java.security.Key;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -28,6 +30,8 @@ class TokenProviderSecurityMetersTests {
 
     private static final long ONE_MINUTE = 60000;
     private static final String INVALID_TOKENS_METER_EXPECTED_NAME = "security.authentication.invalid-tokens";
+    private static final String TOKEN_CACHE_METER_EXPECTED_NAME = "security.authentication.token-cache";
+    private static final String TOKEN_PARSE_METER_EXPECTED_NAME = "security.authentication.token-parse";
 
     private MeterRegistry meterRegistry;
 
@@ -43,7 +47,7 @@ class TokenProviderSecurityMetersTests {
 
         SecurityMetersService securityMetersService = new SecurityMetersService(meterRegistry);
 
-        tokenProvider = new TokenProvider(jHipsterProperties, securityMetersService);
+        tokenProvider = new TokenProvider(jHipsterProperties, new ApplicationProperties(), securityMetersService);
         Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64Secret));
 
         ReflectionTestUtils.setField(tokenProvider, "key", key);
@@ -107,6 +111,32 @@ class TokenProviderSecurityMetersTests {
         assertThat(meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "malformed").counter().count()).isEqualTo(1);
     }
 
+    @Test
+    void testRepeatedTokenIsParsedOnce() {
+        String validToken = createValidToken();
+
+        Optional<Authentication> first = tokenProvider.authenticate(validToken);
+        Optional<Authentication> second = tokenProvider.authenticate(validToken);
+
+        assertThat(second).contains(first.orElseThrow());
+        assertThat(second.orElseThrow()).isNotSameAs(first.orElseThrow());
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(TOKEN_PARSE_METER_EXPECTED_NAME).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME + ".hit-ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    void testInvalidTokenIsNotCached() {
+        String malformedToken = createMalformedToken();
+
+        tokenProvider.validateToken(malformedToken);
+        tokenProvider.validateToken(malformedToken);
+
+        assertThat(meterRegistry.get(TOKEN_CACHE_METER_EXPECTED_NAME).tag("result", "hit").counter().count()).isZero();
+        assertThat(meterRegistry.get(INVALID_TOKENS_METER_EXPECTED_NAME).tag("cause", "malformed").counter().count()).isEqualTo(2);
+    }
+
     private String createValidToken() {
         Authentication authentication = createAuthentication();
 
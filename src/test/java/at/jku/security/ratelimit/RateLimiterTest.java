@@ -0,0 +1,159 @@
+package at.jku.security.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.management.SecurityMetersService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Unit tests for {@link RateLimiter}.
+ */
+class RateLimiterTest {
+
+    private static final String ENDPOINT = "create-offer";
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    private MeterRegistry meterRegistry;
+
+    private ApplicationProperties.RateLimit properties;
+
+    private RateLimiter rateLimiter;
+
+    @BeforeEach
+    public void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new ApplicationProperties.RateLimit();
+        ApplicationProperties.RateLimit.Endpoint endpoint = new ApplicationProperties.RateLimit.Endpoint();
+        endpoint.setPerUser(bandwidth(3, Duration.ofSeconds(3)));
+        endpoint.setPerAuction(bandwidth(2, Duration.ofSeconds(1)));
+        properties.getEndpoints().put(ENDPOINT, endpoint);
+        rateLimiter = newRateLimiter();
+        login("alice");
+    }
+
+    @AfterEach
+    public void cleanup() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void userBurstsUpToTheCapacityThenWaitsForTheRefill() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.checkUser(ENDPOINT);
+        }
+        assertThatThrownBy(() -> rateLimiter.checkUser(ENDPOINT))
+            .isInstanceOf(RateLimitExceededException.class)
+            .extracting(e -> ((RateLimitExceededException) e).getRetryAfter())
+            .isEqualTo(Duration.ofSeconds(1));
+
+        clock.addAndGet(Duration.ofMillis(999).toNanos());
+        assertThatThrownBy(() -> rateLimiter.checkUser(ENDPOINT)).isInstanceOf(RateLimitExceededException.class);
+        clock.addAndGet(Duration.ofMillis(1).toNanos());
+        rateLimiter.checkUser(ENDPOINT);
+        assertThatThrownBy(() -> rateLimiter.checkUser(ENDPOINT)).isInstanceOf(RateLimitExceededException.class);
+
+        assertThat(rejected("user")).isEqualTo(3);
+    }
+
+    @Test
+    void usersHaveTheirOwnBuckets() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.checkUser(ENDPOINT);
+        }
+        login("bob");
+
+        rateLimiter.checkUser(ENDPOINT);
+        assertThat(rateLimiter.bucketCount()).isEqualTo(2);
+    }
+
+    @Test
+    void auctionsAreLimitedWhoeverTheUser() {
+        rateLimiter.checkAuction(ENDPOINT, 1L);
+        login("bob");
+        rateLimiter.checkAuction(ENDPOINT, 1L);
+
+        assertThatThrownBy(() -> rateLimiter.checkAuction(ENDPOINT, 1L)).isInstanceOf(RateLimitExceededException.class);
+        rateLimiter.checkAuction(ENDPOINT, 2L);
+        assertThat(rejected("auction")).isEqualTo(1);
+    }
+
+    @Test
+    void anonymousCallsAndEndpointsWithoutLimitsAreNotLimited() {
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.checkUser("other-endpoint");
+            rateLimiter.checkAuction("other-endpoint", 1L);
+        }
+        SecurityContextHolder.clearContext();
+        for (int i = 0; i < 10; i++) {
+            rateLimiter.checkUser(ENDPOINT);
+        }
+
+        assertThat(rateLimiter.bucketCount()).isZero();
+    }
+
+    @Test
+    void fullBucketsAreEvicted() {
+        rateLimiter.checkUser(ENDPOINT);
+        rateLimiter.checkUser(ENDPOINT);
+        rateLimiter.checkAuction(ENDPOINT, 1L);
+
+        rateLimiter.evict();
+        assertThat(rateLimiter.bucketCount()).isEqualTo(2);
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        rateLimiter.evict();
+        assertThat(rateLimiter.bucketCount()).isEqualTo(1);
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        rateLimiter.evict();
+        assertThat(rateLimiter.bucketCount()).isZero();
+    }
+
+    @Test
+    void fullBucketsAreEvictedBeyondTheMaximum() {
+        properties.setMaxBuckets(2);
+        rateLimiter = newRateLimiter();
+        rateLimiter.checkAuction(ENDPOINT, 1L);
+        rateLimiter.checkAuction(ENDPOINT, 2L);
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+
+        rateLimiter.checkAuction(ENDPOINT, 3L);
+
+        assertThat(rateLimiter.bucketCount()).isEqualTo(1);
+    }
+
+    private RateLimiter newRateLimiter() {
+        return new RateLimiter(properties, new SecurityMetersService(meterRegistry), clock::get);
+    }
+
+    private double rejected(String scope) {
+        return meterRegistry
+            .get(SecurityMetersService.RATE_LIMIT_REJECTED_METER_NAME)
+            .tag(SecurityMetersService.RATE_LIMIT_ENDPOINT_DIMENSION, ENDPOINT)
+            .tag(SecurityMetersService.RATE_LIMIT_SCOPE_DIMENSION, scope)
+            .counter()
+            .count();
+    }
+
+    private static ApplicationProperties.RateLimit.Bandwidth bandwidth(long capacity, Duration period) {
+        ApplicationProperties.RateLimit.Bandwidth bandwidth = new ApplicationProperties.RateLimit.Bandwidth();
+        bandwidth.setCapacity(capacity);
+        bandwidth.setPeriod(period);
+        return bandwidth;
+    }
+
+    private static void login(String login) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(login, login));
+    }
+}
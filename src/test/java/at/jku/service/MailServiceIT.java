@@ -1,12 +1,14 @@
 package at.jku.service;
 
 import static org.assertj.core.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.*;
 
 import at.jku.IntegrationTest;
+import at.jku.config.ApplicationProperties;
 import at.jku.config.Constants;
+import at.jku.domain.OutboundMail;
 import at.jku.domain.User;
+import at.jku.domain.enumeration.OutboundMailStatus;
+import at.jku.repository.OutboundMailRepository;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -14,28 +16,35 @@ import java.io.InputStreamReader;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.mail.Multipart;
-import javax.mail.Session;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
-import org.mockito.Captor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.mail.MailException;
 import org.springframework.mail.MailSendException;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
 import tech.jhipster.config.JHipsterProperties;
 
 /**
- * Integration tests for {@link MailService}.
+ * Integration tests for {@link MailService} and the {@link MailOutboxDispatcher}.
  */
 @IntegrationTest
+@Import(MailServiceIT.RecordingMailSenderConfiguration.class)
 class MailServiceIT {
 
     private static final String[] languages = {
@@ -47,26 +56,38 @@ class MailServiceIT {
     @Autowired
     private JHipsterProperties jHipsterProperties;
 
-    @MockBean
-    private JavaMailSender javaMailSender;
+    @Autowired
+    private ApplicationProperties applicationProperties;
 
-    @Captor
-    private ArgumentCaptor<MimeMessage> messageCaptor;
+    @Autowired
+    private RecordingMailSender mailSender;
 
     @Autowired
     private MailService mailService;
 
+    @Autowired
+    private MailOutboxDispatcher mailOutboxDispatcher;
+
+    @Autowired
+    private OutboundMailRepository outboundMailRepository;
+
     @BeforeEach
     public void setup() {
-        doNothing().when(javaMailSender).send(any(MimeMessage.class));
-        when(javaMailSender.createMimeMessage()).thenReturn(new MimeMessage((Session) null));
+        outboundMailRepository.deleteAll();
+        mailSender.sent.clear();
+        mailSender.batches.clear();
+        mailSender.failure = null;
+    }
+
+    @AfterEach
+    public void cleanup() {
+        outboundMailRepository.deleteAll();
     }
 
     @Test
     void testSendEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMail();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -78,8 +99,7 @@ class MailServiceIT {
     @Test
     void testSendHtmlEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, true);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMail();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -91,8 +111,7 @@ class MailServiceIT {
     @Test
     void testSendMultipartEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, false);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMail();
         MimeMultipart mp = (MimeMultipart) message.getContent();
         MimeBodyPart part = (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
         ByteArrayOutputStream aos = new ByteArrayOutputStream();
@@ -108,8 +127,7 @@ class MailServiceIT {
     @Test
     void testSendMultipartHtmlEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, true);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMail();
         MimeMultipart mp = (MimeMultipart) message.getContent();
         MimeBodyPart part = (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
         ByteArrayOutputStream aos = new ByteArrayOutputStream();
@@ -129,8 +147,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMail();
         assertThat(message.getSubject()).isEqualTo("test title");
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -145,8 +162,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendActivationEmail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMail();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent().toString()).isNotEmpty();
@@ -160,8 +176,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendCreationEmail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMail();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent().toString()).isNotEmpty();
@@ -175,8 +190,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendPasswordResetMail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
-        MimeMessage message = messageCaptor.getValue();
+        MimeMessage message = dispatchSingleMail();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
         assertThat(message.getContent().toString()).isNotEmpty();
@@ -185,12 +199,48 @@ class MailServiceIT {
 
     @Test
     void testSendEmailWithException() {
-        doThrow(MailSendException.class).when(javaMailSender).send(any(MimeMessage.class));
+        mailSender.failure = new MailSendException("test failure");
         try {
             mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+            mailOutboxDispatcher.dispatch();
         } catch (Exception e) {
             fail("Exception shouldn't have been thrown");
         }
+        assertThat(outboundMailRepository.findAll())
+            .singleElement()
+            .satisfies(mail -> {
+                assertThat(mail.getStatus()).isEqualTo(OutboundMailStatus.PENDING);
+                assertThat(mail.getAttempts()).isEqualTo(1);
+                assertThat(mail.getNextAttemptAt()).isAfter(Instant.now());
+                assertThat(mail.getLastError()).isEqualTo("test failure");
+            });
+    }
+
+    @Test
+    void testEmailIsDeadLetteredAfterMaxAttempts() {
+        mailSender.failure = new MailSendException("test failure");
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+        OutboundMail mail = outboundMailRepository.findAll().get(0);
+        mail.setAttempts(applicationProperties.getMailOutbox().getMaxAttempts() - 1);
+        outboundMailRepository.save(mail);
+
+        mailOutboxDispatcher.dispatch();
+
+        assertThat(outboundMailRepository.findById(mail.getId())).hasValueSatisfying(dead ->
+            assertThat(dead.getStatus()).isEqualTo(OutboundMailStatus.DEAD)
+        );
+    }
+
+    @Test
+    void testEmailsAreSentInOneBatch() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mailService.sendEmail("john.doe" + i + "@example.com", "testSubject", "testContent", false, false);
+        }
+
+        mailOutboxDispatcher.dispatch();
+
+        assertThat(mailSender.batches).containsExactly(3);
+        assertThat(outboundMailRepository.count()).isZero();
     }
 
     @Test
@@ -201,8 +251,7 @@ class MailServiceIT {
         for (String langKey : languages) {
             user.setLangKey(langKey);
             mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
-            verify(javaMailSender, atLeastOnce()).send(messageCaptor.capture());
-            MimeMessage message = messageCaptor.getValue();
+            MimeMessage message = dispatchSingleMail();
 
             String propertyFilePath = "i18n/messages_" + getJavaLocale(langKey) + ".properties";
             URL resource = this.getClass().getClassLoader().getResource(propertyFilePath);
@@ -217,6 +266,13 @@ class MailServiceIT {
         }
     }
 
+    private MimeMessage dispatchSingleMail() {
+        mailSender.sent.clear();
+        mailOutboxDispatcher.dispatch();
+        assertThat(mailSender.sent).hasSize(1);
+        return mailSender.sent.get(0);
+    }
+
     /**
      * Convert a lang key to the Java locale.
      */
@@ -232,4 +288,35 @@ class MailServiceIT {
         }
         return javaLangKey;
     }
+
+    /**
+     * Records the mails instead of sending them.
+     */
+    static class RecordingMailSender extends JavaMailSenderImpl {
+
+        private final List<MimeMessage> sent = new ArrayList<>();
+
+        private final List<Integer> batches = new ArrayList<>();
+
+        private MailException failure;
+
+        @Override
+        protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+            if (failure != null) {
+                throw failure;
+            }
+            batches.add(mimeMessages.length);
+            sent.addAll(Arrays.asList(mimeMessages));
+        }
+    }
+
+    @TestConfiguration
+    static class RecordingMailSenderConfiguration {
+
+        @Bean
+        @Primary
+        public RecordingMailSender recordingMailSender() {
+            return new RecordingMailSender();
+        }
+    }
 }
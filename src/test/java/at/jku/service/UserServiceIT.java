@@ -4,15 +4,21 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 
 import at.jku.IntegrationTest;
+import at.jku.config.ApplicationProperties;
 import at.jku.config.Constants;
+import at.jku.domain.Authority;
 import at.jku.domain.User;
+import at.jku.repository.AuthorityRepository;
 import at.jku.repository.UserRepository;
+import at.jku.security.AuthoritiesConstants;
 import at.jku.service.dto.AdminUserDTO;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -50,6 +56,12 @@ class UserServiceIT {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AuthorityRepository authorityRepository;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
     @Autowired
     private AuditingHandler auditingHandler;
 
@@ -182,4 +194,37 @@ class UserServiceIT {
         Optional<User> maybeDbUser = userRepository.findById(dbUser.getId());
         assertThat(maybeDbUser).contains(dbUser);
     }
+
+    @Test
+    @Transactional
+    void assertThatNotActivatedUsersAreDeletedInChunksWithTheirAuthorities() {
+        ApplicationProperties.UserPurge userPurge = applicationProperties.getUserPurge();
+        int chunkSize = userPurge.getChunkSize();
+        Duration pause = userPurge.getPause();
+        userPurge.setChunkSize(2);
+        userPurge.setPause(Duration.ZERO);
+        try {
+            Instant now = Instant.now();
+            when(dateTimeProvider.getNow()).thenReturn(Optional.of(now.minus(4, ChronoUnit.DAYS)));
+            Authority authority = authorityRepository.findById(AuthoritiesConstants.USER).orElseThrow();
+            for (int i = 0; i < 5; i++) {
+                User notActivated = new User();
+                notActivated.setLogin("not-activated-" + i);
+                notActivated.setPassword(RandomStringUtils.randomAlphanumeric(60));
+                notActivated.setActivated(false);
+                notActivated.setActivationKey(RandomStringUtils.random(20));
+                notActivated.setAuthorities(Set.of(authority));
+                userRepository.saveAndFlush(notActivated);
+            }
+
+            userService.removeNotActivatedUsers();
+
+            assertThat(userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(now.minus(3, ChronoUnit.DAYS)))
+                .isEmpty();
+            assertThat(userRepository.findOneByLogin("not-activated-0")).isEmpty();
+        } finally {
+            userPurge.setChunkSize(chunkSize);
+            userPurge.setPause(pause);
+        }
+    }
 }
@@ -0,0 +1,76 @@
+package at.jku.service.auction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link TimerWheel}.
+ */
+class TimerWheelTest {
+
+    private static final long START = 1_234_567L;
+
+    private TimerWheel wheel;
+
+    private Map<Long, Long> firedAt;
+
+    @BeforeEach
+    public void init() {
+        wheel = new TimerWheel(START);
+        firedAt = new HashMap<>();
+    }
+
+    @Test
+    void firesEveryTimeoutAtItsDeadline() {
+        long[] delays = { 1, 5, 255, 256, 300, 70_000, 20_000_000 };
+        for (long delay : delays) {
+            assertThat(wheel.schedule(new TimerWheel.Timeout(delay, START + delay))).isTrue();
+        }
+        assertThat(wheel.size()).isEqualTo(delays.length);
+
+        for (long tick = START + 1; tick <= START + 20_000_000; tick++) {
+            long now = tick;
+            wheel.advance(tick, timeout -> firedAt.put(timeout.key, now));
+        }
+
+        for (long delay : delays) {
+            assertThat(firedAt).containsEntry(delay, START + delay);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void firesOverdueTimeoutsWhenCatchingUp() {
+        wheel.schedule(new TimerWheel.Timeout(1L, START + 10));
+        wheel.schedule(new TimerWheel.Timeout(2L, START + 1_000));
+
+        wheel.advance(START + 5_000, timeout -> firedAt.put(timeout.key, wheel.currentTick()));
+
+        assertThat(firedAt).containsEntry(1L, START + 10).containsEntry(2L, START + 1_000);
+    }
+
+    @Test
+    void doesNotFireCancelledTimeouts() {
+        TimerWheel.Timeout cancelled = new TimerWheel.Timeout(1L, START + 10);
+        wheel.schedule(cancelled);
+        wheel.schedule(new TimerWheel.Timeout(2L, START + 10));
+
+        wheel.cancel(cancelled);
+        wheel.cancel(cancelled);
+        wheel.advance(START + 10, timeout -> firedAt.put(timeout.key, wheel.currentTick()));
+
+        assertThat(firedAt).containsOnlyKeys(2L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void refusesTimeoutsAlreadyDue() {
+        assertThat(wheel.schedule(new TimerWheel.Timeout(1L, START))).isFalse();
+        assertThat(wheel.schedule(new TimerWheel.Timeout(2L, START - 1))).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+}
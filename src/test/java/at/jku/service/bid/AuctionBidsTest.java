@@ -0,0 +1,73 @@
+package at.jku.service.bid;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link AuctionBids}.
+ */
+class AuctionBidsTest {
+
+    private AuctionBids bids;
+
+    @BeforeEach
+    public void init() {
+        bids = new AuctionBids();
+    }
+
+    @Test
+    void emptyHasNoHighestBid() {
+        assertThat(bids.isEmpty()).isTrue();
+        assertThat(bids.highestValue()).isNaN();
+        assertThat(bids.highestOfferId()).isEqualTo(-1L);
+    }
+
+    @Test
+    void keepsHighestBidOnTop() {
+        bids.add(1L, 10D);
+        bids.add(2L, 30D);
+        bids.add(3L, 20D);
+
+        assertThat(bids.size()).isEqualTo(3);
+        assertThat(bids.highestValue()).isEqualTo(30D);
+        assertThat(bids.highestOfferId()).isEqualTo(2L);
+        assertThat(bids.topValues(2)).containsExactly(30D, 20D);
+    }
+
+    @Test
+    void removingHighestBidPromotesNextOne() {
+        bids.add(1L, 10D);
+        bids.add(2L, 30D);
+        bids.add(3L, 20D);
+
+        assertThat(bids.remove(2L)).isTrue();
+        assertThat(bids.remove(2L)).isFalse();
+        assertThat(bids.highestValue()).isEqualTo(20D);
+        assertThat(bids.highestOfferId()).isEqualTo(3L);
+
+        bids.remove(3L);
+        bids.remove(1L);
+        assertThat(bids.isEmpty()).isTrue();
+        assertThat(bids.highestValue()).isNaN();
+    }
+
+    @Test
+    void staysOrderedWhileGrowing() {
+        Random random = new Random(42);
+        double max = Double.NEGATIVE_INFINITY;
+        for (long i = 0; i < 1000; i++) {
+            double value = random.nextDouble() * 1000;
+            max = Math.max(max, value);
+            bids.add(i, value);
+            assertThat(bids.highestValue()).isEqualTo(max);
+        }
+        double[] top = bids.topValues(1000);
+        assertThat(top).hasSize(1000);
+        for (int i = 1; i < top.length; i++) {
+            assertThat(top[i]).isLessThanOrEqualTo(top[i - 1]);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package at.jku.service.bid;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import at.jku.config.ApplicationProperties;
+import java.util.concurrent.locks.ReentrantLock;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for {@link BidBook}.
+ */
+class BidBookTest {
+
+    @Test
+    void roundsTheLockStripesUpToAPowerOfTwo() {
+        assertThat(stripeCount(1)).isEqualTo(1);
+        assertThat(stripeCount(2)).isEqualTo(2);
+        assertThat(stripeCount(3)).isEqualTo(4);
+        assertThat(stripeCount(256)).isEqualTo(256);
+        assertThat(stripeCount(257)).isEqualTo(512);
+    }
+
+    @Test
+    void rejectsFewerThanOneLockStripe() {
+        ApplicationProperties.BidBook properties = new ApplicationProperties().getBidBook();
+
+        assertThatIllegalArgumentException().isThrownBy(() -> properties.setLockStripes(0));
+    }
+
+    private static int stripeCount(int lockStripes) {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getBidBook().setLockStripes(lockStripes);
+        BidBook bidBook = new BidBook(null, event -> {}, applicationProperties);
+        return ((ReentrantLock[]) ReflectionTestUtils.getField(bidBook, "stripes")).length;
+    }
+}
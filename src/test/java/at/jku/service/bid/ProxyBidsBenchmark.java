@@ -0,0 +1,84 @@
+package at.jku.service.bid;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of a bid war between two proxy bids, resolved by {@link ProxyBids} in one step against the cascade of
+ * one-increment bids it replaces, both entering an {@link AuctionBids} the way the {@link BidBook} does. The cascade
+ * places a bid per increment, each of which would be an offer written to the database by the application.
+ * <p>
+ * Not run with the tests, run {@link #main} from the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyBidsBenchmark {
+
+    private static final double INCREMENT = 1D;
+
+    private static final double OPENING_BID = 1D;
+
+    /**
+     * Number of increments between the opening bid and the maximum of the runner-up.
+     */
+    @Param({ "10", "1000", "100000" })
+    public int warLength;
+
+    private double leaderMax;
+
+    private double runnerUpMax;
+
+    private ProxyBids proxies;
+
+    @Setup
+    public void setup() {
+        runnerUpMax = OPENING_BID + warLength * INCREMENT;
+        leaderMax = runnerUpMax + 10 * INCREMENT;
+        proxies = new ProxyBids();
+        proxies.put(new ProxyBids.Proxy("leader", leaderMax));
+        proxies.put(new ProxyBids.Proxy("runnerUp", runnerUpMax));
+    }
+
+    @Benchmark
+    public double resolveInOneStep() {
+        AuctionBids bids = openedAuction();
+        List<ProxyBids.Bid> resolved = proxies.resolve(bids.highestValue(), bids.highestBidder(), INCREMENT);
+        long offerId = 1;
+        for (ProxyBids.Bid bid : resolved) {
+            bids.add(++offerId, bid.value, bid.bidder);
+        }
+        return bids.highestValue();
+    }
+
+    @Benchmark
+    public double cascadeOfIncrements() {
+        AuctionBids bids = openedAuction();
+        long offerId = 1;
+        while (true) {
+            boolean leaderLeads = "leader".equals(bids.highestBidder());
+            double next = bids.highestValue() + INCREMENT;
+            if (next > (leaderLeads ? runnerUpMax : leaderMax)) {
+                return bids.highestValue();
+            }
+            bids.add(++offerId, next, leaderLeads ? "runnerUp" : "leader");
+        }
+    }
+
+    private static AuctionBids openedAuction() {
+        AuctionBids bids = new AuctionBids();
+        bids.add(1L, OPENING_BID, "somebody");
+        return bids;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ProxyBidsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,99 @@
+package at.jku.service.bid;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link ProxyBids}.
+ */
+class ProxyBidsTest {
+
+    private static final double INCREMENT = 1D;
+
+    private ProxyBids proxies;
+
+    @BeforeEach
+    public void init() {
+        proxies = new ProxyBids();
+    }
+
+    @Test
+    void loneProxyOpensAtOneIncrement() {
+        proxies.put(new ProxyBids.Proxy("alice", 50D));
+
+        assertThat(bids(proxies.resolve(Double.NaN, null, INCREMENT))).containsExactly("alice@1.0");
+    }
+
+    @Test
+    void loneProxyOutbidsTheHighestBidByOneIncrement() {
+        proxies.put(new ProxyBids.Proxy("alice", 50D));
+
+        assertThat(bids(proxies.resolve(20D, "bob", INCREMENT))).containsExactly("alice@21.0");
+        assertThat(bids(proxies.resolve(49.5D, "bob", INCREMENT))).containsExactly("alice@50.0");
+        assertThat(proxies.resolve(50D, "bob", INCREMENT)).isEmpty();
+    }
+
+    @Test
+    void leadingProxyDoesNotBidAgainstItself() {
+        proxies.put(new ProxyBids.Proxy("alice", 50D));
+
+        assertThat(proxies.resolve(20D, "alice", INCREMENT)).isEmpty();
+    }
+
+    @Test
+    void bidWarEndsWithTheRunnerUpMaximumAndTheLeaderPrice() {
+        proxies.put(new ProxyBids.Proxy("alice", 50D));
+        proxies.put(new ProxyBids.Proxy("bob", 30D));
+        proxies.put(new ProxyBids.Proxy("carol", 45D));
+
+        assertThat(bids(proxies.resolve(20D, "alice", INCREMENT))).containsExactly("carol@45.0", "alice@46.0");
+    }
+
+    @Test
+    void leaderPriceIsCappedByItsMaximum() {
+        proxies.put(new ProxyBids.Proxy("alice", 50D));
+        proxies.put(new ProxyBids.Proxy("bob", 49.5D));
+
+        assertThat(bids(proxies.resolve(20D, "dave", INCREMENT))).containsExactly("bob@49.5", "alice@50.0");
+    }
+
+    @Test
+    void earlierProxyWinsATie() {
+        proxies.put(new ProxyBids.Proxy("alice", 50D));
+        proxies.put(new ProxyBids.Proxy("bob", 50D));
+
+        assertThat(bids(proxies.resolve(20D, "dave", INCREMENT))).containsExactly("alice@50.0");
+    }
+
+    @Test
+    void proxiesBelowTheHighestBidStayOut() {
+        proxies.put(new ProxyBids.Proxy("alice", 50D));
+        proxies.put(new ProxyBids.Proxy("bob", 30D));
+
+        assertThat(bids(proxies.resolve(40D, "dave", INCREMENT))).containsExactly("alice@41.0");
+        assertThat(proxies.resolve(60D, "dave", INCREMENT)).isEmpty();
+    }
+
+    @Test
+    void raisingAMaximumReplacesTheProxy() {
+        ProxyBids.Proxy first = new ProxyBids.Proxy("alice", 30D);
+        proxies.put(first);
+        proxies.put(new ProxyBids.Proxy("bob", 40D));
+
+        assertThat(proxies.put(new ProxyBids.Proxy("alice", 60D))).isSameAs(first);
+        assertThat(proxies.size()).isEqualTo(2);
+        assertThat(proxies.get("alice").maxAmount).isEqualTo(60D);
+        assertThat(bids(proxies.resolve(20D, "bob", INCREMENT))).containsExactly("bob@40.0", "alice@41.0");
+
+        assertThat(proxies.remove("alice").maxAmount).isEqualTo(60D);
+        assertThat(proxies.remove("alice")).isNull();
+    }
+
+    private static List<String> bids(List<ProxyBids.Bid> bids) {
+        return bids.stream().map(bid -> bid.bidder + "@" + bid.value).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,253 @@
+package at.jku.service.bid.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import at.jku.IntegrationTest;
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.Auction;
+import at.jku.domain.Offer;
+import at.jku.repository.AuctionRepository;
+import at.jku.repository.OfferRepository;
+import at.jku.service.bid.BidBook;
+import at.jku.service.outbox.Outbox;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Integration tests for {@link BidJournal}, each running a journal of its own against the test database.
+ */
+@IntegrationTest
+class BidJournalIT {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    private static final int ID_BLOCK_SIZE = 50;
+
+    @Autowired
+    private BidBook bidBook;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private AuctionRepository auctionRepository;
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    Path directory;
+
+    private final List<Auction> auctions = new ArrayList<>();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BidJournal bidJournal;
+
+    @BeforeEach
+    public void initTest() {
+        meterRegistry = new SimpleMeterRegistry();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.BidJournal properties = applicationProperties.getBidJournal();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSize(SEGMENT_SIZE);
+        properties.setFlushBatchSize(10);
+        properties.setFlushInterval(Duration.ofMillis(50));
+        properties.setDrainTimeout(Duration.ofSeconds(30));
+        bidJournal =
+            new BidJournal(
+                bidBook,
+                offerRepository,
+                auctionRepository,
+                outbox,
+                transactionManager,
+                dataSource,
+                entityManagerFactory,
+                applicationProperties,
+                meterRegistry
+            );
+    }
+
+    @AfterEach
+    public void cleanup() {
+        if (bidJournal.isRunning()) {
+            bidJournal.stop();
+        }
+        for (Auction auction : auctions) {
+            offerRepository.findAllBidsByAuctionId(auction.getId()).forEach(bid -> offerRepository.deleteById(bid.getId()));
+            auctionRepository.deleteById(auction.getId());
+            bidBook.evict(auction.getId());
+        }
+    }
+
+    @Test
+    void replaysTheSegmentsLeftOverAtStartup() throws IOException {
+        Auction auction = createAuction();
+        long block = nextIdBlock();
+        long writtenId = block - 2;
+        long leftId = block - 1;
+        long droppedId = block;
+        JournalSegment segment = JournalSegment.create(directory, 3, SEGMENT_SIZE);
+        segment.append(writtenId, auction.getId(), 10D, "alice");
+        segment.append(leftId, auction.getId(), 11D, "bob");
+        segment.append(droppedId, Long.MAX_VALUE, 12D, "carol");
+        segment.force();
+        // the first bid was written to the database before the crash left its segment behind
+        new JdbcTemplate(dataSource)
+            .update(
+                "insert into offer (id, offer_value, bidder, offer_name_id, version) values (?, ?, ?, ?, 0)",
+                writtenId,
+                10D,
+                "alice",
+                auction.getId()
+            );
+
+        bidJournal.start();
+
+        assertThat(offerRepository.findAllBidsByAuctionId(auction.getId()))
+            .extracting(OfferRepository.Bid::getId, OfferRepository.Bid::getOfferValue, OfferRepository.Bid::getBidder)
+            .containsExactlyInAnyOrder(tuple(writtenId, 10D, "alice"), tuple(leftId, 11D, "bob"));
+        assertThat(offerRepository.findById(droppedId)).isEmpty();
+        // the replayed segment is gone, a new one follows it
+        assertThat(JournalSegment.list(directory)).hasSize(1);
+        assertThat(JournalSegment.open(JournalSegment.list(directory).get(0)).getIndex()).isEqualTo(4);
+    }
+
+    @Test
+    void drainsTheJournalAtStop() throws IOException {
+        Auction auction = createAuction();
+        bidJournal.start();
+
+        List<Long> offerIds = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            offerIds.add(bidJournal.placeBid(bid(auction, i)).getId());
+        }
+        bidJournal.stop();
+
+        assertThat(bidJournal.isRunning()).isFalse();
+        assertThat(offerRepository.findExistingIds(offerIds)).containsExactlyInAnyOrderElementsOf(offerIds);
+        assertThat(JournalSegment.list(directory)).isEmpty();
+    }
+
+    @Test
+    void waitsForTheBidsAppendedToBeWritten() {
+        Auction auction = createAuction();
+        bidJournal.start();
+
+        List<Long> offerIds = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            offerIds.add(bidJournal.placeBid(bid(auction, i)).getId());
+        }
+        bidJournal.awaitWritten();
+
+        assertThat(bidJournal.isRunning()).isTrue();
+        assertThat(offerRepository.findExistingIds(offerIds)).containsExactlyInAnyOrderElementsOf(offerIds);
+    }
+
+    @Test
+    void wakesUpEveryBidderWaitingForTheSameSync() throws Exception {
+        int bidders = 16;
+        int bidsPerBidder = 25;
+        List<Auction> biddenOn = new ArrayList<>();
+        for (int i = 0; i < bidders; i++) {
+            biddenOn.add(createAuction());
+        }
+        bidJournal.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(bidders);
+        List<Future<List<Long>>> placed = new ArrayList<>();
+        try {
+            for (Auction auction : biddenOn) {
+                placed.add(
+                    executor.submit(() -> {
+                        List<Long> offerIds = new ArrayList<>();
+                        for (int i = 1; i <= bidsPerBidder; i++) {
+                            offerIds.add(bidJournal.placeBid(bid(auction, i)).getId());
+                        }
+                        return offerIds;
+                    })
+                );
+            }
+            Set<Long> offerIds = new HashSet<>();
+            for (Future<List<Long>> offers : placed) {
+                // a bidder missing the wakeup of its sync would hang here
+                offerIds.addAll(offers.get(30, TimeUnit.SECONDS));
+            }
+
+            assertThat(offerIds).hasSize(bidders * bidsPerBidder);
+            long syncs = meterRegistry.get("bid.journal.sync").timer().count();
+            assertThat(syncs).isPositive().isLessThanOrEqualTo(bidders * bidsPerBidder);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void handsOutIdsClearOfTheOnesHibernateAllocates() {
+        Auction journaled = createAuction();
+        Auction saved = createAuction();
+        bidJournal.start();
+
+        List<Long> ids = new ArrayList<>();
+        // enough offers of each to go through several blocks of the shared sequence
+        for (int i = 1; i <= 3 * ID_BLOCK_SIZE; i++) {
+            ids.add(bidJournal.placeBid(bid(journaled, i)).getId());
+            ids.add(offerRepository.saveAndFlush(bid(saved, i)).getId());
+        }
+        bidJournal.stop();
+
+        assertThat(ids).doesNotHaveDuplicates();
+        assertThat(offerRepository.findExistingIds(ids)).hasSameSizeAs(ids);
+        assertThat(offerRepository.findAllBidsByAuctionId(journaled.getId())).hasSize(3 * ID_BLOCK_SIZE);
+    }
+
+    private Auction createAuction() {
+        Auction auction = auctionRepository.saveAndFlush(new Auction().auctionDescription("AAAAAAAAAA"));
+        auctions.add(auction);
+        return auction;
+    }
+
+    private static Offer bid(Auction auction, double value) {
+        return new Offer().offerValue(value).bidder("bidder").offerName(auction);
+    }
+
+    private long nextIdBlock() {
+        String sql = entityManagerFactory
+            .unwrap(SessionFactoryImplementor.class)
+            .getJdbcServices()
+            .getDialect()
+            .getSequenceNextValString("sequence_generator");
+        return new JdbcTemplate(dataSource).queryForObject(sql, Long.class);
+    }
+}
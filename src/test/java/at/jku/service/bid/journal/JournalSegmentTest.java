@@ -0,0 +1,87 @@
+package at.jku.service.bid.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for {@link JournalSegment}.
+ */
+class JournalSegmentTest {
+
+    private static final int SEGMENT_SIZE = 256;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsTheBidsBackInOrder() throws IOException {
+        JournalSegment segment = JournalSegment.create(directory, 7, SEGMENT_SIZE);
+        assertThat(segment.append(1051L, 3L, 10.5D, "alice")).isTrue();
+        assertThat(segment.append(1052L, 3L, 11D, null)).isTrue();
+        assertThat(segment.append(1053L, 4L, 2D, "zoë")).isTrue();
+        segment.force();
+
+        JournalSegment reopened = JournalSegment.open(JournalSegment.list(directory).get(0));
+
+        assertThat(reopened.getIndex()).isEqualTo(7);
+        assertThat(bids(reopened.read())).containsExactly("1051:3:10.5:alice:7", "1052:3:11.0:null:7", "1053:4:2.0:zoë:7");
+    }
+
+    @Test
+    void refusesABidBeyondItsSize() throws IOException {
+        JournalSegment segment = JournalSegment.create(directory, 0, SEGMENT_SIZE);
+        int count = 0;
+        while (segment.append(count, 1L, count, "bidder")) {
+            count++;
+        }
+
+        // 8 bytes of header and 32 of payload per bid
+        assertThat(count).isEqualTo(SEGMENT_SIZE / 40);
+        assertThat(segment.read()).hasSize(count);
+    }
+
+    @Test
+    void stopsAtATornBid() throws IOException {
+        JournalSegment segment = JournalSegment.create(directory, 0, SEGMENT_SIZE);
+        segment.append(1L, 1L, 1D, "alice");
+        segment.append(2L, 1L, 2D, "bob");
+        segment.append(3L, 1L, 3D, "carol");
+        segment.force();
+        Path path = JournalSegment.list(directory).get(0);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // the value of the second bid, after the first bid of 39 bytes, its header and two ids
+            channel.write(ByteBuffer.wrap(new byte[] { 42 }), 39 + 8 + 16);
+        }
+
+        assertThat(bids(JournalSegment.open(path).read())).containsExactly("1:1:1.0:alice:0");
+    }
+
+    @Test
+    void listsTheSegmentsByIndex() throws IOException {
+        JournalSegment.create(directory, 10, SEGMENT_SIZE);
+        JournalSegment.create(directory, 2, SEGMENT_SIZE);
+        JournalSegment third = JournalSegment.create(directory, 9, SEGMENT_SIZE);
+
+        third.delete();
+
+        assertThat(JournalSegment.list(directory))
+            .extracting(path -> path.getFileName().toString())
+            .containsExactly("bids-00000000000000000002.journal", "bids-00000000000000000010.journal");
+    }
+
+    private static List<String> bids(List<JournaledBid> bids) {
+        return bids
+            .stream()
+            .map(bid -> bid.getOfferId() + ":" + bid.getAuctionId() + ":" + bid.getOfferValue() + ":" + bid.getBidder() + ":" + bid.getSegment())
+            .collect(Collectors.toList());
+    }
+}
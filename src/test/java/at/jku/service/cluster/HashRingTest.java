@@ -0,0 +1,85 @@
+package at.jku.service.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link HashRing}.
+ */
+class HashRingTest {
+
+    private static final int VIRTUAL_NODES = 160;
+
+    private static final int AUCTIONS = 100_000;
+
+    private static final List<String> MEMBERS = List.of("http://localhost:8081", "http://localhost:8082", "http://localhost:8083");
+
+    @Test
+    void ownsNothingWithoutMembers() {
+        assertThat(HashRing.of(List.of(), VIRTUAL_NODES).ownerOf(1051L)).isNull();
+    }
+
+    @Test
+    void givesTheSameOwnersWhateverTheOrderOfTheMembers() {
+        HashRing ring = HashRing.of(MEMBERS, VIRTUAL_NODES);
+        HashRing reversed = HashRing.of(List.of(MEMBERS.get(2), MEMBERS.get(1), MEMBERS.get(0)), VIRTUAL_NODES);
+
+        for (long auctionId = 0; auctionId < 1000; auctionId++) {
+            assertThat(reversed.ownerOf(auctionId)).isEqualTo(ring.ownerOf(auctionId));
+        }
+    }
+
+    @Test
+    void spreadsTheAuctionsEvenly() {
+        Map<String, Long> counts = owners(HashRing.of(MEMBERS, VIRTUAL_NODES))
+            .values()
+            .stream()
+            .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+        assertThat(counts).hasSize(3);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(AUCTIONS / 3 * 8 / 10L, AUCTIONS / 3 * 12 / 10L));
+    }
+
+    @Test
+    void movesOnlyTheAuctionsOfTheMemberJoining() {
+        Map<Long, String> before = owners(HashRing.of(MEMBERS, VIRTUAL_NODES));
+        String joining = "http://localhost:8084";
+        Map<Long, String> after = owners(HashRing.of(List.of(MEMBERS.get(0), MEMBERS.get(1), MEMBERS.get(2), joining), VIRTUAL_NODES));
+
+        long moved = 0;
+        for (long auctionId = 0; auctionId < AUCTIONS; auctionId++) {
+            if (!after.get(auctionId).equals(before.get(auctionId))) {
+                assertThat(after.get(auctionId)).isEqualTo(joining);
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(AUCTIONS / 4 * 8 / 10L, AUCTIONS / 4 * 12 / 10L);
+    }
+
+    @Test
+    void movesOnlyTheAuctionsOfTheMemberLeaving() {
+        Map<Long, String> before = owners(HashRing.of(MEMBERS, VIRTUAL_NODES));
+        String leaving = MEMBERS.get(1);
+        Map<Long, String> after = owners(HashRing.of(List.of(MEMBERS.get(0), MEMBERS.get(2)), VIRTUAL_NODES));
+
+        for (long auctionId = 0; auctionId < AUCTIONS; auctionId++) {
+            if (!before.get(auctionId).equals(leaving)) {
+                assertThat(after.get(auctionId)).isEqualTo(before.get(auctionId));
+            }
+        }
+    }
+
+    private static Map<Long, String> owners(HashRing ring) {
+        Map<Long, String> owners = new HashMap<>();
+        for (long auctionId = 0; auctionId < AUCTIONS; auctionId++) {
+            owners.put(auctionId, ring.ownerOf(auctionId));
+        }
+        return owners;
+    }
+}
@@ -0,0 +1,164 @@
+package at.jku.service.invalidation;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import at.jku.IntegrationTest;
+import at.jku.config.ApplicationProperties;
+import at.jku.domain.Auction;
+import at.jku.domain.Offer;
+import at.jku.domain.User;
+import at.jku.repository.AuctionRepository;
+import at.jku.repository.OfferRepository;
+import at.jku.repository.UserRepository;
+import at.jku.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import javax.sql.DataSource;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Integration tests for the {@link CacheInvalidationPublisher} and {@link CacheInvalidationListener}, between the
+ * instance of the test context and another one listening on the same database.
+ */
+@IntegrationTest
+@TestPropertySource(
+    properties = {
+        "application.cache-invalidation.enabled=true",
+        "application.cache-invalidation.poll-timeout=100ms",
+        // only the changes of cached entities are sent
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+    }
+)
+@EnabledIfSystemProperty(
+    named = "spring.profiles.active",
+    matches = ".*testprod.*",
+    disabledReason = "LISTEN/NOTIFY needs the PostgreSQL test container"
+)
+class CacheInvalidationIT {
+
+    private static final String OTHER_NODE_ID = "other-instance";
+
+    private static final long TIMEOUT = 5000;
+
+    @SpyBean
+    private LocalCaches localCaches;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private AuctionRepository auctionRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    private final LocalCaches otherCaches = mock(LocalCaches.class);
+
+    private CacheInvalidationListener otherListener;
+
+    @BeforeEach
+    public void startOtherInstance() throws InterruptedException {
+        CacheInvalidationPublisher otherPublisher = mock(CacheInvalidationPublisher.class);
+        when(otherPublisher.getNodeId()).thenReturn(OTHER_NODE_ID);
+        otherListener =
+            new CacheInvalidationListener(
+                otherCaches,
+                otherPublisher,
+                dataSourceProperties,
+                applicationProperties,
+                new SimpleMeterRegistry()
+            );
+        // notifications sent before both listeners listen are lost
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (
+            (mockingDetails(otherCaches).getInvocations().isEmpty() || mockingDetails(localCaches).getInvocations().isEmpty()) &&
+            System.currentTimeMillis() < deadline
+        ) {
+            sendNotification("probe Probe:0");
+            Thread.sleep(100);
+        }
+        clearInvocations(otherCaches, localCaches);
+    }
+
+    @AfterEach
+    public void stopOtherInstance() {
+        otherListener.destroy();
+    }
+
+    @Test
+    void sendsTheInsertionOfAnOfferAsAChangeOfItsAuction() {
+        Auction auction = auctionRepository.saveAndFlush(new Auction().auctionDescription("AAAAAAAAAA"));
+        Offer offer = offerRepository.saveAndFlush(new Offer().offerValue(1D).offerName(auction));
+
+        try {
+            // the offers of the auction are cached with it on the other instance
+            verify(otherCaches, timeout(TIMEOUT)).evict("Auction:" + auction.getId());
+            verify(localCaches, after(500).never()).evict("Auction:" + auction.getId());
+        } finally {
+            offerRepository.deleteById(offer.getId());
+            auctionRepository.deleteById(auction.getId());
+        }
+    }
+
+    @Test
+    void sendsTheUsersDeletedInBulk() {
+        User user = new User();
+        user.setLogin("purged-" + RandomStringUtils.randomAlphanumeric(8).toLowerCase());
+        user.setPassword(RandomStringUtils.randomAlphanumeric(60));
+        user.setActivated(false);
+        user.setActivationKey(RandomStringUtils.randomAlphanumeric(20));
+        user.setLangKey("en");
+        user = userRepository.saveAndFlush(user);
+        Timestamp fourDaysAgo = Timestamp.from(Instant.now().minus(4, ChronoUnit.DAYS));
+        new JdbcTemplate(dataSource).update("update jhi_user set created_date = ? where id = ?", fourDaysAgo, user.getId());
+
+        userService.removeNotActivatedUsers();
+
+        verify(otherCaches, timeout(TIMEOUT)).evict("User:" + user.getId());
+    }
+
+    @Test
+    void evictsTheChangesOfTheOtherInstances() {
+        sendNotification(OTHER_NODE_ID + " Auction:1051 Offer:1052");
+
+        verify(localCaches, timeout(TIMEOUT)).evict("Auction:1051");
+        verify(localCaches, timeout(TIMEOUT)).evict("Offer:1052");
+        verify(otherCaches, after(500).never()).evict(anyString());
+    }
+
+    private void sendNotification(String payload) {
+        String channel = applicationProperties.getCacheInvalidation().getChannel();
+        new JdbcTemplate(dataSource).queryForList("select pg_notify(?, ?)", channel, payload);
+    }
+}
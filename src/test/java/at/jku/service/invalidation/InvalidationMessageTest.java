@@ -0,0 +1,63 @@
+package at.jku.service.invalidation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link InvalidationMessage}.
+ */
+class InvalidationMessageTest {
+
+    private static final String NODE_ID = "3f0c8a52-6a4e-4d0b-9a57-0c1f6d2b9e11";
+
+    @Test
+    void parsesTheKeysBack() {
+        List<String> payloads = InvalidationMessage.encode(
+            NODE_ID,
+            List.of(InvalidationMessage.key("Auction", 1051L), InvalidationMessage.key("Authority", "ROLE_USER"))
+        );
+
+        assertThat(payloads).hasSize(1);
+        InvalidationMessage message = InvalidationMessage.parse(payloads.get(0));
+        assertThat(message.getNodeId()).isEqualTo(NODE_ID);
+        assertThat(message.getKeys()).containsExactly("Auction:1051", "Authority:ROLE_USER");
+        assertThat(message.isFlushAll()).isFalse();
+    }
+
+    @Test
+    void splitsTheKeysBeyondThePayloadLimit() {
+        List<String> keys = IntStream
+            .range(0, 2000)
+            .mapToObj(id -> InvalidationMessage.key("Offer", 1000L + id))
+            .collect(Collectors.toList());
+
+        List<String> payloads = InvalidationMessage.encode(NODE_ID, keys);
+
+        assertThat(payloads).hasSizeGreaterThan(1);
+        assertThat(payloads).allSatisfy(payload -> {
+            assertThat(payload.getBytes(StandardCharsets.UTF_8).length).isLessThanOrEqualTo(InvalidationMessage.MAX_PAYLOAD_BYTES);
+            assertThat(payload).startsWith(NODE_ID + " ");
+        });
+        List<String> parsed = new ArrayList<>();
+        payloads.forEach(payload -> parsed.addAll(InvalidationMessage.parse(payload).getKeys()));
+        assertThat(parsed).isEqualTo(keys);
+    }
+
+    @Test
+    void sendsNothingWithoutKeys() {
+        assertThat(InvalidationMessage.encode(NODE_ID, List.of())).isEmpty();
+    }
+
+    @Test
+    void recognisesAFlushOfAllCaches() {
+        String payload = InvalidationMessage.encode(NODE_ID, List.of(InvalidationMessage.FLUSH_ALL)).get(0);
+
+        assertThat(InvalidationMessage.parse(payload).isFlushAll()).isTrue();
+    }
+}
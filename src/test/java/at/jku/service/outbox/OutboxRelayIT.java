@@ -0,0 +1,118 @@
+package at.jku.service.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import at.jku.IntegrationTest;
+import at.jku.domain.Auction;
+import at.jku.domain.Offer;
+import at.jku.domain.enumeration.ChangeType;
+import at.jku.repository.OutboxEventRepository;
+import at.jku.repository.OutboxOffsetRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Integration tests for {@link Outbox} and {@link OutboxRelay}.
+ */
+@IntegrationTest
+@Transactional
+@RecordApplicationEvents
+class OutboxRelayIT {
+
+    @Autowired
+    private Outbox outbox;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxOffsetRepository outboxOffsetRepository;
+
+    @Autowired
+    private FileOutboxSink fileOutboxSink;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @Test
+    void relaysTheChangesInOrder() throws Exception {
+        Auction auction = new Auction().auctionDescription("outboxed");
+        em.persist(auction);
+        Offer offer = new Offer().offerValue(10D).bidder("alice").offerName(auction);
+        em.persist(offer);
+        em.flush();
+        outbox.auctionChanged(ChangeType.CREATED, auction);
+        outbox.offerChanged(ChangeType.CREATED, offer);
+        outbox.offerDeleted(offer);
+
+        outboxRelay.relay();
+
+        List<ChangeEvent> relayed = applicationEvents
+            .stream(ChangeEvent.class)
+            .filter(event -> isAbout(event, Outbox.AUCTION, auction.getId()) || isAbout(event, Outbox.OFFER, offer.getId()))
+            .collect(Collectors.toList());
+        assertThat(relayed)
+            .extracting(ChangeEvent::getEntityName, ChangeEvent::getType)
+            .containsExactly(
+                tuple(Outbox.AUCTION, ChangeType.CREATED),
+                tuple(Outbox.OFFER, ChangeType.CREATED),
+                tuple(Outbox.OFFER, ChangeType.DELETED)
+            );
+        assertThat(relayed).extracting(ChangeEvent::getId).isSorted();
+        assertThat(outboxEventRepository.findAll()).isEmpty();
+        assertThat(outboxOffsetRepository.findById(OutboxRelay.RELAY_NAME))
+            .hasValueSatisfying(offset -> assertThat(offset.getLastEventId()).isGreaterThanOrEqualTo(relayed.get(2).getId()));
+
+        List<JsonNode> lines = Files
+            .readAllLines(fileOutboxSink.getPath())
+            .stream()
+            .map(this::readTree)
+            .filter(line -> relayed.stream().anyMatch(event -> event.getId() == line.get("id").asLong()))
+            .collect(Collectors.toList());
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(1).get("payload").get("auctionId").asLong()).isEqualTo(auction.getId());
+        assertThat(lines.get(1).get("payload").get("offerValue").asDouble()).isEqualTo(10D);
+        assertThat(lines.get(1).get("payload").get("bidder").asText()).isEqualTo("alice");
+    }
+
+    @Test
+    void relaysNothingWhenTheOutboxIsEmpty() {
+        outboxEventRepository.deleteAll();
+
+        outboxRelay.relay();
+
+        assertThat(applicationEvents.stream(ChangeEvent.class)).isEmpty();
+    }
+
+    private static boolean isAbout(ChangeEvent event, String entityName, long entityId) {
+        return event.getEntityName().equals(entityName) && event.getEntityId() == entityId;
+    }
+
+    private JsonNode readTree(String line) {
+        try {
+            return objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
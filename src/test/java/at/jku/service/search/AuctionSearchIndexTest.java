@@ -0,0 +1,147 @@
+package at.jku.service.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import at.jku.repository.AuctionRepository;
+import at.jku.service.dto.AuctionDTO;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit tests for {@link AuctionSearchIndex}.
+ */
+class AuctionSearchIndexTest {
+
+    private AuctionRepository auctionRepository;
+
+    private AuctionSearchIndex index;
+
+    @BeforeEach
+    public void init() {
+        auctionRepository = mock(AuctionRepository.class);
+        index = new AuctionSearchIndex(auctionRepository, mock(PlatformTransactionManager.class));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void tokenizeIgnoresCaseAccentsAndPunctuation() {
+        assertThat(AuctionSearchIndex.tokenize("Vintage Café-Chair, café!"))
+            .containsExactly(entry("vintage", 1), entry("cafe", 2), entry("chair", 1));
+    }
+
+    @Test
+    void ranksRareWordsAndShortDescriptionsFirst() {
+        index.index(1L, "red bike with a basket and a bell");
+        index.index(2L, "red bike");
+        index.index(3L, "red lamp");
+        index.index(4L, "blue lamp");
+
+        Page<AuctionDTO> page = index.search("red bike", PageRequest.of(0, 10));
+
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(page.getContent()).extracting(AuctionDTO::getId).containsExactly(2L, 1L, 3L);
+        assertThat(page.getContent().get(0).getAuctionDescription()).isEqualTo("red bike");
+    }
+
+    @Test
+    void paginatesRankedMatches() {
+        for (long id = 1; id <= 5; id++) {
+            index.index(id, "lamp");
+        }
+
+        Page<AuctionDTO> page = index.search("lamp", PageRequest.of(1, 2));
+
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(page.getContent()).extracting(AuctionDTO::getId).containsExactly(3L, 4L);
+    }
+
+    @Test
+    void replacesAndRemovesDescriptions() {
+        index.index(1L, "red bike");
+        index.index(1L, "blue lamp");
+
+        assertThat(index.search("bike", PageRequest.of(0, 10))).isEmpty();
+        assertThat(index.search("lamp", PageRequest.of(0, 10))).extracting(AuctionDTO::getId).containsExactly(1L);
+
+        index.remove(1L);
+
+        assertThat(index.search("lamp", PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    void emptyQueryMatchesNothing() {
+        index.index(1L, "red bike");
+
+        assertThat(index.search(" ,; ", PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    void readsTheCommittedDescriptionBackOnRollback() {
+        index.index(1L, "red bike");
+        when(auctionRepository.findAuctionDescriptionById(1L)).thenReturn(Optional.of("red bike"));
+
+        List<TransactionSynchronization> rolledBack = inTransaction(() -> index.index(1L, "blue lamp"));
+        complete(rolledBack, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThat(index.search("bike", PageRequest.of(0, 10))).extracting(AuctionDTO::getId).containsExactly(1L);
+        assertThat(index.search("lamp", PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    void keepsALaterChangeOnRollback() {
+        List<TransactionSynchronization> rolledBack = inTransaction(() -> index.index(1L, "red bike"));
+        List<TransactionSynchronization> committed = inTransaction(() -> index.index(1L, "blue lamp"));
+
+        complete(rolledBack, TransactionSynchronization.STATUS_ROLLED_BACK);
+        complete(committed, TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(auctionRepository, never()).findAuctionDescriptionById(1L);
+        assertThat(index.search("lamp", PageRequest.of(0, 10))).extracting(AuctionDTO::getId).containsExactly(1L);
+    }
+
+    @Test
+    void keepsALaterRemovalOnRollback() {
+        index.index(1L, "red bike");
+
+        List<TransactionSynchronization> rolledBack = inTransaction(() -> index.remove(1L));
+        List<TransactionSynchronization> committed = inTransaction(() -> index.remove(1L));
+        complete(rolledBack, TransactionSynchronization.STATUS_ROLLED_BACK);
+        complete(committed, TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(auctionRepository, never()).findAuctionDescriptionById(1L);
+        assertThat(index.search("bike", PageRequest.of(0, 10))).isEmpty();
+    }
+
+    private static List<TransactionSynchronization> inTransaction(Runnable change) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            change.run();
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void complete(List<TransactionSynchronization> synchronizations, int status) {
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,66 @@
+package at.jku.web.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link ForwardSignature}.
+ */
+class ForwardSignatureTest {
+
+    private static final String SECRET = "a secret shared by the members";
+
+    private static final String MEMBER = "http://localhost:8081";
+
+    private static final String PATH = "/api/offers/1051";
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private static final byte[] BODY = "{\"id\":1051,\"offerValue\":12.5}".getBytes(StandardCharsets.UTF_8);
+
+    private final ForwardSignature signature = new ForwardSignature(SECRET, Duration.ofSeconds(15));
+
+    @Test
+    void acceptsTheSignatureOfTheSameRequest() {
+        String signed = signature.sign(MEMBER, NOW, "PUT", PATH, BODY);
+
+        assertThat(signature.verify(signed, MEMBER, Long.toString(NOW), "PUT", PATH, BODY, NOW + 1000)).isTrue();
+    }
+
+    @Test
+    void refusesTheSignatureOfAnotherRequest() {
+        String signed = signature.sign(MEMBER, NOW, "PUT", PATH, BODY);
+        byte[] otherBody = "{\"id\":1051,\"offerValue\":99.5}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(signature.verify(signed, "http://localhost:8082", Long.toString(NOW), "PUT", PATH, BODY, NOW)).isFalse();
+        assertThat(signature.verify(signed, MEMBER, Long.toString(NOW + 1), "PUT", PATH, BODY, NOW)).isFalse();
+        assertThat(signature.verify(signed, MEMBER, Long.toString(NOW), "DELETE", PATH, BODY, NOW)).isFalse();
+        assertThat(signature.verify(signed, MEMBER, Long.toString(NOW), "PUT", "/api/offers/1052", BODY, NOW)).isFalse();
+        assertThat(signature.verify(signed, MEMBER, Long.toString(NOW), "PUT", PATH, otherBody, NOW)).isFalse();
+    }
+
+    @Test
+    void refusesASignatureMadeWithAnotherSecret() {
+        String signed = new ForwardSignature("a guess", Duration.ofSeconds(15)).sign(MEMBER, NOW, "PUT", PATH, BODY);
+
+        assertThat(signature.verify(signed, MEMBER, Long.toString(NOW), "PUT", PATH, BODY, NOW)).isFalse();
+    }
+
+    @Test
+    void refusesAStaleSignature() {
+        String signed = signature.sign(MEMBER, NOW, "PUT", PATH, BODY);
+
+        assertThat(signature.verify(signed, MEMBER, Long.toString(NOW), "PUT", PATH, BODY, NOW + 16_000)).isFalse();
+        assertThat(signature.verify(signed, MEMBER, Long.toString(NOW), "PUT", PATH, BODY, NOW - 16_000)).isFalse();
+    }
+
+    @Test
+    void refusesAMissingOrMalformedSignature() {
+        assertThat(signature.verify(null, MEMBER, Long.toString(NOW), "PUT", PATH, BODY, NOW)).isFalse();
+        assertThat(signature.verify("not base64!", MEMBER, Long.toString(NOW), "PUT", PATH, BODY, NOW)).isFalse();
+        assertThat(signature.verify(signature.sign(MEMBER, NOW, "PUT", PATH, BODY), MEMBER, "now", "PUT", PATH, BODY, NOW)).isFalse();
+    }
+}
@@ -0,0 +1,115 @@
+package at.jku.web.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import at.jku.IntegrationTest;
+import at.jku.domain.IdempotentResponse;
+import at.jku.repository.IdempotentResponseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Integration tests for {@link IdempotentRequests}.
+ */
+@IntegrationTest
+@WithMockUser
+class IdempotentRequestsIT {
+
+    private static final String ENDPOINT = "test";
+
+    private static final String REQUEST = "request";
+
+    @Autowired
+    private IdempotentRequests idempotentRequests;
+
+    @Autowired
+    private IdempotentResponseRepository idempotentResponseRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void replaysTheResponseOfARequestFailingAfterItTookEffect() throws Exception {
+        String key = UUID.randomUUID().toString();
+        AtomicInteger handled = new AtomicInteger();
+        IdempotentRequests.EarlyEffectHandler<String> handler = tookEffect -> {
+            handled.incrementAndGet();
+            tookEffect.accept(ResponseEntity.status(HttpStatus.CREATED).body("created"));
+            throw new IllegalStateException("The commit failed");
+        };
+
+        try {
+            assertThatThrownBy(() -> idempotentRequests.handle(ENDPOINT, key, REQUEST, handler)).isInstanceOf(IllegalStateException.class);
+            ResponseEntity<String> repeated = idempotentRequests.handle(ENDPOINT, key, REQUEST, handler);
+
+            assertThat(handled).hasValue(1);
+            assertThat(repeated.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+            assertThat(repeated.getHeaders().getFirst(IdempotentRequests.REPLAYED_HEADER)).isEqualTo("true");
+            assertThat(repeated.getBody()).isEqualTo("\"created\"");
+        } finally {
+            idempotentResponseRepository.deleteById(id(key));
+        }
+    }
+
+    @Test
+    void releasesTheKeyOfARequestFailingBeforeItTookEffect() throws Exception {
+        String key = UUID.randomUUID().toString();
+        AtomicInteger handled = new AtomicInteger();
+        IdempotentRequests.Handler<String> failing = () -> {
+            handled.incrementAndGet();
+            throw new IllegalStateException("The request failed");
+        };
+
+        assertThatThrownBy(() -> idempotentRequests.handle(ENDPOINT, key, REQUEST, failing)).isInstanceOf(IllegalStateException.class);
+        assertThat(idempotentResponseRepository.findById(id(key))).isEmpty();
+        try {
+            ResponseEntity<String> retried = idempotentRequests.handle(ENDPOINT, key, REQUEST, () -> ResponseEntity.ok("done"));
+
+            assertThat(handled).hasValue(1);
+            assertThat(retried.getBody()).isEqualTo("done");
+            assertThat(retried.getHeaders().containsKey(IdempotentRequests.REPLAYED_HEADER)).isFalse();
+        } finally {
+            idempotentResponseRepository.deleteById(id(key));
+        }
+    }
+
+    @Test
+    void answersAKeyReservedElsewhereWithConflict() throws Exception {
+        String key = UUID.randomUUID().toString();
+        IdempotentResponse reservation = new IdempotentResponse();
+        reservation.setId(id(key));
+        reservation.setRequestHash(IdempotentRequests.hash(objectMapper.writeValueAsString(REQUEST)));
+        reservation.setStatus(IdempotentRequests.RESERVED);
+        reservation.setCreatedDate(Instant.now());
+        idempotentResponseRepository.saveAndFlush(reservation);
+
+        try {
+            assertThatThrownBy(() -> idempotentRequests.handle(ENDPOINT, key, REQUEST, () -> ResponseEntity.ok("done")))
+                .isInstanceOfSatisfying(
+                    ResponseStatusException.class,
+                    e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT)
+                );
+            assertThatThrownBy(() -> idempotentRequests.handle(ENDPOINT, key, "another request", () -> ResponseEntity.ok("done")))
+                .isInstanceOfSatisfying(
+                    ResponseStatusException.class,
+                    e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+                );
+        } finally {
+            idempotentResponseRepository.deleteById(id(key));
+        }
+    }
+
+    private static String id(String key) {
+        // the login of the mock user
+        return IdempotentRequests.hash("user\n" + ENDPOINT + '\n' + key);
+    }
+}
@@ -1,21 +1,36 @@
 package at.jku.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import at.jku.IntegrationTest;
 import at.jku.domain.Auction;
+import at.jku.domain.Offer;
+import at.jku.domain.enumeration.AuctionStatus;
 import at.jku.repository.AuctionRepository;
+import at.jku.repository.OfferRepository;
+import at.jku.repository.ProxyBidRepository;
+import at.jku.service.bid.BidBook;
+import at.jku.service.dto.ProxyBidDTO;
+import at.jku.web.rest.util.KeysetPaginationUtil;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
 import javax.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -41,6 +56,15 @@ class AuctionResourceIT {
     @Autowired
     private AuctionRepository auctionRepository;
 
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private ProxyBidRepository proxyBidRepository;
+
+    @Autowired
+    private BidBook bidBook;
+
     @Autowired
     private EntityManager em;
 
@@ -125,6 +149,61 @@ class AuctionResourceIT {
             .andExpect(jsonPath("$.[*].auctionDescription").value(hasItem(DEFAULT_AUCTION_DESCRIPTION)));
     }
 
+    @Test
+    @Transactional
+    void getAllAuctionsWithCursor() throws Exception {
+        Auction first = auctionRepository.saveAndFlush(createEntity(em));
+        Auction second = auctionRepository.saveAndFlush(createEntity(em));
+        Auction third = auctionRepository.saveAndFlush(createEntity(em));
+
+        restAuctionMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("rel=\"next\"")));
+
+        restAuctionMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,desc&size=1&after=" + KeysetPaginationUtil.encodeCursor(third.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(second.getId().intValue()));
+
+        restAuctionMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=id,asc&size=2&after=" + KeysetPaginationUtil.encodeCursor(first.getId())))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(second.getId().intValue()))
+            .andExpect(jsonPath("$.[1].id").value(third.getId().intValue()));
+    }
+
+    @Test
+    @Transactional
+    void getAllAuctionsWithInvalidCursorOrSort() throws Exception {
+        restAuctionMockMvc.perform(get(ENTITY_API_URL + "?after=not-a-cursor")).andExpect(status().isBadRequest());
+        restAuctionMockMvc.perform(get(ENTITY_API_URL + "?sort=auctionDescription,asc")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void exportAuctionsGzipped() throws Exception {
+        // Initialize the database
+        auctionRepository.saveAndFlush(auction);
+
+        byte[] body = restAuctionMockMvc
+            .perform(get(ENTITY_API_URL + "/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+
+        String export;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            export = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertThat(export)
+            .endsWith("\n")
+            .contains("{\"id\":" + auction.getId() + ",\"auctionDescription\":\"" + DEFAULT_AUCTION_DESCRIPTION + "\"}\n");
+    }
+
     @Test
     @Transactional
     void getAuction() throws Exception {
@@ -147,6 +226,52 @@ class AuctionResourceIT {
         restAuctionMockMvc.perform(get(ENTITY_API_URL_ID, Long.MAX_VALUE)).andExpect(status().isNotFound());
     }
 
+    @Test
+    @Transactional
+    void searchAuctions() throws Exception {
+        Auction bike = new Auction().auctionDescription("Red racing bike");
+        Auction lamp = new Auction().auctionDescription("Red lamp");
+        for (Auction created : List.of(bike, lamp)) {
+            restAuctionMockMvc
+                .perform(post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(created)))
+                .andExpect(status().isCreated());
+        }
+
+        restAuctionMockMvc
+            .perform(get("/api/_search/auctions?q=BIKE"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.[0].auctionDescription").value("Red racing bike"));
+
+        restAuctionMockMvc
+            .perform(get("/api/_search/auctions?q=red lamp"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].auctionDescription").value("Red lamp"));
+    }
+
+    @Test
+    void getAuctionEvents() throws Exception {
+        // The subscription runs outside of any transaction, so this test commits the auction and cleans up after itself
+        auctionRepository.saveAndFlush(auction);
+
+        try {
+            restAuctionMockMvc
+                .perform(get(ENTITY_API_URL_ID + "/events", auction.getId()).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andExpect(status().isOk());
+        } finally {
+            auctionRepository.deleteById(auction.getId());
+        }
+    }
+
+    @Test
+    @Transactional
+    void getEventsOfNonExistingAuction() throws Exception {
+        restAuctionMockMvc
+            .perform(get(ENTITY_API_URL_ID + "/events", Long.MAX_VALUE).accept(MediaType.TEXT_EVENT_STREAM))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     void putExistingAuction() throws Exception {
@@ -176,6 +301,198 @@ class AuctionResourceIT {
         assertThat(testAuction.getAuctionDescription()).isEqualTo(UPDATED_AUCTION_DESCRIPTION);
     }
 
+    @Test
+    @Transactional
+    void putEndDateOfClosedAuction() throws Exception {
+        // Initialize the database
+        auction.setStatus(AuctionStatus.CLOSED);
+        auctionRepository.saveAndFlush(auction);
+
+        Auction updatedAuction = auctionRepository.findById(auction.getId()).get();
+        em.detach(updatedAuction);
+        updatedAuction.endDate(Instant.now().plus(1, ChronoUnit.DAYS));
+
+        restAuctionMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedAuction.getId())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(updatedAuction))
+            )
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.auctionclosed"));
+
+        assertThat(auctionRepository.findById(auction.getId()).get().getEndDate()).isNull();
+    }
+
+    @Test
+    void putProxyBidsResolvingTheBidWarAtOnce() throws Exception {
+        // Offers are placed outside of any transaction, so this test commits its auction and cleans up after itself
+        auctionRepository.saveAndFlush(auction);
+
+        try {
+            restAuctionMockMvc
+                .perform(
+                    put(ENTITY_API_URL_ID + "/proxy-bid", auction.getId())
+                        .with(user("alice"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(proxyBid(50D)))
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.highestBid").value(1D))
+                .andExpect(jsonPath("$.leading").value(true));
+
+            // bob's proxy gives up at its maximum, alice's beats it by one increment
+            restAuctionMockMvc
+                .perform(
+                    put(ENTITY_API_URL_ID + "/proxy-bid", auction.getId())
+                        .with(user("bob"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(proxyBid(30D)))
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.maxAmount").value(30D))
+                .andExpect(jsonPath("$.highestBid").value(31D))
+                .andExpect(jsonPath("$.leading").value(false));
+
+            // a manual bid is answered right away
+            restAuctionMockMvc
+                .perform(
+                    post("/api/offers")
+                        .with(user("carol"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(new Offer().offerValue(40D).offerName(auction)))
+                )
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.bidder").value("carol"));
+
+            restAuctionMockMvc
+                .perform(get(ENTITY_API_URL_ID + "/highest-bid", auction.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("41.0"));
+            assertThat(
+                offerRepository
+                    .findAll()
+                    .stream()
+                    .filter(offer -> offer.getOfferName() != null && auction.getId().equals(offer.getOfferName().getId()))
+                    .map(offer -> offer.getBidder() + "@" + offer.getOfferValue())
+            )
+                .containsExactlyInAnyOrder("alice@1.0", "bob@30.0", "alice@31.0", "carol@40.0", "alice@41.0");
+            assertThat(proxyBidRepository.findOneByAuctionIdAndBidder(auction.getId(), "alice")).isPresent();
+        } finally {
+            deleteWithBids(auction);
+        }
+    }
+
+    @Test
+    void putProxyBidBelowTheHighestBid() throws Exception {
+        // Offers are placed outside of any transaction, so this test commits its auction and cleans up after itself
+        auctionRepository.saveAndFlush(auction);
+
+        try {
+            restAuctionMockMvc
+                .perform(
+                    post("/api/offers")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(new Offer().offerValue(40D).offerName(auction)))
+                )
+                .andExpect(status().isCreated());
+
+            restAuctionMockMvc
+                .perform(
+                    put(ENTITY_API_URL_ID + "/proxy-bid", auction.getId())
+                        .with(user("alice"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(proxyBid(40D)))
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.bidtoolow"));
+
+            restAuctionMockMvc
+                .perform(get(ENTITY_API_URL_ID + "/proxy-bid", auction.getId()).with(user("alice")))
+                .andExpect(status().isNotFound());
+        } finally {
+            deleteWithBids(auction);
+        }
+    }
+
+    @Test
+    @Transactional
+    void putExistingAuctionInTwoStatements() throws Exception {
+        // Initialize the database
+        auctionRepository.saveAndFlush(auction);
+        em.clear();
+
+        Auction updatedAuction = new Auction().id(auction.getId()).auctionDescription(UPDATED_AUCTION_DESCRIPTION);
+
+        // One select of the auction, its update and the insert of its outbox event, flushed as they would be at commit,
+        // and the fetch of a block of outbox event ids when the one in hand runs out
+        long statements = TestUtil.countStatements(
+            em,
+            () -> {
+                restAuctionMockMvc
+                    .perform(
+                        put(ENTITY_API_URL_ID, updatedAuction.getId())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(TestUtil.convertObjectToJsonBytes(updatedAuction))
+                    )
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.auctionDescription").value(UPDATED_AUCTION_DESCRIPTION));
+                em.flush();
+            }
+        );
+
+        assertThat(statements).isBetween(3L, 4L);
+    }
+
+    @Test
+    @Transactional
+    void getAuctionNotModified() throws Exception {
+        // Initialize the database
+        auctionRepository.saveAndFlush(auction);
+
+        String eTag = restAuctionMockMvc
+            .perform(get(ENTITY_API_URL_ID, auction.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+            .andReturn()
+            .getResponse()
+            .getHeader(HttpHeaders.ETAG);
+
+        restAuctionMockMvc
+            .perform(get(ENTITY_API_URL_ID, auction.getId()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+    }
+
+    @Test
+    @Transactional
+    void putAuctionWithIfMatch() throws Exception {
+        // Initialize the database
+        auctionRepository.saveAndFlush(auction);
+
+        Auction updatedAuction = new Auction().id(auction.getId()).auctionDescription(UPDATED_AUCTION_DESCRIPTION);
+
+        restAuctionMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedAuction.getId())
+                    .header(HttpHeaders.IF_MATCH, "\"0\"")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(updatedAuction))
+            )
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        // The first update consumed version 0
+        restAuctionMockMvc
+            .perform(
+                put(ENTITY_API_URL_ID, updatedAuction.getId())
+                    .header(HttpHeaders.IF_MATCH, "\"0\"")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(updatedAuction))
+            )
+            .andExpect(status().isPreconditionFailed());
+    }
+
     @Test
     @Transactional
     void putNonExistingAuction() throws Exception {
@@ -261,6 +578,38 @@ class AuctionResourceIT {
         assertThat(testAuction.getAuctionDescription()).isEqualTo(UPDATED_AUCTION_DESCRIPTION);
     }
 
+    @Test
+    @Transactional
+    void partialUpdateAuctionInTwoStatements() throws Exception {
+        // Initialize the database
+        auctionRepository.saveAndFlush(auction);
+        em.clear();
+
+        Auction partialUpdatedAuction = new Auction().id(auction.getId()).auctionDescription(UPDATED_AUCTION_DESCRIPTION);
+
+        // One select of the auction, its update and the insert of its outbox event, flushed as they would be at commit,
+        // and the fetch of a block of outbox event ids when the one in hand runs out
+        long statements = TestUtil.countStatements(
+            em,
+            () -> {
+                restAuctionMockMvc
+                    .perform(
+                        patch(ENTITY_API_URL_ID, partialUpdatedAuction.getId())
+                            .contentType("application/merge-patch+json")
+                            .content(TestUtil.convertObjectToJsonBytes(partialUpdatedAuction))
+                    )
+                    .andExpect(status().isOk());
+                em.flush();
+            }
+        );
+
+        assertThat(statements).isBetween(3L, 4L);
+        assertThat(auctionRepository.findById(auction.getId()))
+            .get()
+            .extracting(Auction::getAuctionDescription)
+            .isEqualTo(UPDATED_AUCTION_DESCRIPTION);
+    }
+
     @Test
     @Transactional
     void fullUpdateAuctionWithPatch() throws Exception {
@@ -363,4 +712,104 @@ class AuctionResourceIT {
         List<Auction> auctionList = auctionRepository.findAll();
         assertThat(auctionList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    @Test
+    void deleteAuctionWithBids() throws Exception {
+        // Offers are placed outside of any transaction, so this test commits its auction and cleans up after itself
+        auctionRepository.saveAndFlush(auction);
+
+        try {
+            restAuctionMockMvc
+                .perform(
+                    put(ENTITY_API_URL_ID + "/proxy-bid", auction.getId())
+                        .with(user("alice"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(proxyBid(50D)))
+                )
+                .andExpect(status().isOk());
+            restAuctionMockMvc
+                .perform(
+                    post("/api/offers")
+                        .with(user("bob"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(new Offer().offerValue(10D).offerName(auction)))
+                )
+                .andExpect(status().isCreated());
+
+            restAuctionMockMvc
+                .perform(delete(ENTITY_API_URL_ID, auction.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+
+            // the auction keeps its bids, and alice's proxy still answers
+            assertThat(auctionRepository.findById(auction.getId())).isPresent();
+            assertThat(proxyBidRepository.findOneByAuctionIdAndBidder(auction.getId(), "alice")).isPresent();
+            restAuctionMockMvc
+                .perform(get(ENTITY_API_URL_ID + "/highest-bid", auction.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("11.0"));
+            restAuctionMockMvc
+                .perform(
+                    post("/api/offers")
+                        .with(user("carol"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(new Offer().offerValue(5D).offerName(auction)))
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.bidtoolow"));
+
+            bidBook.close(auction.getId());
+            restAuctionMockMvc
+                .perform(delete(ENTITY_API_URL_ID, auction.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+            restAuctionMockMvc
+                .perform(
+                    post("/api/offers")
+                        .with(user("carol"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(new Offer().offerValue(100D).offerName(auction)))
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.auctionclosed"));
+        } finally {
+            deleteWithBids(auction);
+            bidBook.evict(auction.getId());
+        }
+    }
+
+    @Test
+    void deleteAuctionWithOffersWithoutValue() throws Exception {
+        // The offer is committed outside of the bid book, so only the database knows the auction has one
+        auctionRepository.saveAndFlush(auction);
+        Offer offer = offerRepository.saveAndFlush(new Offer().bidder("alice").offerName(auction));
+
+        try {
+            restAuctionMockMvc
+                .perform(delete(ENTITY_API_URL_ID, auction.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+
+            assertThat(auctionRepository.findById(auction.getId())).isPresent();
+        } finally {
+            offerRepository.deleteById(offer.getId());
+            auctionRepository.deleteById(auction.getId());
+        }
+    }
+
+    private static ProxyBidDTO proxyBid(double maxAmount) {
+        ProxyBidDTO proxyBid = new ProxyBidDTO();
+        proxyBid.setMaxAmount(maxAmount);
+        return proxyBid;
+    }
+
+    /**
+     * Delete an auction committed by a test, with its offers and proxy bids.
+     */
+    private void deleteWithBids(Auction auction) {
+        proxyBidRepository
+            .findAll()
+            .stream()
+            .filter(proxyBid -> auction.getId().equals(proxyBid.getAuction().getId()))
+            .forEach(proxyBidRepository::delete);
+        offerRepository.findAllBidsByAuctionId(auction.getId()).forEach(bid -> offerRepository.deleteById(bid.getId()));
+        auctionRepository.deleteById(auction.getId());
+    }
 }
@@ -1,24 +1,38 @@
 package at.jku.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import at.jku.IntegrationTest;
+import at.jku.domain.Auction;
 import at.jku.domain.Offer;
+import at.jku.repository.AuctionRepository;
 import at.jku.repository.OfferRepository;
+import at.jku.service.ExportService;
+import at.jku.service.bid.BidBook;
+import at.jku.web.idempotency.IdempotentRequests;
+import at.jku.web.rest.util.KeysetPaginationUtil;
+import com.jayway.jsonpath.JsonPath;
+import java.time.Instant;
 import java.util.List;
 import java.util.Random;
+import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -41,12 +55,18 @@ class OfferResourceIT {
     @Autowired
     private OfferRepository offerRepository;
 
+    @Autowired
+    private AuctionRepository auctionRepository;
+
     @Autowired
     private EntityManager em;
 
     @Autowired
     private MockMvc restOfferMockMvc;
 
+    @Autowired
+    private BidBook bidBook;
+
     private Offer offer;
 
     /**
@@ -92,6 +112,67 @@ class OfferResourceIT {
         assertThat(testOffer.getOfferValue()).isEqualTo(DEFAULT_OFFER_VALUE);
     }
 
+    @Test
+    @Transactional
+    void createOfferWithIdempotencyKeyOnlyOnce() throws Exception {
+        int databaseSizeBeforeCreate = offerRepository.findAll().size();
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        MvcResult first = restOfferMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .header(IdempotentRequests.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(offer))
+            )
+            .andExpect(status().isCreated())
+            .andExpect(header().doesNotExist(IdempotentRequests.REPLAYED_HEADER))
+            .andReturn();
+        Integer id = JsonPath.read(first.getResponse().getContentAsString(), "$.id");
+
+        restOfferMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .header(IdempotentRequests.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(offer))
+            )
+            .andExpect(status().isCreated())
+            .andExpect(header().string(IdempotentRequests.REPLAYED_HEADER, "true"))
+            .andExpect(header().string(HttpHeaders.LOCATION, "/api/offers/" + id))
+            .andExpect(header().string(HttpHeaders.ETAG, first.getResponse().getHeader(HttpHeaders.ETAG)))
+            .andExpect(jsonPath("$.id").value(id))
+            .andExpect(jsonPath("$.offerValue").value(DEFAULT_OFFER_VALUE));
+
+        assertThat(offerRepository.findAll()).hasSize(databaseSizeBeforeCreate + 1);
+    }
+
+    @Test
+    @Transactional
+    void createOfferRepeatingIdempotencyKeyWithAnotherOffer() throws Exception {
+        int databaseSizeBeforeCreate = offerRepository.findAll().size();
+        String idempotencyKey = UUID.randomUUID().toString();
+        restOfferMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .header(IdempotentRequests.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(offer))
+            )
+            .andExpect(status().isCreated());
+
+        restOfferMockMvc
+            .perform(
+                post(ENTITY_API_URL)
+                    .header(IdempotentRequests.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(TestUtil.convertObjectToJsonBytes(createUpdatedEntity(em)))
+            )
+            .andExpect(status().isUnprocessableEntity());
+
+        assertThat(offerRepository.findAll()).hasSize(databaseSizeBeforeCreate + 1);
+    }
+
     @Test
     @Transactional
     void createOfferWithExistingId() throws Exception {
@@ -110,6 +191,212 @@ class OfferResourceIT {
         assertThat(offerList).hasSize(databaseSizeBeforeCreate);
     }
 
+    @Test
+    void createOfferNotBeatingHighestBid() throws Exception {
+        // Offers are placed outside of any transaction, so this test commits its auction and cleans up after itself
+        Auction auction = auctionRepository.saveAndFlush(AuctionResourceIT.createEntity(em));
+        offer.setOfferName(auction);
+
+        try {
+            restOfferMockMvc
+                .perform(post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(offer)))
+                .andExpect(status().isCreated());
+
+            int databaseSizeBeforeCreate = offerRepository.findAll().size();
+
+            // An offer equal to the highest bid of the auction must be rejected
+            Offer lowerOffer = new Offer().offerValue(DEFAULT_OFFER_VALUE).offerName(auction);
+            restOfferMockMvc
+                .perform(
+                    post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(lowerOffer))
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.bidtoolow"));
+
+            Offer higherOffer = new Offer().offerValue(UPDATED_OFFER_VALUE).offerName(auction);
+            restOfferMockMvc
+                .perform(
+                    post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(higherOffer))
+                )
+                .andExpect(status().isCreated());
+
+            assertThat(offerRepository.findAll()).hasSize(databaseSizeBeforeCreate + 1);
+            restOfferMockMvc
+                .perform(get("/api/auctions/{id}/highest-bid", auction.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(UPDATED_OFFER_VALUE.doubleValue()));
+        } finally {
+            deleteWithOffers(auction);
+        }
+    }
+
+    @Test
+    void updateOfferNotBeatingHighestBid() throws Exception {
+        // Offers are placed outside of any transaction, so this test commits its auction and cleans up after itself
+        Auction auction = auctionRepository.saveAndFlush(AuctionResourceIT.createEntity(em));
+
+        try {
+            Offer lowerOffer = createOffer(new Offer().offerValue(10D).offerName(auction));
+            Offer highestOffer = createOffer(new Offer().offerValue(20D).offerName(auction));
+
+            // Neither lowering the highest bid nor raising another one below it is allowed
+            restOfferMockMvc
+                .perform(
+                    put(ENTITY_API_URL_ID, highestOffer.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(highestOffer.offerValue(5D)))
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.bidtoolow"));
+            restOfferMockMvc
+                .perform(
+                    patch(ENTITY_API_URL_ID, lowerOffer.getId())
+                        .contentType("application/merge-patch+json")
+                        .content(TestUtil.convertObjectToJsonBytes(new Offer().id(lowerOffer.getId()).offerValue(15D)))
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.bidtoolow"));
+
+            // The refused updates leave the bids as they were
+            assertThat(offerRepository.findById(highestOffer.getId())).get().extracting(Offer::getOfferValue).isEqualTo(20D);
+            restOfferMockMvc
+                .perform(get("/api/auctions/{id}/highest-bid", auction.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(20D));
+
+            restOfferMockMvc
+                .perform(
+                    put(ENTITY_API_URL_ID, lowerOffer.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(lowerOffer.offerValue(25D)))
+                )
+                .andExpect(status().isOk());
+            restOfferMockMvc
+                .perform(get("/api/auctions/{id}/highest-bid", auction.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").value(25D));
+        } finally {
+            deleteWithOffers(auction);
+        }
+    }
+
+    @Test
+    void updateOfferOfClosedAuction() throws Exception {
+        // Offers are placed outside of any transaction, so this test commits its auctions and cleans up after itself
+        Auction openAuction = auctionRepository.saveAndFlush(AuctionResourceIT.createEntity(em));
+        Auction closedAuction = auctionRepository.saveAndFlush(AuctionResourceIT.createEntity(em));
+
+        try {
+            Offer openOffer = createOffer(new Offer().offerValue(10D).offerName(openAuction));
+            Offer closedOffer = createOffer(new Offer().offerValue(10D).offerName(closedAuction));
+            bidBook.close(closedAuction.getId());
+
+            // The bids of a closed auction can neither be raised nor moved away, and no bid can be moved onto it
+            restOfferMockMvc
+                .perform(
+                    put(ENTITY_API_URL_ID, closedOffer.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(closedOffer.offerValue(20D)))
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.auctionclosed"));
+            restOfferMockMvc
+                .perform(
+                    put(ENTITY_API_URL_ID, closedOffer.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(closedOffer.offerValue(20D).offerName(openAuction)))
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.auctionclosed"));
+            restOfferMockMvc
+                .perform(
+                    put(ENTITY_API_URL_ID, openOffer.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(openOffer.offerValue(20D).offerName(closedAuction)))
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.auctionclosed"));
+
+            assertThat(offerRepository.findAllBidsByAuctionId(closedAuction.getId()))
+                .extracting(OfferRepository.Bid::getId, OfferRepository.Bid::getOfferValue)
+                .containsExactly(tuple(closedOffer.getId(), 10D));
+            assertThat(bidBook.getHighestBid(closedAuction.getId())).hasValue(10D);
+            assertThat(bidBook.getHighestBid(openAuction.getId())).hasValue(10D);
+        } finally {
+            deleteWithOffers(openAuction);
+            deleteWithOffers(closedAuction);
+        }
+    }
+
+    @Test
+    @Transactional
+    void createOfferOnNonExistingAuction() throws Exception {
+        int databaseSizeBeforeCreate = offerRepository.findAll().size();
+        offer.setOfferName(new Auction().id(Long.MAX_VALUE));
+
+        restOfferMockMvc
+            .perform(post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(offer)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.auctionnotfound"));
+
+        assertThat(offerRepository.findAll()).hasSize(databaseSizeBeforeCreate);
+    }
+
+    @Test
+    @Transactional
+    void createOfferOnNonExistingAuctionWithIdempotencyKeyTwice() throws Exception {
+        String idempotencyKey = UUID.randomUUID().toString();
+        offer.setOfferName(new Auction().id(Long.MAX_VALUE));
+
+        // the key of a request failing is released, so the retry is handled again rather than found in flight
+        for (int i = 0; i < 2; i++) {
+            restOfferMockMvc
+                .perform(
+                    post(ENTITY_API_URL)
+                        .header(IdempotentRequests.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(TestUtil.convertObjectToJsonBytes(offer))
+                )
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("error.auctionnotfound"));
+        }
+    }
+
+    @Test
+    void createOffersInBatch() throws Exception {
+        int databaseSizeBeforeCreate = offerRepository.findAll().size();
+        String batch = "[{\"offerValue\":1.5},{\"id\":1,\"offerValue\":2},{\"offerValue\":\"NaN?\"},{\"offerValue\":3.5}]";
+
+        // Every chunk commits on its own, so this test cannot roll back and cleans up after itself
+        String response = restOfferMockMvc
+            .perform(post(ENTITY_API_URL + "/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(4))
+            .andExpect(jsonPath("$.[0].created").value(true))
+            .andExpect(jsonPath("$.[1].errorKey").value("idexists"))
+            .andExpect(jsonPath("$.[2].errorKey").value("offerinvalid"))
+            .andExpect(jsonPath("$.[3].created").value(true))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+        List<Number> createdIds = JsonPath.read(response, "$[?(@.created == true)].id");
+        try {
+            assertThat(offerRepository.findAll()).hasSize(databaseSizeBeforeCreate + 2);
+            assertThat(offerRepository.findById(createdIds.get(0).longValue())).get().extracting(Offer::getOfferValue).isEqualTo(1.5D);
+        } finally {
+            createdIds.forEach(id -> offerRepository.deleteById(id.longValue()));
+        }
+    }
+
+    @Test
+    @Transactional
+    void createOffersInBatchWithoutArray() throws Exception {
+        restOfferMockMvc
+            .perform(post(ENTITY_API_URL + "/batch").contentType(MediaType.APPLICATION_JSON).content("{\"offerValue\":1}"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     void getAllOffers() throws Exception {
@@ -125,6 +412,86 @@ class OfferResourceIT {
             .andExpect(jsonPath("$.[*].offerValue").value(hasItem(DEFAULT_OFFER_VALUE.doubleValue())));
     }
 
+    @Test
+    @Transactional
+    void getAllOffersInOneStatement() throws Exception {
+        // Offers on distinct auctions, which used to cost one more select per auction
+        Auction auction = null;
+        for (int i = 0; i < 3; i++) {
+            auction = AuctionResourceIT.createEntity(em);
+            em.persist(auction);
+            em.persist(new Offer().offerValue(DEFAULT_OFFER_VALUE + i).offerName(auction));
+        }
+        Auction lastAuction = auction;
+        em.flush();
+        em.clear();
+
+        long statements = TestUtil.countStatements(
+            em,
+            () ->
+                restOfferMockMvc
+                    .perform(get(ENTITY_API_URL + "?sort=id,desc&size=3"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(3)))
+                    .andExpect(jsonPath("$.[*].offerName.id").value(hasItem(lastAuction.getId().intValue())))
+                    .andExpect(jsonPath("$.[*].offerName.auctionDescription").value(hasItem(lastAuction.getAuctionDescription())))
+        );
+
+        assertThat(statements).isEqualTo(1);
+    }
+
+    @Test
+    @Transactional
+    void getAllOffersByValueWithCursor() throws Exception {
+        Offer cheap = offerRepository.saveAndFlush(new Offer().offerValue(DEFAULT_OFFER_VALUE));
+        Offer sameValue = offerRepository.saveAndFlush(new Offer().offerValue(DEFAULT_OFFER_VALUE));
+        Offer expensive = offerRepository.saveAndFlush(new Offer().offerValue(UPDATED_OFFER_VALUE));
+
+        // Ties on the value are broken by the id
+        restOfferMockMvc
+            .perform(
+                get(
+                    ENTITY_API_URL +
+                    "?sort=offerValue,asc&size=1&after=" +
+                    KeysetPaginationUtil.encodeCursor(cheap.getOfferValue(), cheap.getId())
+                )
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].id").value(sameValue.getId().intValue()));
+
+        restOfferMockMvc
+            .perform(
+                get(
+                    ENTITY_API_URL +
+                    "?sort=offerValue,desc&size=1&after=" +
+                    KeysetPaginationUtil.encodeCursor(expensive.getOfferValue(), expensive.getId())
+                )
+            )
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].offerValue").value(DEFAULT_OFFER_VALUE.doubleValue()));
+    }
+
+    @Test
+    @Transactional
+    void getAllOffersWithInvalidCursor() throws Exception {
+        restOfferMockMvc
+            .perform(get(ENTITY_API_URL + "?sort=offerValue,asc&after=" + KeysetPaginationUtil.encodeCursor(1L)))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    void exportOffers() throws Exception {
+        // Initialize the database
+        offerRepository.saveAndFlush(offer);
+
+        restOfferMockMvc
+            .perform(get(ENTITY_API_URL + "/export"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(ExportService.NDJSON_MEDIA_TYPE))
+            .andExpect(content().string(containsString("{\"id\":" + offer.getId() + ",\"offerValue\":1.0,\"auctionId\":null}\n")));
+    }
+
     @Test
     @Transactional
     void getOffer() throws Exception {
@@ -176,6 +543,35 @@ class OfferResourceIT {
         assertThat(testOffer.getOfferValue()).isEqualTo(UPDATED_OFFER_VALUE);
     }
 
+    @Test
+    @Transactional
+    void putExistingOfferInTwoStatements() throws Exception {
+        // Initialize the database
+        offerRepository.saveAndFlush(offer);
+        em.clear();
+
+        Offer updatedOffer = new Offer().id(offer.getId()).offerValue(UPDATED_OFFER_VALUE);
+
+        // One select of the offer, its update and the insert of its outbox event, flushed as they would be at commit,
+        // and the fetch of a block of outbox event ids when the one in hand runs out
+        long statements = TestUtil.countStatements(
+            em,
+            () -> {
+                restOfferMockMvc
+                    .perform(
+                        put(ENTITY_API_URL_ID, updatedOffer.getId())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(TestUtil.convertObjectToJsonBytes(updatedOffer))
+                    )
+                    .andExpect(status().isOk());
+                em.flush();
+            }
+        );
+
+        assertThat(statements).isBetween(3L, 4L);
+        assertThat(offerRepository.findById(offer.getId())).get().extracting(Offer::getOfferValue).isEqualTo(UPDATED_OFFER_VALUE);
+    }
+
     @Test
     @Transactional
     void putNonExistingOffer() throws Exception {
@@ -259,6 +655,55 @@ class OfferResourceIT {
         assertThat(testOffer.getOfferValue()).isEqualTo(DEFAULT_OFFER_VALUE);
     }
 
+    @Test
+    @Transactional
+    void partialUpdateOfferInTwoStatements() throws Exception {
+        // Initialize the database
+        offerRepository.saveAndFlush(offer);
+        em.clear();
+
+        Offer partialUpdatedOffer = new Offer().id(offer.getId()).offerValue(UPDATED_OFFER_VALUE);
+
+        // One select of the offer, its update and the insert of its outbox event, flushed as they would be at commit,
+        // and the fetch of a block of outbox event ids when the one in hand runs out
+        long statements = TestUtil.countStatements(
+            em,
+            () -> {
+                restOfferMockMvc
+                    .perform(
+                        patch(ENTITY_API_URL_ID, partialUpdatedOffer.getId())
+                            .contentType("application/merge-patch+json")
+                            .content(TestUtil.convertObjectToJsonBytes(partialUpdatedOffer))
+                    )
+                    .andExpect(status().isOk());
+                em.flush();
+            }
+        );
+
+        assertThat(statements).isBetween(3L, 4L);
+    }
+
+    @Test
+    @Transactional
+    void patchOfferWithStaleIfMatch() throws Exception {
+        // Initialize the database
+        offerRepository.saveAndFlush(offer);
+
+        Offer partialUpdatedOffer = new Offer().id(offer.getId()).offerValue(UPDATED_OFFER_VALUE);
+
+        restOfferMockMvc
+            .perform(
+                patch(ENTITY_API_URL_ID, partialUpdatedOffer.getId())
+                    .header(HttpHeaders.IF_MATCH, "\"41\"")
+                    .contentType("application/merge-patch+json")
+                    .content(TestUtil.convertObjectToJsonBytes(partialUpdatedOffer))
+            )
+            .andExpect(status().isPreconditionFailed())
+            .andExpect(jsonPath("$.message").value("error.preconditionFailed"));
+
+        assertThat(offerRepository.findById(offer.getId())).get().extracting(Offer::getOfferValue).isEqualTo(DEFAULT_OFFER_VALUE);
+    }
+
     @Test
     @Transactional
     void fullUpdateOfferWithPatch() throws Exception {
@@ -361,4 +806,23 @@ class OfferResourceIT {
         List<Offer> offerList = offerRepository.findAll();
         assertThat(offerList).hasSize(databaseSizeBeforeDelete - 1);
     }
+
+    private Offer createOffer(Offer offer) throws Exception {
+        String created = restOfferMockMvc
+            .perform(post(ENTITY_API_URL).contentType(MediaType.APPLICATION_JSON).content(TestUtil.convertObjectToJsonBytes(offer)))
+            .andExpect(status().isCreated())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+        Number id = JsonPath.read(created, "$.id");
+        return offer.id(id.longValue());
+    }
+
+    /**
+     * Delete an auction committed by a test, with its offers.
+     */
+    private void deleteWithOffers(Auction auction) {
+        offerRepository.findAllBidsByAuctionId(auction.getId()).forEach(bid -> offerRepository.deleteById(bid.getId()));
+        auctionRepository.deleteById(auction.getId());
+    }
 }
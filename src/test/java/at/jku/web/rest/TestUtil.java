@@ -19,6 +19,8 @@ import javax.persistence.criteria.Root;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeDiagnosingMatcher;
 import org.hamcrest.TypeSafeMatcher;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.springframework.format.datetime.standard.DateTimeFormatterRegistrar;
 import org.springframework.format.support.DefaultFormattingConversionService;
 import org.springframework.format.support.FormattingConversionService;
@@ -202,5 +204,32 @@ public final class TestUtil {
         return allQuery.getResultList();
     }
 
+    /**
+     * Counts the SQL statements prepared while running a block, with Hibernate statistics enabled for its duration.
+     * @param em The instance of the EntityManager
+     * @param block The block to run
+     * @return The number of statements prepared by the block
+     * @throws Exception If the block fails
+     */
+    public static long countStatements(EntityManager em, StatementBlock block) throws Exception {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            block.run();
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    /**
+     * A block of test code whose SQL statements are counted.
+     */
+    @FunctionalInterface
+    public interface StatementBlock {
+        void run() throws Exception;
+    }
+
     private TestUtil() {}
 }
@@ -1,5 +1,7 @@
 package at.jku.web.rest.errors;
 
+import at.jku.security.PasswordHashingBusyException;
+import java.time.Duration;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import org.springframework.dao.ConcurrencyFailureException;
@@ -17,6 +19,11 @@ public class ExceptionTranslatorTestController {
         throw new ConcurrencyFailureException("test concurrency failure");
     }
 
+    @GetMapping("/password-hashing-busy")
+    public void passwordHashingBusy() {
+        throw new PasswordHashingBusyException(Duration.ofSeconds(2));
+    }
+
     @PostMapping("/method-argument")
     public void methodArgument(@Valid @RequestBody TestDTO testDTO) {}
 
@@ -0,0 +1,110 @@
+package at.jku.web.sse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import at.jku.config.ApplicationProperties;
+import at.jku.service.bid.BidPlacedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link AuctionEventFeed}.
+ */
+class AuctionEventFeedTest {
+
+    private static final int BUFFER_SIZE = 2;
+
+    private final List<Runnable> pendingDrains = new ArrayList<>();
+
+    private MeterRegistry meterRegistry;
+
+    private AuctionEventFeed feed;
+
+    @BeforeEach
+    public void setup() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getAuctionEvents().setBufferSize(BUFFER_SIZE);
+        meterRegistry = new SimpleMeterRegistry();
+        // drains only run when the test says so, like a subscriber whose client stopped reading
+        feed = new AuctionEventFeed(pendingDrains::add, meterRegistry, applicationProperties);
+    }
+
+    @Test
+    void countsSubscribers() {
+        feed.subscribe(1L);
+        feed.subscribe(1L);
+        feed.subscribe(2L);
+
+        assertThat(feed.getSubscriberCount()).isEqualTo(3);
+        assertThat(meterRegistry.get(AuctionEventFeed.SUBSCRIBERS_METER_NAME).gauge().value()).isEqualTo(3D);
+    }
+
+    @Test
+    void schedulesOneDrainPerSubscriber() {
+        feed.subscribe(1L);
+
+        feed.onBidPlaced(new BidPlacedEvent(1L, 10L, 1D));
+        feed.onBidPlaced(new BidPlacedEvent(1L, 11L, 2D));
+
+        assertThat(pendingDrains).hasSize(1);
+    }
+
+    @Test
+    void ignoresBidsOnOtherAuctions() {
+        feed.subscribe(1L);
+
+        feed.onBidPlaced(new BidPlacedEvent(2L, 10L, 1D));
+
+        assertThat(pendingDrains).isEmpty();
+    }
+
+    @Test
+    void disconnectsSlowConsumer() {
+        feed.subscribe(1L);
+
+        for (int i = 0; i <= BUFFER_SIZE; i++) {
+            feed.onBidPlaced(new BidPlacedEvent(1L, i, i));
+        }
+
+        assertThat(feed.getSubscriberCount()).isZero();
+        assertThat(meterRegistry.get(AuctionEventFeed.SLOW_CONSUMERS_METER_NAME).counter().count()).isEqualTo(1D);
+    }
+
+    @Test
+    void drainsBufferedEvents() {
+        feed.subscribe(1L);
+
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            feed.onBidPlaced(new BidPlacedEvent(1L, i, i));
+        }
+        pendingDrains.forEach(Runnable::run);
+        for (int i = 0; i < BUFFER_SIZE; i++) {
+            feed.onBidPlaced(new BidPlacedEvent(1L, i, i));
+        }
+
+        assertThat(feed.getSubscriberCount()).isEqualTo(1);
+        assertThat(meterRegistry.get(AuctionEventFeed.SLOW_CONSUMERS_METER_NAME).counter().count()).isZero();
+    }
+
+    @Test
+    void disconnectsSubscriberWhenNoSenderIsLeft() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        AuctionEventFeed saturated = new AuctionEventFeed(
+            drain -> {
+                throw new RejectedExecutionException("every sender is busy");
+            },
+            meterRegistry,
+            applicationProperties
+        );
+        saturated.subscribe(1L);
+
+        saturated.onBidPlaced(new BidPlacedEvent(1L, 10L, 1D));
+
+        assertThat(saturated.getSubscriberCount()).isZero();
+    }
+}